@@ -0,0 +1,88 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.java.AnalyzerMessage;
+import org.sonar.plugins.java.api.JavaFileScanner;
+
+/**
+ * Cost of a single check. One operation analyzes one file of the corpus, so the score is in files per second
+ * and {@code gc.alloc.rate.norm} of the GC profiler is the allocation per file.
+ *
+ * <p>Checks keep state from one file to the next (call graph, shared walk), so every iteration starts from freshly
+ * parsed trees and new checks. Parsing and a first pass completing the lazily loaded symbols are not measured.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckBenchmark {
+
+  /**
+   * Rule key. {@link BenchmarkMain} runs every rule of the registry unless {@code -p rule=...} is given.
+   */
+  @Param({"AvoidAnnotation"})
+  public String rule;
+
+  private Corpus corpus;
+  private ParsedCorpus parsed;
+  private List<JavaFileScanner> scanners;
+
+  @Setup(Level.Trial)
+  public void loadCorpus() throws IOException {
+    corpus = Corpus.load();
+  }
+
+  @Setup(Level.Iteration)
+  public void prepareIteration() {
+    parsed = corpus.parse();
+    scanners = Checks.newScanners(descriptor -> descriptor.key().equals(rule));
+    parsed.scanAll(scanners);
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeIteration() {
+    parsed.close();
+  }
+
+  @Benchmark
+  public Set<AnalyzerMessage> analyzeFile() {
+    return parsed.scanNext(scanners);
+  }
+}
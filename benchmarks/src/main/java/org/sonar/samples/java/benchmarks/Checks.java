@@ -0,0 +1,59 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.benchmarks;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.samples.java.RulesList;
+import org.sonar.samples.java.registry.RuleDescriptor;
+
+final class Checks {
+
+  private Checks() {
+  }
+
+  static List<JavaFileScanner> newScanners(Predicate<RuleDescriptor> selection) {
+    List<JavaFileScanner> scanners = RulesList.getJavaRules().stream()
+      .filter(selection)
+      .map(descriptor -> (JavaFileScanner) descriptor.newCheck())
+      .collect(Collectors.toList());
+    if (scanners.isEmpty()) {
+      throw new IllegalArgumentException("No rule selected among " + RulesList.getJavaRules());
+    }
+    return scanners;
+  }
+
+  static List<String> ruleKeys() {
+    return RulesList.getJavaRules().stream().map(RuleDescriptor::key).collect(Collectors.toList());
+  }
+
+  static Map<Class<? extends JavaCheck>, String> ruleKeysByCheckClass() {
+    Map<Class<? extends JavaCheck>, String> keys = new HashMap<>();
+    for (RuleDescriptor descriptor : RulesList.getJavaRules()) {
+      keys.put(descriptor.checkClass(), descriptor.key());
+    }
+    return keys;
+  }
+}
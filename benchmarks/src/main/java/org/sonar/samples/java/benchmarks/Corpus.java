@@ -0,0 +1,81 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Fixed set of source files the benchmarks analyze, bundled under {@code /corpus} and listed in {@code files.list}.
+ * Sources are read once, and parsed again by {@link #parse()} whenever fresh trees are needed.
+ */
+final class Corpus {
+
+  private static final String DIRECTORY = "/corpus/";
+  private static final String LIST = DIRECTORY + "files.list";
+
+  private final Map<String, String> sourcesByName;
+
+  private Corpus(Map<String, String> sourcesByName) {
+    this.sourcesByName = Collections.unmodifiableMap(sourcesByName);
+  }
+
+  static Corpus load() throws IOException {
+    Map<String, String> sources = new LinkedHashMap<>();
+    for (String name : read(LIST).split("\n")) {
+      if (!name.trim().isEmpty()) {
+        sources.put(name.trim(), read(DIRECTORY + name.trim()));
+      }
+    }
+    if (sources.isEmpty()) {
+      throw new IllegalStateException("Empty benchmark corpus: " + LIST);
+    }
+    return new Corpus(sources);
+  }
+
+  /**
+   * Sources of the corpus by file name, in the order of {@code files.list}.
+   */
+  Map<String, String> sources() {
+    return sourcesByName;
+  }
+
+  ParsedCorpus parse() {
+    return new ParsedCorpus(new ArrayList<>(sourcesByName.entrySet()));
+  }
+
+  private static String read(String resource) throws IOException {
+    InputStream stream = Corpus.class.getResourceAsStream(resource);
+    if (stream == null) {
+      throw new IOException("Missing corpus resource: " + resource);
+    }
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+      return reader.lines().collect(Collectors.joining("\n"));
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.MethodInvocationTree;
+import org.sonar.samples.java.checks.MethodMatcher;
+
+/**
+ * Cost of recognizing the invocations of the corpus, with the tests the checks used to make on printed trees and with
+ * the {@link MethodMatcher}s replacing them. One operation tests one invocation, so {@code gc.alloc.rate.norm} of the
+ * GC profiler is the allocation per {@code MethodInvocationTree}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MethodMatcherBenchmark {
+
+  private static final MethodMatcher RESOURCE_CLEANUP = MethodMatcher.create()
+    .nameContaining("close", "flush", "release", "commit");
+  private static final MethodMatcher LOG_METHOD = MethodMatcher.create()
+    .names("log", "info", "warn", "error", "debug", "trace");
+  private static final MethodMatcher LOGGER_ERROR = MethodMatcher.create()
+    .ownerSubtypeOf(MethodMatcher.LOGGER_TYPES)
+    .names("error");
+  private static final MethodMatcher HMAC_SHA_KEY_FOR = MethodMatcher.create()
+    .ownerType("io.jsonwebtoken.security.Keys")
+    .names("hmacShaKeyFor");
+
+  private ParsedCorpus parsed;
+  private List<MethodInvocationTree> invocations;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void collectInvocations() throws IOException {
+    parsed = Corpus.load().parse();
+    List<MethodInvocationTree> found = new ArrayList<>();
+    JavaFileScanner collector = new JavaFileScanner() {
+      @Override
+      public void scanFile(JavaFileScannerContext context) {
+        context.getTree().accept(new BaseTreeVisitor() {
+          @Override
+          public void visitMethodInvocation(MethodInvocationTree tree) {
+            found.add(tree);
+            super.visitMethodInvocation(tree);
+          }
+        });
+      }
+    };
+    parsed.scanAll(Collections.singletonList(collector));
+    invocations = found;
+  }
+
+  @TearDown(Level.Trial)
+  public void close() {
+    parsed.close();
+  }
+
+  @Benchmark
+  public int printedTree() {
+    String methodSelect = nextInvocation().methodSelect().toString();
+    int matches = 0;
+    if (Pattern.compile(".*(close|flush|release|commit).*").matcher(methodSelect).find()) {
+      matches++;
+    }
+    if (methodSelect.contains("log")) {
+      matches++;
+    }
+    if (methodSelect.contains("logger.error")) {
+      matches++;
+    }
+    if (methodSelect.contains("Keys.hmacShaKeyFor")) {
+      matches++;
+    }
+    return matches;
+  }
+
+  @Benchmark
+  public int methodMatcher() {
+    MethodInvocationTree invocation = nextInvocation();
+    int matches = 0;
+    if (RESOURCE_CLEANUP.matches(invocation)) {
+      matches++;
+    }
+    if (LOG_METHOD.matches(invocation)) {
+      matches++;
+    }
+    if (LOGGER_ERROR.matches(invocation)) {
+      matches++;
+    }
+    if (HMAC_SHA_KEY_FOR.matches(invocation)) {
+      matches++;
+    }
+    return matches;
+  }
+
+  private MethodInvocationTree nextInvocation() {
+    MethodInvocationTree invocation = invocations.get(next);
+    next = (next + 1) % invocations.size();
+    return invocation;
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.benchmarks;
+
+import com.sonar.sslr.api.typed.ActionParser;
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.sonar.java.AnalyzerMessage;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.model.VisitorsBridgeForTests;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaVersion;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Trees and semantic models of the corpus, analyzed one file at a time in a loop.
+ *
+ * <p>Types are resolved against the benchmark class path, which holds the libraries the corpus uses. Bytecode is read
+ * lazily while the checks query the semantic model, so the class loader stays open until {@link #close()}.</p>
+ */
+final class ParsedCorpus implements Closeable {
+
+  private static final JavaVersion JAVA_VERSION = new JavaVersionImpl(8);
+
+  private final SquidClassLoader classLoader;
+  private final List<ParsedFile> files = new ArrayList<>();
+  private int next;
+
+  ParsedCorpus(List<Map.Entry<String, String>> sources) {
+    classLoader = new SquidClassLoader(Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+      .map(File::new)
+      .collect(Collectors.toList()));
+    ActionParser<Tree> parser = JavaParser.createParser();
+    for (Map.Entry<String, String> source : sources) {
+      CompilationUnitTree tree = (CompilationUnitTree) parser.parse(source.getValue());
+      files.add(new ParsedFile(new File("corpus", source.getKey()), tree, SemanticModel.createFor(tree, classLoader)));
+    }
+  }
+
+  int size() {
+    return files.size();
+  }
+
+  /**
+   * Runs the scanners on the next file of the corpus, going back to the first one after the last.
+   */
+  Set<AnalyzerMessage> scanNext(List<JavaFileScanner> scanners) {
+    ParsedFile file = files.get(next);
+    next = (next + 1) % files.size();
+    return file.scan(scanners);
+  }
+
+  /**
+   * Runs the scanners once on every file, which completes the lazily loaded symbols before anything is measured.
+   */
+  int scanAll(List<JavaFileScanner> scanners) {
+    int issues = 0;
+    for (ParsedFile file : files) {
+      issues += file.scan(scanners).size();
+    }
+    next = 0;
+    return issues;
+  }
+
+  @Override
+  public void close() {
+    classLoader.close();
+  }
+
+  private static final class ParsedFile {
+
+    private final File file;
+    private final CompilationUnitTree tree;
+    private final SemanticModel semanticModel;
+
+    ParsedFile(File file, CompilationUnitTree tree, SemanticModel semanticModel) {
+      this.file = file;
+      this.tree = tree;
+      this.semanticModel = semanticModel;
+    }
+
+    Set<AnalyzerMessage> scan(List<JavaFileScanner> scanners) {
+      VisitorsBridgeForTests.TestJavaFileScannerContext context =
+        new VisitorsBridgeForTests.TestJavaFileScannerContext(tree, file, semanticModel, null, JAVA_VERSION, true);
+      for (JavaFileScanner scanner : scanners) {
+        scanner.scanFile(context);
+      }
+      return context.getIssues();
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.java.AnalyzerMessage;
+import org.sonar.plugins.java.api.JavaFileScanner;
+
+/**
+ * Cost of the whole plugin: every rule of the registry together, sharing one walk per file as during an analysis.
+ * Measured like {@link CheckBenchmark}, in files per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PluginBenchmark {
+
+  private Corpus corpus;
+  private ParsedCorpus parsed;
+  private List<JavaFileScanner> scanners;
+
+  @Setup(Level.Trial)
+  public void loadCorpus() throws IOException {
+    corpus = Corpus.load();
+  }
+
+  @Setup(Level.Iteration)
+  public void prepareIteration() {
+    parsed = corpus.parse();
+    scanners = Checks.newScanners(descriptor -> true);
+    parsed.scanAll(scanners);
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeIteration() {
+    parsed.close();
+  }
+
+  @Benchmark
+  public Set<AnalyzerMessage> analyzeFile() {
+    return parsed.scanNext(scanners);
+  }
+}
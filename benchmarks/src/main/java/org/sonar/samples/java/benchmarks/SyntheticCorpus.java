@@ -0,0 +1,1062 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.samples.java.checks.AvoidBrandInMethodNamesRule;
+import org.sonar.samples.java.checks.CustomCheckForDefineClass;
+import org.sonar.samples.java.checks.FileUploadSecurityRule;
+import org.sonar.samples.java.checks.FileValidationAndClosureRule;
+import org.sonar.samples.java.checks.InefficientDatabaseCallsRule;
+import org.sonar.samples.java.checks.JwtUtilsCheck;
+import org.sonar.samples.java.checks.PasswordEncoderRule;
+import org.sonar.samples.java.checks.SecurityAnnotationMandatoryRule;
+import org.sonar.samples.java.checks.SpringControllerRequestMappingEntityRule;
+
+/**
+ * Seeded generator of Spring Boot sources, along with the number of issues each rule of the plugin is expected to raise
+ * on them, to measure the throughput and the correctness of the rules on projects of any size.
+ * <p>
+ * The corpus is made of microservices of ten files each: an entity, its JPA repository, a DTO, a service, a REST
+ * controller, an upload, form or report controller, a mapper, a security class (password encoder configuration,
+ * authentication controller, entry point or JWT utilities), a support class and the application class. What each
+ * microservice holds is drawn from a random generator seeded with the seed of the corpus and the number of the
+ * microservice, so that the same seed always gives the same files, whatever the number of files generated.
+ * <p>
+ * The expected issues hold when the sources are analyzed together, with the benchmark class path and the entity index
+ * of the corpus: the types of the project declared in other files are unknown to the semantic model of a file.
+ * {@code SecureAuthEntryPoint} and {@code AvoidSuperClass} raise no issue on such code. The JWT utilities all declare
+ * {@code com.example.PokerPlanningBack.security.jwt.JwtUtils}, the only class {@code JwtUtilsCheck} looks at.
+ *
+ * <pre>java -cp benchmarks.jar org.sonar.samples.java.benchmarks.SyntheticCorpus directory [files] [seed]</pre>
+ */
+public final class SyntheticCorpus {
+
+  static final String BRAND = "MyCompany";
+  static final String EXPECTED_ISSUES = "expected-issues.properties";
+  static final int DEFAULT_FILES = 10_000;
+  static final long DEFAULT_SEED = 42;
+
+  private static final int FILES_PER_SERVICE = 10;
+  private static final String JWT_PACKAGE = "com.example.PokerPlanningBack.security.jwt";
+  private static final Map<Class<? extends JavaCheck>, String> RULE_KEYS = Checks.ruleKeysByCheckClass();
+
+  private static final Noun[] NOUNS = {
+    new Noun("Invoice", "invoices", "number:String", "amount:BigDecimal", "dueDate:LocalDate"),
+    new Noun("Customer", "customers", "email:String", "fullName:String", "active:Boolean"),
+    new Noun("Product", "products", "sku:String", "price:BigDecimal", "stock:Integer"),
+    new Noun("Shipment", "shipments", "trackingNumber:String", "carrier:String", "shippedOn:LocalDate"),
+    new Noun("Ticket", "tickets", "title:String", "priority:Integer", "closed:Boolean"),
+    new Noun("Booking", "bookings", "reference:String", "startDate:LocalDate", "guests:Integer"),
+    new Noun("Supplier", "suppliers", "name:String", "country:String", "rating:Integer"),
+    new Noun("Payment", "payments", "reference:String", "amount:BigDecimal", "paidOn:LocalDate"),
+    new Noun("Warehouse", "warehouses", "code:String", "city:String", "capacity:Integer"),
+    new Noun("Contract", "contracts", "number:String", "signedOn:LocalDate", "value:BigDecimal"),
+    new Noun("Employee", "employees", "badge:String", "department:String", "hiredOn:LocalDate"),
+    new Noun("Project", "projects", "code:String", "budget:BigDecimal", "archived:Boolean"),
+    new Noun("Vehicle", "vehicles", "plate:String", "mileage:Integer", "registeredOn:LocalDate"),
+    new Noun("Course", "courses", "title:String", "credits:Integer", "startsOn:LocalDate"),
+    new Noun("Patient", "patients", "recordNumber:String", "birthDate:LocalDate", "insured:Boolean"),
+    new Noun("Article", "articles", "slug:String", "headline:String", "publishedOn:LocalDate"),
+    new Noun("Campaign", "campaigns", "name:String", "budget:BigDecimal", "endsOn:LocalDate"),
+    new Noun("Subscription", "subscriptions", "plan:String", "monthlyFee:BigDecimal", "renewable:Boolean"),
+    new Noun("Device", "devices", "serialNumber:String", "model:String", "firmwareVersion:Integer"),
+    new Noun("Room", "rooms", "label:String", "floor:Integer", "available:Boolean"),
+    new Noun("Recipe", "recipes", "title:String", "servings:Integer", "vegetarian:Boolean"),
+    new Noun("Tournament", "tournaments", "name:String", "startsOn:LocalDate", "prizePool:BigDecimal"),
+    new Noun("Parcel", "parcels", "barcode:String", "weight:BigDecimal", "deliveredOn:LocalDate"),
+    new Noun("Meeting", "meetings", "subject:String", "scheduledOn:LocalDate", "attendees:Integer")
+  };
+
+  private final long seed;
+
+  public SyntheticCorpus(long seed) {
+    this.seed = seed;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println("Usage: SyntheticCorpus <directory> [files] [seed]");
+      System.exit(2);
+    }
+    int files = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_FILES;
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+    Path directory = Paths.get(args[0]);
+    Map<String, Integer> expected = new SyntheticCorpus(seed).write(directory, files);
+    int issues = expected.values().stream().mapToInt(Integer::intValue).sum();
+    System.out.printf("%d files and %d expected issues written to %s%n", files, issues, directory);
+  }
+
+  /**
+   * Writes the first files of the corpus under the given directory, along with {@value #EXPECTED_ISSUES}.
+   *
+   * @return the number of issues expected from each rule of the plugin, by rule key
+   */
+  Map<String, Integer> write(Path directory, int files) throws IOException {
+    Map<String, Integer> expected = new LinkedHashMap<>();
+    for (String key : Checks.ruleKeys()) {
+      expected.put(key, 0);
+    }
+    for (int index = 0; index < files; index++) {
+      GeneratedFile file = file(index);
+      Path path = directory.resolve(file.path);
+      Files.createDirectories(path.getParent());
+      Files.write(path, file.text.getBytes(StandardCharsets.UTF_8));
+      file.expectedIssues.forEach((key, issues) -> expected.merge(key, issues, Integer::sum));
+    }
+    try (Writer writer = Files.newBufferedWriter(directory.resolve(EXPECTED_ISSUES), StandardCharsets.UTF_8)) {
+      writer.write(String.format("# %d files, seed %d%n", files, seed));
+      for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+        writer.write(entry.getKey() + "=" + entry.getValue() + System.lineSeparator());
+      }
+    }
+    return expected;
+  }
+
+  /**
+   * File of the given index, the same for a given seed.
+   */
+  GeneratedFile file(int index) {
+    Microservice service = new Microservice(index / FILES_PER_SERVICE, seed);
+    switch (index % FILES_PER_SERVICE) {
+      case 0:
+        return service.entity();
+      case 1:
+        return service.repository();
+      case 2:
+        return service.dto();
+      case 3:
+        return service.service();
+      case 4:
+        return service.restController();
+      case 5:
+        return service.webController();
+      case 6:
+        return service.mapper();
+      case 7:
+        return service.security();
+      case 8:
+        return service.support();
+      default:
+        return service.application();
+    }
+  }
+
+  /**
+   * Source file of the corpus, with the number of issues expected from each rule, by rule key.
+   */
+  static final class GeneratedFile {
+
+    final String path;
+    final String text;
+    final Map<String, Integer> expectedIssues;
+    // entities and repositories: their bytecode is on the class path of the other files, as the project binaries
+    // are in a real analysis
+    final boolean compiled;
+
+    private GeneratedFile(String path, SyntheticSource source) {
+      this(path, source, false);
+    }
+
+    private GeneratedFile(String path, SyntheticSource source, boolean compiled) {
+      this.path = path;
+      this.text = source.text();
+      this.compiled = compiled;
+      Map<String, Integer> issues = new LinkedHashMap<>();
+      for (Map.Entry<Class<? extends JavaCheck>, Integer> entry : source.expectedIssues().entrySet()) {
+        issues.put(RULE_KEYS.get(entry.getKey()), entry.getValue());
+      }
+      this.expectedIssues = Collections.unmodifiableMap(issues);
+    }
+  }
+
+  private static final class Noun {
+
+    private final String name;
+    private final String plural;
+    // type and name of each field
+    private final List<String[]> fields = new ArrayList<>();
+
+    private Noun(String name, String plural, String... fields) {
+      this.name = name;
+      this.plural = plural;
+      for (String field : fields) {
+        int colon = field.indexOf(':');
+        this.fields.add(new String[] {field.substring(colon + 1), field.substring(0, colon)});
+      }
+    }
+  }
+
+  private enum SaveStyle {
+    BATCH, LOOP, FOR_EACH_REFERENCE, INDIRECT, LAMBDA
+  }
+
+  private enum WebVariant {
+    UPLOAD_LEAK, UPLOAD_SAFE, FORM, REPORT
+  }
+
+  private enum SecurityVariant {
+    BCRYPT, PBKDF2, STANDARD, CUSTOM_ENCODER, NO_OP, AUTH_CONTROLLER, ENTRY_POINT, JWT_LOGGED, JWT_UNLOGGED
+  }
+
+  private enum SupportVariant {
+    ADVICE, IMPORT_LOOP, IMPORT_STREAM, IMPORT_INDIRECT, DOCUMENTS_LEAK, DOCUMENTS_SAFE, AUDIT, CLASS_LOADER
+  }
+
+  /**
+   * What the files of one microservice hold, drawn from the seed of the corpus and the number of the microservice.
+   */
+  private static final class Microservice {
+
+    private final int number;
+    private final Noun noun;
+    private final String packageName;
+    private final String directory;
+    private final boolean validated;
+    private final SaveStyle saveStyle;
+    private final boolean normalize;
+    private final boolean export;
+    private final boolean archive;
+    private final boolean injectClock;
+    private final boolean search;
+    private final boolean paging;
+    private final WebVariant web;
+    private final SecurityVariant security;
+    private final SupportVariant support;
+    private final boolean brand;
+
+    private Microservice(int number, long seed) {
+      this.number = number;
+      Random random = new Random(seed ^ (number * 0x9E3779B97F4A7C15L));
+      noun = NOUNS[random.nextInt(NOUNS.length)];
+      packageName = "com.example.svc" + number + "." + noun.name.toLowerCase(Locale.ROOT);
+      directory = "svc" + number + "/src/main/java/";
+      validated = random.nextInt(3) > 0;
+      saveStyle = SaveStyle.values()[random.nextInt(SaveStyle.values().length)];
+      normalize = random.nextBoolean();
+      export = random.nextInt(3) == 0;
+      archive = random.nextBoolean();
+      injectClock = random.nextInt(4) == 0;
+      search = random.nextBoolean();
+      paging = random.nextBoolean();
+      web = WebVariant.values()[random.nextInt(WebVariant.values().length)];
+      security = SecurityVariant.values()[random.nextInt(SecurityVariant.values().length)];
+      // an Unsafe class loader is rare in a microservice
+      support = random.nextInt(40) == 0
+        ? SupportVariant.CLASS_LOADER
+        : SupportVariant.values()[random.nextInt(SupportVariant.values().length - 1)];
+      brand = random.nextInt(10) == 0;
+    }
+
+    private String type(String suffix) {
+      return noun.name + suffix;
+    }
+
+    private String first() {
+      return noun.fields.get(0)[1];
+    }
+
+    // the entity and the repository are compiled, the other types of the service are only known to their own file
+    private SyntheticSource source(String declared) {
+      List<String> others = new ArrayList<>(Arrays.asList(type("Dto"), type("Service"), type("Mapper"), type("Controller")));
+      others.remove(declared);
+      return new SyntheticSource(packageName, others);
+    }
+
+    private GeneratedFile file(String className, SyntheticSource source) {
+      return new GeneratedFile(directory + packageName.replace('.', '/') + "/" + className + ".java", source);
+    }
+
+    private GeneratedFile compiledFile(String className, SyntheticSource source) {
+      return new GeneratedFile(directory + packageName.replace('.', '/') + "/" + className + ".java", source, true);
+    }
+
+    GeneratedFile entity() {
+      SyntheticSource source = source(noun.name)
+        .annotation("@Entity")
+        .annotation("@Table(name = \"" + noun.plural + "\")")
+        .open("public class " + noun.name)
+        .line("")
+        .annotation("@Id")
+        .annotation("@GeneratedValue")
+        .line("private Long id;")
+        .line("");
+      fields(source, true);
+      source.open("public " + noun.name + "()").close().line("");
+      accessors(source);
+      return compiledFile(noun.name, source.close());
+    }
+
+    GeneratedFile repository() {
+      String repository = type("Repository");
+      SyntheticSource source = source(repository)
+        .imports("java.util.List", "java.util.Optional", "org.springframework.data.jpa.repository.JpaRepository")
+        .open("public interface " + repository + " extends JpaRepository<" + noun.name + ", Long>")
+        .line("")
+        .method("", "List<" + noun.name + ">", "findBy" + capitalized(first())).param("String", first()).declare()
+        .method("", "Optional<" + noun.name + ">", "findFirstBy" + capitalized(first()) + "IgnoreCase").param("String", first()).declare();
+      if (search) {
+        source.method("", "long", "countBy" + capitalized(first())).param("String", first()).declare();
+      }
+      return compiledFile(repository, source.close());
+    }
+
+    GeneratedFile dto() {
+      String dto = type("Dto");
+      SyntheticSource source = source(dto)
+        .open("public class " + dto)
+        .line("")
+        .line("private Long id;")
+        .line("");
+      if (validated) {
+        source.annotation("@NotBlank");
+      }
+      fields(source, false);
+      accessors(source);
+      return file(dto, source.close());
+    }
+
+    GeneratedFile service() {
+      String service = type("Service");
+      String dto = type("Dto");
+      String entity = noun.name;
+      String setter = "set" + capitalized(first());
+      SyntheticSource source = source(service)
+        .imports("java.util.List", "org.slf4j.Logger", "org.slf4j.LoggerFactory")
+        .annotation("@Service")
+        .open("public class " + service)
+        .line("")
+        .line("private static final Logger LOGGER = LoggerFactory.getLogger(" + service + ".class);")
+        .line("")
+        .line("private final " + type("Repository") + " repository;")
+        .line("private final " + type("Mapper") + " mapper;");
+      if (injectClock) {
+        source.imports("java.time.Clock").line("private Clock clock = Clock.systemUTC();");
+      }
+      source.line("")
+        .open("public " + service + "(" + type("Repository") + " repository, " + type("Mapper") + " mapper)")
+        .line("this.repository = repository;")
+        .line("this.mapper = mapper;")
+        .close()
+        .line("")
+        .method("public", "List<" + dto + ">", "findAll").body(
+          "return mapper.toDtos(repository.findAll());")
+        .method("public", dto, "findById").param("Long", "id").body(
+          "return mapper.toDto(repository.getOne(id));")
+        .method("public", dto, "create").param(dto, "dto").body(
+          entity + " saved = repository.save(mapper.toEntity(dto));",
+          "return mapper.toDto(saved);")
+        .method("public", dto, "update").param("Long", "id").param(dto, "dto").body(
+          entity + " entity = mapper.toEntity(dto);",
+          "entity.setId(id);",
+          "return mapper.toDto(repository.save(entity));")
+        .method("public", "void", "delete").param("Long", "id").body(
+          "repository.deleteById(id);");
+      if (search) {
+        source.method("public", "List<" + dto + ">", "search").param("String", "value").body(
+          "return mapper.toDtos(repository.findBy" + capitalized(first()) + "(value));");
+      }
+      importMethod(source, entity, setter);
+      if (normalize) {
+        source.imports("java.util.Locale")
+          .method("private", "String", "normalize").param("String", "value").body(
+            "return value == null ? null : value.trim().toLowerCase(Locale.ROOT);");
+      }
+      if (export) {
+        source.imports("java.io.IOException", "java.io.StringWriter")
+          .method("public", "String", "exportCsv").throwing("IOException").body(
+            "StringWriter writer = new StringWriter();",
+            "for (" + entity + " entity : repository.findAll()) {",
+            "  writer.write(entity.getId() + \";\" + entity.get" + capitalized(first()) + "() + \"\\n\");",
+            "}",
+            "return writer.toString();");
+      }
+      if (archive) {
+        source.method("public", "void", "archive").param("Long", "id").body(
+          "try {",
+          "  repository.deleteById(id);",
+          "} catch (Exception e) {",
+          "  LOGGER.warn(\"Cannot archive {}\", id, e);",
+          "}");
+      }
+      if (injectClock) {
+        source.imports("javax.inject.Inject")
+          .method("public", "void", "setClock").annotated("@Inject").param("Clock", "clock").body(
+            "this.clock = clock;");
+      }
+      return file(service, source.close());
+    }
+
+    private void importMethod(SyntheticSource source, String entity, String setter) {
+      SyntheticSource.Method method = source.method("public", "int", "importAll").param("List<String>", "values");
+      switch (saveStyle) {
+        case BATCH:
+          source.imports("java.util.ArrayList");
+          method.body(
+            "List<" + entity + "> entities = new ArrayList<>();",
+            "for (String value : values) {",
+            "  " + entity + " entity = new " + entity + "();",
+            "  entity." + setter + "(value);",
+            "  entities.add(entity);",
+            "}",
+            "repository.saveAll(entities);",
+            "return entities.size();");
+          break;
+        case LOOP:
+          method.body(
+            "for (String value : values) {",
+            "  " + entity + " entity = new " + entity + "();",
+            "  entity." + setter + "(value);",
+            "  repository.save(entity);",
+            "}",
+            "return values.size();");
+          source.expect(InefficientDatabaseCallsRule.class);
+          break;
+        case FOR_EACH_REFERENCE:
+          source.imports("java.util.ArrayList");
+          method.body(
+            "List<" + entity + "> entities = new ArrayList<>();",
+            "for (String value : values) {",
+            "  " + entity + " entity = new " + entity + "();",
+            "  entity." + setter + "(value);",
+            "  entities.add(entity);",
+            "}",
+            "entities.forEach(repository::save);",
+            "return entities.size();");
+          source.expect(InefficientDatabaseCallsRule.class);
+          break;
+        case INDIRECT:
+          // the loop comes before the method it calls is known to save
+          method.body(
+            "for (String value : values) {",
+            "  store(value);",
+            "}",
+            "return values.size();");
+          source.method("private", "void", "store").param("String", "value").body(
+            entity + " entity = new " + entity + "();",
+            "entity." + setter + "(value);",
+            "repository.save(entity);");
+          source.expect(InefficientDatabaseCallsRule.class);
+          break;
+        default:
+          method.body(
+            "values.forEach(value -> {",
+            "  " + entity + " entity = new " + entity + "();",
+            "  entity." + setter + "(value);",
+            "  repository.save(entity);",
+            "});",
+            "return values.size();");
+          source.expect(InefficientDatabaseCallsRule.class);
+          break;
+      }
+    }
+
+    GeneratedFile restController() {
+      String controller = type("Controller");
+      String dto = type("Dto");
+      String body = validated ? "@Valid @RequestBody" : "@RequestBody";
+      SyntheticSource source = source(controller)
+        .imports("java.util.List", "org.springframework.http.HttpStatus", "org.springframework.http.ResponseEntity")
+        .annotation("@RestController")
+        .annotation("@RequestMapping(\"/api/" + noun.plural + "\")")
+        .open("public class " + controller)
+        .line("")
+        .line("private final " + type("Service") + " service;")
+        .line("")
+        .open("public " + controller + "(" + type("Service") + " service)")
+        .line("this.service = service;")
+        .close()
+        .line("");
+      SyntheticSource.Method list = source.method("public", "List<" + dto + ">", "list").annotated("@GetMapping");
+      if (paging) {
+        source.imports("java.util.stream.Collectors");
+        list.param("@RequestParam(defaultValue = \"0\")", "int", "page").param("@RequestParam(defaultValue = \"20\")", "int", "size").body(
+          "return service.findAll().stream()",
+          "  .skip((long) page * size)",
+          "  .limit(size)",
+          "  .collect(Collectors.toList());");
+      } else {
+        list.body("return service.findAll();");
+      }
+      source.method("public", "ResponseEntity<" + dto + ">", "get").annotated("@GetMapping(\"/{id}\")").param("@PathVariable", "Long", "id").body(
+        "return ResponseEntity.ok(service.findById(id));")
+        .method("public", "ResponseEntity<" + dto + ">", "create").annotated("@PostMapping").param(body, dto, "dto").body(
+          "try {",
+          "  return ResponseEntity.status(HttpStatus.CREATED).body(service.create(dto));",
+          "} catch (IllegalArgumentException e) {",
+          "  return ResponseEntity.badRequest().build();",
+          "}")
+        .method("public", "ResponseEntity<" + dto + ">", "update").annotated("@PutMapping(\"/{id}\")")
+        .param("@PathVariable", "Long", "id").param(body, dto, "dto").body(
+          "return ResponseEntity.ok(service.update(id, dto));")
+        .method("public", "ResponseEntity<Void>", "delete").annotated("@DeleteMapping(\"/{id}\")").param("@PathVariable", "Long", "id").body(
+          "service.delete(id);",
+          "return ResponseEntity.noContent().build();");
+      if (search) {
+        source.method("public", "List<" + dto + ">", "search").annotated("@GetMapping(\"/search\")")
+          .param("@RequestParam", "String", "value").body(
+            "return service.search(value);");
+      }
+      return file(controller, source.close());
+    }
+
+    GeneratedFile webController() {
+      switch (web) {
+        case UPLOAD_LEAK:
+        case UPLOAD_SAFE:
+          return uploadController();
+        case FORM:
+          return formController();
+        default:
+          return reportController();
+      }
+    }
+
+    private GeneratedFile uploadController() {
+      String controller = type("UploadController");
+      SyntheticSource source = source(controller)
+        .imports("java.io.File", "java.io.IOException", "java.io.InputStream", "java.nio.charset.StandardCharsets", "java.nio.file.Path",
+          "java.nio.file.Paths", "org.springframework.http.ResponseEntity", "org.springframework.web.multipart.MultipartFile")
+        .annotation("@RestController")
+        .annotation("@RequestMapping(\"/api/" + noun.plural + "/attachments\")")
+        .open("public class " + controller)
+        .line("")
+        .line("private static final long MAX_SIZE = 5 * 1024 * 1024;")
+        .line("")
+        .line("private final Path storage = Paths.get(\"uploads\", \"" + noun.plural + "\");")
+        .line("")
+        .method("public", "ResponseEntity<String>", "upload").annotated("@PostMapping")
+        .param("@RequestParam(\"file\")", "MultipartFile", "upload").throwing("IOException").body(
+          "File target;",
+          "target = storage.resolve(upload.getOriginalFilename()).toFile();",
+          "upload.transferTo(target);",
+          "return ResponseEntity.ok(target.getName());")
+        .expect(FileUploadSecurityRule.class);
+      SyntheticSource.Method preview = source.method("public", "ResponseEntity<String>", "preview").annotated("@PostMapping(\"/preview\")")
+        .param("@RequestParam(\"file\")", "MultipartFile", "upload").throwing("IOException");
+      if (web == WebVariant.UPLOAD_LEAK) {
+        preview.body(
+          "InputStream content = upload.getInputStream();",
+          "byte[] head = new byte[256];",
+          "int read = content.read(head);",
+          "return ResponseEntity.ok(new String(head, 0, Math.max(read, 0), StandardCharsets.UTF_8));");
+        // neither validated nor closed
+        source.expect(FileValidationAndClosureRule.class, 2);
+      } else {
+        preview.body(
+          "if (!isValidFile(upload)) {",
+          "  return ResponseEntity.badRequest().body(\"Unsupported content\");",
+          "}",
+          "try (InputStream content = upload.getInputStream()) {",
+          "  byte[] head = new byte[256];",
+          "  int read = content.read(head);",
+          "  return ResponseEntity.ok(new String(head, 0, Math.max(read, 0), StandardCharsets.UTF_8));",
+          "}");
+        source.method("private", "boolean", "isValidFile").param("MultipartFile", "upload").body(
+          "return !upload.isEmpty() && upload.getSize() <= MAX_SIZE && \"text/csv\".equals(upload.getContentType());");
+      }
+      return file(controller, source.close());
+    }
+
+    private GeneratedFile formController() {
+      String controller = type("FormController");
+      String variable = noun.name.substring(0, 1).toLowerCase(Locale.ROOT) + noun.name.substring(1);
+      SyntheticSource source = source(controller)
+        .imports("org.springframework.ui.Model", "org.springframework.web.bind.annotation.RequestMethod")
+        .annotation("@Controller")
+        .annotation("@RequestMapping(\"/" + noun.plural + "\")")
+        .open("public class " + controller)
+        .line("")
+        .line("private final " + type("Repository") + " repository;")
+        .line("")
+        .open("public " + controller + "(" + type("Repository") + " repository)")
+        .line("this.repository = repository;")
+        .close()
+        .line("")
+        .method("public", "String", "list").annotated("@GetMapping").param("Model", "model").body(
+          "model.addAttribute(\"" + noun.plural + "\", repository.findAll());",
+          "return \"" + noun.plural + "/list\";")
+        .method("public", "String", "submit").annotated("@RequestMapping(value = \"/submit\", method = RequestMethod.POST)")
+        .param("@ModelAttribute", noun.name, variable).body(
+          "repository.save(" + variable + ");",
+          "return \"redirect:/" + noun.plural + "\";")
+        // the entity is bound to the request
+        .expect(SpringControllerRequestMappingEntityRule.class);
+      return file(controller, source.close());
+    }
+
+    private GeneratedFile reportController() {
+      String controller = type("ReportController");
+      SyntheticSource source = source(controller)
+        .imports("java.util.LinkedHashMap", "java.util.Map", "org.springframework.http.ResponseEntity")
+        .annotation("@RestController")
+        .annotation("@RequestMapping(\"/api/" + noun.plural + "/report\")")
+        .open("public class " + controller)
+        .line("")
+        .line("private final " + type("Service") + " service;")
+        .line("")
+        .open("public " + controller + "(" + type("Service") + " service)")
+        .line("this.service = service;")
+        .close()
+        .line("")
+        .method("public", "ResponseEntity<Map<String, Long>>", "summary").annotated("@GetMapping")
+        .param("@RequestParam(defaultValue = \"30\")", "int", "days").body(
+          "Map<String, Long> totals = new LinkedHashMap<>();",
+          "totals.put(\"days\", (long) days);",
+          "totals.put(\"count\", (long) service.findAll().size());",
+          "return ResponseEntity.ok(totals);");
+      return file(controller, source.close());
+    }
+
+    GeneratedFile mapper() {
+      String mapper = type("Mapper");
+      String dto = type("Dto");
+      String entity = noun.name;
+      List<String> toDto = new ArrayList<>();
+      List<String> toEntity = new ArrayList<>();
+      toDto.add(dto + " dto = new " + dto + "();");
+      toDto.add("dto.setId(entity.getId());");
+      toEntity.add(entity + " entity = new " + entity + "();");
+      toEntity.add("entity.setId(dto.getId());");
+      for (String[] field : noun.fields) {
+        String property = capitalized(field[1]);
+        toDto.add("dto.set" + property + "(entity.get" + property + "());");
+        toEntity.add("entity.set" + property + "(dto.get" + property + "());");
+      }
+      toDto.add("return dto;");
+      toEntity.add("return entity;");
+      SyntheticSource source = source(mapper)
+        .imports("java.util.ArrayList", "java.util.List")
+        .annotation("@Component")
+        .open("public class " + mapper)
+        .line("")
+        .method("public", dto, "toDto").param(entity, "entity").body(toDto.toArray(new String[0]))
+        .method("public", entity, "toEntity").param(dto, "dto").body(toEntity.toArray(new String[0]))
+        .method("public", "List<" + dto + ">", "toDtos").param("List<" + entity + ">", "entities").body(
+          "List<" + dto + "> dtos = new ArrayList<>();",
+          "for (" + entity + " entity : entities) {",
+          "  dtos.add(toDto(entity));",
+          "}",
+          "return dtos;");
+      return file(mapper, source.close());
+    }
+
+    GeneratedFile security() {
+      switch (security) {
+        case AUTH_CONTROLLER:
+          return authController();
+        case ENTRY_POINT:
+          return entryPoint();
+        case JWT_LOGGED:
+        case JWT_UNLOGGED:
+          return jwtUtils();
+        default:
+          return securityConfig();
+      }
+    }
+
+    private GeneratedFile securityConfig() {
+      SyntheticSource source = source("SecurityConfig")
+        .imports("org.springframework.security.config.annotation.web.builders.HttpSecurity",
+          "org.springframework.security.crypto.password.PasswordEncoder")
+        .annotation("@Configuration")
+        .annotation("@EnableWebSecurity")
+        .open("public class SecurityConfig")
+        .line("");
+      SyntheticSource.Method encoder = source.method("public", "PasswordEncoder", "passwordEncoder").annotated("@Bean");
+      switch (security) {
+        case BCRYPT:
+          source.imports("org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder");
+          encoder.body("return new BCryptPasswordEncoder();");
+          break;
+        case PBKDF2:
+          source.imports("org.springframework.security.crypto.password.Pbkdf2PasswordEncoder");
+          encoder.body("return new Pbkdf2PasswordEncoder();");
+          break;
+        case STANDARD:
+          source.imports("org.springframework.security.crypto.password.StandardPasswordEncoder");
+          encoder.body("return new StandardPasswordEncoder();");
+          source.expect(PasswordEncoderRule.class);
+          break;
+        case NO_OP:
+          source.imports("org.springframework.security.crypto.password.NoOpPasswordEncoder");
+          encoder.body("return NoOpPasswordEncoder.getInstance();");
+          break;
+        default:
+          encoder.body("return new LegacyDigestPasswordEncoder();");
+          source.expect(PasswordEncoderRule.class);
+          break;
+      }
+      source.method("public", "void", "configure").param("HttpSecurity", "http").throwing("Exception").body(
+        "http.csrf().disable()",
+        "  .authorizeRequests()",
+        "  .antMatchers(\"/api/auth/**\").permitAll()",
+        "  .anyRequest().authenticated();");
+      if (security == SecurityVariant.CUSTOM_ENCODER) {
+        source.line("")
+          .open("static final class LegacyDigestPasswordEncoder implements PasswordEncoder")
+          .line("")
+          .method("public", "String", "encode").annotated("@Override").param("CharSequence", "rawPassword").body(
+            "return Integer.toHexString(rawPassword.toString().hashCode());")
+          .method("public", "boolean", "matches").annotated("@Override").param("CharSequence", "rawPassword").param("String", "encodedPassword").body(
+            "return encode(rawPassword).equals(encodedPassword);")
+          .close();
+      }
+      return file("SecurityConfig", source.close());
+    }
+
+    private GeneratedFile authController() {
+      SyntheticSource source = source("AuthController")
+        .imports("org.springframework.http.ResponseEntity", "org.springframework.security.authentication.AuthenticationManager",
+          "org.springframework.security.authentication.UsernamePasswordAuthenticationToken", "org.springframework.security.core.Authentication",
+          "org.springframework.security.core.context.SecurityContextHolder")
+        .annotation("@RestController")
+        .annotation("@RequestMapping(\"/api/auth\")")
+        .open("public class AuthController")
+        .line("")
+        .line("private final AuthenticationManager authenticationManager;")
+        .line("")
+        .open("public AuthController(AuthenticationManager authenticationManager)")
+        .line("this.authenticationManager = authenticationManager;")
+        .close()
+        .line("")
+        .method("public", "ResponseEntity<String>", "signIn").annotated("@PostMapping(\"/signin\")")
+        .param(validated ? "@Valid @RequestBody" : "@RequestBody", "Credentials", "credentials").body(
+          "Authentication authentication = authenticationManager.authenticate(",
+          "  new UsernamePasswordAuthenticationToken(credentials.getUsername(), credentials.getPassword()));",
+          "SecurityContextHolder.getContext().setAuthentication(authentication);",
+          "return ResponseEntity.ok(authentication.getName());")
+        // the authentication manager does not tell which encoder it uses
+        .expect(PasswordEncoderRule.class)
+        .open("public static final class Credentials")
+        .line("")
+        .line("private String username;")
+        .line("private String password;")
+        .line("");
+      for (String property : Arrays.asList("username", "password")) {
+        source.method("public", "String", "get" + capitalized(property)).body("return " + property + ";")
+          .method("public", "void", "set" + capitalized(property)).param("String", property).body("this." + property + " = " + property + ";");
+      }
+      return file("AuthController", source.close().close());
+    }
+
+    private GeneratedFile entryPoint() {
+      SyntheticSource source = source("RestAuthenticationEntryPoint")
+        .imports("java.io.IOException", "javax.servlet.http.HttpServletRequest", "javax.servlet.http.HttpServletResponse",
+          "org.springframework.security.core.AuthenticationException", "org.springframework.security.web.AuthenticationEntryPoint")
+        .annotation("@Component")
+        .open("public class RestAuthenticationEntryPoint implements AuthenticationEntryPoint")
+        .line("")
+        .method("public", "void", "commence").annotated("@Override").param("HttpServletRequest", "request").param("HttpServletResponse", "response")
+        .param("AuthenticationException", "authException").throwing("IOException").body(
+          "response.sendError(HttpServletResponse.SC_UNAUTHORIZED, \"Unauthorized\");");
+      return file("RestAuthenticationEntryPoint", source.close());
+    }
+
+    private GeneratedFile jwtUtils() {
+      SyntheticSource source = new SyntheticSource(JWT_PACKAGE, Collections.emptyList())
+        .imports("java.util.Date", "io.jsonwebtoken.JwtException", "io.jsonwebtoken.Jwts", "io.jsonwebtoken.SignatureAlgorithm",
+          "org.slf4j.Logger", "org.slf4j.LoggerFactory")
+        .annotation("@Component")
+        .open("public class JwtUtils")
+        .line("")
+        .line("private static final Logger LOGGER = LoggerFactory.getLogger(JwtUtils.class);")
+        .line("")
+        .annotation("@Value(\"${svc" + number + ".jwt.secret}\")")
+        .line("private String jwtSecret;")
+        .line("")
+        .annotation("@Value(\"${svc" + number + ".jwt.expirationMs}\")")
+        .line("private int jwtExpirationMs;")
+        .line("")
+        .method("public", "String", "generateJwtToken").param("String", "username").body(
+          "return Jwts.builder()",
+          "  .setSubject(username)",
+          "  .setIssuedAt(new Date())",
+          "  .setExpiration(new Date(new Date().getTime() + jwtExpirationMs))",
+          "  .signWith(SignatureAlgorithm.HS512, jwtSecret)",
+          "  .compact();")
+        .method("public", "String", "getUserNameFromJwtToken").param("String", "token").body(
+          "return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();");
+      SyntheticSource.Method validate = source.method("public", "boolean", "validateJwtToken").param("String", "authToken");
+      // the signing key is never built with Keys.hmacShaKeyFor
+      if (security == SecurityVariant.JWT_LOGGED) {
+        validate.body(
+          "try {",
+          "  Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);",
+          "  return true;",
+          "} catch (JwtException | IllegalArgumentException e) {",
+          "  LOGGER.error(\"Invalid JWT token: {}\", e.getMessage());",
+          "}",
+          "return false;");
+        source.expect(JwtUtilsCheck.class);
+      } else {
+        validate.body(
+          "try {",
+          "  Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);",
+          "  return true;",
+          "} catch (JwtException | IllegalArgumentException e) {",
+          "  return false;",
+          "}");
+        source.expect(JwtUtilsCheck.class, 2);
+      }
+      return new GeneratedFile(directory + JWT_PACKAGE.replace('.', '/') + "/JwtUtils.java", source.close());
+    }
+
+    GeneratedFile support() {
+      switch (support) {
+        case ADVICE:
+          return exceptionHandler();
+        case IMPORT_LOOP:
+        case IMPORT_STREAM:
+        case IMPORT_INDIRECT:
+          return importJob();
+        case DOCUMENTS_LEAK:
+        case DOCUMENTS_SAFE:
+          return documentStore();
+        case AUDIT:
+          return audit();
+        default:
+          return classLoader();
+      }
+    }
+
+    private GeneratedFile exceptionHandler() {
+      SyntheticSource source = source("ApiExceptionHandler")
+        .imports("org.slf4j.Logger", "org.slf4j.LoggerFactory", "org.springframework.http.HttpStatus", "org.springframework.http.ResponseEntity")
+        .annotation("@RestControllerAdvice")
+        .open("public class ApiExceptionHandler")
+        .line("")
+        .line("private static final Logger LOGGER = LoggerFactory.getLogger(ApiExceptionHandler.class);")
+        .line("")
+        .method("public", "ResponseEntity<String>", "badRequest").annotated("@ExceptionHandler(IllegalArgumentException.class)")
+        .param("IllegalArgumentException", "exception").body(
+          "return ResponseEntity.badRequest().body(exception.getMessage());")
+        .method("public", "ResponseEntity<String>", "unexpected").annotated("@ExceptionHandler(Exception.class)")
+        .param("Exception", "exception").body(
+          "LOGGER.error(\"Unexpected error\", exception);",
+          "return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(\"Unexpected error\");");
+      return file("ApiExceptionHandler", source.close());
+    }
+
+    private GeneratedFile importJob() {
+      String job = type("ImportJob");
+      String entity = noun.name;
+      String setter = "set" + capitalized(first());
+      SyntheticSource source = source(job)
+        .imports("java.util.Arrays", "java.util.List")
+        .annotation("@Component")
+        .open("public class " + job)
+        .line("")
+        .line("private final " + type("Repository") + " repository;")
+        .line("")
+        .open("public " + job + "(" + type("Repository") + " repository)")
+        .line("this.repository = repository;")
+        .close()
+        .line("");
+      SyntheticSource.Method run = source.method("public", "void", "importPending").annotated("@Scheduled(cron = \"0 0 2 * * *\")");
+      switch (support) {
+        case IMPORT_LOOP:
+          run.body(
+            "for (String value : fetchPending()) {",
+            "  repository.save(create(value));",
+            "}");
+          break;
+        case IMPORT_STREAM:
+          run.body(
+            "fetchPending().stream()",
+            "  .filter(value -> !value.isEmpty())",
+            "  .forEach(value -> repository.save(create(value)));");
+          break;
+        default:
+          run.body(
+            "List<String> pending = fetchPending();",
+            "int index = 0;",
+            "while (index < pending.size()) {",
+            "  store(pending.get(index));",
+            "  index++;",
+            "}");
+          break;
+      }
+      source.expect(InefficientDatabaseCallsRule.class)
+        .method("private", "List<String>", "fetchPending").body(
+          "return Arrays.asList(\"" + noun.plural + "-1\", \"" + noun.plural + "-2\");")
+        .method("private", entity, "create").param("String", "value").body(
+          entity + " entity = new " + entity + "();",
+          "entity." + setter + "(value);",
+          "return entity;");
+      if (support == SupportVariant.IMPORT_INDIRECT) {
+        source.method("private", "void", "store").param("String", "value").body(
+          "repository.save(create(value));");
+      }
+      return file(job, source.close());
+    }
+
+    private GeneratedFile documentStore() {
+      String store = type("DocumentStore");
+      SyntheticSource source = source(store)
+        .imports("java.io.IOException", "java.io.InputStream", "java.nio.file.Files", "java.nio.file.Path", "java.nio.file.Paths",
+          "java.util.Arrays")
+        .annotation("@Component")
+        .open("public class " + store)
+        .line("")
+        .line("private final Path root = Paths.get(\"documents\", \"" + noun.plural + "\");")
+        .line("");
+      SyntheticSource.Method read = source.method("public", "byte[]", "read").param("String", "name").throwing("IOException");
+      if (support == SupportVariant.DOCUMENTS_LEAK) {
+        read.body(
+          "InputStream in = Files.newInputStream(root.resolve(name));",
+          "byte[] content = new byte[4096];",
+          "int read = in.read(content);",
+          "return Arrays.copyOf(content, Math.max(read, 0));");
+        source.expect(FileValidationAndClosureRule.class);
+      } else {
+        read.body(
+          "try (InputStream in = Files.newInputStream(root.resolve(name))) {",
+          "  byte[] content = new byte[4096];",
+          "  int read = in.read(content);",
+          "  return Arrays.copyOf(content, Math.max(read, 0));",
+          "}");
+      }
+      source.method("public", "String", "describe").param("String", "name").body(
+        "byte[] content = readFile(name);",
+        "return name + \": \" + content.length + \" bytes\";")
+        // read without being validated first
+        .expect(FileValidationAndClosureRule.class)
+        .method("private", "byte[]", "readFile").param("String", "name").body(
+          "try {",
+          "  return Files.readAllBytes(root.resolve(name));",
+          "} catch (IOException e) {",
+          "  return new byte[0];",
+          "}");
+      return file(store, source.close());
+    }
+
+    private GeneratedFile audit() {
+      String audit = type("Audit");
+      SyntheticSource source = source(audit)
+        .imports("java.util.ArrayList", "java.util.Collections", "java.util.List")
+        .annotation("@Component")
+        .open("public class " + audit + " implements MySecurityInterface")
+        .line("")
+        .line("private final List<String> entries = new ArrayList<>();")
+        .line("")
+        .method("public", "void", "record").annotated("@MySecurityAnnotation").param("String", "action").body(
+          "entries.add(action);")
+        .method("public", "List<String>", "history").body(
+          "return Collections.unmodifiableList(entries);")
+        .expect(SecurityAnnotationMandatoryRule.class);
+      return file(audit, source.close());
+    }
+
+    private GeneratedFile classLoader() {
+      SyntheticSource source = source("PluginClassLoader")
+        .imports("java.lang.reflect.Field", "sun.misc.Unsafe")
+        .open("public class PluginClassLoader")
+        .line("")
+        .line("private static final Unsafe UNSAFE = loadUnsafe();")
+        .line("")
+        .method("public", "Class<?>", "define").param("String", "name").param("byte[]", "bytecode").body(
+          "return UNSAFE.defineClass(name, bytecode, 0, bytecode.length, getClass().getClassLoader(), null);")
+        .expect(CustomCheckForDefineClass.class)
+        .method("private static", "Unsafe", "loadUnsafe").body(
+          "try {",
+          "  Field field = Unsafe.class.getDeclaredField(\"theUnsafe\");",
+          "  field.setAccessible(true);",
+          "  return (Unsafe) field.get(null);",
+          "} catch (ReflectiveOperationException e) {",
+          "  throw new IllegalStateException(e);",
+          "}");
+      return file("PluginClassLoader", source.close());
+    }
+
+    GeneratedFile application() {
+      String application = "Svc" + number + "Application";
+      SyntheticSource source = source(application)
+        .imports("org.springframework.boot.SpringApplication")
+        .annotation("@SpringBootApplication")
+        .open("public class " + application)
+        .line("")
+        .method("public static", "void", "main").param("String[]", "args").body(
+          "SpringApplication.run(" + application + ".class, args);");
+      if (brand) {
+        String property = "url";
+        source.annotation("@ConfigurationProperties(\"svc" + number + "\")")
+          .open("public static class " + BRAND + "Properties")
+          .line("")
+          .line("private String " + BRAND.toLowerCase(Locale.ROOT) + "Url;")
+          .line("")
+          .method("public", "String", "get" + BRAND + "Url").body("return " + BRAND.toLowerCase(Locale.ROOT) + "Url;")
+          .method("public", "void", "set" + BRAND + "Url").param("String", property).body("this." + BRAND.toLowerCase(Locale.ROOT) + "Url = " + property + ";")
+          .close()
+          // the class and its field
+          .expect(AvoidBrandInMethodNamesRule.class, 2);
+      }
+      return file(application, source.close());
+    }
+
+    private void fields(SyntheticSource source, boolean columns) {
+      boolean firstField = true;
+      for (String[] field : noun.fields) {
+        importType(source, field[0]);
+        if (columns && firstField) {
+          source.annotation("@Column(nullable = false, unique = true)");
+        }
+        source.line("private " + field[0] + " " + field[1] + ";");
+        firstField = false;
+      }
+      source.line("");
+    }
+
+    private void accessors(SyntheticSource source) {
+      source.method("public", "Long", "getId").body("return id;")
+        .method("public", "void", "setId").param("Long", "id").body("this.id = id;");
+      for (String[] field : noun.fields) {
+        source.method("public", field[0], "get" + capitalized(field[1])).body("return " + field[1] + ";")
+          .method("public", "void", "set" + capitalized(field[1])).param(field[0], field[1]).body("this." + field[1] + " = " + field[1] + ";");
+      }
+    }
+
+    private static void importType(SyntheticSource source, String type) {
+      if ("BigDecimal".equals(type)) {
+        source.imports("java.math.BigDecimal");
+      } else if ("LocalDate".equals(type)) {
+        source.imports("java.time.LocalDate");
+      }
+    }
+  }
+
+  private static String capitalized(String name) {
+    return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+  }
+}
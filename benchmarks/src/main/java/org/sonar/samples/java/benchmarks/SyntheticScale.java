@@ -0,0 +1,173 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.benchmarks;
+
+import com.sonar.sslr.api.typed.ActionParser;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.sonar.java.AnalyzerMessage;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.model.VisitorsBridgeForTests;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaVersion;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.samples.java.index.EntityIndex;
+
+/**
+ * Throughput and correctness of the rules on a {@link SyntheticCorpus} of the given size.
+ * <p>
+ * The corpus is written to the given directory, a temporary one by default, its entity index is built, its entities
+ * and repositories are compiled to stand for the project binaries of a real analysis, and every file is then parsed
+ * and analyzed with all the rules of the registry, one after the other with the same check instances.
+ * The time spent parsing and analyzing gives the files per second. The issues raised by each rule are compared with
+ * the issues expected on each file: the run fails when a file gets other issues than expected.
+ *
+ * <pre>java -cp benchmarks.jar org.sonar.samples.java.benchmarks.SyntheticScale [files] [seed] [directory]</pre>
+ */
+public final class SyntheticScale {
+
+  private static final JavaVersion JAVA_VERSION = new JavaVersionImpl(8);
+  private static final int REPORTED_FILES = 10;
+
+  private final PrintStream out;
+
+  SyntheticScale(PrintStream out) {
+    this.out = out;
+  }
+
+  public static void main(String[] args) throws IOException {
+    int files = args.length > 0 ? Integer.parseInt(args[0]) : SyntheticCorpus.DEFAULT_FILES;
+    long seed = args.length > 1 ? Long.parseLong(args[1]) : SyntheticCorpus.DEFAULT_SEED;
+    Path directory = args.length > 2 ? Paths.get(args[2]) : Files.createTempDirectory("synthetic-corpus");
+    System.exit(new SyntheticScale(System.out).run(new SyntheticCorpus(seed), files, directory) ? 0 : 1);
+  }
+
+  /**
+   * @return whether every file got the issues expected on it
+   */
+  boolean run(SyntheticCorpus corpus, int files, Path directory) throws IOException {
+    Map<String, Integer> expected = corpus.write(directory, files);
+    List<Path> paths = new ArrayList<>(files);
+    for (int index = 0; index < files; index++) {
+      paths.add(directory.resolve(corpus.file(index).path));
+    }
+    EntityIndex.use(EntityIndex.ofFiles(paths));
+    out.printf("%d files written to %s%n", files, directory);
+    List<File> classpath = Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+      .map(File::new)
+      .collect(Collectors.toList());
+    classpath.add(compileBinaries(corpus, files, paths, directory.resolve("classes"), classpath));
+
+    Map<Class<? extends JavaCheck>, String> ruleKeys = Checks.ruleKeysByCheckClass();
+    List<JavaFileScanner> scanners = Checks.newScanners(descriptor -> true);
+    ActionParser<Tree> parser = JavaParser.createParser();
+    Map<String, Integer> found = new TreeMap<>();
+    int mismatchedFiles = 0;
+    long analysisNanos = 0;
+    try (SquidClassLoader classLoader = new SquidClassLoader(classpath)) {
+      for (int index = 0; index < files; index++) {
+        SyntheticCorpus.GeneratedFile file = corpus.file(index);
+        long start = System.nanoTime();
+        Map<String, Integer> issues = analyze(parser, classLoader, scanners, ruleKeys, file, paths.get(index).toFile());
+        analysisNanos += System.nanoTime() - start;
+        issues.forEach((key, count) -> found.merge(key, count, Integer::sum));
+        if (!issues.equals(file.expectedIssues)) {
+          mismatchedFiles++;
+          if (mismatchedFiles <= REPORTED_FILES) {
+            out.printf("%s: expected %s, found %s%n", file.path, new TreeMap<>(file.expectedIssues), issues);
+          }
+        }
+      }
+    }
+
+    double seconds = analysisNanos / 1e9;
+    out.printf("%d files analyzed in %.1f s: %.0f files/s%n%n", files, seconds, files / seconds);
+    out.printf("%-50s %10s %10s%n", "rule", "expected", "found");
+    for (Map.Entry<String, Integer> rule : expected.entrySet()) {
+      int foundIssues = found.getOrDefault(rule.getKey(), 0);
+      out.printf("%-50s %10d %10d%s%n", rule.getKey(), rule.getValue(), foundIssues, foundIssues == rule.getValue() ? "" : "  <-");
+    }
+    out.printf("%n%s: %d files with other issues than expected%n", mismatchedFiles == 0 ? "Correct" : "Incorrect", mismatchedFiles);
+    return mismatchedFiles == 0;
+  }
+
+  /**
+   * Compiles the files of the corpus whose types the other files resolve through their bytecode.
+   *
+   * @return the directory of the classes
+   * @throws IllegalStateException when no compiler is available or the files do not compile
+   */
+  private static File compileBinaries(SyntheticCorpus corpus, int files, List<Path> paths, Path classes, List<File> classpath)
+    throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new IllegalStateException("Compiling the synthetic corpus requires a JDK");
+    }
+    Files.createDirectories(classes);
+    List<String> arguments = new ArrayList<>(Arrays.asList("-nowarn", "-proc:none", "-d", classes.toString(),
+      "-cp", classpath.stream().map(File::getPath).collect(Collectors.joining(File.pathSeparator))));
+    for (int index = 0; index < files; index++) {
+      if (corpus.file(index).compiled) {
+        arguments.add(paths.get(index).toString());
+      }
+    }
+    if (compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+      throw new IllegalStateException("Unable to compile the entities and repositories of the synthetic corpus");
+    }
+    return classes.toFile();
+  }
+
+  /**
+   * Parses and analyzes a file of the corpus with all the scanners.
+   *
+   * @return the number of issues raised by each rule, by rule key
+   */
+  private static Map<String, Integer> analyze(ActionParser<Tree> parser, SquidClassLoader classLoader, List<JavaFileScanner> scanners,
+    Map<Class<? extends JavaCheck>, String> ruleKeys, SyntheticCorpus.GeneratedFile file, File path) {
+    CompilationUnitTree tree = (CompilationUnitTree) parser.parse(file.text);
+    VisitorsBridgeForTests.TestJavaFileScannerContext context =
+      new VisitorsBridgeForTests.TestJavaFileScannerContext(tree, path, SemanticModel.createFor(tree, classLoader), null, JAVA_VERSION, true);
+    for (JavaFileScanner scanner : scanners) {
+      scanner.scanFile(context);
+    }
+    Map<String, Integer> issues = new TreeMap<>();
+    for (AnalyzerMessage issue : context.getIssues()) {
+      issues.merge(ruleKeys.get(issue.getCheck().getClass()), 1, Integer::sum);
+    }
+    return issues;
+  }
+}
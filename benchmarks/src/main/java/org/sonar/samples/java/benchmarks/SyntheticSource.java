@@ -0,0 +1,387 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.samples.java.checks.AvoidAnnotationRule;
+import org.sonar.samples.java.checks.AvoidBrandInMethodNamesRule;
+import org.sonar.samples.java.checks.AvoidGenericExceptionRule;
+import org.sonar.samples.java.checks.AvoidMethodDeclarationRule;
+import org.sonar.samples.java.checks.ExceptionHandlingRule;
+import org.sonar.samples.java.checks.HttpStatusConsistencyRule;
+import org.sonar.samples.java.checks.InputValidationRule;
+import org.sonar.samples.java.checks.MyCustomSubscriptionRule;
+import org.sonar.samples.java.checks.MyFirstCustomCheck;
+
+/**
+ * Source file of the {@link SyntheticCorpus}, written along with the issues the rules of the plugin are expected to raise on it.
+ * <p>
+ * The issues raised on methods are counted from what is written: their names, annotations, signatures, throws clauses,
+ * returns and catches. The issues raised on statements are declared by the templates with {@link #expect}. Types are
+ * compared as the semantic model of a single file resolves them: the types of the project declared in other files are
+ * unknown, unknown types are all the same type, and known types are the same when their erasures are.
+ * <p>
+ * Bodies are given one line per statement or block boundary, nested lines indented by two spaces, and a statement may
+ * go on over the next lines until one ends it with {@code ;}, <code>{</code> or <code>}</code>. Returned values ending
+ * with a parenthesis are invocations unless they are instantiations, casts, negations, conditionals or logical operations.
+ */
+final class SyntheticSource {
+
+  private static final String INDENT = "  ";
+  private static final Pattern ANNOTATION = Pattern.compile("@([A-Za-z]+)");
+  private static final Pattern GENERIC_CATCH = Pattern.compile("catch \\((final )?(Exception|Throwable) ");
+  private static final Set<String> INPUT_ANNOTATIONS = new HashSet<>(Arrays.asList("RequestParam", "RequestBody", "PathVariable"));
+  // libraries of the sources missing from the benchmark class path
+  private static final Set<String> UNKNOWN_LIBRARY_TYPES = new HashSet<>(Arrays.asList("HttpSecurity", "JpaRepository"));
+  private static final Map<String, String> ANNOTATION_PACKAGES = new HashMap<>();
+
+  static {
+    annotationPackage("org.springframework.web.bind.annotation", "RestController", "RequestMapping", "GetMapping", "PostMapping",
+      "PutMapping", "DeleteMapping", "RequestParam", "RequestBody", "PathVariable", "ModelAttribute", "ExceptionHandler",
+      "RestControllerAdvice");
+    annotationPackage("org.springframework.stereotype", "Controller", "Service", "Component");
+    annotationPackage("org.springframework.beans.factory.annotation", "Autowired", "Value");
+    annotationPackage("org.springframework.context.annotation", "Bean", "Configuration");
+    annotationPackage("org.springframework.scheduling.annotation", "Scheduled");
+    annotationPackage("org.springframework.transaction.annotation", "Transactional");
+    annotationPackage("org.springframework.boot.autoconfigure", "SpringBootApplication");
+    annotationPackage("org.springframework.boot.context.properties", "ConfigurationProperties");
+    annotationPackage("org.springframework.security.config.annotation.web.configuration", "EnableWebSecurity");
+    annotationPackage("org.springframework.data.jpa.repository", "Query");
+    annotationPackage("org.springframework.data.repository.query", "Param");
+    annotationPackage("javax.persistence", "Entity", "Table", "Id", "GeneratedValue", "Column");
+    annotationPackage("javax.validation", "Valid");
+    annotationPackage("javax.validation.constraints", "NotBlank", "NotNull", "Size", "Positive");
+    annotationPackage("javax.inject", "Inject");
+  }
+
+  private final String packageName;
+  private final Set<String> unknownTypes;
+  private final Set<String> imports = new TreeSet<>();
+  private final StringBuilder members = new StringBuilder();
+  private final Map<Class<? extends JavaCheck>, Integer> expectedIssues = new LinkedHashMap<>();
+  private int depth;
+
+  /**
+   * @param otherFileTypes types of the project declared in other files, which the semantic model of this one does not know
+   */
+  SyntheticSource(String packageName, Collection<String> otherFileTypes) {
+    this.packageName = packageName;
+    this.unknownTypes = new HashSet<>(otherFileTypes);
+    this.unknownTypes.addAll(UNKNOWN_LIBRARY_TYPES);
+  }
+
+  private static void annotationPackage(String packageName, String... annotations) {
+    for (String annotation : annotations) {
+      ANNOTATION_PACKAGES.put(annotation, packageName + "." + annotation);
+    }
+  }
+
+  SyntheticSource imports(String... names) {
+    imports.addAll(Arrays.asList(names));
+    return this;
+  }
+
+  SyntheticSource line(String text) {
+    if (!text.isEmpty()) {
+      for (int i = 0; i < depth; i++) {
+        members.append(INDENT);
+      }
+      members.append(text);
+    }
+    members.append('\n');
+    return this;
+  }
+
+  /**
+   * Annotation of a type or a field, imported when known.
+   */
+  SyntheticSource annotation(String annotation) {
+    importAnnotations(annotation);
+    return line(annotation);
+  }
+
+  /**
+   * Opens a type, a constructor or any other block of members.
+   */
+  SyntheticSource open(String declaration) {
+    line(declaration + " {");
+    depth++;
+    return this;
+  }
+
+  SyntheticSource close() {
+    int length = members.length();
+    if (length > 1 && members.charAt(length - 1) == '\n' && members.charAt(length - 2) == '\n') {
+      // no blank line after the last member
+      members.setLength(length - 1);
+    }
+    depth--;
+    return line("}");
+  }
+
+  Method method(String modifiers, String returnType, String name) {
+    return new Method(modifiers, returnType, name);
+  }
+
+  SyntheticSource expect(Class<? extends JavaCheck> check) {
+    return expect(check, 1);
+  }
+
+  SyntheticSource expect(Class<? extends JavaCheck> check, int issues) {
+    if (issues > 0) {
+      expectedIssues.merge(check, issues, Integer::sum);
+    }
+    return this;
+  }
+
+  Map<Class<? extends JavaCheck>, Integer> expectedIssues() {
+    return Collections.unmodifiableMap(expectedIssues);
+  }
+
+  String text() {
+    StringBuilder text = new StringBuilder("package ").append(packageName).append(";\n\n");
+    for (String imported : imports) {
+      text.append("import ").append(imported).append(";\n");
+    }
+    if (!imports.isEmpty()) {
+      text.append('\n');
+    }
+    return text.append(members).toString();
+  }
+
+  private void importAnnotations(String annotations) {
+    Matcher matcher = ANNOTATION.matcher(annotations);
+    while (matcher.find()) {
+      String imported = ANNOTATION_PACKAGES.get(matcher.group(1));
+      if (imported != null) {
+        imports.add(imported);
+      }
+    }
+  }
+
+  private static List<String> annotationNames(String annotations) {
+    List<String> names = new ArrayList<>();
+    Matcher matcher = ANNOTATION.matcher(annotations);
+    while (matcher.find()) {
+      names.add(matcher.group(1));
+    }
+    return names;
+  }
+
+  private boolean sameType(String type, String otherType) {
+    return resolved(type).equals(resolved(otherType));
+  }
+
+  // erasure of a type, or "?" for all the unknown types
+  private String resolved(String type) {
+    int typeArguments = type.indexOf('<');
+    String erasure = typeArguments < 0 ? type : type.substring(0, typeArguments);
+    return unknownTypes.contains(erasure) ? "?" : erasure;
+  }
+
+  /**
+   * Method being written, counted once its body is.
+   */
+  final class Method {
+
+    private final String modifiers;
+    private final String returnType;
+    private final String name;
+    private final List<String> annotations = new ArrayList<>();
+    private final List<String[]> parameters = new ArrayList<>();
+    private final List<String> exceptions = new ArrayList<>();
+
+    private Method(String modifiers, String returnType, String name) {
+      this.modifiers = modifiers;
+      this.returnType = returnType;
+      this.name = name;
+    }
+
+    Method annotated(String annotation) {
+      annotations.add(annotation);
+      return this;
+    }
+
+    Method param(String type, String parameterName) {
+      return param("", type, parameterName);
+    }
+
+    Method param(String parameterAnnotations, String type, String parameterName) {
+      parameters.add(new String[] {parameterAnnotations, type, parameterName});
+      return this;
+    }
+
+    Method throwing(String... types) {
+      exceptions.addAll(Arrays.asList(types));
+      return this;
+    }
+
+    SyntheticSource body(String... statements) {
+      writeSignature(" {");
+      depth++;
+      for (String statement : statements) {
+        line(statement);
+      }
+      depth--;
+      line("}");
+      line("");
+      count(new BodySummary(statements));
+      return SyntheticSource.this;
+    }
+
+    /**
+     * Method without a body, of an interface.
+     */
+    SyntheticSource declare() {
+      writeSignature(";");
+      line("");
+      count(null);
+      return SyntheticSource.this;
+    }
+
+    private void writeSignature(String end) {
+      for (String annotation : annotations) {
+        annotation(annotation);
+      }
+      StringBuilder signature = new StringBuilder(modifiers);
+      if (!modifiers.isEmpty()) {
+        signature.append(' ');
+      }
+      signature.append(returnType).append(' ').append(name).append('(');
+      for (int i = 0; i < parameters.size(); i++) {
+        String[] parameter = parameters.get(i);
+        importAnnotations(parameter[0]);
+        signature.append(i > 0 ? ", " : "").append(parameter[0]).append(parameter[0].isEmpty() ? "" : " ")
+          .append(parameter[1]).append(' ').append(parameter[2]);
+      }
+      signature.append(')');
+      if (!exceptions.isEmpty()) {
+        signature.append(" throws ").append(String.join(", ", exceptions));
+      }
+      line(signature.append(end).toString());
+    }
+
+    // body null for a method without one
+    private void count(BodySummary body) {
+      expect(AvoidMethodDeclarationRule.class);
+      if (name.toLowerCase(Locale.ROOT).contains(SyntheticCorpus.BRAND.toLowerCase(Locale.ROOT))) {
+        expect(AvoidBrandInMethodNamesRule.class);
+      }
+      for (String annotation : annotations) {
+        if (annotationNames(annotation).contains("Inject")) {
+          expect(AvoidAnnotationRule.class);
+        }
+      }
+      if (parameters.size() == 1 && !"void".equals(returnType) && sameType(returnType, parameters.get(0)[1])) {
+        expect(MyFirstCustomCheck.class);
+        expect(MyCustomSubscriptionRule.class);
+      }
+      for (String[] parameter : parameters) {
+        List<String> names = annotationNames(parameter[0]);
+        if (!Collections.disjoint(names, INPUT_ANNOTATIONS) && !names.contains("Valid")) {
+          expect(InputValidationRule.class);
+        }
+      }
+      if (!exceptions.isEmpty() && (body == null || !body.topLevelTry)) {
+        expect(ExceptionHandlingRule.class);
+      }
+      if (body != null) {
+        expect(HttpStatusConsistencyRule.class, body.httpStatusIssues());
+        expect(AvoidGenericExceptionRule.class, body.genericCatches);
+      }
+    }
+  }
+
+  /**
+   * What the rules looking at the statements of a method body find in it.
+   */
+  private static final class BodySummary {
+
+    private boolean topLevelTry;
+    private boolean topLevelReturn;
+    private int returnedInvocations;
+    private int catchReturnedInvocations;
+    private int genericCatches;
+
+    BodySummary(String[] lines) {
+      boolean inTopLevelCatch = false;
+      StringBuilder statement = null;
+      int statementDepth = 0;
+      for (String line : lines) {
+        String text = line.trim();
+        if (GENERIC_CATCH.matcher(text).find()) {
+          genericCatches++;
+        }
+        if (statement == null) {
+          statement = new StringBuilder(text);
+          statementDepth = (line.length() - line.replaceAll("^ +", "").length()) / INDENT.length();
+        } else {
+          statement.append(text);
+        }
+        if (!text.endsWith(";") && !text.endsWith("{") && !text.endsWith("}")) {
+          continue;
+        }
+        String complete = statement.toString();
+        statement = null;
+        if (statementDepth == 0) {
+          topLevelTry |= complete.startsWith("try ");
+          topLevelReturn |= complete.startsWith("return");
+          if (complete.startsWith("}")) {
+            inTopLevelCatch = complete.startsWith("} catch (");
+          }
+        }
+        if (complete.startsWith("return ") && isInvocation(complete.substring("return ".length(), complete.length() - 1).trim())) {
+          returnedInvocations++;
+          if (inTopLevelCatch && statementDepth == 1) {
+            catchReturnedInvocations++;
+          }
+        }
+      }
+    }
+
+    private static boolean isInvocation(String expression) {
+      return expression.endsWith(")") && !expression.startsWith("new ") && !expression.startsWith("(") && !expression.startsWith("!")
+        && !expression.contains(" ? ") && !expression.contains(" && ") && !expression.contains(" || ");
+    }
+
+    /**
+     * No method is named after a status: every top-level return is inconsistent, every returned invocation is then
+     * reported, and every invocation returned by a top-level catch is reported for not returning an error status.
+     */
+    int httpStatusIssues() {
+      return (topLevelReturn ? returnedInvocations : 0) + catchReturnedInvocations;
+    }
+  }
+}
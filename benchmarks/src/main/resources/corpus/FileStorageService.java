@@ -0,0 +1,84 @@
+package com.example.shop.service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FileStorageService {
+
+  private final File root;
+
+  public FileStorageService(File root) {
+    this.root = root;
+  }
+
+  public void store(String name, InputStream content) throws IOException {
+    OutputStream out = new FileOutputStream(new File(root, name));
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = content.read(buffer)) > 0) {
+      out.write(buffer, 0, read);
+    }
+    out.close();
+  }
+
+  public List<String> readLines(String name) throws IOException {
+    File file = new File(root, name);
+    if (!isValidFile(file)) {
+      throw new IOException("Invalid file " + name);
+    }
+    List<String> lines = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lines.add(line);
+      }
+    }
+    return lines;
+  }
+
+  public byte[] download(String location) throws IOException {
+    InputStream in = new URL(location).openStream();
+    if (in.available() == 0) {
+      return new byte[0];
+    }
+    byte[] data = new byte[in.available()];
+    in.read(data);
+    in.close();
+    return data;
+  }
+
+  public long size(String name) throws IOException {
+    Path path = Paths.get(root.getPath(), name);
+    return Files.size(path);
+  }
+
+  public int countRows(String url, String table) throws SQLException {
+    Connection connection = DriverManager.getConnection(url);
+    Statement statement = connection.createStatement();
+    ResultSet rows = statement.executeQuery("select count(*) from " + table);
+    int count = rows.next() ? rows.getInt(1) : 0;
+    connection.close();
+    return count;
+  }
+
+  private boolean isValidFile(File file) {
+    return file.exists() && file.isFile() && file.length() < 10_000_000;
+  }
+}
@@ -0,0 +1,83 @@
+package com.example.shop.service;
+
+import com.example.shop.domain.Order;
+import com.example.shop.domain.OrderLine;
+import com.example.shop.repository.OrderRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+@Service
+public class OrderService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OrderService.class);
+
+  private final OrderRepository orderRepository;
+
+  public OrderService(OrderRepository orderRepository) {
+    this.orderRepository = orderRepository;
+  }
+
+  public void saveAll(List<Order> orders) {
+    for (Order order : orders) {
+      orderRepository.save(order);
+    }
+  }
+
+  public void recompute(Map<String, List<Order>> ordersByCustomer) {
+    for (Map.Entry<String, List<Order>> entry : ordersByCustomer.entrySet()) {
+      int index = 0;
+      while (index < entry.getValue().size()) {
+        Order order = entry.getValue().get(index++);
+        order.setTotal(total(order));
+        persist(order);
+      }
+    }
+  }
+
+  public void archive(List<Order> orders) {
+    orders.forEach(order -> {
+      order.setArchived(true);
+      orderRepository.save(order);
+    });
+  }
+
+  private void persist(Order order) {
+    orderRepository.save(order);
+  }
+
+  private long total(Order order) {
+    long total = 0;
+    for (OrderLine line : order.getLines()) {
+      total += line.getPrice() * line.getQuantity();
+    }
+    return total;
+  }
+
+  public List<Order> cancel(List<Long> ids) {
+    List<Order> cancelled = new ArrayList<>();
+    try {
+      for (Long id : ids) {
+        Order order = orderRepository.findOne(id);
+        order.setCancelled(true);
+        cancelled.add(order);
+      }
+      orderRepository.save(cancelled);
+    } catch (Exception e) {
+      LOG.error("Cancellation failed", e);
+      throw new RuntimeException(e);
+    }
+    return cancelled;
+  }
+
+  public void reindex(List<Order> orders) {
+    try {
+      orders.stream().filter(Order::isArchived).map(Order::getId).forEach(id -> LOG.info("Reindex {}", id));
+    } catch (Throwable t) {
+      System.out.println(t.getMessage());
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package com.example.shop.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import java.io.IOException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.AuthenticationEntryPoint;
+
+@Configuration
+public class SecurityConfig {
+
+  @Bean
+  public PasswordEncoder passwordEncoder() {
+    return NoOpPasswordEncoder.getInstance();
+  }
+
+  public static class RestEntryPoint implements AuthenticationEntryPoint {
+
+    @Override
+    public void commence(HttpServletRequest request, HttpServletResponse response, AuthenticationException authException)
+      throws IOException {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN, "Unauthorized");
+    }
+  }
+
+  public static class JwtUtils {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JwtUtils.class);
+
+    private final String secret;
+
+    public JwtUtils(String secret) {
+      this.secret = secret;
+    }
+
+    public String username(String token) {
+      Claims claims = Jwts.parser().setSigningKey(secret).parseClaimsJws(token).getBody();
+      return claims.getSubject();
+    }
+
+    public boolean validate(String token) {
+      try {
+        Jwts.parser().setSigningKey(secret).parseClaimsJws(token);
+        return true;
+      } catch (RuntimeException e) {
+        return false;
+      }
+    }
+  }
+}
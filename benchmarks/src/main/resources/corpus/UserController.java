@@ -0,0 +1,77 @@
+package com.example.shop.web;
+
+import com.example.shop.domain.User;
+import com.example.shop.service.UserService;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+
+@Controller
+@RequestMapping("/users")
+public class UserController {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UserController.class);
+
+  private final UserService userService;
+
+  public UserController(UserService userService) {
+    this.userService = userService;
+  }
+
+  @RequestMapping("/create")
+  public ResponseEntity<User> create(@RequestBody User user) {
+    User created = userService.create(user);
+    return new ResponseEntity<>(created, HttpStatus.OK);
+  }
+
+  @RequestMapping("/{id}")
+  public ResponseEntity<User> find(@PathVariable("id") Long id) {
+    try {
+      User user = userService.find(id);
+      if (user == null) {
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+      }
+      return new ResponseEntity<>(user, HttpStatus.OK);
+    } catch (Exception e) {
+      return new ResponseEntity<>(HttpStatus.OK);
+    }
+  }
+
+  @RequestMapping("/search")
+  public List<User> search(@RequestParam("name") String name) {
+    return userService.search(name);
+  }
+
+  @RequestMapping("/avatar")
+  public ResponseEntity<String> upload(@RequestParam("file") MultipartFile file) throws IOException {
+    InputStream content = file.getInputStream();
+    userService.storeAvatar(file.getOriginalFilename(), content);
+    return ResponseEntity.ok("stored");
+  }
+
+  @RequestMapping("/import")
+  public ResponseEntity<String> importAll(@RequestBody List<User> users) {
+    for (User user : users) {
+      try {
+        userService.create(user);
+      } catch (RuntimeException e) {
+        LOG.warn("Skipped user {}", user.getName());
+      }
+    }
+    return ResponseEntity.ok("imported");
+  }
+
+  public String companyMonitorStatus() {
+    return "up";
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.runner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.sonar.samples.java.RulesList;
+import org.sonar.samples.java.dispatch.FileGuard;
+import org.sonar.samples.java.dispatch.LexicalPrefilter;
+import org.sonar.samples.java.index.ClasspathIndex;
+import org.sonar.samples.java.index.EntityIndex;
+import org.sonar.samples.java.inventory.EndpointInventory;
+import org.sonar.samples.java.registry.RuleDescriptor;
+
+/**
+ * Analyzes a source tree with the rules of the plugin, outside of any scanner, and prints the issues to the standard
+ * output, one per line as {@code path:line: [rule key] message}, in a stable order.
+ *
+ * <pre>
+ * java -jar runner.jar &lt;source directory&gt; [--classpath &lt;jars and directories&gt;] [--rules &lt;key,...&gt;] [--threads &lt;count&gt;]
+ *   [--endpoints &lt;file&gt;]
+ * </pre>
+ *
+ * Files are analyzed in parallel on all the cores unless {@code --threads} says otherwise. The class path holds the
+ * libraries the sources use, read as bytecode to resolve their types. The exit status is 1 when a file could not be
+ * analyzed, 2 when the arguments are wrong. {@code --endpoints} writes the inventory of the controller endpoints and of
+ * their status codes, one JSON object per line.
+ */
+public final class BatchRunner {
+
+  private static final String USAGE = "Usage: java -jar runner.jar <source directory> [--classpath <jars and directories>]"
+    + " [--rules <key,...>] [--threads <count>] [--endpoints <file>]";
+
+  private BatchRunner() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    Arguments arguments;
+    try {
+      arguments = Arguments.parse(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+      return;
+    }
+    System.exit(run(arguments, System.out, System.err));
+  }
+
+  static int run(Arguments arguments, PrintStream out, PrintStream err) throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(arguments.sourceDirectory)) {
+      files = paths.filter(path -> path.toString().endsWith(".java") && Files.isRegularFile(path)).sorted().collect(Collectors.toList());
+    }
+    long start = System.nanoTime();
+    // first pass, so that the rules know the entities of the whole tree whatever the class path
+    EntityIndex.use(EntityIndex.ofFiles(files));
+    try {
+      ClasspathIndex.use(ClasspathIndex.ofJars(arguments.classpath.stream().map(File::toPath).collect(Collectors.toList())));
+    } catch (IOException e) {
+      // the rules then resolve the library types through the semantic model only
+      err.println("Unable to index the class path: " + e.getMessage());
+    }
+    if (arguments.endpoints != null) {
+      EndpointInventory.start(arguments.endpoints);
+    }
+    List<ReportedIssue> issues;
+    List<String> failures;
+    long nodes;
+    long duplicates;
+    try (ParallelAnalysis analysis = new ParallelAnalysis(arguments.sourceDirectory, arguments.classpath, arguments.rules)) {
+      issues = analysis.run(files, arguments.threads);
+      failures = analysis.failures();
+      nodes = analysis.nodesVisited();
+      duplicates = analysis.duplicatesMerged();
+    } finally {
+      int endpoints = EndpointInventory.finish();
+      if (arguments.endpoints != null) {
+        err.printf("%d endpoints written to %s%n", endpoints, arguments.endpoints);
+      }
+    }
+    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    issues.forEach(out::println);
+    failures.forEach(failure -> err.println("Unable to analyze " + failure));
+    err.printf("%d issues in %d files (%d nodes, %d duplicates merged), %d rules on %d threads, %d ms%n",
+      issues.size(), files.size(), nodes, duplicates, arguments.rules.size(), arguments.threads, millis);
+    if (FileGuard.current().guardedFiles() > 0) {
+      err.println("File guard: " + FileGuard.current().summary());
+    }
+    if (LexicalPrefilter.current().filesScanned() > 0) {
+      err.println("Lexical prefilter: " + LexicalPrefilter.current().summary());
+    }
+    return failures.isEmpty() ? 0 : 1;
+  }
+
+  static final class Arguments {
+
+    private final Path sourceDirectory;
+    private final List<File> classpath;
+    private final List<RuleDescriptor> rules;
+    private final int threads;
+    // null when no inventory is asked
+    private final Path endpoints;
+
+    private Arguments(Path sourceDirectory, List<File> classpath, List<RuleDescriptor> rules, int threads, Path endpoints) {
+      this.sourceDirectory = sourceDirectory;
+      this.classpath = classpath;
+      this.rules = rules;
+      this.threads = threads;
+      this.endpoints = endpoints;
+    }
+
+    static Arguments parse(String... args) {
+      Path sourceDirectory = null;
+      List<File> classpath = Collections.emptyList();
+      List<RuleDescriptor> rules = RulesList.getJavaRules();
+      int threads = Runtime.getRuntime().availableProcessors();
+      Path endpoints = null;
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "--classpath":
+            classpath = Arrays.stream(value(args, ++i, "--classpath").split(File.pathSeparator))
+              .filter(entry -> !entry.isEmpty())
+              .map(File::new)
+              .collect(Collectors.toList());
+            break;
+          case "--rules":
+            rules = selectRules(value(args, ++i, "--rules"));
+            break;
+          case "--threads":
+            threads = threadCount(value(args, ++i, "--threads"));
+            break;
+          case "--endpoints":
+            endpoints = Paths.get(value(args, ++i, "--endpoints"));
+            break;
+          default:
+            if (sourceDirectory != null || args[i].startsWith("--")) {
+              throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            sourceDirectory = Paths.get(args[i]).toAbsolutePath().normalize();
+            break;
+        }
+      }
+      if (sourceDirectory == null || !Files.isDirectory(sourceDirectory)) {
+        throw new IllegalArgumentException("A source directory is expected");
+      }
+      return new Arguments(sourceDirectory, classpath, rules, threads, endpoints);
+    }
+
+    private static String value(String[] args, int index, String option) {
+      if (index >= args.length) {
+        throw new IllegalArgumentException("Missing value of " + option);
+      }
+      return args[index];
+    }
+
+    private static List<RuleDescriptor> selectRules(String keys) {
+      Set<String> selected = new HashSet<>(Arrays.asList(keys.split(",")));
+      List<RuleDescriptor> rules = new ArrayList<>();
+      for (RuleDescriptor rule : RulesList.getJavaRules()) {
+        if (selected.remove(rule.key())) {
+          rules.add(rule);
+        }
+      }
+      if (!selected.isEmpty()) {
+        throw new IllegalArgumentException("Unknown rules " + selected + " among " + RulesList.getJavaRules());
+      }
+      return rules;
+    }
+
+    private static int threadCount(String value) {
+      try {
+        int threads = Integer.parseInt(value);
+        if (threads > 0) {
+          return threads;
+        }
+      } catch (NumberFormatException e) {
+        // reported below
+      }
+      throw new IllegalArgumentException("Invalid thread count: " + value);
+    }
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.runner;
+
+import com.sonar.sslr.api.typed.ActionParser;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import org.sonar.java.AnalyzerMessage;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.model.VisitorsBridgeForTests;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaVersion;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
+import org.sonar.samples.java.dispatch.SharedTreeWalk;
+import org.sonar.samples.java.registry.RuleDescriptor;
+
+/**
+ * Analysis of a set of files on a fork-join pool, every file being parsed, resolved and walked by a single task.
+ *
+ * <p>The checks are instantiated once and shared by all the threads, through {@link SharedTreeWalk#scan}: this keeps
+ * what the checks learn about the whole project, the call graph for instance, the same as in a scanner.
+ * Parsers are not thread-safe and class loaders read jars with no synchronization of their own, so every thread
+ * gets its own, kept until {@link #close()}.</p>
+ */
+final class ParallelAnalysis implements Closeable {
+
+  private static final JavaVersion JAVA_VERSION = new JavaVersionImpl(8);
+
+  private final Path root;
+  private final List<File> classpath;
+  private final Map<Class<?>, String> ruleKeysByClass = new HashMap<>();
+  private final SharedTreeWalk walk;
+
+  private final ThreadLocal<ActionParser<Tree>> parsers = ThreadLocal.withInitial(JavaParser::createParser);
+  private final ThreadLocal<SquidClassLoader> classLoaders = ThreadLocal.withInitial(this::newClassLoader);
+  private final Queue<SquidClassLoader> openClassLoaders = new ConcurrentLinkedQueue<>();
+
+  private final Queue<ReportedIssue> issues = new ConcurrentLinkedQueue<>();
+  private final Queue<String> failures = new ConcurrentLinkedQueue<>();
+
+  ParallelAnalysis(Path root, List<File> classpath, List<RuleDescriptor> rules) {
+    this.root = root;
+    this.classpath = classpath;
+    List<DispatchedVisitor> checks = new ArrayList<>();
+    for (RuleDescriptor rule : rules) {
+      JavaCheck check = rule.newCheck();
+      if (!(check instanceof DispatchedVisitor)) {
+        throw new IllegalArgumentException("Rule " + rule.key() + " is not dispatched by the shared walk and cannot run in parallel");
+      }
+      checks.add((DispatchedVisitor) check);
+      ruleKeysByClass.put(check.getClass(), rule.key());
+    }
+    walk = SharedTreeWalk.of(checks);
+  }
+
+  /**
+   * Analyzes the given files on a pool of the given number of threads.
+   *
+   * @return the issues of all the files, sorted
+   */
+  List<ReportedIssue> run(List<Path> files, int threads) {
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      pool.invoke(new AnalyzeFiles(files));
+    } finally {
+      pool.shutdown();
+    }
+    List<ReportedIssue> sorted = new ArrayList<>(issues);
+    Collections.sort(sorted);
+    return sorted;
+  }
+
+  /**
+   * Files which could not be read, parsed or analyzed, with the reason, sorted.
+   */
+  List<String> failures() {
+    List<String> sorted = new ArrayList<>(failures);
+    Collections.sort(sorted);
+    return sorted;
+  }
+
+  long nodesVisited() {
+    return walk.stats().nodesVisited();
+  }
+
+  long duplicatesMerged() {
+    return walk.stats().duplicatesMerged();
+  }
+
+  private void analyze(Path path) {
+    File file = path.toFile();
+    try {
+      String source = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+      CompilationUnitTree tree = (CompilationUnitTree) parsers.get().parse(source);
+      SemanticModel semanticModel = SemanticModel.createFor(tree, classLoaders.get());
+      RunnerContext context = new RunnerContext(tree, file, semanticModel, source, this::collect);
+      walk.scan(context);
+      context.getIssues().forEach(this::collect);
+    } catch (IOException | RuntimeException e) {
+      failures.add(relativePath(file) + ": " + e);
+    }
+  }
+
+  private void collect(AnalyzerMessage message) {
+    Integer line = message.getLine();
+    issues.add(new ReportedIssue(relativePath(message.getFile()), line == null ? 0 : line,
+      ruleKeysByClass.get(message.getCheck().getClass()), message.getMessage()));
+  }
+
+  private String relativePath(File file) {
+    return root.relativize(file.toPath()).toString().replace('\\', '/');
+  }
+
+  private SquidClassLoader newClassLoader() {
+    SquidClassLoader classLoader = new SquidClassLoader(classpath);
+    openClassLoaders.add(classLoader);
+    return classLoader;
+  }
+
+  @Override
+  public void close() {
+    for (SquidClassLoader classLoader : openClassLoaders) {
+      classLoader.close();
+    }
+    openClassLoaders.clear();
+  }
+
+  /**
+   * Splits the files in halves down to a single file, so that idle threads steal the remaining work.
+   */
+  private final class AnalyzeFiles extends RecursiveAction {
+
+    private final List<Path> files;
+
+    AnalyzeFiles(List<Path> files) {
+      this.files = files;
+    }
+
+    @Override
+    protected void compute() {
+      if (files.size() == 1) {
+        analyze(files.get(0));
+      } else if (files.size() > 1) {
+        int middle = files.size() / 2;
+        invokeAll(new AnalyzeFiles(files.subList(0, middle)), new AnalyzeFiles(files.subList(middle, files.size())));
+      }
+    }
+  }
+
+  /**
+   * Context of one file, which also gives the checks its content and collects the issues they raise on other files.
+   */
+  private static final class RunnerContext extends VisitorsBridgeForTests.TestJavaFileScannerContext {
+
+    private final String source;
+    private final Consumer<AnalyzerMessage> otherFileIssues;
+
+    RunnerContext(CompilationUnitTree tree, File file, SemanticModel semanticModel, String source, Consumer<AnalyzerMessage> otherFileIssues) {
+      super(tree, file, semanticModel, null, JAVA_VERSION, true);
+      this.source = source;
+      this.otherFileIssues = otherFileIssues;
+    }
+
+    @Override
+    public String getFileContent() {
+      return source;
+    }
+
+    @Override
+    public List<String> getFileLines() {
+      return Arrays.asList(source.split("\r\n|\n|\r", -1));
+    }
+
+    @Override
+    public void addIssue(File file, JavaCheck check, int line, String message) {
+      otherFileIssues.accept(new AnalyzerMessage(check, file, line, message, 0));
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.runner;
+
+import java.util.Comparator;
+
+/**
+ * Issue printed by the runner. Issues are sorted by file, line, rule and message, so that two runs on the same
+ * sources print the same report whatever the order the files were analyzed in.
+ */
+final class ReportedIssue implements Comparable<ReportedIssue> {
+
+  private static final Comparator<ReportedIssue> ORDER = Comparator.comparing((ReportedIssue issue) -> issue.path)
+    .thenComparingInt(issue -> issue.line)
+    .thenComparing(issue -> issue.ruleKey)
+    .thenComparing(issue -> issue.message);
+
+  private final String path;
+  // 0 for the issues on the whole file
+  private final int line;
+  private final String ruleKey;
+  private final String message;
+
+  ReportedIssue(String path, int line, String ruleKey, String message) {
+    this.path = path;
+    this.line = line;
+    this.ruleKey = ruleKey;
+    this.message = message;
+  }
+
+  @Override
+  public int compareTo(ReportedIssue other) {
+    return ORDER.compare(this, other);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof ReportedIssue && compareTo((ReportedIssue) other) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    return ((path.hashCode() * 31 + line) * 31 + ruleKey.hashCode()) * 31 + message.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return path + ":" + line + ": [" + ruleKey + "] " + message;
+  }
+}
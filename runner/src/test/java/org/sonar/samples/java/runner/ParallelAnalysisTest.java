@@ -0,0 +1,94 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.runner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.samples.java.RulesList;
+import org.sonar.samples.java.index.EntityIndex;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelAnalysisTest {
+
+  // the test files of the plugin, as the runner is built from the same checkout
+  private static final Path SOURCES = Paths.get("../src/test/files").toAbsolutePath().normalize();
+
+  private List<Path> files;
+
+  @Before
+  public void index_the_entities() throws IOException {
+    try (Stream<Path> paths = Files.walk(SOURCES)) {
+      files = paths.filter(path -> path.toString().endsWith(".java") && Files.isRegularFile(path)).sorted().collect(Collectors.toList());
+    }
+    EntityIndex.use(EntityIndex.ofFiles(files));
+  }
+
+  @After
+  public void restore_the_empty_index() {
+    EntityIndex.use(EntityIndex.EMPTY);
+  }
+
+  @Test
+  public void two_threads_report_the_issues_of_a_sequential_run() {
+    assertThat(files.size()).isGreaterThan(20);
+    Analysis sequential = analyze(1);
+    assertThat(sequential.issues).isNotEmpty();
+    assertThat(sequential.issues.stream().map(issue -> issue.toString().substring(0, issue.toString().indexOf(':'))).distinct().count())
+      .isGreaterThan(10);
+
+    // a few runs, as the files are interleaved differently every time
+    for (int run = 0; run < 3; run++) {
+      Analysis parallel = analyze(2);
+      assertThat(parallel.issues).containsExactlyElementsOf(sequential.issues);
+      assertThat(parallel.failures).containsExactlyElementsOf(sequential.failures);
+      assertThat(parallel.nodesVisited).isEqualTo(sequential.nodesVisited);
+    }
+  }
+
+  private Analysis analyze(int threads) {
+    try (ParallelAnalysis analysis = new ParallelAnalysis(SOURCES, Collections.emptyList(), RulesList.getJavaRules())) {
+      List<ReportedIssue> issues = analysis.run(files, threads);
+      return new Analysis(issues, analysis.failures(), analysis.nodesVisited());
+    }
+  }
+
+  private static final class Analysis {
+
+    private final List<ReportedIssue> issues;
+    private final List<String> failures;
+    private final long nodesVisited;
+
+    Analysis(List<ReportedIssue> issues, List<String> failures, long nodesVisited) {
+      this.issues = issues;
+      this.failures = failures;
+      this.nodesVisited = nodesVisited;
+    }
+  }
+}
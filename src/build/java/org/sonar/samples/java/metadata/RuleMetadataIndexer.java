@@ -0,0 +1,428 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.metadata;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.rule.RuleStatus;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.server.rule.RuleParamType;
+import org.sonar.api.server.rule.RuleTagFormat;
+import org.sonar.api.utils.AnnotationUtils;
+import org.sonar.check.Rule;
+import org.sonar.check.RuleProperty;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.samples.java.MyJavaRulesDefinition;
+import org.sonar.samples.java.RulesList;
+import org.sonar.squidbridge.annotations.RuleTemplate;
+
+/**
+ * Build step run after compilation (see the {@code rule-metadata-index} execution in the pom). It lives in the
+ * {@code src/build/java} source set, compiled with the plugin but left out of its jar.
+ *
+ * <p>Checks that every rule of {@link RulesList} and every file under {@link MyJavaRulesDefinition#RESOURCE_BASE_PATH}
+ * agree with each other, then writes {@link RuleMetadataIndex#FILE_NAME} next to them. All problems are collected
+ * and reported together, and any of them fails the build instead of silently dropping metadata at runtime.</p>
+ *
+ * <p>The metadata of a rule is looked up under its key without the repository prefix, so {@code pfe-custom-rules:Foo}
+ * is described by {@code Foo_java.json} and {@code Foo_java.html}.</p>
+ */
+public final class RuleMetadataIndexer {
+
+  private static final Pattern METADATA_FILE = Pattern.compile("(\\w+)_java\\.(json|html)");
+  private static final Pattern DURATION = Pattern.compile("(\\d+\\s*(d|h|min|mn)\\s*)+");
+  private static final Set<String> JSON_FIELDS = new HashSet<>(Arrays.asList("title", "type", "status", "remediation", "tags", "defaultSeverity"));
+  private static final Set<String> REMEDIATION_FIELDS = new HashSet<>(Arrays.asList("func", "constantCost", "linearFactor", "linearOffset", "linearDesc"));
+
+  private final Path metadataDirectory;
+  private final List<String> errors = new ArrayList<>();
+
+  public RuleMetadataIndexer(Path metadataDirectory) {
+    this.metadataDirectory = metadataDirectory;
+  }
+
+  /**
+   * @param args the class output directory, which holds both the compiled checks and the metadata resources
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      throw new IllegalArgumentException("Usage: RuleMetadataIndexer <classes directory>");
+    }
+    Path metadataDirectory = Paths.get(args[0], MyJavaRulesDefinition.RESOURCE_BASE_PATH.substring(1));
+    RuleMetadataIndexer indexer = new RuleMetadataIndexer(metadataDirectory);
+    List<RuleMetadata> rules = indexer.index(RulesList.getChecks());
+    if (!indexer.errors.isEmpty()) {
+      throw new IllegalStateException("Invalid rule metadata in " + metadataDirectory + ":\n  - " + String.join("\n  - ", indexer.errors));
+    }
+    Path index = metadataDirectory.resolve(RuleMetadataIndex.FILE_NAME);
+    try (OutputStream out = Files.newOutputStream(index)) {
+      RuleMetadataIndex.write(rules, out);
+    }
+    System.out.println("Indexed metadata of " + rules.size() + " rules into " + index);
+  }
+
+  public List<String> errors() {
+    return errors;
+  }
+
+  public List<RuleMetadata> index(List<Class<? extends JavaCheck>> checks) throws IOException {
+    Map<String, Set<String>> files = listMetadataFiles();
+    Set<String> claimed = new HashSet<>();
+    Set<String> ruleKeys = new HashSet<>();
+    List<RuleMetadata> rules = new ArrayList<>(checks.size());
+    for (Class<? extends JavaCheck> check : checks) {
+      Rule rule = AnnotationUtils.getAnnotation(check, Rule.class);
+      if (rule == null || StringUtils.isEmpty(rule.key())) {
+        errors.add(check.getName() + ": no key is defined in its @Rule annotation");
+        continue;
+      }
+      if (!ruleKeys.add(rule.key())) {
+        errors.add(check.getName() + ": rule key " + rule.key() + " is already used by another check");
+        continue;
+      }
+      String metadataKey = metadataKey(check, rule.key());
+      Set<String> extensions = files.get(metadataKey);
+      if (extensions != null) {
+        claimed.add(metadataKey);
+      }
+      RuleMetadata metadata = ruleMetadata(check, rule, metadataKey, extensions == null ? new HashSet<>() : extensions);
+      if (metadata != null) {
+        rules.add(metadata);
+      }
+    }
+    for (String metadataKey : files.keySet()) {
+      if (!claimed.contains(metadataKey)) {
+        errors.add(metadataKey + "_java.*: no rule of " + RulesList.class.getSimpleName() + " has key " + metadataKey);
+      }
+    }
+    return rules;
+  }
+
+  private String metadataKey(Class<?> check, String ruleKey) {
+    int separator = ruleKey.lastIndexOf(':');
+    if (separator < 0) {
+      return ruleKey;
+    }
+    String prefix = ruleKey.substring(0, separator);
+    if (!MyJavaRulesDefinition.REPOSITORY_KEY.equals(prefix)) {
+      errors.add(check.getName() + ": rule key " + ruleKey + " is prefixed with " + prefix + " instead of " + MyJavaRulesDefinition.REPOSITORY_KEY);
+    }
+    return ruleKey.substring(separator + 1);
+  }
+
+  /**
+   * Metadata files grouped by rule key, each with the extensions found for it. Misnamed files and
+   * descriptions without their json (or the other way round) are reported here.
+   */
+  private Map<String, Set<String>> listMetadataFiles() throws IOException {
+    Map<String, Set<String>> files = new TreeMap<>();
+    if (!Files.isDirectory(metadataDirectory)) {
+      errors.add("metadata directory not found");
+      return files;
+    }
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(metadataDirectory)) {
+      for (Path path : stream) {
+        String fileName = path.getFileName().toString();
+        if (RuleMetadataIndex.FILE_NAME.equals(fileName)) {
+          continue;
+        }
+        Matcher matcher = METADATA_FILE.matcher(fileName);
+        if (matcher.matches()) {
+          files.computeIfAbsent(matcher.group(1), k -> new TreeSet<>()).add(matcher.group(2));
+        } else {
+          errors.add(fileName + ": metadata files must be named <RuleKey>_java.json or <RuleKey>_java.html");
+        }
+      }
+    }
+    for (Map.Entry<String, Set<String>> entry : files.entrySet()) {
+      if (entry.getValue().size() == 1) {
+        String present = entry.getValue().iterator().next();
+        String missing = "json".equals(present) ? "html" : "json";
+        errors.add(entry.getKey() + "_java." + present + ": " + entry.getKey() + "_java." + missing + " is missing");
+      }
+    }
+    return files;
+  }
+
+  @CheckForNull
+  private RuleMetadata ruleMetadata(Class<?> check, Rule rule, String metadataKey, Set<String> extensions) throws IOException {
+    int errorCount = errors.size();
+    String name = StringUtils.defaultIfEmpty(rule.name(), null);
+    String htmlDescription = StringUtils.defaultIfEmpty(rule.description(), null);
+    String severity = rule.priority().name();
+    String type = null;
+    String status = rule.status();
+    Set<String> tags = new LinkedHashSet<>(Arrays.asList(rule.tags()));
+    RuleMetadata.Remediation remediation = null;
+
+    if (extensions.contains("html")) {
+      htmlDescription = readHtml(metadataKey + "_java.html");
+    }
+    if (extensions.contains("json")) {
+      String file = metadataKey + "_java.json";
+      JsonObject json = readJson(file);
+      if (json != null) {
+        name = requiredString(file, json, "title");
+        type = enumValue(file, json, "type", RuleType.class);
+        status = enumValue(file, json, "status", RuleStatus.class);
+        severity = severity(file, json);
+        tags.addAll(stringArray(file, json, "tags"));
+        remediation = remediation(file, json);
+        for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
+          if (!JSON_FIELDS.contains(entry.getKey())) {
+            errors.add(file + ": unexpected field \"" + entry.getKey() + "\", allowed fields are " + new TreeSet<>(JSON_FIELDS));
+          }
+        }
+      }
+    }
+
+    if (name == null) {
+      errors.add(check.getName() + ": no name, set it in @Rule or in " + metadataKey + "_java.json");
+    }
+    if (htmlDescription == null) {
+      errors.add(check.getName() + ": no description, set it in @Rule or in " + metadataKey + "_java.html");
+    }
+    for (String tag : tags) {
+      if (!RuleTagFormat.isValid(tag)) {
+        errors.add(check.getName() + ": invalid tag \"" + tag + "\"");
+      }
+    }
+    List<RuleMetadata.Param> params = params(check);
+    if (errors.size() > errorCount) {
+      return null;
+    }
+    boolean template = AnnotationUtils.getAnnotation(check, RuleTemplate.class) != null;
+    return new RuleMetadata(rule.key(), name, htmlDescription, severity, type, status, new ArrayList<>(tags), template, remediation, params);
+  }
+
+  private List<RuleMetadata.Param> params(Class<?> check) {
+    List<RuleMetadata.Param> params = new ArrayList<>();
+    for (Class<?> type = check; type != null && type != Object.class; type = type.getSuperclass()) {
+      for (Field field : type.getDeclaredFields()) {
+        RuleProperty property = field.getAnnotation(RuleProperty.class);
+        if (property == null) {
+          continue;
+        }
+        String paramType;
+        try {
+          paramType = StringUtils.isBlank(property.type()) ? guessType(field.getType()).toString() : RuleParamType.parse(property.type()).toString();
+        } catch (IllegalArgumentException e) {
+          errors.add(check.getName() + ": invalid type \"" + property.type() + "\" for rule property " + field.getName());
+          continue;
+        }
+        params.add(new RuleMetadata.Param(
+          StringUtils.defaultIfEmpty(property.key(), field.getName()),
+          StringUtils.defaultIfEmpty(property.description(), null),
+          StringUtils.defaultIfEmpty(property.defaultValue(), null),
+          paramType));
+      }
+    }
+    return params;
+  }
+
+  private static RuleParamType guessType(Class<?> type) {
+    if (type == int.class || type == Integer.class) {
+      return RuleParamType.INTEGER;
+    }
+    if (type == float.class || type == Float.class) {
+      return RuleParamType.FLOAT;
+    }
+    if (type == boolean.class || type == Boolean.class) {
+      return RuleParamType.BOOLEAN;
+    }
+    return RuleParamType.STRING;
+  }
+
+  @CheckForNull
+  private RuleMetadata.Remediation remediation(String file, JsonObject json) {
+    JsonElement element = json.get("remediation");
+    if (element == null || element.isJsonNull()) {
+      return null;
+    }
+    if (!element.isJsonObject()) {
+      errors.add(file + ": \"remediation\" must be an object");
+      return null;
+    }
+    JsonObject remediation = element.getAsJsonObject();
+    for (Map.Entry<String, JsonElement> entry : remediation.entrySet()) {
+      if (!REMEDIATION_FIELDS.contains(entry.getKey())) {
+        errors.add(file + ": unexpected remediation field \"" + entry.getKey() + "\", allowed fields are " + new TreeSet<>(REMEDIATION_FIELDS));
+      }
+    }
+    String func = requiredString(file, remediation, "func");
+    if (func == null) {
+      return null;
+    }
+    String gapDescription = optionalString(file, remediation, "linearDesc");
+    switch (func) {
+      case RuleMetadata.Remediation.CONSTANT_ISSUE:
+        return new RuleMetadata.Remediation(func, duration(file, remediation, "constantCost"), null, null, gapDescription);
+      case RuleMetadata.Remediation.LINEAR:
+        return new RuleMetadata.Remediation(func, null, duration(file, remediation, "linearFactor"), null, gapDescription);
+      case RuleMetadata.Remediation.LINEAR_OFFSET:
+        return new RuleMetadata.Remediation(func, null, duration(file, remediation, "linearFactor"), duration(file, remediation, "linearOffset"),
+          gapDescription);
+      default:
+        errors.add(file + ": unknown remediation function \"" + func + "\", expected one of " + Arrays.asList(
+          RuleMetadata.Remediation.CONSTANT_ISSUE, RuleMetadata.Remediation.LINEAR, RuleMetadata.Remediation.LINEAR_OFFSET));
+        return null;
+    }
+  }
+
+  @CheckForNull
+  private String duration(String file, JsonObject json, String field) {
+    String value = requiredString(file, json, field);
+    if (value == null) {
+      return null;
+    }
+    if (!DURATION.matcher(value.trim()).matches()) {
+      errors.add(file + ": \"" + field + "\" is not a duration such as 1h or 15min: " + value);
+      return null;
+    }
+    return value.trim().replace("mn", "min");
+  }
+
+  @CheckForNull
+  private String severity(String file, JsonObject json) {
+    String value = requiredString(file, json, "defaultSeverity");
+    if (value == null) {
+      return null;
+    }
+    String severity = value.toUpperCase(Locale.ENGLISH);
+    if (!Severity.ALL.contains(severity)) {
+      errors.add(file + ": unknown defaultSeverity \"" + value + "\", expected one of " + Severity.ALL);
+      return null;
+    }
+    return severity;
+  }
+
+  @CheckForNull
+  private <E extends Enum<E>> String enumValue(String file, JsonObject json, String field, Class<E> enumType) {
+    String value = requiredString(file, json, field);
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Enum.valueOf(enumType, value.toUpperCase(Locale.ENGLISH)).name();
+    } catch (IllegalArgumentException e) {
+      errors.add(file + ": unknown " + field + " \"" + value + "\", expected one of " + Arrays.toString(enumType.getEnumConstants()));
+      return null;
+    }
+  }
+
+  private List<String> stringArray(String file, JsonObject json, String field) {
+    List<String> values = new ArrayList<>();
+    JsonElement element = json.get(field);
+    if (element == null || !element.isJsonArray()) {
+      errors.add(file + ": \"" + field + "\" must be an array of strings");
+      return values;
+    }
+    JsonArray array = element.getAsJsonArray();
+    for (JsonElement item : array) {
+      if (isString(item)) {
+        values.add(item.getAsString());
+      } else {
+        errors.add(file + ": \"" + field + "\" must only contain strings");
+      }
+    }
+    return values;
+  }
+
+  @CheckForNull
+  private String requiredString(String file, JsonObject json, String field) {
+    JsonElement element = json.get(field);
+    if (!isString(element) || StringUtils.isBlank(element.getAsString())) {
+      errors.add(file + ": missing string field \"" + field + "\"");
+      return null;
+    }
+    return element.getAsString();
+  }
+
+  @CheckForNull
+  private String optionalString(String file, JsonObject json, String field) {
+    JsonElement element = json.get(field);
+    if (element == null || element.isJsonNull()) {
+      return null;
+    }
+    if (!isString(element)) {
+      errors.add(file + ": \"" + field + "\" must be a string");
+      return null;
+    }
+    return element.getAsString();
+  }
+
+  private static boolean isString(@Nullable JsonElement element) {
+    return element != null && element.isJsonPrimitive() && ((JsonPrimitive) element).isString();
+  }
+
+  @CheckForNull
+  private JsonObject readJson(String file) throws IOException {
+    try (Reader reader = Files.newBufferedReader(metadataDirectory.resolve(file), StandardCharsets.UTF_8)) {
+      JsonElement json = new JsonParser().parse(reader);
+      if (!json.isJsonObject()) {
+        errors.add(file + ": expected a single json object");
+        return null;
+      }
+      return json.getAsJsonObject();
+    } catch (JsonParseException e) {
+      errors.add(file + ": invalid json, " + e.getMessage());
+      return null;
+    }
+  }
+
+  @CheckForNull
+  private String readHtml(String file) throws IOException {
+    String html = String.join("\n", Files.readAllLines(metadataDirectory.resolve(file), StandardCharsets.UTF_8));
+    if (StringUtils.isBlank(html)) {
+      errors.add(file + ": empty description");
+      return null;
+    }
+    return html;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.profile;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.sonarsource.samples.java.FileScan")
+@Label("Custom Rules File Scan")
+@Description("Shared walk of one file by all the custom rules")
+@Category({"SonarQube", "Custom Java Rules"})
+@StackTrace(false)
+final class FileScanEvent extends Event {
+
+  @Label("File")
+  String file;
+
+  @Label("Rules")
+  int rules;
+
+  @Label("Nodes")
+  @Description("Nodes of the file visited by the walk")
+  long nodes;
+
+  @Label("Issues")
+  int issues;
+}
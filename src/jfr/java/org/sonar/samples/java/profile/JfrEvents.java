@@ -0,0 +1,43 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.profile;
+
+import jdk.jfr.EventType;
+
+/**
+ * Events of {@link RuleEvents} on a JVM shipping JFR. Compiled only by the JDKs which ship it, and loaded by name once
+ * {@code jdk.jfr} is known to be there.
+ */
+final class JfrEvents implements RuleEvents.Recorder {
+
+  static final EventType FILE_SCAN = EventType.getEventType(FileScanEvent.class);
+  static final EventType RULE_EXECUTION = EventType.getEventType(RuleExecutionEvent.class);
+  static final EventType RULE_ISSUE = EventType.getEventType(RuleIssueEvent.class);
+
+  @Override
+  public boolean anyEnabled() {
+    return FILE_SCAN.isEnabled() || RULE_EXECUTION.isEnabled() || RULE_ISSUE.isEnabled();
+  }
+
+  @Override
+  public FileRecording begin(String file, int rules) {
+    return new JfrFileRecording(file, rules);
+  }
+}
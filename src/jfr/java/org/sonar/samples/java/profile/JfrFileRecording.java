@@ -0,0 +1,91 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.profile;
+
+import org.sonar.plugins.java.api.JavaCheck;
+
+/**
+ * Flight Recorder events of the walk of one file, started by {@link JfrEvents#begin}.
+ */
+final class JfrFileRecording implements FileRecording {
+
+  private final String file;
+  private final int rules;
+  private final FileScanEvent fileEvent;
+  private final RuleExecutionEvent[] ruleEvents;
+  private final boolean issuesEnabled;
+  private int issues;
+
+  JfrFileRecording(String file, int rules) {
+    this.file = file;
+    this.rules = rules;
+    fileEvent = new FileScanEvent();
+    fileEvent.begin();
+    ruleEvents = new RuleExecutionEvent[JfrEvents.RULE_EXECUTION.isEnabled() ? rules : 0];
+    for (int i = 0; i < ruleEvents.length; i++) {
+      ruleEvents[i] = new RuleExecutionEvent();
+      ruleEvents[i].begin();
+    }
+    issuesEnabled = JfrEvents.RULE_ISSUE.isEnabled();
+  }
+
+  @Override
+  public void issue(JavaCheck check, int line, String message) {
+    issues++;
+    if (issuesEnabled) {
+      RuleIssueEvent event = new RuleIssueEvent();
+      if (event.shouldCommit()) {
+        event.ruleKey = RuleProfiler.ruleKey(check.getClass());
+        event.file = file;
+        event.line = line;
+        event.message = message;
+        event.commit();
+      }
+    }
+  }
+
+  @Override
+  public void rule(int index, Class<?> checkClass, long nanos, long nodes, int ruleIssues) {
+    if (index < ruleEvents.length) {
+      RuleExecutionEvent event = ruleEvents[index];
+      event.end();
+      if (event.shouldCommit()) {
+        event.ruleKey = RuleProfiler.ruleKey(checkClass);
+        event.file = file;
+        event.ruleTime = nanos;
+        event.nodes = nodes;
+        event.issues = ruleIssues;
+        event.commit();
+      }
+    }
+  }
+
+  @Override
+  public void end(long nodes) {
+    fileEvent.end();
+    if (fileEvent.shouldCommit()) {
+      fileEvent.file = file;
+      fileEvent.rules = rules;
+      fileEvent.nodes = nodes;
+      fileEvent.issues = issues;
+      fileEvent.commit();
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.profile;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("org.sonarsource.samples.java.RuleExecution")
+@Label("Custom Rule Execution")
+@Description("One custom rule on one file. The rules share the walk of the file, so the span is the walk "
+  + "and the time spent in the rule itself is the Rule Time field")
+@Category({"SonarQube", "Custom Java Rules"})
+@StackTrace(false)
+final class RuleExecutionEvent extends Event {
+
+  @Label("Rule Key")
+  String ruleKey;
+
+  @Label("File")
+  String file;
+
+  @Label("Rule Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long ruleTime;
+
+  @Label("Nodes")
+  @Description("Nodes handed to the rule")
+  long nodes;
+
+  @Label("Issues")
+  int issues;
+}
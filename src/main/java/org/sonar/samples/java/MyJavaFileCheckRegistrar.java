@@ -1,18 +1,61 @@
 package org.sonar.samples.java;
 
 import java.util.List;
+import javax.annotation.Nullable;
+import org.sonar.api.SonarProduct;
+import org.sonar.api.SonarRuntime;
+import org.sonar.api.config.Configuration;
 import org.sonar.plugins.java.api.CheckRegistrar;
 import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.samples.java.cache.ResultCache;
+import org.sonar.samples.java.dispatch.AstDump;
+import org.sonar.samples.java.dispatch.FileGuard;
+import org.sonar.samples.java.dispatch.LatencyBudget;
+import org.sonar.samples.java.dispatch.LexicalPrefilter;
+import org.sonar.samples.java.inventory.EndpointInventory;
+import org.sonar.samples.java.profile.RuleProfiler;
 import org.sonarsource.api.sonarlint.SonarLintSide;
 
 @SonarLintSide
 public class MyJavaFileCheckRegistrar implements CheckRegistrar {
 
+  @Nullable
+  private final SonarRuntime runtime;
+  @Nullable
+  private final Configuration configuration;
+
+  public MyJavaFileCheckRegistrar() {
+    this(null, null);
+  }
+
+  public MyJavaFileCheckRegistrar(@Nullable Configuration configuration) {
+    this(null, configuration);
+  }
+
+  public MyJavaFileCheckRegistrar(@Nullable SonarRuntime runtime) {
+    this(runtime, null);
+  }
+
+  public MyJavaFileCheckRegistrar(@Nullable SonarRuntime runtime, @Nullable Configuration configuration) {
+    this.runtime = runtime;
+    this.configuration = configuration;
+  }
+
   /**
    * Register the classes that will be used to instantiate checks during analysis.
    */
   @Override
   public void register(RegistrarContext registrarContext) {
+    if (configuration != null) {
+      AstDump.configure(configuration);
+      RuleProfiler.configure(configuration);
+      EndpointInventory.configure(configuration);
+      FileGuard.configure(configuration);
+      LexicalPrefilter.configure(configuration);
+    }
+    boolean sonarLint = runtime != null && runtime.getProduct() == SonarProduct.SONARLINT;
+    ResultCache.configure(sonarLint, configuration);
+    LatencyBudget.configure(sonarLint, configuration);
     // Call to registerClassesForRepository to associate the classes with the correct repository key
     registrarContext.registerClassesForRepository(MyJavaRulesDefinition.REPOSITORY_KEY, checkClasses(), testCheckClasses());
   }
@@ -1,132 +1,71 @@
 
 package org.sonar.samples.java;
 
-import com.google.gson.Gson;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.util.Locale;
-import java.util.stream.Collectors;
-import javax.annotation.Nullable;
-import org.apache.commons.lang.StringUtils;
 import org.sonar.api.rule.RuleStatus;
 import org.sonar.api.rules.RuleType;
 import org.sonar.api.server.debt.DebtRemediationFunction;
+import org.sonar.api.server.rule.RuleParamType;
 import org.sonar.api.server.rule.RulesDefinition;
-import org.sonar.api.server.rule.RulesDefinitionAnnotationLoader;
-import org.sonar.api.utils.AnnotationUtils;
-import org.sonar.plugins.java.api.JavaCheck;
-import org.sonar.squidbridge.annotations.RuleTemplate;
+import org.sonar.samples.java.metadata.RuleMetadata;
+import org.sonar.samples.java.metadata.RuleMetadataIndex;
 
 /**
  * Declare rule metadata in server repository of rules. 
  * That allows to list the rules in the page "Rules".
+ *
+ * The metadata of the rules of {@link RulesList} is validated and precompiled at build time by
+ * {@code RuleMetadataIndexer}, and read here from a single index resource.
  */
 public class MyJavaRulesDefinition implements RulesDefinition {
 
   // don't change that because the path is hard coded in CheckVerifier
-  private static final String RESOURCE_BASE_PATH = "/org/sonar/l10n/java/rules/squid";
+  public static final String RESOURCE_BASE_PATH = "/org/sonar/l10n/java/rules/squid";
 
   public static final String REPOSITORY_KEY = "pfe-custom-rules";
 
-
-
   @Override
   public void define(Context context) {
     NewRepository repository = context
       .createRepository(REPOSITORY_KEY, "java")
       .setName("PFE Custom Rules java");
 
-    for (Class<? extends JavaCheck> check : RulesList.getChecks()) {
-      new RulesDefinitionAnnotationLoader().load(repository, check);
-      newRule(check, repository);
+    for (RuleMetadata metadata : RuleMetadataIndex.load(MyJavaRulesDefinition.class, RESOURCE_BASE_PATH + "/" + RuleMetadataIndex.FILE_NAME)) {
+      newRule(metadata, repository);
     }
     repository.done();
   }
 
-  protected void newRule(Class<? extends JavaCheck> ruleClass, NewRepository repository) {
-
-    org.sonar.check.Rule ruleAnnotation = AnnotationUtils.getAnnotation(ruleClass, org.sonar.check.Rule.class);
-    if (ruleAnnotation == null) {
-      throw new IllegalArgumentException("No Rule annotation was found on " + ruleClass);
-    }
-    String ruleKey = ruleAnnotation.key();
-    if (StringUtils.isEmpty(ruleKey)) {
-      throw new IllegalArgumentException("No key is defined in Rule annotation of " + ruleClass);
-    }
-    NewRule rule = repository.rule(ruleKey);
-    if (rule == null) {
-      throw new IllegalStateException("No rule was created for " + ruleClass + " in " + repository.key());
+  protected void newRule(RuleMetadata metadata, NewRepository repository) {
+    NewRule rule = repository.createRule(metadata.key())
+      .setName(metadata.name())
+      .setHtmlDescription(metadata.htmlDescription())
+      .setSeverity(metadata.severity())
+      .setStatus(RuleStatus.valueOf(metadata.status()))
+      .setTemplate(metadata.isTemplate());
+    rule.addTags(metadata.tags().toArray(new String[0]));
+    if (metadata.type() != null) {
+      rule.setType(RuleType.valueOf(metadata.type()));
     }
-    ruleMetadata(rule);
-
-    rule.setTemplate(AnnotationUtils.getAnnotation(ruleClass, RuleTemplate.class) != null);
-  }
-
-  private void ruleMetadata(NewRule rule) {
-    String metadataKey = rule.key();
-    addHtmlDescription(rule, metadataKey);
-    addMetadata(rule, metadataKey);
-  }
-
-  private void addMetadata(NewRule rule, String metadataKey) {
-    URL resource = MyJavaRulesDefinition.class.getResource(RESOURCE_BASE_PATH + "/" + metadataKey + "_java.json");
-    if (resource != null) {
-      RuleMetatada metatada = gson.fromJson(readResource(resource), RuleMetatada.class);
-      rule.setSeverity(metatada.defaultSeverity.toUpperCase(Locale.US));
-      rule.setName(metatada.title);
-      rule.addTags(metatada.tags);
-      rule.setType(RuleType.valueOf(metatada.type));
-      rule.setStatus(RuleStatus.valueOf(metatada.status.toUpperCase(Locale.US)));
-      if (metatada.remediation != null) {
-        rule.setDebtRemediationFunction(metatada.remediation.remediationFunction(rule.debtRemediationFunctions()));
-        rule.setGapDescription(metatada.remediation.linearDesc);
-      }
+    RuleMetadata.Remediation remediation = metadata.remediation();
+    if (remediation != null) {
+      rule.setDebtRemediationFunction(remediationFunction(remediation, rule.debtRemediationFunctions()));
+      rule.setGapDescription(remediation.gapDescription());
     }
-  }
-
-  private static void addHtmlDescription(NewRule rule, String metadataKey) {
-    URL resource = MyJavaRulesDefinition.class.getResource(RESOURCE_BASE_PATH + "/" + metadataKey + "_java.html");
-    if (resource != null) {
-      rule.setHtmlDescription(readResource(resource));
+    for (RuleMetadata.Param param : metadata.params()) {
+      rule.createParam(param.key())
+        .setDescription(param.description())
+        .setDefaultValue(param.defaultValue())
+        .setType(RuleParamType.parse(param.type()));
     }
   }
 
-  private static String readResource(URL resource) {
-    try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream()))) {
-      return reader.lines().collect(Collectors.joining("\n"));
-    } catch (Exception e) {
-      throw new IllegalStateException("Failed to read: " + resource, e);
+  private static DebtRemediationFunction remediationFunction(RuleMetadata.Remediation remediation, DebtRemediationFunctions drf) {
+    if (RuleMetadata.Remediation.CONSTANT_ISSUE.equals(remediation.func())) {
+      return drf.constantPerIssue(remediation.constantCost());
     }
-  }
-
-  private static class RuleMetatada {
-    String title;
-    String status;
-    @Nullable
-    Remediation remediation;
-
-    String type;
-    String[] tags;
-    String defaultSeverity;
-  }
-
-  private static class Remediation {
-    String func;
-    String constantCost;
-    String linearDesc;
-    String linearOffset;
-    String linearFactor;
-
-    public DebtRemediationFunction remediationFunction(DebtRemediationFunctions drf) {
-      if (func.startsWith("Constant")) {
-        return drf.constantPerIssue(constantCost.replace("mn", "min"));
-      }
-      if ("Linear".equals(func)) {
-        return drf.linear(linearFactor.replace("mn", "min"));
-      }
-      return drf.linearWithOffset(linearFactor.replace("mn", "min"), linearOffset.replace("mn", "min"));
+    if (RuleMetadata.Remediation.LINEAR.equals(remediation.func())) {
+      return drf.linear(remediation.linearFactor());
     }
+    return drf.linearWithOffset(remediation.linearFactor(), remediation.linearOffset());
   }
-  private final Gson gson = new Gson();
 }
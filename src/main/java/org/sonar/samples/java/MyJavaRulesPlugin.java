@@ -1,6 +1,20 @@
 package org.sonar.samples.java;
 
 import org.sonar.api.Plugin;
+import org.sonar.samples.java.cache.ResultCache;
+import org.sonar.samples.java.callgraph.LateWritingCallSensor;
+import org.sonar.samples.java.dispatch.AstDump;
+import org.sonar.samples.java.dispatch.FileGuard;
+import org.sonar.samples.java.dispatch.FileGuardReporter;
+import org.sonar.samples.java.dispatch.LatencyBudget;
+import org.sonar.samples.java.dispatch.LexicalPrefilter;
+import org.sonar.samples.java.dispatch.LexicalPrefilterReporter;
+import org.sonar.samples.java.index.ClasspathIndexSensor;
+import org.sonar.samples.java.index.EntityIndexSensor;
+import org.sonar.samples.java.inventory.EndpointInventory;
+import org.sonar.samples.java.inventory.EndpointInventoryReporter;
+import org.sonar.samples.java.profile.RuleProfileReporter;
+import org.sonar.samples.java.profile.RuleProfiler;
 
 /**
  * Entry point of your plugin containing your custom rules
@@ -15,6 +29,24 @@ public class MyJavaRulesPlugin implements Plugin {
 
     // batch extensions -> objects are instantiated during code analysis
     context.addExtension(MyJavaFileCheckRegistrar.class);
+    context.addExtension(RuleProfileReporter.class);
+    context.addExtension(EntityIndexSensor.class);
+    context.addExtension(ClasspathIndexSensor.class);
+    context.addExtension(EndpointInventoryReporter.class);
+    context.addExtension(FileGuardReporter.class);
+    context.addExtension(LexicalPrefilterReporter.class);
+    context.addExtension(LateWritingCallSensor.class);
+
+    // diagnostic settings, hidden from the UI
+    context.addExtensions(AstDump.properties());
+    context.addExtensions(RuleProfiler.properties());
+    context.addExtensions(ResultCache.properties());
+    context.addExtensions(LatencyBudget.properties());
+    context.addExtensions(EntityIndexSensor.properties());
+    context.addExtensions(ClasspathIndexSensor.properties());
+    context.addExtensions(EndpointInventory.properties());
+    context.addExtensions(FileGuard.properties());
+    context.addExtensions(LexicalPrefilter.properties());
 
   }
 
@@ -20,14 +20,23 @@
 package org.sonar.samples.java;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.sonar.plugins.java.api.JavaCheck;
-import org.sonar.samples.java.checks.*;
+import org.sonar.samples.java.registry.GeneratedRuleRegistry;
+import org.sonar.samples.java.registry.RuleDescriptor;
 
+/**
+ * Rules of the plugin. The list is not maintained by hand: every class annotated with {@code @Rule} is picked up at
+ * compile time by {@link org.sonar.samples.java.registry.processor.RuleRegistryProcessor}.
+ */
 public final class RulesList {
 
+  private static final List<Class<? extends JavaCheck>> JAVA_CHECKS = Collections.unmodifiableList(getJavaRules().stream()
+    .map(RuleDescriptor::checkClass)
+    .collect(Collectors.toList()));
+
   private RulesList() {
   }
 
@@ -38,27 +47,12 @@ public final class RulesList {
     return Collections.unmodifiableList(checks);
   }
 
+  public static List<RuleDescriptor> getJavaRules() {
+    return GeneratedRuleRegistry.rules();
+  }
+
   public static List<Class<? extends JavaCheck>> getJavaChecks() {
-    return Collections.unmodifiableList(Arrays.asList(
-      SpringControllerRequestMappingEntityRule.class,
-      AvoidAnnotationRule.class,
-      AvoidBrandInMethodNamesRule.class,
-      AvoidMethodDeclarationRule.class,
-      AvoidSuperClassRule.class,
-      FileValidationAndClosureRule.class,
-      HttpStatusConsistencyRule.class,
-      AvoidGenericExceptionRule.class,
-      SecureAuthEntryPointCheck.class,
-      ExceptionHandlingRule.class,
-      FileUploadSecurityRule.class,
-      InefficientDatabaseCallsRule.class,
-      InputValidationRule.class,
-      JwtUtilsCheck.class,
-      PasswordEncoderRule.class,
-      MyCustomSubscriptionRule.class,
-      SecurityAnnotationMandatoryRule.class,
-      MyFirstCustomCheck.class,
-      CustomCheckForDefineClass.class));
+    return JAVA_CHECKS;
   }
 
   public static List<Class<? extends JavaCheck>> getJavaTestChecks() {
@@ -0,0 +1,57 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+
+/**
+ * Issues of the checks already run on one version of a file, by {@link ResultCache#signature rule signature}.
+ */
+public final class FileResults {
+
+  private final Map<String, List<RecordedIssue>> issuesByRule = new ConcurrentHashMap<>();
+
+  public boolean contains(String signature) {
+    return issuesByRule.containsKey(signature);
+  }
+
+  /**
+   * Reports again the issues stored for the given rule signature, on behalf of the given check.
+   */
+  public void replay(String signature, JavaFileScannerContext context, JavaCheck check, TreePositions positions) {
+    for (RecordedIssue issue : issuesByRule.get(signature)) {
+      issue.replay(context, check, positions);
+    }
+  }
+
+  /**
+   * Stores the issues reported by a check through the given context, unless one of them cannot be replayed.
+   */
+  public void store(String signature, IssueRecordingContext recorder) {
+    List<RecordedIssue> issues = recorder.recordedIssues();
+    if (issues != null) {
+      issuesByRule.put(signature, issues);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.cache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.samples.java.profile.FileRecording;
+import org.sonar.samples.java.profile.IssueCountingContext;
+
+/**
+ * Context handed to one check for one file, keeping a copy of the issues it reports for the {@link ResultCache}.
+ */
+public final class IssueRecordingContext extends IssueCountingContext {
+
+  private final TreePositions positions;
+  // null as soon as one issue cannot be replayed
+  @Nullable
+  private List<RecordedIssue> recorded = new ArrayList<>();
+
+  public IssueRecordingContext(JavaFileScannerContext delegate, @Nullable FileRecording recording, TreePositions positions) {
+    super(delegate, recording);
+    this.positions = positions;
+  }
+
+  @CheckForNull
+  List<RecordedIssue> recordedIssues() {
+    return recorded;
+  }
+
+  private void record(@Nullable RecordedIssue issue) {
+    if (recorded != null) {
+      if (issue == null) {
+        recorded = null;
+      } else {
+        recorded.add(issue);
+      }
+    }
+  }
+
+  @Override
+  public void addIssueOnFile(JavaCheck check, String message) {
+    record(RecordedIssue.onFile(message));
+    super.addIssueOnFile(check, message);
+  }
+
+  @Override
+  public void addIssue(int line, JavaCheck check, String message) {
+    record(RecordedIssue.onLine(line, message, null));
+    super.addIssue(line, check, message);
+  }
+
+  @Override
+  public void addIssue(int line, JavaCheck check, String message, @Nullable Integer cost) {
+    record(RecordedIssue.onLine(line, message, cost));
+    super.addIssue(line, check, message, cost);
+  }
+
+  @Override
+  public void addIssue(File file, JavaCheck check, int line, String message) {
+    // issues of other files depend on more than the content of this one
+    record(null);
+    super.addIssue(file, check, line, message);
+  }
+
+  @Override
+  public void reportIssue(JavaCheck javaCheck, Tree tree, String message) {
+    record(RecordedIssue.onTree(positions, tree, message, null, null));
+    super.reportIssue(javaCheck, tree, message);
+  }
+
+  @Override
+  public void reportIssue(JavaCheck javaCheck, Tree tree, String message, List<Location> flow, @Nullable Integer cost) {
+    record(RecordedIssue.onTree(positions, tree, message, flow, cost));
+    super.reportIssue(javaCheck, tree, message, flow, cost);
+  }
+
+  @Override
+  public void reportIssueWithFlow(JavaCheck javaCheck, Tree syntaxNode, String message, Iterable<List<Location>> flows, @Nullable Integer cost) {
+    record(RecordedIssue.withFlows(positions, syntaxNode, message, flows, cost));
+    super.reportIssueWithFlow(javaCheck, syntaxNode, message, flows, cost);
+  }
+
+  @Override
+  public void reportIssue(JavaCheck javaCheck, Tree startTree, Tree endTree, String message) {
+    record(RecordedIssue.onRange(positions, startTree, endTree, message, null, null));
+    super.reportIssue(javaCheck, startTree, endTree, message);
+  }
+
+  @Override
+  public void reportIssue(JavaCheck javaCheck, Tree startTree, Tree endTree, String message, List<Location> flow, @Nullable Integer cost) {
+    record(RecordedIssue.onRange(positions, startTree, endTree, message, flow, cost));
+    super.reportIssue(javaCheck, startTree, endTree, message, flow, cost);
+  }
+}
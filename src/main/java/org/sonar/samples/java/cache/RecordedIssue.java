@@ -0,0 +1,192 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Issue reported by a check, kept without any reference to the tree it was reported on:
+ * nodes are stored as their {@link TreePositions position} and resolved again on replay.
+ */
+final class RecordedIssue {
+
+  private enum Kind {
+    FILE, LINE, TREE, TREE_WITH_FLOWS, RANGE
+  }
+
+  private final Kind kind;
+  private final String message;
+  private final int line;
+  private final int start;
+  private final int end;
+  @Nullable
+  private final Integer cost;
+  @Nullable
+  private final List<List<RecordedLocation>> flows;
+
+  private RecordedIssue(Kind kind, String message, int line, int start, int end, @Nullable Integer cost,
+    @Nullable List<List<RecordedLocation>> flows) {
+    this.kind = kind;
+    this.message = message;
+    this.line = line;
+    this.start = start;
+    this.end = end;
+    this.cost = cost;
+    this.flows = flows;
+  }
+
+  static RecordedIssue onFile(String message) {
+    return new RecordedIssue(Kind.FILE, message, 0, -1, -1, null, null);
+  }
+
+  static RecordedIssue onLine(int line, String message, @Nullable Integer cost) {
+    return new RecordedIssue(Kind.LINE, message, line, -1, -1, cost, null);
+  }
+
+  /**
+   * @return the issue, or {@code null} when one of its nodes has no position
+   */
+  @CheckForNull
+  static RecordedIssue onTree(TreePositions positions, Tree tree, String message, @Nullable List<JavaFileScannerContext.Location> secondaries,
+    @Nullable Integer cost) {
+    return onTree(Kind.TREE, positions, tree, message, secondaries == null ? null : Collections.singletonList(secondaries), cost);
+  }
+
+  /**
+   * @return the issue, or {@code null} when one of its nodes has no position
+   */
+  @CheckForNull
+  static RecordedIssue withFlows(TreePositions positions, Tree tree, String message, Iterable<List<JavaFileScannerContext.Location>> flows,
+    @Nullable Integer cost) {
+    return onTree(Kind.TREE_WITH_FLOWS, positions, tree, message, flows, cost);
+  }
+
+  @CheckForNull
+  private static RecordedIssue onTree(Kind kind, TreePositions positions, Tree tree, String message,
+    @Nullable Iterable<List<JavaFileScannerContext.Location>> flows, @Nullable Integer cost) {
+    int start = positions.positionOf(tree);
+    List<List<RecordedLocation>> recordedFlows = record(positions, flows);
+    if (start < 0 || (flows != null && recordedFlows == null)) {
+      return null;
+    }
+    return new RecordedIssue(kind, message, 0, start, -1, cost, recordedFlows);
+  }
+
+  /**
+   * @return the issue, or {@code null} when one of its nodes has no position
+   */
+  @CheckForNull
+  static RecordedIssue onRange(TreePositions positions, Tree startTree, Tree endTree, String message,
+    @Nullable List<JavaFileScannerContext.Location> secondaries, @Nullable Integer cost) {
+    int start = positions.positionOf(startTree);
+    int end = positions.positionOf(endTree);
+    List<List<RecordedLocation>> recordedFlows = record(positions, secondaries == null ? null : Collections.singletonList(secondaries));
+    if (start < 0 || end < 0 || (secondaries != null && recordedFlows == null)) {
+      return null;
+    }
+    return new RecordedIssue(Kind.RANGE, message, 0, start, end, cost, recordedFlows);
+  }
+
+  /**
+   * Reports this issue again, on the nodes at the same positions of the given file.
+   */
+  void replay(JavaFileScannerContext context, JavaCheck check, TreePositions positions) {
+    switch (kind) {
+      case FILE:
+        context.addIssueOnFile(check, message);
+        break;
+      case LINE:
+        if (cost == null) {
+          context.addIssue(line, check, message);
+        } else {
+          context.addIssue(line, check, message, cost);
+        }
+        break;
+      case TREE:
+        if (flows == null) {
+          context.reportIssue(check, positions.nodeAt(start), message);
+        } else {
+          context.reportIssue(check, positions.nodeAt(start), message, locations(positions).get(0), cost);
+        }
+        break;
+      case TREE_WITH_FLOWS:
+        context.reportIssueWithFlow(check, positions.nodeAt(start), message, locations(positions), cost);
+        break;
+      case RANGE:
+        if (flows == null) {
+          context.reportIssue(check, positions.nodeAt(start), positions.nodeAt(end), message);
+        } else {
+          context.reportIssue(check, positions.nodeAt(start), positions.nodeAt(end), message, locations(positions).get(0), cost);
+        }
+        break;
+      default:
+        throw new IllegalStateException("Unknown issue kind " + kind);
+    }
+  }
+
+  private List<List<JavaFileScannerContext.Location>> locations(TreePositions positions) {
+    List<List<JavaFileScannerContext.Location>> locations = new ArrayList<>(flows.size());
+    for (List<RecordedLocation> flow : flows) {
+      List<JavaFileScannerContext.Location> flowLocations = new ArrayList<>(flow.size());
+      for (RecordedLocation location : flow) {
+        flowLocations.add(new JavaFileScannerContext.Location(location.message, positions.nodeAt(location.position)));
+      }
+      locations.add(flowLocations);
+    }
+    return locations;
+  }
+
+  @CheckForNull
+  private static List<List<RecordedLocation>> record(TreePositions positions, @Nullable Iterable<List<JavaFileScannerContext.Location>> flows) {
+    if (flows == null) {
+      return null;
+    }
+    List<List<RecordedLocation>> recorded = new ArrayList<>();
+    for (List<JavaFileScannerContext.Location> flow : flows) {
+      List<RecordedLocation> recordedFlow = new ArrayList<>(flow.size());
+      for (JavaFileScannerContext.Location location : flow) {
+        int position = positions.positionOf(location.syntaxNode);
+        if (position < 0) {
+          return null;
+        }
+        recordedFlow.add(new RecordedLocation(location.msg, position));
+      }
+      recorded.add(recordedFlow);
+    }
+    return recorded;
+  }
+
+  private static final class RecordedLocation {
+    private final String message;
+    private final int position;
+
+    RecordedLocation(String message, int position) {
+      this.message = message;
+      this.position = position;
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.cache;
+
+import com.google.common.hash.Hashing;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.sonar.api.PropertyType;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.config.PropertyDefinition;
+import org.sonar.check.RuleProperty;
+import org.sonar.plugins.java.api.JavaCheck;
+
+/**
+ * Issues of the last analyzed versions of the files, replayed when the same content is analyzed again
+ * with the same rule and parameters instead of running the rule.
+ *
+ * <p>Meant for SonarLint, where every change in the editor triggers a new analysis of the file, and enabled
+ * there by default. A file version is identified by its key and a hash of its content; the least recently
+ * analyzed versions are dropped beyond {@link #MAX_FILES_KEY}. The content is still parsed by the Java plugin,
+ * only the checks are skipped.</p>
+ */
+public final class ResultCache {
+
+  public static final String ENABLED_KEY = "sonar.pfe.resultCache.enabled";
+  public static final String MAX_FILES_KEY = "sonar.pfe.resultCache.maxFiles";
+
+  private static final int DEFAULT_MAX_FILES = 200;
+
+  private static volatile ResultCache current = new ResultCache(false, DEFAULT_MAX_FILES);
+
+  private final boolean enabled;
+  private final int maxFiles;
+  private final Map<String, FileResults> resultsByFile;
+
+  private ResultCache(boolean enabled, int maxFiles) {
+    this.enabled = enabled;
+    this.maxFiles = maxFiles;
+    this.resultsByFile = new LinkedHashMap<String, FileResults>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, FileResults> eldest) {
+        return size() > ResultCache.this.maxFiles;
+      }
+    };
+  }
+
+  /**
+   * Applies the settings of the analysis about to run. The cached results survive as long as the settings
+   * do not change, which is what makes them useful across the analyses of an editor session.
+   */
+  public static synchronized void configure(boolean sonarLint, @Nullable Configuration configuration) {
+    boolean enabled = sonarLint;
+    int maxFiles = DEFAULT_MAX_FILES;
+    if (configuration != null) {
+      enabled = configuration.getBoolean(ENABLED_KEY).orElse(sonarLint);
+      maxFiles = configuration.getInt(MAX_FILES_KEY).orElse(DEFAULT_MAX_FILES);
+    }
+    if (enabled != current.enabled || maxFiles != current.maxFiles) {
+      current = new ResultCache(enabled, maxFiles);
+    }
+  }
+
+  public static ResultCache current() {
+    return current;
+  }
+
+  public static List<PropertyDefinition> properties() {
+    return Arrays.asList(
+      PropertyDefinition.builder(ENABLED_KEY)
+        .name("Result cache")
+        .description("Replay the issues of the custom rules on files analyzed again without any change. Defaults to true in SonarLint.")
+        .type(PropertyType.BOOLEAN)
+        .hidden()
+        .build(),
+      PropertyDefinition.builder(MAX_FILES_KEY)
+        .name("Result cache size")
+        .description("Number of file versions whose issues are kept by the result cache.")
+        .type(PropertyType.INTEGER)
+        .defaultValue(Integer.toString(DEFAULT_MAX_FILES))
+        .hidden()
+        .build());
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Results of the given version of a file, empty when it has not been analyzed yet. Only for an enabled cache.
+   */
+  public FileResults results(String fileKey, String content) {
+    String key = fileKey + '\n' + content.length() + '\n' + Hashing.murmur3_128().hashUnencodedChars(content);
+    synchronized (resultsByFile) {
+      return resultsByFile.computeIfAbsent(key, k -> new FileResults());
+    }
+  }
+
+  public int size() {
+    synchronized (resultsByFile) {
+      return resultsByFile.size();
+    }
+  }
+
+  /**
+   * Identifies a rule and the values of its parameters.
+   */
+  public static String signature(JavaCheck check) {
+    StringBuilder signature = new StringBuilder(check.getClass().getName());
+    Field[] fields = check.getClass().getDeclaredFields();
+    Arrays.sort(fields, Comparator.comparing(Field::getName));
+    for (Field field : fields) {
+      if (field.isAnnotationPresent(RuleProperty.class)) {
+        field.setAccessible(true);
+        try {
+          signature.append('\n').append(field.getName()).append('=').append(field.get(check));
+        } catch (IllegalAccessException e) {
+          throw new IllegalStateException("Cannot read parameter " + field.getName() + " of " + check.getClass().getName(), e);
+        }
+      }
+    }
+    return signature.toString();
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.cache;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.EnumConstantTree;
+import org.sonar.plugins.java.api.tree.ListTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.plugins.java.api.tree.VariableTree;
+
+/**
+ * Numbers the nodes of a file in walk order, so that a node of one parse can be found again in another parse
+ * of the same content. Tokens are not numbered, declaration names are, as issues are often reported on them.
+ */
+public final class TreePositions {
+
+  private final Tree root;
+  private List<Tree> nodes;
+  private Map<Tree, Integer> positions;
+
+  public TreePositions(Tree root) {
+    this.root = root;
+  }
+
+  /**
+   * Position of the given node, or -1 when the walk does not reach it.
+   */
+  public int positionOf(Tree tree) {
+    index();
+    Integer position = positions.get(tree);
+    return position == null ? -1 : position;
+  }
+
+  @CheckForNull
+  public Tree nodeAt(int position) {
+    index();
+    return position >= 0 && position < nodes.size() ? nodes.get(position) : null;
+  }
+
+  private void index() {
+    if (nodes == null) {
+      nodes = new ArrayList<>();
+      positions = new IdentityHashMap<>();
+      new Numbering().scan(root);
+    }
+  }
+
+  private final class Numbering extends BaseTreeVisitor {
+
+    @Override
+    protected void scan(@Nullable Tree tree) {
+      if (tree == null) {
+        return;
+      }
+      positions.put(tree, nodes.size());
+      nodes.add(tree);
+      if (tree.is(Tree.Kind.LIST, Tree.Kind.ARGUMENTS)) {
+        // same order as the shared walk, see KindDispatcher
+        for (Tree element : (ListTree<?>) tree) {
+          scan(element);
+        }
+      } else {
+        super.scan(tree);
+      }
+    }
+
+    // names of declarations are not visited by BaseTreeVisitor
+
+    @Override
+    public void visitClass(ClassTree tree) {
+      scan(tree.simpleName());
+      super.visitClass(tree);
+    }
+
+    @Override
+    public void visitMethod(MethodTree tree) {
+      scan(tree.simpleName());
+      super.visitMethod(tree);
+    }
+
+    @Override
+    public void visitVariable(VariableTree tree) {
+      scan(tree.simpleName());
+      super.visitVariable(tree);
+    }
+
+    @Override
+    public void visitEnumConstant(EnumConstantTree tree) {
+      scan(tree.simpleName());
+      super.visitEnumConstant(tree);
+    }
+  }
+}
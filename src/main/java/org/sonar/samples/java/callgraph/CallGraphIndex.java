@@ -0,0 +1,222 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.callgraph;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Project call graph restricted to what the N+1 detection needs: which methods write to a repository,
+ * directly or through the methods they call, and which loops call them.
+ * <p>
+ * The index is filled while files are scanned, in any order. Methods are interned once into int ids,
+ * then calls, writers and loop call sites are stored in int arrays (reverse edges as linked lists in
+ * parallel arrays), so that the graph of a large project only costs a few ints per call.
+ * The key of each method is kept once, as the listener names the callee of the sites it is given.
+ * Writes are propagated to the callers as soon as they are known: the listener is given a loop call site as soon as
+ * its callee turns out to write, be it when the loop is scanned or when a file scanned later completes the path to a
+ * repository. Which file is being scanned then depends on the order of the files, see {@link LateWritingCalls}.
+ * <p>
+ * Files may be scanned by several threads: every method holds the lock of the index, which the listener is called with.
+ */
+public final class CallGraphIndex {
+
+  private static final int NONE = -1;
+  private static final int INITIAL_CAPACITY = 256;
+
+  /**
+   * Receives the loop call sites whose callee writes to a repository, each site exactly once, under the lock of the
+   * index and while any file may be scanned: sites are to be kept, not reported there.
+   */
+  public interface WritingCallListener {
+    void onWritingCall(File file, int line, int loopDepth, String callee);
+  }
+
+  private final WritingCallListener listener;
+
+  private final Map<String, Integer> idsByKey = new HashMap<>();
+  private final List<String> keys = new ArrayList<>();
+  private boolean[] writers = new boolean[INITIAL_CAPACITY];
+
+  // reverse edges: callee -> callers
+  private int[] firstCallerEdge = newHeads(INITIAL_CAPACITY);
+  private int[] edgeCaller = new int[INITIAL_CAPACITY];
+  private int[] nextCallerEdge = new int[INITIAL_CAPACITY];
+  private int edgeCount;
+
+  // loop call sites waiting for their callee to write
+  private final List<File> files = new ArrayList<>();
+  private final Map<File, Integer> fileIds = new HashMap<>();
+  private int[] firstPendingSite = newHeads(INITIAL_CAPACITY);
+  private int[] siteFile = new int[INITIAL_CAPACITY];
+  private int[] siteLine = new int[INITIAL_CAPACITY];
+  private int[] siteDepth = new int[INITIAL_CAPACITY];
+  private int[] nextSite = new int[INITIAL_CAPACITY];
+  private int siteCount;
+
+  private int[] worklist = new int[INITIAL_CAPACITY];
+
+  public CallGraphIndex(WritingCallListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Id of a method, given as {@code owner#name(arity)}.
+   */
+  public synchronized int methodId(String key) {
+    Integer id = idsByKey.get(key);
+    if (id != null) {
+      return id;
+    }
+    int newId = keys.size();
+    idsByKey.put(key, newId);
+    keys.add(key);
+    if (newId == writers.length) {
+      int capacity = newId * 2;
+      writers = Arrays.copyOf(writers, capacity);
+      firstCallerEdge = growHeads(firstCallerEdge, capacity);
+      firstPendingSite = growHeads(firstPendingSite, capacity);
+    }
+    return newId;
+  }
+
+  public static String methodKey(String ownerFullyQualifiedName, String name, int arity) {
+    return ownerFullyQualifiedName + '#' + name + '(' + arity + ')';
+  }
+
+  public synchronized int methodCount() {
+    return keys.size();
+  }
+
+  public synchronized int callCount() {
+    return edgeCount;
+  }
+
+  public synchronized boolean isWriter(int method) {
+    return writers[method];
+  }
+
+  /**
+   * Records that {@code caller} may execute {@code callee}: an invocation, or an override of an inherited method.
+   */
+  public synchronized void addCall(int caller, int callee) {
+    if (caller == callee) {
+      return;
+    }
+    if (writers[callee]) {
+      markWriter(caller);
+      return;
+    }
+    if (edgeCount == edgeCaller.length) {
+      int capacity = edgeCount * 2;
+      edgeCaller = Arrays.copyOf(edgeCaller, capacity);
+      nextCallerEdge = Arrays.copyOf(nextCallerEdge, capacity);
+    }
+    edgeCaller[edgeCount] = caller;
+    nextCallerEdge[edgeCount] = firstCallerEdge[callee];
+    firstCallerEdge[callee] = edgeCount;
+    edgeCount++;
+  }
+
+  /**
+   * Records a loop calling {@code callee}. The listener is notified now if the callee is known to write, later otherwise.
+   */
+  public synchronized void addLoopCall(File file, int line, int loopDepth, int callee) {
+    if (writers[callee]) {
+      listener.onWritingCall(file, line, loopDepth, keys.get(callee));
+      return;
+    }
+    if (siteCount == siteLine.length) {
+      int capacity = siteCount * 2;
+      siteFile = Arrays.copyOf(siteFile, capacity);
+      siteLine = Arrays.copyOf(siteLine, capacity);
+      siteDepth = Arrays.copyOf(siteDepth, capacity);
+      nextSite = Arrays.copyOf(nextSite, capacity);
+    }
+    siteFile[siteCount] = fileId(file);
+    siteLine[siteCount] = line;
+    siteDepth[siteCount] = loopDepth;
+    nextSite[siteCount] = firstPendingSite[callee];
+    firstPendingSite[callee] = siteCount;
+    siteCount++;
+  }
+
+  /**
+   * Marks a method as writing to a repository, along with all the methods reaching it.
+   */
+  public synchronized void markWriter(int method) {
+    if (writers[method]) {
+      return;
+    }
+    writers[method] = true;
+    int size = 0;
+    worklist[size++] = method;
+    while (size > 0) {
+      int callee = worklist[--size];
+      flushPendingSites(callee);
+      for (int edge = firstCallerEdge[callee]; edge != NONE; edge = nextCallerEdge[edge]) {
+        int caller = edgeCaller[edge];
+        if (!writers[caller]) {
+          writers[caller] = true;
+          if (size == worklist.length) {
+            worklist = Arrays.copyOf(worklist, size * 2);
+          }
+          worklist[size++] = caller;
+        }
+      }
+      // edges towards a writer are not needed anymore
+      firstCallerEdge[callee] = NONE;
+    }
+  }
+
+  private void flushPendingSites(int callee) {
+    for (int site = firstPendingSite[callee]; site != NONE; site = nextSite[site]) {
+      listener.onWritingCall(files.get(siteFile[site]), siteLine[site], siteDepth[site], keys.get(callee));
+    }
+    firstPendingSite[callee] = NONE;
+  }
+
+  private int fileId(File file) {
+    Integer id = fileIds.get(file);
+    if (id == null) {
+      id = files.size();
+      files.add(file);
+      fileIds.put(file, id);
+    }
+    return id;
+  }
+
+  private static int[] newHeads(int capacity) {
+    int[] heads = new int[capacity];
+    Arrays.fill(heads, NONE);
+    return heads;
+  }
+
+  private static int[] growHeads(int[] heads, int capacity) {
+    int previousLength = heads.length;
+    int[] grown = Arrays.copyOf(heads, capacity);
+    Arrays.fill(grown, previousLength, capacity, NONE);
+    return grown;
+  }
+}
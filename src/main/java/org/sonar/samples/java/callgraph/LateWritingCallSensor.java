@@ -0,0 +1,71 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.callgraph;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.Phase;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.Sensor;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.batch.sensor.issue.NewIssue;
+
+/**
+ * Last pass, once the checks ran on all the files: reports the {@link LateWritingCalls} of files whose scan was over
+ * when a later file completed their path to a repository. They are reported in one go, by file and line, so that the
+ * issues do not depend on the order the files were scanned in.
+ */
+@Phase(name = Phase.Name.POST)
+public class LateWritingCallSensor implements Sensor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LateWritingCallSensor.class);
+
+  @Override
+  public void describe(SensorDescriptor descriptor) {
+    descriptor.name("PFE late writing calls").onlyOnLanguage("java");
+  }
+
+  @Override
+  public void execute(SensorContext context) {
+    FileSystem fileSystem = context.fileSystem();
+    int reported = 0;
+    for (LateWritingCalls.WritingCall call : LateWritingCalls.current().takeAll()) {
+      InputFile inputFile = fileSystem.inputFile(fileSystem.predicates().is(call.file));
+      if (inputFile == null) {
+        LOGGER.debug("Writing call of {} at line {} is not in the analysis", call.file, call.line);
+        continue;
+      }
+      NewIssue issue = context.newIssue()
+        .forRule(call.ruleKey)
+        .gap((double) call.loopDepth);
+      issue.at(issue.newLocation()
+        .on(inputFile)
+        .at(inputFile.selectLine(call.line))
+        .message(call.message))
+        .save();
+      reported++;
+    }
+    if (reported > 0) {
+      LOGGER.info("Late writing calls: {} issues reported once all the files were scanned", reported);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.callgraph;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.api.rule.RuleKey;
+
+/**
+ * Loop call sites found to write to a repository while another file was scanned, kept until they can be reported
+ * outside of the scan of any file: by the check once its own file is walked, or by the {@link LateWritingCallSensor}
+ * once all the files are. Several threads may add and take sites at once.
+ */
+public final class LateWritingCalls {
+
+  private static final LateWritingCalls INSTANCE = new LateWritingCalls();
+
+  private static final Comparator<WritingCall> BY_POSITION = Comparator
+    .comparing((WritingCall call) -> call.file.getPath())
+    .thenComparingInt(call -> call.line);
+
+  private final Map<File, List<WritingCall>> callsByFile = new HashMap<>();
+
+  private LateWritingCalls() {
+  }
+
+  public static LateWritingCalls current() {
+    return INSTANCE;
+  }
+
+  public synchronized void add(WritingCall call) {
+    callsByFile.computeIfAbsent(call.file, k -> new ArrayList<>()).add(call);
+  }
+
+  /**
+   * Removes and returns the sites of the given file, in line order.
+   */
+  public synchronized List<WritingCall> take(File file) {
+    List<WritingCall> calls = callsByFile.remove(file);
+    if (calls == null) {
+      return Collections.emptyList();
+    }
+    calls.sort(BY_POSITION);
+    return calls;
+  }
+
+  /**
+   * Removes and returns the sites of all the files, by file and line, so that they are reported in the same order
+   * whatever the order the files were scanned in.
+   */
+  public synchronized List<WritingCall> takeAll() {
+    List<WritingCall> calls = new ArrayList<>();
+    for (List<WritingCall> fileCalls : callsByFile.values()) {
+      calls.addAll(fileCalls);
+    }
+    callsByFile.clear();
+    calls.sort(BY_POSITION);
+    return calls;
+  }
+
+  /**
+   * Issue of a rule on a loop call site, the loop depth being its cost.
+   */
+  public static final class WritingCall {
+
+    public final RuleKey ruleKey;
+    public final File file;
+    public final int line;
+    public final int loopDepth;
+    public final String message;
+
+    public WritingCall(RuleKey ruleKey, File file, int line, int loopDepth, String message) {
+      this.ruleKey = ruleKey;
+      this.file = file;
+      this.line = line;
+      this.loopDepth = loopDepth;
+      this.message = message;
+    }
+  }
+}
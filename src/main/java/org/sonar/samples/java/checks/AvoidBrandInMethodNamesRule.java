@@ -19,46 +19,84 @@
  */
 package org.sonar.samples.java.checks;
 
+import java.util.Arrays;
+import java.util.List;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.JavaFileScanner;
-import org.sonar.plugins.java.api.JavaFileScannerContext;
-import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.check.RuleProperty;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
 import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.plugins.java.api.tree.VariableTree;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
+import org.sonar.samples.java.matching.TermMatcher;
 
 @Rule(key = "AvoidBrandInMethodNames")
-public class AvoidBrandInMethodNamesRule extends BaseTreeVisitor implements JavaFileScanner {
-
-  private JavaFileScannerContext context;
+public class AvoidBrandInMethodNamesRule extends DispatchedVisitor {
 
   protected static final String COMPANY_NAME = "MyCompany";
 
-  @Override
-  public void scanFile(JavaFileScannerContext context) {
-    this.context = context;
+  /**
+   * Brand and product names to avoid, comma separated. Value can be set by users in Quality profiles.
+   */
+  @RuleProperty(
+    defaultValue = COMPANY_NAME,
+    description = "Comma separated brand and product names to avoid in method, class and field names, whatever their case")
+  protected String brands = COMPANY_NAME;
 
-    // The call to the scan method on the root of the tree triggers the visit of the AST by this visitor
-    scan(context.getTree());
+  // compiled once for the value of brands, shared by the threads of the analysis
+  private volatile CompiledBrands compiled;
+
+  private static final class CompiledBrands {
+    private final String brands;
+    private final TermMatcher matcher;
+
+    private CompiledBrands(String brands) {
+      this.brands = brands;
+      this.matcher = TermMatcher.ofCommaSeparated(brands);
+    }
+  }
 
-    // For debugging purpose, you can print out the entire AST of the analyzed file
-    System.out.println(PrinterVisitor.print(context.getTree()));
+  @Override
+  public List<Tree.Kind> nodesToVisit() {
+    return Arrays.asList(Tree.Kind.METHOD, Tree.Kind.CLASS, Tree.Kind.INTERFACE, Tree.Kind.ENUM, Tree.Kind.ANNOTATION_TYPE);
   }
 
   /**
-   * Overriding the visitor method to implement the logic of the rule.
-   * @param tree AST of the visited method.
+   * Implement the logic of the rule on each method and type delivered by the shared walk; the fields are checked with
+   * the members of their type.
+   * @param tree AST of the visited method or type.
    */
   @Override
-  public void visitMethod(MethodTree tree) {
-
-    if (tree.simpleName().name().toUpperCase().contains(COMPANY_NAME.toUpperCase())) {
-      // Adds an issue by attaching it with the tree and the rule
-      context.reportIssue(this, tree, "Avoid using Brand in method name");
+  public void visitNode(Tree tree) {
+    TermMatcher brandMatcher = matcher();
+    if (tree.is(Tree.Kind.METHOD)) {
+      if (brandMatcher.matches(((MethodTree) tree).simpleName().name())) {
+        // Adds an issue by attaching it with the tree and the rule
+        reportIssue(tree, "Avoid using Brand in method name");
+      }
+      return;
+    }
+    ClassTree classTree = (ClassTree) tree;
+    IdentifierTree className = classTree.simpleName();
+    if (className != null && brandMatcher.matches(className.name())) {
+      reportIssue(className, "Avoid using Brand in class name");
     }
-    // The call to the super implementation allows to continue the visit of the AST.
-    // Be careful to always call this method to visit every node of the tree.
-    super.visitMethod(tree);
+    for (Tree member : classTree.members()) {
+      if (member.is(Tree.Kind.VARIABLE) && brandMatcher.matches(((VariableTree) member).simpleName().name())) {
+        reportIssue(((VariableTree) member).simpleName(), "Avoid using Brand in field name");
+      }
+    }
+  }
 
-    // All the code located after the call to the overridden method is executed when leaving the node
+  private TermMatcher matcher() {
+    String current = brands == null ? "" : brands;
+    CompiledBrands last = compiled;
+    if (last == null || !last.brands.equals(current)) {
+      last = new CompiledBrands(current);
+      compiled = last;
+    }
+    return last.matcher;
   }
 
 }
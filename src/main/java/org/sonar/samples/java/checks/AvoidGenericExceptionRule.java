@@ -21,19 +21,35 @@ package org.sonar.samples.java.checks;
 
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.tree.*;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Pattern;
 @Rule(key = "pfe-custom-rules:AvoidGenericExceptionRule",
         name = "Avoid Generic Exceptions",
         description = "Avoid catching generic exceptions; specify the exception type to improve error handling and readability.",
         priority = Priority.MAJOR,
         tags = {"error-handling", "best-practice"})
-public class AvoidGenericExceptionRule extends IssuableSubscriptionVisitor {
+public class AvoidGenericExceptionRule extends DispatchedVisitor {
+
+    // Appels de nettoyage des ressources (close, flush, release, commit)
+    private static final MethodMatcher RESOURCE_CLEANUP = MethodMatcher.create()
+            .nameContaining("close", "flush", "release", "commit");
+
+    // Journalisation : méthodes des loggers connus, ou méthodes portant le nom d'une méthode de logger
+    private static final MethodMatcher LOGGER_CALL = MethodMatcher.create()
+            .ownerSubtypeOf(MethodMatcher.LOGGER_TYPES)
+            .names("trace", "debug", "info", "warn", "error", "fatal", "log", "severe", "warning");
+    private static final MethodMatcher LOG_METHOD = MethodMatcher.create()
+            .names("log", "info", "warn", "error", "debug", "trace");
+
+    // Les loggers sont reconnus à la hiérarchie du type appelé, qui peut être déclaré dans un autre fichier du projet
+    @Override
+    protected boolean dependsOnOtherFiles() {
+        return true;
+    }
 
     @Override
     public List<Tree.Kind> nodesToVisit() {
@@ -94,11 +110,7 @@ public class AvoidGenericExceptionRule extends IssuableSubscriptionVisitor {
         BlockTree blockTree = catchTree.block();
         return blockTree.body().stream().anyMatch(statement -> {
             if (statement.is(Tree.Kind.EXPRESSION_STATEMENT)) {
-                ExpressionTree expression = ((ExpressionStatementTree) statement).expression();
-                if (expression.is(Tree.Kind.METHOD_INVOCATION)) {
-                    MethodInvocationTree methodInvocation = (MethodInvocationTree) expression;
-                    return Pattern.compile(".*(close|flush|release|commit).*").matcher(methodInvocation.methodSelect().toString()).find();
-                }
+                return RESOURCE_CLEANUP.matches(((ExpressionStatementTree) statement).expression());
             }
             return false;
         });
@@ -109,12 +121,15 @@ public class AvoidGenericExceptionRule extends IssuableSubscriptionVisitor {
         BlockTree blockTree = catchTree.block();
         return blockTree.body().isEmpty() || blockTree.body().stream().noneMatch(statement ->
                 (statement.is(Tree.Kind.EXPRESSION_STATEMENT) &&
-                        ((ExpressionStatementTree) statement).expression().is(Tree.Kind.METHOD_INVOCATION) &&
-                        ((MethodInvocationTree) ((ExpressionStatementTree) statement).expression()).methodSelect().toString().contains("log")) ||
+                        isLogging(((ExpressionStatementTree) statement).expression())) ||
                         statement.is(Tree.Kind.THROW_STATEMENT)
         );
     }
 
+    private static boolean isLogging(ExpressionTree expression) {
+        return LOGGER_CALL.matches(expression) || LOG_METHOD.matches(expression);
+    }
+
     private boolean isRethrownException(CatchTree catchTree) {
         // Vérification des exceptions relancées
         BlockTree blockTree = catchTree.block();
@@ -19,55 +19,37 @@
  */
 package org.sonar.samples.java.checks;
 
+import java.util.Collections;
+import java.util.List;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.JavaFileScanner;
-import org.sonar.plugins.java.api.JavaFileScannerContext;
-import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
-import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
 
 /**
  * This class is an example of how to implement your own rules.
  * The (stupid) rule raises a minor issue each time a method is encountered.
  */
 @Rule(key = "AvoidMethodDeclaration")
-public class AvoidMethodDeclarationRule extends BaseTreeVisitor implements JavaFileScanner {
+public class AvoidMethodDeclarationRule extends DispatchedVisitor {
 
   /**
-   * Private field to store the context: this is the object used to create issues.
-   */
-  private JavaFileScannerContext context;
-
-  /**
-   * Implementation of the method of the JavaFileScanner interface.
-   * @param context Object used to attach issues to source file.
+   * Register to the kinds of nodes the shared walk has to deliver to this check.
    */
   @Override
-  public void scanFile(JavaFileScannerContext context) {
-    this.context = context;
-
-    // The call to the scan method on the root of the tree triggers the visit of the AST by this visitor
-    scan(context.getTree());
-
-    // For debugging purpose, you can print out the entire AST of the analyzed file
-    System.out.println(PrinterVisitor.print(context.getTree()));
+  public List<Tree.Kind> nodesToVisit() {
+    return Collections.singletonList(Tree.Kind.METHOD);
   }
 
   /**
-   * Overriding the visitor method to implement the logic of the rule.
+   * Called when entering each subscribed node.
    * @param tree AST of the visited method.
    */
   @Override
-  public void visitMethod(MethodTree tree) {
-    // All the code located before the call to the overridden method is executed before visiting the node
-
-    // Adds an issue by attaching it with the tree and the rule
-    context.reportIssue(this, tree, "Avoid declaring methods (don't ask why)");
-
-    // The call to the super implementation allows to continue the visit of the AST.
-    // Be careful to always call this method to visit every node of the tree.
-    super.visitMethod(tree);
-
-    // All the code located after the call to the overridden method is executed when leaving the node
+  public void visitNode(Tree tree) {
+    if (tree.is(Tree.Kind.METHOD)) {
+      // Adds an issue by attaching it with the tree and the rule
+      reportIssue(tree, "Avoid declaring methods (don't ask why)");
+    }
   }
 
 }
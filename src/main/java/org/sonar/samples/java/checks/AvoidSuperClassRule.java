@@ -25,15 +25,15 @@ package org.sonar.samples.java.checks;
 import java.util.Collections;
 import java.util.List;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
 
 /**
  * Only to bring out the unit test requirement about classpath when bytecode methods used (see rule unit test class)
  */
 @Rule(key = "AvoidSuperClass")
-public class AvoidSuperClassRule extends IssuableSubscriptionVisitor {
+public class AvoidSuperClassRule extends DispatchedVisitor {
 
   public static final List<String> SUPER_CLASS_AVOID = Collections.singletonList("org.slf4j.Logger");
 
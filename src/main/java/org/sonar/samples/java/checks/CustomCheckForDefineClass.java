@@ -2,10 +2,10 @@ package org.sonar.samples.java.checks;
 
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
-import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.MethodInvocationTree;
 import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
+import org.sonar.samples.java.dispatch.TriggerTokens;
 
 import java.util.Collections;
 import java.util.List;
@@ -15,7 +15,12 @@ import java.util.List;
         description = "Recommended to use java.lang.invoke.MethodHandles.Lookup.defineClass instead sun.misc.Unsafe.defineClass",
         priority = Priority.CRITICAL,
         tags = {"bug"})
-public class CustomCheckForDefineClass extends IssuableSubscriptionVisitor {
+@TriggerTokens({"defineClass"})
+public class CustomCheckForDefineClass extends DispatchedVisitor {
+
+    private static final MethodMatcher UNSAFE_DEFINE_CLASS = MethodMatcher.create()
+            .ownerType("sun.misc.Unsafe")
+            .names("defineClass");
 
     @Override
     public List<Tree.Kind> nodesToVisit() {
@@ -24,12 +29,8 @@ public class CustomCheckForDefineClass extends IssuableSubscriptionVisitor {
 
     @Override
     public void visitNode(Tree tree) {
-        Symbol methodSymbol = ((MethodInvocationTree) tree).symbol();
-        if (methodSymbol.type() != null) {
-            String methodFullName = methodSymbol.type().fullyQualifiedName() + "." + methodSymbol.name();
-            if ("sun.misc.Unsafe.defineClass".equals(methodFullName)) {
-                reportIssue(tree, "It is recommended to use the method java.lang.invoke.MethodHandles.Lookup.defineClass instead sun.misc.Unsafe.defineClass");
-            }
+        if (UNSAFE_DEFINE_CLASS.matches((MethodInvocationTree) tree)) {
+            reportIssue(tree, "It is recommended to use the method java.lang.invoke.MethodHandles.Lookup.defineClass instead sun.misc.Unsafe.defineClass");
         }
     }
 }
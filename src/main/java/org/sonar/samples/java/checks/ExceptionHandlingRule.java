@@ -21,8 +21,8 @@ package org.sonar.samples.java.checks;
 
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.tree.*;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
 
 import java.util.Collections;
 import java.util.List;
@@ -32,7 +32,7 @@ import java.util.List;
         description = "Follow best practices in exception handling, including logging and rethrowing meaningful exception messages.",
         priority = Priority.MAJOR,
         tags = {"error-handling"})
-public class ExceptionHandlingRule extends IssuableSubscriptionVisitor {
+public class ExceptionHandlingRule extends DispatchedVisitor {
 
     @Override
     public List<Tree.Kind> nodesToVisit() {
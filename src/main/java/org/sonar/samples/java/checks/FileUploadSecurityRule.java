@@ -20,8 +20,9 @@
 package org.sonar.samples.java.checks;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.tree.*;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
+import org.sonar.samples.java.dispatch.TriggerTokens;
 
 import java.util.Arrays;
 import java.util.List;
@@ -31,12 +32,19 @@ import java.util.List;
         description = "Ensure security checks during file uploads, such as validating file type and scanning for potential threats.",
         priority = Priority.CRITICAL,
         tags = {"security", "upload"})
-public class FileUploadSecurityRule extends IssuableSubscriptionVisitor {
+@TriggerTokens({"MultipartFile", "FilePart"})
+public class FileUploadSecurityRule extends DispatchedVisitor {
 
     private static final List<String> VALIDATION_METHODS = Arrays.asList(
             "isValidExcelFile", "validateFileType", "validateFileSize", "scanForMalware"
     );
 
+    // calls are recognized by the type they return, declared with the method called, which may be in another file of the project
+    @Override
+    protected boolean dependsOnOtherFiles() {
+        return true;
+    }
+
     @Override
     public List<Tree.Kind> nodesToVisit() {
         return Arrays.asList(Tree.Kind.METHOD_INVOCATION, Tree.Kind.ASSIGNMENT);
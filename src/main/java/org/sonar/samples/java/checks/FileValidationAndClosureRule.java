@@ -20,8 +20,9 @@
 package org.sonar.samples.java.checks;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.tree.*;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
+import org.sonar.samples.java.flow.MethodFlow;
 
 import java.util.*;
 
@@ -31,112 +32,77 @@ import java.util.*;
         description = "Validate file type, size, and scan for malware before saving uploaded files.",
         priority = Priority.CRITICAL,
         tags = {"security"})
-public class FileValidationAndClosureRule extends IssuableSubscriptionVisitor {
+public class FileValidationAndClosureRule extends DispatchedVisitor {
 
-    // Déclaration des méthodes d'ouverture et de fermeture des fichiers
-    private static final Set<String> FILE_OPEN_METHODS = Collections.unmodifiableSet(
-            new HashSet<>(Arrays.asList("getInputStream", "openStream", "readFile", "read"))
-    );
-    private static final String FILE_VALIDATION_METHOD = "isValidFile";
-    private static final String FILE_CLOSE_METHOD = "close";
+    // Déclaration des méthodes d'ouverture et de validation des fichiers
+    private static final MethodMatcher FILE_OPEN_METHODS = MethodMatcher.create()
+            .names("getInputStream", "openStream", "readFile");
+    private static final MethodMatcher FILE_VALIDATION_METHOD = MethodMatcher.create()
+            .names("isValidFile");
+
+
+    // Les ressources JDBC sont reconnues à leur type, retourné le cas échéant par une méthode d'un autre fichier du projet
+    @Override
+    protected boolean dependsOnOtherFiles() {
+        return true;
+    }
 
     @Override
     public List<Tree.Kind> nodesToVisit() {
-        return Collections.singletonList(Tree.Kind.METHOD_INVOCATION);
+        return Arrays.asList(Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR, Tree.Kind.METHOD_INVOCATION);
     }
 
     @Override
     public void visitNode(Tree tree) {
-        MethodInvocationTree methodInvocation = (MethodInvocationTree) tree;
-        String methodName = methodInvocation.symbolType().name();
-
-        // Vérifiez si la méthode actuelle est une méthode d'ouverture de fichier
-        if (FILE_OPEN_METHODS.contains(methodName)) {
-            // Vérifiez la validation du fichier avant son traitement
-            if (!isValidationDone(methodInvocation)) {
-                reportIssue(methodInvocation, "File should be validated before processing.");
-            }
-
-            // Vérifiez si le fichier est correctement fermé
-            if (!isFileClosed(methodInvocation)) {
-                reportIssue(methodInvocation, "File should be closed after processing.");
-            }
+        if (tree.is(Tree.Kind.METHOD_INVOCATION)) {
+            visitMethodInvocation((MethodInvocationTree) tree);
+            return;
         }
-    }
-
-    private boolean isValidationDone(MethodInvocationTree methodInvocation) {
-        Optional<MethodTree> method = getEnclosingMethod(methodInvocation);
-        if (method.isPresent()) {
-            BlockTree methodBody = method.get().block();
-            for (StatementTree statement : methodBody.body()) {
-                if (statement.is(Tree.Kind.METHOD_INVOCATION)) {
-                    MethodInvocationTree invocation = (MethodInvocationTree) statement;
-                    if (invocation.symbolType().name().equals(FILE_VALIDATION_METHOD)) {
-                        return true;
-                    }
-                }
+        MethodTree methodTree = (MethodTree) tree;
+        if (methodTree.block() == null) {
+            enclosingFlows().add(null);
+            return;
+        }
+        MethodFlow flow = sharedFileState(MethodFlow.OfFile.class, MethodFlow.OfFile::new).of(methodTree);
+        enclosingFlows().add(flow);
+        // Vérifiez si les fichiers ouverts sont fermés sur tous les chemins
+        for (Tree leak : flow.resourceLeaks().leaks()) {
+            if (isJdbcResource(leak)) {
+                reportIssue(leak, "JDBC resource should be closed after processing.");
+            } else {
+                reportIssue(leak, "File should be closed after processing.");
             }
         }
-        return false;
     }
 
-    private boolean isFileClosed(MethodInvocationTree methodInvocation) {
-        Optional<MethodTree> method = getEnclosingMethod(methodInvocation);
-        if (method.isPresent()) {
-            BlockTree methodBody = method.get().block();
-            for (StatementTree statement : methodBody.body()) {
-                if (statement.is(Tree.Kind.METHOD_INVOCATION)) {
-                    MethodInvocationTree invocation = (MethodInvocationTree) statement;
-                    if (invocation.symbolType().name().equals(FILE_CLOSE_METHOD)) {
-                        return true;
-                    }
-                }
-            }
+    @Override
+    public void leaveNode(Tree tree) {
+        if (!tree.is(Tree.Kind.METHOD_INVOCATION)) {
+            List<MethodFlow> enclosingFlows = enclosingFlows();
+            enclosingFlows.remove(enclosingFlows.size() - 1);
         }
-        // Recherche d'une structure try-with-resources
-        return containsTryWithResources(methodInvocation);
     }
 
-    private Optional<MethodTree> getEnclosingMethod(MethodInvocationTree methodInvocation) {
-        Tree parent = methodInvocation.parent();
-        while (parent != null && !(parent instanceof MethodTree)) {
-            parent = parent.parent();
+    private void visitMethodInvocation(MethodInvocationTree methodInvocation) {
+        List<MethodFlow> enclosingFlows = enclosingFlows();
+        if (enclosingFlows.isEmpty() || !FILE_OPEN_METHODS.matches(methodInvocation)) {
+            return;
+        }
+        MethodFlow flow = enclosingFlows.get(enclosingFlows.size() - 1);
+        // Vérifiez la validation du fichier avant son traitement, sur tous les chemins
+        if (flow != null && flow.cfg().elementOf(methodInvocation) != null
+                && !flow.isAlwaysPrecededBy(methodInvocation, FILE_VALIDATION_METHOD)) {
+            reportIssue(methodInvocation, "File should be validated before processing.");
         }
-        return Optional.ofNullable((MethodTree) parent);
     }
 
-    private boolean containsTryWithResources(MethodInvocationTree methodInvocation) {
-        Tree parent = methodInvocation.parent();
-        while (parent != null) {
-            if (parent.is(Tree.Kind.TRY_STATEMENT)) {
-                TryStatementTree tryStatement = (TryStatementTree) parent;
-
-                // Parcourir les blocs de ressources dans le try-with-resources
-                if (tryStatement.block() != null) {
-                    // Logique personnalisée pour analyser les ressources dans le bloc try
-                    return isResourceManagedProperly(tryStatement, methodInvocation);
-                }
-            }
-            parent = parent.parent();
-        }
-        return false;
+    // Flot de contrôle des méthodes englobantes du fichier analysé (null pour les méthodes sans corps)
+    private List<MethodFlow> enclosingFlows() {
+        return fileState(ArrayList::new);
     }
 
-    private boolean isResourceManagedProperly(TryStatementTree tryStatement, MethodInvocationTree methodInvocation) {
-        // Parcourir les éléments à l'intérieur du bloc `try`
-        for (Tree resource : tryStatement.resourceList()) {
-            // Si la ressource est un appel de méthode, vérifier si elle correspond à l'appel d'ouverture de fichier
-            if (resource.is(Tree.Kind.VARIABLE)) {
-                VariableTree variableTree = (VariableTree) resource;
-                if (variableTree.initializer() instanceof MethodInvocationTree) {
-                    MethodInvocationTree resourceMethodInvocation = (MethodInvocationTree) variableTree.initializer();
-                    if (resourceMethodInvocation.symbolType().equals(methodInvocation.symbolType())) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+    private static boolean isJdbcResource(Tree leak) {
+        return leak instanceof ExpressionTree && ((ExpressionTree) leak).symbolType().fullyQualifiedName().startsWith("java.sql.");
     }
     ////Dans une grande application de gestion de fichiers, une mauvaise gestion des fichiers non validés et non fermés provoque des fuites de ressources et des erreurs système. La règle "FileValidationAndClosure" agit comme un garde-fou, en s'assurant que chaque fichier est validé avant d'être traité et correctement fermé après usage. Cela évite des fuites de mémoire et des erreurs inattendues, garantissant la stabilité du système.
 
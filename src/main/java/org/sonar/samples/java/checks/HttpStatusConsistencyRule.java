@@ -2,17 +2,22 @@ package org.sonar.samples.java.checks;
 
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.tree.*;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
+import org.sonar.samples.java.inventory.Endpoint;
+import org.sonar.samples.java.inventory.EndpointInventory;
+import org.sonar.samples.java.inventory.HandlerMapping;
+import org.sonar.samples.java.inventory.ResponseStatuses;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Rule(key = "pfe-custom-rules:HttpStatusConsistency",
         name = "HTTP Status Consistency",
         description = "Ensure HTTP responses return consistent status codes that accurately represent the response state.",
         priority = Priority.MINOR,
         tags = {"http", "best-practice"})
-public class HttpStatusConsistencyRule extends IssuableSubscriptionVisitor {
+public class HttpStatusConsistencyRule extends DispatchedVisitor {
 
     private static final Set<String> SUCCESS_STATUSES = Collections.unmodifiableSet(
             new HashSet<>(Arrays.asList("OK", "CREATED", "ACCEPTED"))
@@ -26,43 +31,102 @@ public class HttpStatusConsistencyRule extends IssuableSubscriptionVisitor {
             new HashSet<>(Arrays.asList("GET", "POST", "PUT", "DELETE"))
     );
 
+    // Nœuds parcourus par les résumés des retours, qui doivent croître comme le corps des méthodes
+    private final AtomicLong summaryNodes = new AtomicLong();
+
+    // Les réponses sont reconnues au type retourné par la méthode appelée, qui peut être déclarée dans un autre fichier du projet
+    @Override
+    protected boolean dependsOnOtherFiles() {
+        return true;
+    }
+
     @Override
     public List<Tree.Kind> nodesToVisit() {
-        return Collections.singletonList(Tree.Kind.RETURN_STATEMENT);
+        return Collections.singletonList(Tree.Kind.METHOD);
     }
 
     @Override
     public void visitNode(Tree tree) {
-        ReturnStatementTree returnStatement = (ReturnStatementTree) tree;
-        if (returnStatement.expression().is(Tree.Kind.METHOD_INVOCATION)) {
-            MethodInvocationTree methodInvocation = (MethodInvocationTree) returnStatement.expression();
+        MethodTree method = (MethodTree) tree;
+        if (method.block() == null) {
+            return;
+        }
+        // Le résumé des retours de la méthode est calculé une seule fois, puis partagé par toutes les vérifications
+        ReturnSummary summary = ReturnSummary.of(method);
+        summaryNodes.addAndGet(summary.nodes);
+        boolean inconsistentReturns = !summary.topLevelReturnsValid();
 
+        for (MethodInvocationTree methodInvocation : summary.returnedInvocations()) {
             // Vérifiez les incohérences de statuts HTTP
-            checkHttpStatusConsistency(methodInvocation);
-
-            // Vérifiez la bonne gestion des exceptions avec des statuts appropriés
-            checkExceptionHandling(methodInvocation);
+            checkHttpStatusConsistency(methodInvocation, summary);
 
             // Vérifiez les statuts de réponse pour des contextes spécifiques
             checkContextualHttpStatus(methodInvocation);
 
             // Vérifiez les réponses multiples pour des incohérences
-            checkMultipleResponsesConsistency(methodInvocation);
+            if (inconsistentReturns) {
+                reportIssue(methodInvocation, "Inconsistent use of HTTP response codes in multiple return statements.");
+            }
         }
+
+        // Vérifiez la bonne gestion des exceptions avec des statuts appropriés
+        checkExceptionHandling(summary);
+
+        // Inventaire des statuts de l'endpoint, écrit au fil de l'analyse
+        recordEndpoint(method, summary);
     }
 
-    private void checkHttpStatusConsistency(MethodInvocationTree methodInvocation) {
+    long summaryNodes() {
+        return summaryNodes.get();
+    }
+
+    private void recordEndpoint(MethodTree method, ReturnSummary summary) {
+        EndpointInventory inventory = EndpointInventory.current();
+        if (!inventory.isEnabled()) {
+            return;
+        }
+        HandlerMapping mapping = HandlerMapping.of(method);
+        if (mapping == null) {
+            return;
+        }
+        SortedSet<Integer> successStatuses = new TreeSet<>();
+        SortedSet<Integer> errorStatuses = new TreeSet<>();
+        SortedSet<Integer> catchStatuses = new TreeSet<>();
+        int unresolvedReturns = 0;
+        for (ExpressionTree returned : summary.returnedValues()) {
+            Integer status = ResponseStatuses.of(returned);
+            if (status == null) {
+                unresolvedReturns++;
+            } else if (Endpoint.isSuccess(status)) {
+                successStatuses.add(status);
+            } else {
+                errorStatuses.add(status);
+            }
+        }
+        for (ExpressionTree returned : summary.catchReturnedValues()) {
+            Integer status = ResponseStatuses.of(returned);
+            if (status == null) {
+                unresolvedReturns++;
+            } else {
+                catchStatuses.add(status);
+            }
+        }
+        String file = context().getFileKey() != null ? context().getFileKey() : context().getFile().getPath();
+        inventory.record(new Endpoint(file, method.simpleName().identifierToken().line(), method.symbol().owner().type().fullyQualifiedName(),
+                method.simpleName().name(), mapping.httpMethods(), mapping.paths(), successStatuses, errorStatuses, catchStatuses, unresolvedReturns));
+    }
+
+    private void checkHttpStatusConsistency(MethodInvocationTree methodInvocation, ReturnSummary summary) {
         if (methodInvocation.symbolType().name().equals("ResponseEntity")) {
             String httpStatus = extractHttpStatus(methodInvocation);  // Extract the HTTP status
-            String httpMethod = extractHttpMethod(methodInvocation);  // Extract the HTTP method
 
             // Check if the status code is in the success range and validate the context
-            if (SUCCESS_STATUSES.contains(httpStatus) && !isSuccessContext(methodInvocation)) {
+            if (SUCCESS_STATUSES.contains(httpStatus) && !summary.isSuccessContext()) {
                 reportIssue(methodInvocation, "Success status code should be used in appropriate success contexts.");
             }
 
             // Check if the status code is in the error range and validate the context
-            if (ERROR_STATUSES.contains(httpStatus) && isSuccessContext(methodInvocation)) {
+            if (ERROR_STATUSES.contains(httpStatus) && summary.isSuccessContext()) {
                 reportIssue(methodInvocation, "Error status code used without an appropriate failure context.");
             }
         }
@@ -83,32 +147,6 @@ public class HttpStatusConsistencyRule extends IssuableSubscriptionVisitor {
         }
     }
 
-    private void checkMultipleResponsesConsistency(MethodInvocationTree methodInvocation) {
-        Optional<MethodTree> method = getEnclosingMethod(methodInvocation);
-        if (method.isPresent()) {
-            // Rechercher les multiples réponses dans les méthodes
-            if (method.get().block().body().stream()
-                    .filter(statement -> statement.is(Tree.Kind.RETURN_STATEMENT))
-                    .map(statement -> (ReturnStatementTree) statement)
-                    .anyMatch(returnStmt -> !isValidHttpResponse(returnStmt))) {
-                reportIssue(methodInvocation, "Inconsistent use of HTTP response codes in multiple return statements.");
-            }
-        }
-    }
-    private Optional<MethodTree> getEnclosingMethod(MethodInvocationTree methodInvocation) {
-        Tree parent = methodInvocation.parent();
-        while (parent != null && !parent.is(Tree.Kind.METHOD)) {
-            parent = parent.parent();
-        }
-        return parent != null ? Optional.of((MethodTree) parent) : Optional.empty();
-    }
-
-    private boolean isSuccessContext(MethodInvocationTree methodInvocation) {
-        // Check if the method context is suitable for a success status code
-        Optional<MethodTree> enclosingMethod = getEnclosingMethod(methodInvocation);
-        return enclosingMethod.isPresent() && enclosingMethod.get().symbol().name().equals("success"); // Example condition
-    }
-
     private boolean isContextForSuccess(MethodInvocationTree methodInvocation) {
         // You can check for specific conditions, like HTTP methods (GET, POST) or annotations (@ResponseStatus)
         String httpMethod = extractHttpMethod(methodInvocation);
@@ -121,52 +159,145 @@ public class HttpStatusConsistencyRule extends IssuableSubscriptionVisitor {
         return httpMethod.equals("PUT") || httpMethod.equals("DELETE"); // Example condition
     }
 
-
-    private boolean isValidHttpResponse(ReturnStatementTree returnStmt) {
-        if (returnStmt.expression().is(Tree.Kind.METHOD_INVOCATION)) {
-            MethodInvocationTree invocation = (MethodInvocationTree) returnStmt.expression();
-            String status = extractHttpStatus(invocation);
-            return SUCCESS_STATUSES.contains(status) || ERROR_STATUSES.contains(status);
+    private void checkExceptionHandling(ReturnSummary summary) {
+        for (MethodInvocationTree returnInvocation : summary.catchReturnedInvocations()) {
+            String status = extractHttpStatus(returnInvocation);
+            if (!ERROR_STATUSES.contains(status)) {
+                reportIssue(returnInvocation, "Catch block should return an error status code.");
+            }
         }
-        return false;
     }
 
-    private void checkExceptionHandling(MethodInvocationTree methodInvocation) {
-        Optional<MethodTree> enclosingMethod = getEnclosingMethod(methodInvocation);
-        if (enclosingMethod.isPresent()) {
-            MethodTree methodTree = enclosingMethod.get();
-
-            methodTree.block().body().stream()
-                    .filter(statement -> statement.is(Tree.Kind.TRY_STATEMENT))
-                    .map(statement -> (TryStatementTree) statement)
-                    .forEach(tryStatement -> {
-                        for (CatchTree catchBlock : tryStatement.catches()) {
-                            BlockTree catchBody = catchBlock.block();
-                            for (StatementTree catchStatement : catchBody.body()) {
-                                if (catchStatement.is(Tree.Kind.RETURN_STATEMENT)) {
-                                    ReturnStatementTree returnStatement = (ReturnStatementTree) catchStatement;
-                                    if (returnStatement.expression().is(Tree.Kind.METHOD_INVOCATION)) {
-                                        MethodInvocationTree returnInvocation = (MethodInvocationTree) returnStatement.expression();
-                                        String status = extractHttpStatus(returnInvocation);
-
-                                        if (!ERROR_STATUSES.contains(status)) {
-                                            reportIssue(returnInvocation, "Catch block should return an error status code.");
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    });
+    private static boolean isValidHttpResponse(ReturnStatementTree returnStmt) {
+        ExpressionTree expression = returnStmt.expression();
+        if (expression != null && expression.is(Tree.Kind.METHOD_INVOCATION)) {
+            String status = extractHttpStatus((MethodInvocationTree) expression);
+            return SUCCESS_STATUSES.contains(status) || ERROR_STATUSES.contains(status);
         }
+        return false;
     }
 
-    private String extractHttpStatus(MethodInvocationTree methodInvocation) {
+    private static String extractHttpStatus(MethodInvocationTree methodInvocation) {
         // Extraction du code de statut HTTP à partir de la méthode d'invocation
         return methodInvocation.symbol().name();
     }
 
-    private String extractHttpMethod(MethodInvocationTree methodInvocation) {
+    private static String extractHttpMethod(MethodInvocationTree methodInvocation) {
         // Extraction du type de méthode HTTP (GET, POST, PUT, DELETE) à partir de l'invocation
         return methodInvocation.symbol().name();
     }
+
+    /**
+     * Retours d'une méthode, collectés en un seul parcours de son corps.
+     * Les retours des lambdas sont attribués à la méthode, ceux des classes anonymes ou locales à leur propre méthode.
+     */
+    private static final class ReturnSummary extends BaseTreeVisitor {
+
+        private final MethodTree method;
+        private final List<MethodInvocationTree> returnedInvocations = new ArrayList<>();
+        private final List<MethodInvocationTree> catchReturnedInvocations = new ArrayList<>();
+        // toutes les valeurs retournées, séparées selon qu'elles le sont dans un catch, à toute profondeur
+        private final List<ExpressionTree> returnedValues = new ArrayList<>();
+        private final List<ExpressionTree> catchReturnedValues = new ArrayList<>();
+        private int catchDepth;
+        private int lambdaDepth;
+        private boolean topLevelReturnsValid = true;
+        private long nodes;
+
+        private ReturnSummary(MethodTree method) {
+            this.method = method;
+        }
+
+        static ReturnSummary of(MethodTree method) {
+            ReturnSummary summary = new ReturnSummary(method);
+            BlockTree body = method.block();
+            body.accept(summary);
+            for (StatementTree statement : body.body()) {
+                if (statement.is(Tree.Kind.RETURN_STATEMENT)) {
+                    summary.topLevelReturnsValid &= isValidHttpResponse((ReturnStatementTree) statement);
+                } else if (statement.is(Tree.Kind.TRY_STATEMENT)) {
+                    summary.addCatchReturns((TryStatementTree) statement);
+                }
+            }
+            return summary;
+        }
+
+        private void addCatchReturns(TryStatementTree tryStatement) {
+            for (CatchTree catchBlock : tryStatement.catches()) {
+                for (StatementTree catchStatement : catchBlock.block().body()) {
+                    if (catchStatement.is(Tree.Kind.RETURN_STATEMENT)) {
+                        ExpressionTree expression = ((ReturnStatementTree) catchStatement).expression();
+                        if (expression != null && expression.is(Tree.Kind.METHOD_INVOCATION)) {
+                            catchReturnedInvocations.add((MethodInvocationTree) expression);
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        protected void scan(Tree tree) {
+            if (tree != null) {
+                nodes++;
+            }
+            super.scan(tree);
+        }
+
+        @Override
+        public void visitReturnStatement(ReturnStatementTree tree) {
+            ExpressionTree expression = tree.expression();
+            if (expression != null && expression.is(Tree.Kind.METHOD_INVOCATION)) {
+                returnedInvocations.add((MethodInvocationTree) expression);
+            }
+            if (expression != null && lambdaDepth == 0) {
+                (catchDepth > 0 ? catchReturnedValues : returnedValues).add(expression);
+            }
+            super.visitReturnStatement(tree);
+        }
+
+        @Override
+        public void visitCatch(CatchTree tree) {
+            catchDepth++;
+            super.visitCatch(tree);
+            catchDepth--;
+        }
+
+        @Override
+        public void visitLambdaExpression(LambdaExpressionTree tree) {
+            // les retours d'une lambda ne sont pas ceux de l'endpoint
+            lambdaDepth++;
+            super.visitLambdaExpression(tree);
+            lambdaDepth--;
+        }
+
+        @Override
+        public void visitClass(ClassTree tree) {
+            // les méthodes des classes anonymes ou locales ont leur propre résumé
+        }
+
+        boolean isSuccessContext() {
+            // Check if the method context is suitable for a success status code
+            return method.symbol().name().equals("success"); // Example condition
+        }
+
+        boolean topLevelReturnsValid() {
+            return topLevelReturnsValid;
+        }
+
+        List<MethodInvocationTree> returnedInvocations() {
+            return returnedInvocations;
+        }
+
+        List<MethodInvocationTree> catchReturnedInvocations() {
+            return catchReturnedInvocations;
+        }
+
+        List<ExpressionTree> returnedValues() {
+            return returnedValues;
+        }
+
+        List<ExpressionTree> catchReturnedValues() {
+            return catchReturnedValues;
+        }
+    }
 }
\ No newline at end of file
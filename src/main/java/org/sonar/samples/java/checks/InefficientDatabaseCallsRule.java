@@ -19,53 +19,302 @@
  */
 package org.sonar.samples.java.checks;
 
+import org.sonar.api.rule.RuleKey;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.semantic.Symbol;
+import org.sonar.plugins.java.api.semantic.Type;
 import org.sonar.plugins.java.api.tree.*;
+import org.sonar.samples.java.MyJavaRulesDefinition;
+import org.sonar.samples.java.callgraph.CallGraphIndex;
+import org.sonar.samples.java.callgraph.LateWritingCalls;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
 
+import java.io.File;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
-@Rule(key = "pfe-custom-rules:InefficientDatabaseCallsRule",
+@Rule(key = InefficientDatabaseCallsRule.KEY,
         name = "Avoid Inefficient Database Calls",
         description = "Identify and refactor inefficient database calls that may lead to performance bottlenecks.",
         priority = Priority.MAJOR,
         tags = {"performance", "database"})
-public class InefficientDatabaseCallsRule extends IssuableSubscriptionVisitor {
+public class InefficientDatabaseCallsRule extends DispatchedVisitor {
 
-    private static final List<String> SAVE_METHODS = Arrays.asList("save", "saveAll");
+    static final String KEY = "pfe-custom-rules:InefficientDatabaseCallsRule";
+    // La clé @Rule entière est la clé de la règle dans le dépôt, préfixe compris
+    private static final RuleKey RULE_KEY = RuleKey.of(MyJavaRulesDefinition.REPOSITORY_KEY, KEY);
+    private static final String MESSAGE = "Évitez de sauvegarder des entités à l'intérieur des boucles. Utilisez des mises à jour par lots pour améliorer les performances.";
+    private static final String INDIRECT_MESSAGE = "Cet appel dans une boucle sauvegarde des entités via %s. Utilisez des mises à jour par lots pour améliorer les performances. (profondeur de boucle : %d)";
+    private static final int NO_METHOD = -1;
+
+    // CrudRepository et les repositories Spring Data qui en héritent
+    private static final String REPOSITORY = "org.springframework.data.repository.Repository";
+
+    private static final MethodMatcher SAVE_METHODS = MethodMatcher.create()
+            .ownerSubtypeOf(REPOSITORY)
+            .names("save", "saveAll");
+
+    // Appels dont les lambdas sont exécutées pour chaque élément (forEach, pipelines de streams)
+    private static final MethodMatcher ITERATING_METHODS = MethodMatcher.create()
+            .ownerSubtypeOf("java.lang.Iterable", "java.util.Map", "java.util.Iterator", "java.util.stream.BaseStream")
+            .names("forEach", "forEachOrdered", "forEachRemaining", "map", "mapToInt", "mapToLong", "mapToDouble", "mapToObj",
+                    "flatMap", "filter", "peek", "anyMatch", "allMatch", "noneMatch", "reduce", "replaceAll", "removeIf");
+
+    // Graphe d'appels du projet : méthodes qui sauvegardent, directement ou via les méthodes qu'elles appellent
+    private final CallGraphIndex callGraph = new CallGraphIndex(this::recordLateWritingCall);
+
+    // État propre au fichier analysé, plusieurs fichiers pouvant être analysés en même temps
+    private static final class FileState {
+        // Profondeur de boucle courante, et celle des méthodes englobantes (classes anonymes, classes locales)
+        private int loopDepth;
+        private final Deque<Integer> enclosingDepths = new ArrayDeque<>();
+        // Lambdas passées à un appel itératif, qui comptent comme un niveau de boucle
+        private final Set<Tree> iteratingLambdas = Collections.newSetFromMap(new IdentityHashMap<>());
+        private int currentMethod = NO_METHOD;
+        private final Deque<Integer> enclosingMethods = new ArrayDeque<>();
+        private Symbol.TypeSymbol lastOwner;
+        private Set<Symbol.TypeSymbol> lastOwnerSuperTypes;
+    }
+
+    // Les résultats d'un fichier dépendent du graphe d'appels de tout le projet
+    @Override
+    protected boolean dependsOnOtherFiles() {
+        return true;
+    }
 
     @Override
     public List<Tree.Kind> nodesToVisit() {
-        return Arrays.asList(Tree.Kind.FOR_STATEMENT, Tree.Kind.FOR_EACH_STATEMENT, Tree.Kind.WHILE_STATEMENT); // Utilisation correcte des kinds
+        return Arrays.asList(Tree.Kind.COMPILATION_UNIT, Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR,
+                Tree.Kind.FOR_STATEMENT, Tree.Kind.FOR_EACH_STATEMENT, Tree.Kind.WHILE_STATEMENT, Tree.Kind.DO_STATEMENT,
+                Tree.Kind.LAMBDA_EXPRESSION, Tree.Kind.METHOD_INVOCATION);
     }
 
     @Override
     public void visitNode(Tree tree) {
-        if (tree.is(Tree.Kind.FOR_STATEMENT)) {
-            checkLoopForSaveCalls((ForStatementTree) tree);
-        } else if (tree.is(Tree.Kind.FOR_EACH_STATEMENT)) { // Utilisation correcte de FOR_EACH_STATEMENT
-            checkLoopForSaveCalls((ForEachStatement) tree);
-        } else if (tree.is(Tree.Kind.WHILE_STATEMENT)) {
-            checkLoopForSaveCalls((WhileStatementTree) tree);
+        FileState state = fileState(FileState::new);
+        switch (tree.kind()) {
+            case COMPILATION_UNIT:
+                break;
+            case METHOD:
+            case CONSTRUCTOR:
+                // Le corps d'une méthode n'est pas exécuté par la boucle qui déclare sa classe
+                state.enclosingDepths.push(state.loopDepth);
+                state.loopDepth = 0;
+                state.enclosingMethods.push(state.currentMethod);
+                state.currentMethod = declareMethod(state, (MethodTree) tree);
+                break;
+            case LAMBDA_EXPRESSION:
+                if (state.iteratingLambdas.contains(tree)) {
+                    state.loopDepth++;
+                }
+                break;
+            case METHOD_INVOCATION:
+                visitMethodInvocation(state, (MethodInvocationTree) tree);
+                break;
+            default:
+                // for, for-each, while, do-while
+                state.loopDepth++;
+                break;
         }
     }
 
-    // Méthode pour vérifier les appels dans les boucles
-    private void checkLoopForSaveCalls(StatementTree loopTree) {
-        loopTree.accept(new SaveMethodInvocationVisitor());
+    @Override
+    public void leaveNode(Tree tree) {
+        FileState state = fileState(FileState::new);
+        switch (tree.kind()) {
+            case METHOD_INVOCATION:
+                break;
+            case COMPILATION_UNIT:
+                reportLateWritingCalls();
+                break;
+            case METHOD:
+            case CONSTRUCTOR:
+                state.loopDepth = state.enclosingDepths.pop();
+                state.currentMethod = state.enclosingMethods.pop();
+                break;
+            case LAMBDA_EXPRESSION:
+                if (state.iteratingLambdas.remove(tree)) {
+                    state.loopDepth--;
+                }
+                break;
+            default:
+                state.loopDepth--;
+                break;
+        }
     }
 
-    // Classe visiteur pour détecter les appels de méthode save/saveAll
-    private class SaveMethodInvocationVisitor extends BaseTreeVisitor {
-        @Override
-        public void visitMethodInvocation(MethodInvocationTree methodInvocationTree) {
-            String methodName = methodInvocationTree.symbolType().name(); // Utilisation de symbolType() pour récupérer le type
-            if (SAVE_METHODS.contains(methodName)) {
-                reportIssue(methodInvocationTree, "Évitez de sauvegarder des entités à l'intérieur des boucles. Utilisez des mises à jour par lots pour améliorer les performances.");
+    private void visitMethodInvocation(FileState state, MethodInvocationTree methodInvocation) {
+        if (SAVE_METHODS.matches(methodInvocation)) {
+            if (state.loopDepth > 0) {
+                reportSave(methodInvocation, state.loopDepth);
+            }
+            markCurrentMethodAsWriter(state);
+        } else {
+            recordCall(state, methodInvocation.symbol(), methodInvocation, state.loopDepth);
+        }
+        if (ITERATING_METHODS.matches(methodInvocation)) {
+            for (ExpressionTree argument : methodInvocation.arguments()) {
+                if (argument.is(Tree.Kind.LAMBDA_EXPRESSION)) {
+                    state.iteratingLambdas.add(argument);
+                } else if (argument.is(Tree.Kind.METHOD_REFERENCE)) {
+                    visitIteratedReference(state, (MethodReferenceTree) argument);
+                }
             }
-            super.visitMethodInvocation(methodInvocationTree);
         }
     }
+
+    private void visitIteratedReference(FileState state, MethodReferenceTree methodReference) {
+        if (isSaveReference(methodReference)) {
+            // ex. entities.forEach(repository::save)
+            reportSave(methodReference, state.loopDepth + 1);
+            markCurrentMethodAsWriter(state);
+        } else {
+            // ex. items.forEach(service::process)
+            recordCall(state, methodReference.method().symbol(), methodReference, state.loopDepth + 1);
+        }
+    }
+
+    private static boolean isSaveReference(MethodReferenceTree methodReference) {
+        Symbol symbol = methodReference.method().symbol();
+        String name = symbol.name();
+        return symbol.isMethodSymbol() && ("save".equals(name) || "saveAll".equals(name))
+                && symbol.owner() != null && symbol.owner().type() != null && symbol.owner().type().isSubtypeOf(REPOSITORY);
+    }
+
+    private void markCurrentMethodAsWriter(FileState state) {
+        if (state.currentMethod != NO_METHOD) {
+            callGraph.markWriter(state.currentMethod);
+        }
+    }
+
+    // Enregistre l'appel dans le graphe ; dans une boucle, signale l'appel dès que la méthode appelée est connue pour sauvegarder
+    private void recordCall(FileState state, Symbol symbol, Tree callTree, int depth) {
+        String calleeKey = methodKey(symbol);
+        if (calleeKey == null) {
+            return;
+        }
+        int callee = callGraph.methodId(calleeKey);
+        if (state.currentMethod != NO_METHOD) {
+            callGraph.addCall(state.currentMethod, callee);
+        }
+        if (depth > 0) {
+            if (callGraph.isWriter(callee)) {
+                reportIssue(callTree, String.format(INDIRECT_MESSAGE, displayName(calleeKey), depth), Collections.emptyList(), depth);
+            } else {
+                // Si la méthode appelée sauvegarde entre-temps, le graphe signale l'appel tout de suite
+                callGraph.addLoopCall(context().getFile(), callTree.lastToken().line(), depth, callee);
+            }
+        }
+    }
+
+    private int declareMethod(FileState state, MethodTree methodTree) {
+        Symbol.MethodSymbol symbol = methodTree.symbol();
+        String key = methodKey(symbol);
+        if (key == null) {
+            return NO_METHOD;
+        }
+        int method = callGraph.methodId(key);
+        if (!symbol.isStatic() && !symbol.isPrivate() && !methodTree.is(Tree.Kind.CONSTRUCTOR)) {
+            // Un appel sur un super-type peut exécuter cette méthode
+            int arity = symbol.parameterTypes().size();
+            for (Symbol.TypeSymbol superType : superTypesOf(state, (Symbol.TypeSymbol) symbol.owner())) {
+                if (declaresMethod(superType, symbol.name(), arity)) {
+                    int overridden = callGraph.methodId(CallGraphIndex.methodKey(superType.type().fullyQualifiedName(), symbol.name(), arity));
+                    callGraph.addCall(overridden, method);
+                }
+            }
+        }
+        return method;
+    }
+
+    // Clé "owner#name(arity)" des méthodes résolues du projet ; les méthodes du JDK ne sauvegardent jamais
+    private static String methodKey(Symbol symbol) {
+        if (!symbol.isMethodSymbol() || symbol.owner() == null || symbol.owner().type() == null) {
+            return null;
+        }
+        String owner = symbol.owner().type().fullyQualifiedName();
+        if (isJdkType(owner)) {
+            return null;
+        }
+        return CallGraphIndex.methodKey(owner, symbol.name(), ((Symbol.MethodSymbol) symbol).parameterTypes().size());
+    }
+
+    // Les méthodes d'une classe sont déclarées à la suite : les super-types de la dernière classe sont conservés
+    private static Set<Symbol.TypeSymbol> superTypesOf(FileState state, Symbol.TypeSymbol type) {
+        if (type != state.lastOwner) {
+            state.lastOwner = type;
+            state.lastOwnerSuperTypes = superTypes(type);
+        }
+        return state.lastOwnerSuperTypes;
+    }
+
+    private static Set<Symbol.TypeSymbol> superTypes(Symbol.TypeSymbol type) {
+        Set<Symbol.TypeSymbol> superTypes = new HashSet<>();
+        Deque<Symbol.TypeSymbol> toVisit = new ArrayDeque<>();
+        toVisit.push(type);
+        while (!toVisit.isEmpty()) {
+            Symbol.TypeSymbol current = toVisit.pop();
+            addSuperType(current.superClass(), superTypes, toVisit);
+            for (Type anInterface : current.interfaces()) {
+                addSuperType(anInterface, superTypes, toVisit);
+            }
+        }
+        return superTypes;
+    }
+
+    private static void addSuperType(Type superType, Set<Symbol.TypeSymbol> superTypes, Deque<Symbol.TypeSymbol> toVisit) {
+        if (superType != null && !superType.isUnknown() && !isJdkType(superType.fullyQualifiedName())
+                && superTypes.add(superType.symbol())) {
+            toVisit.push(superType.symbol());
+        }
+    }
+
+    private static boolean declaresMethod(Symbol.TypeSymbol type, String name, int arity) {
+        for (Symbol member : type.lookupSymbols(name)) {
+            if (member.isMethodSymbol() && ((Symbol.MethodSymbol) member).parameterTypes().size() == arity) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isJdkType(String fullyQualifiedName) {
+        return fullyQualifiedName.startsWith("java.") || fullyQualifiedName.startsWith("javax.");
+    }
+
+    // "com.example.ItemService#process(1)" -> "ItemService.process"
+    private static String displayName(String methodKey) {
+        int hash = methodKey.indexOf('#');
+        String owner = methodKey.substring(methodKey.lastIndexOf('.', hash) + 1, hash);
+        return owner + "." + methodKey.substring(hash + 1, methodKey.indexOf('(', hash));
+    }
+
+    // Appel découvert après coup, quand la suite du fichier ou un autre fichier complète le chemin vers un repository :
+    // appelé sous le verrou du graphe, pendant l'analyse d'un fichier quelconque, il est seulement conservé
+    private void recordLateWritingCall(File file, int line, int depth, String callee) {
+        LateWritingCalls.current().add(new LateWritingCalls.WritingCall(RULE_KEY, file, line, depth,
+                String.format(INDIRECT_MESSAGE, displayName(callee), depth)));
+    }
+
+    // Les appels découverts pendant l'analyse du fichier sont signalés à la fin de celle-ci,
+    // ceux des fichiers déjà analysés par LateWritingCallSensor une fois tous les fichiers analysés
+    private void reportLateWritingCalls() {
+        JavaFileScannerContext context = context();
+        for (LateWritingCalls.WritingCall call : LateWritingCalls.current().take(context.getFile())) {
+            context.addIssue(call.line, this, call.message, call.loopDepth);
+        }
+    }
+
+    // Une seule issue par appel ; le coût (gap) est la profondeur d'imbrication, les appels les plus profonds ressortent en premier
+    private void reportSave(Tree tree, int depth) {
+        reportIssue(tree, MESSAGE + " (profondeur de boucle : " + depth + ")", Collections.emptyList(), depth);
+    }
 }
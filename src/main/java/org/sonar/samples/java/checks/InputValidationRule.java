@@ -21,9 +21,9 @@ package org.sonar.samples.java.checks;
 
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.semantic.Type;
 import org.sonar.plugins.java.api.tree.*;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
 
 import java.util.Arrays;
 import java.util.List;
@@ -33,7 +33,7 @@ import java.util.List;
         description = "Validate inputs effectively to prevent injection vulnerabilities and ensure input quality.",
         priority = Priority.CRITICAL,
         tags = {"security", "input-validation"})
-public class InputValidationRule extends IssuableSubscriptionVisitor {
+public class InputValidationRule extends DispatchedVisitor {
 
     private static final List<String> INPUT_ANNOTATIONS = Arrays.asList(
             "org.springframework.web.bind.annotation.RequestParam",
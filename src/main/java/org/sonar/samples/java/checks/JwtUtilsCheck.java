@@ -2,12 +2,12 @@ package org.sonar.samples.java.checks;
 
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.Tree;
-import org.sonar.plugins.java.api.tree.MethodInvocationTree;
 import org.sonar.plugins.java.api.tree.NewClassTree;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
+import org.sonar.samples.java.dispatch.TriggerTokens;
 
 import java.util.Arrays;
 import java.util.List;
@@ -17,38 +17,34 @@ import java.util.List;
         description = "Ensure secure JWT operations, such as proper token validation and signature verification.",
         priority = Priority.CRITICAL,
         tags = {"security", "jwt"})
-public class JwtUtilsCheck extends IssuableSubscriptionVisitor {
+@TriggerTokens({"JwtUtils"})
+public class JwtUtilsCheck extends DispatchedVisitor {
+
+    // Les loggers sont reconnus à la hiérarchie du type appelé, qui peut être déclaré dans un autre fichier du projet
+    @Override
+    protected boolean dependsOnOtherFiles() {
+        return true;
+    }
 
     @Override
     public List<Tree.Kind> nodesToVisit() {
         return Arrays.asList(Tree.Kind.CLASS, Tree.Kind.METHOD);
     }
+    private static final MethodMatcher LOGGER_ERROR = MethodMatcher.create()
+            .ownerSubtypeOf(MethodMatcher.LOGGER_TYPES)
+            .names("error");
+    private static final MethodMatcher HMAC_SHA_KEY_FOR = MethodMatcher.create()
+            .ownerType("io.jsonwebtoken.security.Keys")
+            .names("hmacShaKeyFor");
+
     private void checkValidateJwtTokenMethod(MethodTree methodTree) {
-        boolean hasExceptionHandling = false;
-        for (Tree statement : methodTree.block().body()) {
-            if (statement instanceof MethodInvocationTree) {
-                MethodInvocationTree methodInvocation = (MethodInvocationTree) statement;
-                String methodName = methodInvocation.methodSelect().toString();
-                if (methodName.contains("logger.error")) {
-                    hasExceptionHandling = true;
-                }
-            }
-        }
-        if (!hasExceptionHandling) {
+        // Les appels sont recherchés dans tout le corps de la méthode (try/catch compris)
+        if (!LOGGER_ERROR.isInvokedIn(methodTree.block())) {
             reportIssue(methodTree, "Ensure that exceptions during JWT validation are logged.");
         }
 
         // Check for the use of a secure key
-        boolean usesSecureKey = false;
-        for (Tree statement : methodTree.block().body()) {
-            if (statement instanceof MethodInvocationTree) {
-                MethodInvocationTree methodInvocation = (MethodInvocationTree) statement;
-                if (methodInvocation.methodSelect().toString().contains("Keys.hmacShaKeyFor")) {
-                    usesSecureKey = true;
-                }
-            }
-        }
-        if (!usesSecureKey) {
+        if (!HMAC_SHA_KEY_FOR.isInvokedIn(methodTree.block())) {
             reportIssue(methodTree, "Ensure that a secure key is used for JWT validation.");
         }
     }
@@ -0,0 +1,234 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.checks;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.semantic.Symbol;
+import org.sonar.plugins.java.api.semantic.Type;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.ExpressionTree;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+import org.sonar.plugins.java.api.tree.MemberSelectExpressionTree;
+import org.sonar.plugins.java.api.tree.MethodInvocationTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Matches method invocations on the owner type, name and arity of their symbol, without printing trees.
+ * A matcher is meant to be built once, in a constant of the check using it:
+ * <pre>
+ *   private static final MethodMatcher SEND_ERROR = MethodMatcher.create()
+ *     .ownerSubtypeOf("javax.servlet.http.HttpServletResponse")
+ *     .names("sendError");
+ * </pre>
+ * When an invocation cannot be resolved, for instance when its library is not on the analysis classpath,
+ * the owner is not known: a matcher constraining the owner does not match it, the others only compare the name
+ * found in the tree and the number of arguments.
+ */
+public final class MethodMatcher {
+
+  public static final List<String> LOGGER_TYPES = Collections.unmodifiableList(Arrays.asList(
+    "org.slf4j.Logger",
+    "org.apache.logging.log4j.Logger",
+    "org.apache.log4j.Category",
+    "org.apache.commons.logging.Log",
+    "java.util.logging.Logger"));
+
+  private static final int ANY_ARITY = -1;
+
+  private String[] ownerTypes = new String[0];
+  private boolean ownerSubtypes;
+  @Nullable
+  private Set<String> names;
+  private String[] nameFragments = new String[0];
+  private int arity = ANY_ARITY;
+  private boolean resolvedOnly;
+
+  private MethodMatcher() {
+  }
+
+  public static MethodMatcher create() {
+    return new MethodMatcher();
+  }
+
+  /**
+   * Methods declared by exactly one of the given types.
+   */
+  public MethodMatcher ownerType(String... fullyQualifiedNames) {
+    this.ownerTypes = fullyQualifiedNames.clone();
+    this.ownerSubtypes = false;
+    return this;
+  }
+
+  /**
+   * Methods declared by one of the given types or by one of their subtypes.
+   */
+  public MethodMatcher ownerSubtypeOf(String... fullyQualifiedNames) {
+    this.ownerTypes = fullyQualifiedNames.clone();
+    this.ownerSubtypes = true;
+    return this;
+  }
+
+  public MethodMatcher ownerSubtypeOf(List<String> fullyQualifiedNames) {
+    return ownerSubtypeOf(fullyQualifiedNames.toArray(new String[fullyQualifiedNames.size()]));
+  }
+
+  public MethodMatcher names(String... methodNames) {
+    this.names = new HashSet<>(Arrays.asList(methodNames));
+    return this;
+  }
+
+  /**
+   * Methods whose name contains one of the given fragments.
+   */
+  public MethodMatcher nameContaining(String... fragments) {
+    this.nameFragments = fragments.clone();
+    return this;
+  }
+
+  public MethodMatcher arity(int parameterCount) {
+    this.arity = parameterCount;
+    return this;
+  }
+
+  /**
+   * Never matches unresolved invocations, for names too common to be recognized without their owner. Matchers
+   * constraining the owner never match them anyway.
+   */
+  public MethodMatcher resolvedOnly() {
+    this.resolvedOnly = true;
+    return this;
+  }
+
+  public boolean matches(MethodInvocationTree invocation) {
+    Symbol symbol = invocation.symbol();
+    if (symbol.isMethodSymbol()) {
+      return matchesName(symbol.name())
+        && matchesArity(((Symbol.MethodSymbol) symbol).parameterTypes().size())
+        && matchesOwner(symbol.owner());
+    }
+    if (resolvedOnly || ownerTypes.length > 0) {
+      return false;
+    }
+    String name = invokedName(invocation.methodSelect());
+    return name != null && matchesName(name) && matchesArity(invocation.arguments().size());
+  }
+
+  /**
+   * Whether a matching invocation appears anywhere in the given tree, nested classes excepted.
+   */
+  public boolean isInvokedIn(@Nullable Tree tree) {
+    if (tree == null) {
+      return false;
+    }
+    InvocationFinder finder = new InvocationFinder(this);
+    finder.scan(tree);
+    return finder.found;
+  }
+
+  /**
+   * Same as {@link #matches(MethodInvocationTree)} for a tree of any kind, false when it is not an invocation.
+   */
+  public boolean matches(@Nullable Tree tree) {
+    return tree != null && tree.is(Tree.Kind.METHOD_INVOCATION) && matches((MethodInvocationTree) tree);
+  }
+
+  private boolean matchesName(String name) {
+    if (names != null && !names.contains(name)) {
+      return false;
+    }
+    if (nameFragments.length == 0) {
+      return true;
+    }
+    for (String fragment : nameFragments) {
+      if (name.contains(fragment)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean matchesArity(int parameterCount) {
+    return arity == ANY_ARITY || arity == parameterCount;
+  }
+
+  private boolean matchesOwner(@Nullable Symbol owner) {
+    if (ownerTypes.length == 0) {
+      return true;
+    }
+    if (owner == null || owner.type() == null) {
+      return false;
+    }
+    Type ownerType = owner.type();
+    for (String ownerName : ownerTypes) {
+      if (ownerSubtypes ? ownerType.isSubtypeOf(ownerName) : ownerType.is(ownerName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Nullable
+  private static String invokedName(ExpressionTree methodSelect) {
+    if (methodSelect.is(Tree.Kind.MEMBER_SELECT)) {
+      return ((MemberSelectExpressionTree) methodSelect).identifier().name();
+    }
+    if (methodSelect.is(Tree.Kind.IDENTIFIER)) {
+      return ((IdentifierTree) methodSelect).name();
+    }
+    return null;
+  }
+
+  private static class InvocationFinder extends BaseTreeVisitor {
+
+    private final MethodMatcher matcher;
+    private boolean found;
+
+    InvocationFinder(MethodMatcher matcher) {
+      this.matcher = matcher;
+    }
+
+    @Override
+    protected void scan(@Nullable Tree tree) {
+      if (!found) {
+        super.scan(tree);
+      }
+    }
+
+    @Override
+    public void visitMethodInvocation(MethodInvocationTree tree) {
+      if (matcher.matches(tree)) {
+        found = true;
+      } else {
+        super.visitMethodInvocation(tree);
+      }
+    }
+
+    @Override
+    public void visitClass(ClassTree tree) {
+      // invocations of nested and anonymous classes belong to their own methods
+    }
+  }
+}
@@ -22,17 +22,17 @@ package org.sonar.samples.java.checks;
 import java.util.Collections;
 import java.util.List;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.semantic.Symbol.MethodSymbol;
 import org.sonar.plugins.java.api.semantic.Type;
 import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
 
 @Rule(key = "AvoidMethodWithSameTypeInArgument")
 /**
  * To use subsctiption visitor, just extend the IssuableSubscriptionVisitor.
  */
-public class MyCustomSubscriptionRule extends IssuableSubscriptionVisitor {
+public class MyCustomSubscriptionRule extends DispatchedVisitor {
 
   @Override
   public List<Tree.Kind> nodesToVisit() {
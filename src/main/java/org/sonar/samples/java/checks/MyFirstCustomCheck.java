@@ -3,12 +3,12 @@ package org.sonar.samples.java.checks;
 import com.google.common.collect.ImmutableList;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.semantic.Type;
 import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.Tree.Kind;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
 
 import java.util.List;
 
@@ -17,7 +17,7 @@ import java.util.List;
         description = "For a method having a single parameter, the types of its return value and its parameter should never be the same.",
         priority = Priority.CRITICAL,
         tags = {"bug"})
-public class MyFirstCustomCheck extends IssuableSubscriptionVisitor {
+public class MyFirstCustomCheck extends DispatchedVisitor {
 
     @Override
     public List<Kind> nodesToVisit() {
@@ -21,29 +21,39 @@ package org.sonar.samples.java.checks;
 
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.semantic.Type;
 import org.sonar.plugins.java.api.tree.*;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
+import org.sonar.samples.java.index.ClasspathIndex;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Rule(key = "pfe-custom-rules:PasswordEncoderRule",
         name = "Password Encoder Check",
         description = "Ensure proper encoding for sensitive data, such as passwords, using secure hash algorithms.",
         priority = Priority.CRITICAL,
         tags = {"security", "authentication"})
-public class PasswordEncoderRule extends IssuableSubscriptionVisitor {
+public class PasswordEncoderRule extends DispatchedVisitor {
+
+    private static final String PASSWORD_ENCODER = "org.springframework.security.crypto.password.PasswordEncoder";
+    private static final String DELEGATING_ENCODER = "DelegatingPasswordEncoder";
 
     // Encodeurs forts et recommandés
     private static final Set<String> SECURE_ENCODERS = new HashSet<>(Arrays.asList(
             "BCryptPasswordEncoder",
             "Argon2PasswordEncoder",
             "PBKDF2PasswordEncoder",
+            "Pbkdf2PasswordEncoder",
             "SCryptPasswordEncoder"
     ));
 
@@ -52,10 +62,29 @@ public class PasswordEncoderRule extends IssuableSubscriptionVisitor {
             "NoOpPasswordEncoder",
             "MessageDigestPasswordEncoder",
             "MD5PasswordEncoder",
+            "Md4PasswordEncoder",
             "SHA1PasswordEncoder",
+            "LdapShaPasswordEncoder",
             "StandardPasswordEncoder"
     ));
 
+    // Identifiants d'encodage de DelegatingPasswordEncoder (PasswordEncoderFactories), sans le suffixe de version "@..."
+    private static final Set<String> SECURE_ENCODING_IDS = new HashSet<>(Arrays.asList("bcrypt", "pbkdf2", "scrypt", "argon2"));
+    private static final Set<String> WEAK_ENCODING_IDS = new HashSet<>(Arrays.asList("noop", "md4", "md5", "sha-1", "sha-256", "sha256", "ldap"));
+
+    private enum EncoderKind {
+        NOT_AN_ENCODER, SECURE, WEAK, DELEGATING, UNRECOGNIZED
+    }
+
+    // Classement des types par nom complet, calculé une fois par type pour toute l'analyse et partagé par les fichiers
+    private final Map<String, EncoderKind> encoderKinds = new ConcurrentHashMap<>();
+
+    // Le classement d'un encodeur dépend de sa hiérarchie, déclarée le cas échéant dans d'autres fichiers du projet
+    @Override
+    protected boolean dependsOnOtherFiles() {
+        return true;
+    }
+
     @Override
     public List<Tree.Kind> nodesToVisit() {
         // On visite les instanciations de classe (new) et les appels de méthodes
@@ -73,19 +102,28 @@ public class PasswordEncoderRule extends IssuableSubscriptionVisitor {
 
     private void visitNewClass(NewClassTree newClassTree) {
         // Vérifier si la classe instanciée est un encodeur de mot de passe
-        if (isPasswordEncoder(newClassTree)) {
-            String encoderClassName = newClassTree.symbolType().name();
+        Type type = newClassTree.symbolType();
+        EncoderKind kind = encoderKind(type);
+        if (kind == EncoderKind.DELEGATING) {
+            // Un encodeur délégant vaut l'algorithme qu'il utilise pour encoder
+            kind = delegatedKind(newClassTree);
+        }
+        String encoderClassName = type.name();
 
-            if (isWeakPasswordEncoder(encoderClassName)) {
-                reportIssue(newClassTree, "The encoder " + encoderClassName + " is considered weak or insecure. Use a secure password encoder such as BCryptPasswordEncoder or Argon2PasswordEncoder.");
-            } else if (!isSecurePasswordEncoder(encoderClassName)) {
-                reportIssue(newClassTree, "Unrecognized password encoder. Consider using a secure password encoder such as BCryptPasswordEncoder.");
-            }
+        if (kind == EncoderKind.WEAK) {
+            reportIssue(newClassTree, "The encoder " + encoderClassName + " is considered weak or insecure. Use a secure password encoder such as BCryptPasswordEncoder or Argon2PasswordEncoder.");
+        } else if (kind == EncoderKind.UNRECOGNIZED) {
+            reportIssue(newClassTree, "Unrecognized password encoder. Consider using a secure password encoder such as BCryptPasswordEncoder.");
         }
     }
 
     private void visitMethodInvocation(MethodInvocationTree methodInvocationTree) {
-        Symbol.MethodSymbol methodSymbol = (Symbol.MethodSymbol) methodInvocationTree.symbolType();
+        Symbol symbol = methodInvocationTree.symbol();
+        if (!symbol.isMethodSymbol()) {
+            // Méthode non résolue
+            return;
+        }
+        Symbol.MethodSymbol methodSymbol = (Symbol.MethodSymbol) symbol;
         String methodName = methodSymbol.name();
 
         if (isWeakHashMethod(methodName)) {
@@ -97,9 +135,101 @@ public class PasswordEncoderRule extends IssuableSubscriptionVisitor {
         }
     }
 
-    private boolean isPasswordEncoder(NewClassTree newClassTree) {
-        Type type = newClassTree.symbolType();
-        return type.isSubtypeOf("org.springframework.security.crypto.password.PasswordEncoder");
+    /**
+     * Classement d'un type, après un seul parcours de ses supertypes : le résultat de chaque supertype est gardé, et
+     * les types suivants de la même hiérarchie s'arrêtent au premier supertype déjà classé.
+     */
+    private EncoderKind encoderKind(Type type) {
+        if (type.isUnknown()) {
+            return EncoderKind.NOT_AN_ENCODER;
+        }
+        return encoderKind(type.fullyQualifiedName(), type);
+    }
+
+    private EncoderKind encoderKind(String fullyQualifiedName, @Nullable Type type) {
+        EncoderKind kind = encoderKinds.get(fullyQualifiedName);
+        if (kind == null) {
+            // Pas de computeIfAbsent : le calcul classe aussi les supertypes, dans la même map
+            kind = classify(fullyQualifiedName, type);
+            encoderKinds.put(fullyQualifiedName, kind);
+        }
+        return kind;
+    }
+
+    private EncoderKind classify(String fullyQualifiedName, @Nullable Type type) {
+        boolean isEncoder = PASSWORD_ENCODER.equals(fullyQualifiedName);
+        EncoderKind inherited = null;
+        // La superclasse d'abord : l'encodeur connu le plus proche l'emporte
+        for (Supertype supertype : supertypes(fullyQualifiedName, type)) {
+            EncoderKind kind = encoderKind(supertype.name, supertype.type);
+            isEncoder |= kind != EncoderKind.NOT_AN_ENCODER;
+            if (inherited == null && kind != EncoderKind.NOT_AN_ENCODER && kind != EncoderKind.UNRECOGNIZED) {
+                inherited = kind;
+            }
+        }
+        if (!isEncoder) {
+            return EncoderKind.NOT_AN_ENCODER;
+        }
+        String simpleName = fullyQualifiedName.substring(Math.max(fullyQualifiedName.lastIndexOf('.'), fullyQualifiedName.lastIndexOf('$')) + 1);
+        if (isWeakPasswordEncoder(simpleName)) {
+            return EncoderKind.WEAK;
+        } else if (isSecurePasswordEncoder(simpleName)) {
+            return EncoderKind.SECURE;
+        } else if (DELEGATING_ENCODER.equals(simpleName)) {
+            return EncoderKind.DELEGATING;
+        }
+        return inherited == null ? EncoderKind.UNRECOGNIZED : inherited;
+    }
+
+    private static final class Supertype {
+        private final String name;
+        @Nullable
+        private final Type type;
+
+        private Supertype(String name, @Nullable Type type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+
+    private static List<Supertype> supertypes(String fullyQualifiedName, @Nullable Type type) {
+        List<Supertype> supertypes = new ArrayList<>();
+        // Les classes des jars sont lues dans l'index, sans charger le bytecode de tous leurs supertypes
+        ClasspathIndex classpath = ClasspathIndex.current();
+        if (classpath.contains(fullyQualifiedName)) {
+            for (String name : classpath.supertypes(fullyQualifiedName)) {
+                supertypes.add(new Supertype(name, null));
+            }
+        } else if (type != null) {
+            Symbol.TypeSymbol symbol = type.symbol();
+            Type superClass = symbol.superClass();
+            if (superClass != null && !superClass.isUnknown()) {
+                supertypes.add(new Supertype(superClass.fullyQualifiedName(), superClass));
+            }
+            for (Type superInterface : symbol.interfaces()) {
+                if (!superInterface.isUnknown()) {
+                    supertypes.add(new Supertype(superInterface.fullyQualifiedName(), superInterface));
+                }
+            }
+        }
+        return supertypes;
+    }
+
+    private static EncoderKind delegatedKind(NewClassTree newClassTree) {
+        // new DelegatingPasswordEncoder("MD5", encoders) : l'identifiant est le premier argument
+        if (newClassTree.arguments().isEmpty() || !newClassTree.arguments().get(0).is(Tree.Kind.STRING_LITERAL)) {
+            return EncoderKind.SECURE;
+        }
+        String literal = ((LiteralTree) newClassTree.arguments().get(0)).value();
+        String id = literal.substring(1, literal.length() - 1).toLowerCase(Locale.ROOT);
+        int version = id.indexOf('@');
+        if (version >= 0) {
+            id = id.substring(0, version);
+        }
+        if (WEAK_ENCODING_IDS.contains(id)) {
+            return EncoderKind.WEAK;
+        }
+        return SECURE_ENCODING_IDS.contains(id) ? EncoderKind.SECURE : EncoderKind.UNRECOGNIZED;
     }
 
     private boolean isWeakHashMethod(String methodName) {
@@ -109,7 +239,7 @@ public class PasswordEncoderRule extends IssuableSubscriptionVisitor {
     private boolean isUsingSecureEncoder(MethodInvocationTree methodInvocationTree) {
         // Vérifier si un encodeur sécurisé est utilisé
         Optional<Symbol> encoderSymbol = methodInvocationTree.symbolType().symbol().lookupSymbols("passwordEncoder").stream().findFirst();
-        return encoderSymbol.isPresent() && SECURE_ENCODERS.contains(encoderSymbol.get().type().name());
+        return encoderSymbol.isPresent() && encoderKind(encoderSymbol.get().type()) == EncoderKind.SECURE;
     }
 
     private boolean isCriticalMethod(Symbol.MethodSymbol methodSymbol) {
@@ -19,49 +19,124 @@
  */
 package org.sonar.samples.java.checks;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.List;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
 import org.sonar.plugins.java.api.tree.Tree;
 
+/**
+ * Prints the AST as an indented list of node names.
+ * The output is streamed to a writer and stops after a maximum number of characters,
+ * so that dumping a large file never holds its whole text in memory.
+ */
 public class PrinterVisitor extends BaseTreeVisitor {
 
   private static final int INDENT_SPACES = 2;
 
-  private final StringBuilder sb;
+  private static final String TRUNCATED = "\n... truncated\n";
+
+  private static final ClassValue<String> NODE_NAMES = new ClassValue<String>() {
+    @Override
+    protected String computeValue(Class<?> type) {
+      Class<?>[] interfaces = type.getInterfaces();
+      return interfaces.length > 0 ? interfaces[0].getSimpleName() : null;
+    }
+  };
+
+  private final Writer out;
+  private final long maxChars;
+  private long written;
+  private boolean pendingNewLine;
   private int indentLevel;
 
-  public PrinterVisitor() {
-    sb = new StringBuilder();
-    indentLevel = 0;
+  public PrinterVisitor(Writer out, long maxChars) {
+    this.out = out;
+    this.maxChars = maxChars;
   }
 
   public static String print(Tree tree) {
-    PrinterVisitor pv = new PrinterVisitor();
-    pv.scan(tree);
-    return pv.sb.toString();
+    StringWriter writer = new StringWriter();
+    try {
+      print(tree, writer, Long.MAX_VALUE);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return writer.toString();
+  }
+
+  /**
+   * Streams the tree to the given writer, truncating the output after {@code maxChars} characters.
+   */
+  public static void print(Tree tree, Writer out, long maxChars) throws IOException {
+    PrinterVisitor pv = new PrinterVisitor(out, maxChars);
+    try {
+      pv.scan(tree);
+      pv.endLine();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private boolean isFull() {
+    return written > maxChars;
   }
 
-  private StringBuilder indent() {
-    return sb.append(StringUtils.leftPad("", INDENT_SPACES * indentLevel));
+  private void write(String text) {
+    if (isFull()) {
+      return;
+    }
+    try {
+      out.write(text);
+      written += text.length();
+      if (isFull()) {
+        out.write(TRUNCATED);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void endLine() {
+    if (pendingNewLine) {
+      pendingNewLine = false;
+      write("\n");
+    }
+  }
+
+  private void line(String text) {
+    endLine();
+    write(StringUtils.repeat(" ", INDENT_SPACES * indentLevel));
+    write(text);
+    pendingNewLine = true;
   }
 
   @Override
   protected void scan(List<? extends Tree> trees) {
-    if (!trees.isEmpty()) {
-      sb.deleteCharAt(sb.length() - 1);
-      sb.append(" : [\n");
+    if (!trees.isEmpty() && !isFull()) {
+      // the list opens on the line of the node owning it
+      pendingNewLine = false;
+      write(" : [");
+      pendingNewLine = true;
       super.scan(trees);
-      indent().append("]\n");
+      line("]");
     }
   }
 
   @Override
   protected void scan(@Nullable Tree tree) {
-    if (tree != null && tree.getClass().getInterfaces() != null && tree.getClass().getInterfaces().length > 0) {
-      String nodeName = tree.getClass().getInterfaces()[0].getSimpleName();
-      indent().append(nodeName).append("\n");
+    if (isFull()) {
+      return;
+    }
+    if (tree != null) {
+      String nodeName = NODE_NAMES.get(tree.getClass());
+      if (nodeName != null) {
+        line(nodeName);
+      }
     }
     indentLevel++;
     super.scan(tree);
@@ -20,13 +20,18 @@
 package org.sonar.samples.java.checks;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.NewClassTree;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.MethodInvocationTree;
 import org.sonar.plugins.java.api.tree.IdentifierTree;
+import org.sonar.plugins.java.api.tree.ExpressionStatementTree;
+import org.sonar.plugins.java.api.tree.ExpressionTree;
+import org.sonar.plugins.java.api.tree.LiteralTree;
+import org.sonar.plugins.java.api.tree.MemberSelectExpressionTree;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
+import org.sonar.samples.java.dispatch.TriggerTokens;
 
 import java.util.Arrays;
 import java.util.List;
@@ -36,7 +41,14 @@ import java.util.List;
         description = "Ensure the authentication entry points are securely configured to prevent unauthorized access.",
         priority = Priority.CRITICAL,
         tags = {"security", "authentication"})
-public class SecureAuthEntryPointCheck extends IssuableSubscriptionVisitor {
+@TriggerTokens({"AuthenticationEntryPoint"})
+public class SecureAuthEntryPointCheck extends DispatchedVisitor {
+
+    // responses and loggers are recognized by the hierarchy of the called type, which may be declared in another file of the project
+    @Override
+    protected boolean dependsOnOtherFiles() {
+        return true;
+    }
 
     @Override
     public List<Tree.Kind> nodesToVisit() {
@@ -66,37 +78,47 @@ public class SecureAuthEntryPointCheck extends IssuableSubscriptionVisitor {
     }
 
 
+    private static final MethodMatcher SEND_ERROR = MethodMatcher.create()
+            .ownerSubtypeOf("javax.servlet.http.HttpServletResponse")
+            .names("sendError");
+    private static final MethodMatcher LOGGER_ERROR = MethodMatcher.create()
+            .ownerSubtypeOf(MethodMatcher.LOGGER_TYPES)
+            .names("error");
+
     private void checkCommenceMethod(MethodTree methodTree) {
+        if (methodTree.block() == null) {
+            return;
+        }
         for (Tree statement : methodTree.block().body()) {
-            if (statement instanceof MethodInvocationTree) {
-                MethodInvocationTree methodInvocation = (MethodInvocationTree) statement;
-                String methodName = methodInvocation.methodSelect().toString();
-                if (methodName.equals("sendError")) {
-                    // Check for HTTP status 401
-                    if (methodInvocation.arguments().get(0).toString().equals("HttpServletResponse.SC_UNAUTHORIZED")) {
-                        // Ensure exception is logged
-                        checkLogging(methodTree);
-                    } else {
-                        reportIssue(methodInvocation, "Ensure 'sendError' method uses HTTP status 401 for unauthorized errors.");
-                    }
+            if (statement.is(Tree.Kind.EXPRESSION_STATEMENT)
+                    && SEND_ERROR.matches(((ExpressionStatementTree) statement).expression())) {
+                MethodInvocationTree methodInvocation = (MethodInvocationTree) ((ExpressionStatementTree) statement).expression();
+                // Check for HTTP status 401
+                if (!methodInvocation.arguments().isEmpty() && isUnauthorizedStatus(methodInvocation.arguments().get(0))) {
+                    // Ensure exception is logged
+                    checkLogging(methodTree);
+                } else {
+                    reportIssue(methodInvocation, "Ensure 'sendError' method uses HTTP status 401 for unauthorized errors.");
                 }
             }
         }
     }
 
+    private static boolean isUnauthorizedStatus(ExpressionTree status) {
+        // HttpServletResponse.SC_UNAUTHORIZED, SC_UNAUTHORIZED (import statique) ou la valeur 401
+        if (status.is(Tree.Kind.MEMBER_SELECT)) {
+            return "SC_UNAUTHORIZED".equals(((MemberSelectExpressionTree) status).identifier().name());
+        }
+        if (status.is(Tree.Kind.IDENTIFIER)) {
+            return "SC_UNAUTHORIZED".equals(((IdentifierTree) status).name());
+        }
+        return status.is(Tree.Kind.INT_LITERAL) && "401".equals(((LiteralTree) status).value());
+    }
+
 
     private void checkLogging(MethodTree methodTree) {
         // Check for logging usage
-        boolean hasLogger = false;
-        for (Tree statement : methodTree.block().body()) {
-            if (statement instanceof MethodInvocationTree) {
-                MethodInvocationTree methodInvocation = (MethodInvocationTree) statement;
-                if (methodInvocation.methodSelect().toString().contains("logger.error")) {
-                    hasLogger = true;
-                }
-            }
-        }
-        if (!hasLogger) {
+        if (!LOGGER_ERROR.isInvokedIn(methodTree.block())) {
             reportIssue(methodTree, "Ensure that exceptions are logged using a logger.");
         }
     }
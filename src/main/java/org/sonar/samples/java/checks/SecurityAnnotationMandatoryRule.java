@@ -19,15 +19,14 @@
  */
 package org.sonar.samples.java.checks;
 
+import java.util.Arrays;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
-import org.sonar.plugins.java.api.JavaFileScanner;
-import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.semantic.Type;
 import org.sonar.plugins.java.api.tree.AnnotationTree;
-import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
 import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonar.plugins.java.api.tree.ExpressionTree;
@@ -37,51 +36,69 @@ import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.PackageDeclarationTree;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.TypeTree;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
 
 @Rule(key = "SecurityAnnotationMandatory")
-public class SecurityAnnotationMandatoryRule extends BaseTreeVisitor implements JavaFileScanner {
+public class SecurityAnnotationMandatoryRule extends DispatchedVisitor {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(SecurityAnnotationMandatoryRule.class);
 
   private static final String DEFAULT_VALUE = "MySecurityAnnotation";
-
-  private boolean implementsSpecificInterface = Boolean.FALSE;
-
-  private JavaFileScannerContext context;
+  private static final String SECURITY_INTERFACE = "MySecurityInterface";
 
   @RuleProperty(
     defaultValue = DEFAULT_VALUE,
     description = "Name of the mandatory annotation")
-  protected String name;
+  protected String name = DEFAULT_VALUE;
+
+  // kept for the file being analyzed only
+  private static final class FileState {
+    private boolean implementsSpecificInterface = Boolean.FALSE;
+  }
 
   @Override
-  public void scanFile(JavaFileScannerContext context) {
-    this.context = context;
-    scan(context.getTree());
+  public List<Tree.Kind> nodesToVisit() {
+    return Arrays.asList(Tree.Kind.COMPILATION_UNIT, Tree.Kind.CLASS, Tree.Kind.METHOD);
   }
 
   @Override
-  public void visitClass(ClassTree tree) {
+  public void visitNode(Tree tree) {
+    if (tree.is(Tree.Kind.COMPILATION_UNIT)) {
+      visitCompilationUnit((CompilationUnitTree) tree);
+    } else if (tree.is(Tree.Kind.CLASS)) {
+      visitClass((ClassTree) tree);
+    } else {
+      visitMethod((MethodTree) tree);
+    }
+  }
+
+  private void visitClass(ClassTree tree) {
     List<TypeTree> interfaces = tree.superInterfaces();
     for (TypeTree typeTree : interfaces) {
-      LOGGER.info("implements Interface: {}", typeTree);
-      if ("MySecurityInterface".equals(typeTree.toString())) {
-        implementsSpecificInterface = Boolean.TRUE;
+      LOGGER.trace("implements Interface: {}", typeTree.symbolType());
+      if (isSecurityInterface(typeTree)) {
+        fileState(FileState::new).implementsSpecificInterface = Boolean.TRUE;
       }
     }
-
-    super.visitClass(tree);
   }
 
-  @Override
-  public void visitCompilationUnit(CompilationUnitTree tree) {
+  /**
+   * Compares the resolved type, whatever its type arguments or the way it is written, and the name as written when the
+   * interface cannot be resolved.
+   */
+  private static boolean isSecurityInterface(TypeTree typeTree) {
+    Type type = typeTree.symbolType();
+    if (!type.isUnknown()) {
+      return SECURITY_INTERFACE.equals(type.name());
+    }
+    return typeTree.is(Tree.Kind.IDENTIFIER) && SECURITY_INTERFACE.equals(((IdentifierTree) typeTree).name());
+  }
 
+  private static void visitCompilationUnit(CompilationUnitTree tree) {
     PackageDeclarationTree packageDeclaration = tree.packageDeclaration();
-    if (packageDeclaration != null) {
+    if (packageDeclaration != null && LOGGER.isDebugEnabled()) {
       printPackageName(packageDeclaration.packageName());
     }
-
-    super.visitCompilationUnit(tree);
   }
 
   private static void printPackageName(ExpressionTree packageName) {
@@ -98,13 +115,12 @@ public class SecurityAnnotationMandatoryRule extends BaseTreeVisitor implements
       sb.insert(0, idt.name());
     }
 
-    LOGGER.info("PackageName: {}", sb);
+    LOGGER.debug("PackageName: {}", sb);
 
   }
 
-  @Override
-  public void visitMethod(MethodTree tree) {
-    if (implementsSpecificInterface) {
+  private void visitMethod(MethodTree tree) {
+    if (fileState(FileState::new).implementsSpecificInterface) {
       List<AnnotationTree> annotations = tree.modifiers().annotations();
 
       boolean isHavingMandatoryAnnotation = Boolean.FALSE;
@@ -113,7 +129,7 @@ public class SecurityAnnotationMandatoryRule extends BaseTreeVisitor implements
         TypeTree annotationType = annotationTree.annotationType();
         if (annotationType.is(Tree.Kind.IDENTIFIER)) {
           String annotationName = ((IdentifierTree) annotationType).name();
-          LOGGER.info("Method Name {}", annotationName);
+          LOGGER.trace("Method Name {}", annotationName);
 
           if (annotationName.equals(name)) {
             isHavingMandatoryAnnotation = Boolean.TRUE;
@@ -121,12 +137,9 @@ public class SecurityAnnotationMandatoryRule extends BaseTreeVisitor implements
         }
       }
       if (!isHavingMandatoryAnnotation) {
-        context.reportIssue(this, tree, String.format("Mandatory Annotation not set @%s", name));
+        reportIssue(tree, String.format("Mandatory Annotation not set @%s", name));
       }
 
     }
-    // The call to the super implementation allows to continue the visit of the AST.
-    // Be careful to always call this method to visit every node of the tree.
-    super.visitMethod(tree);
   }
 }
@@ -19,34 +19,50 @@
  */
 package org.sonar.samples.java.checks;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.CheckForNull;
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.JavaFileScanner;
-import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.semantic.SymbolMetadata;
-import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.semantic.Type;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+import org.sonar.plugins.java.api.tree.ImportClauseTree;
+import org.sonar.plugins.java.api.tree.ImportTree;
+import org.sonar.plugins.java.api.tree.MemberSelectExpressionTree;
 import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.TypeTree;
 import org.sonar.plugins.java.api.tree.VariableTree;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
+import org.sonar.samples.java.index.ClasspathIndex;
+import org.sonar.samples.java.index.EntityIndex;
+import org.sonar.samples.java.index.EntityKind;
 
 @Rule(key = "SpringControllerRequestMappingEntity")
-public class SpringControllerRequestMappingEntityRule extends BaseTreeVisitor implements JavaFileScanner {
-
-  private JavaFileScannerContext context;
+public class SpringControllerRequestMappingEntityRule extends DispatchedVisitor {
 
+  // whether a parameter is an entity depends on the annotations of its type, declared in another file of the project
   @Override
-  public void scanFile(JavaFileScannerContext context) {
-    this.context = context;
+  protected boolean dependsOnOtherFiles() {
+    return true;
+  }
 
-    scan(context.getTree());
+  @Override
+  public List<Tree.Kind> nodesToVisit() {
+    return Collections.singletonList(Tree.Kind.METHOD);
   }
 
   /**
-   * Overriding the visitor method to implement the logic of the rule.
-   * @param tree AST of the visited method.
+   * Implement the logic of the rule on each method delivered by the shared walk.
+   * @param node AST of the visited method.
    */
   @Override
-  public void visitMethod(MethodTree tree) {
+  public void visitNode(Tree node) {
+    MethodTree tree = (MethodTree) node;
     Symbol.MethodSymbol methodSymbol = tree.symbol();
 
     SymbolMetadata parentClassOwner = methodSymbol.owner().metadata();
@@ -57,13 +73,110 @@ public class SpringControllerRequestMappingEntityRule extends BaseTreeVisitor im
 
       for (VariableTree param : tree.parameters()) {
         TypeTree typeOfParam = param.type();
-        if (typeOfParam.symbolType().symbol().metadata().isAnnotatedWith("javax.persistence.Entity")) {
-          context.reportIssue(this, typeOfParam, String.format("Don't use %s here because it's an @Entity", typeOfParam.symbolType().name()));
+        EntityKind kind = entityKind(typeOfParam);
+        if (kind != null) {
+          reportIssue(typeOfParam, String.format("Don't use %s here because it's an @%s", simpleName(typeOfParam), kind.annotationName()));
         }
       }
 
     }
-    super.visitMethod(tree);
+  }
+
+  /**
+   * Entity types of the project are found in the {@link EntityIndex}, even when the semantic model cannot resolve them,
+   * and those of the library jars in the {@link ClasspathIndex}; the annotations of the resolved types cover the
+   * other classes of the class path.
+   */
+  @CheckForNull
+  private EntityKind entityKind(TypeTree typeTree) {
+    Type type = typeTree.symbolType();
+    if (type.isUnknown()) {
+      return EntityIndex.current().size() == 0 && ClasspathIndex.current().size() == 0 ? null : indexedKind(typeTree);
+    }
+    String fullyQualifiedName = type.fullyQualifiedName();
+    EntityKind kind = EntityIndex.current().kindOf(fullyQualifiedName);
+    if (kind != null) {
+      return kind;
+    }
+    ClasspathIndex classpath = ClasspathIndex.current();
+    if (classpath.contains(fullyQualifiedName)) {
+      return classpath.kindOf(fullyQualifiedName);
+    }
+    SymbolMetadata metadata = type.symbol().metadata();
+    for (EntityKind candidate : EntityKind.values()) {
+      for (String annotation : candidate.annotations()) {
+        if (metadata.isAnnotatedWith(annotation)) {
+          return candidate;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Resolves the name of an unknown type as the compiler would: fully qualified, then through the explicit imports,
+   * the package of the file and the on-demand imports. Nested types are named {@code Outer$Inner} in the indexes.
+   */
+  @CheckForNull
+  private EntityKind indexedKind(TypeTree typeTree) {
+    String name = qualifiedName(typeTree);
+    if (name.isEmpty()) {
+      return null;
+    }
+    EntityKind kind = indexedKind(name);
+    if (kind != null) {
+      return kind;
+    }
+    int dot = name.indexOf('.');
+    String first = dot < 0 ? name : name.substring(0, dot);
+    String nested = dot < 0 ? "" : ("$" + name.substring(dot + 1).replace('.', '$'));
+    CompilationUnitTree file = context().getTree();
+    List<String> imports = new ArrayList<>();
+    for (ImportClauseTree clause : file.imports()) {
+      if (clause.is(Tree.Kind.IMPORT) && !((ImportTree) clause).isStatic()) {
+        imports.add(qualifiedName(((ImportTree) clause).qualifiedIdentifier()));
+      }
+    }
+    for (String imported : imports) {
+      if (imported.endsWith("." + first)) {
+        return indexedKind(imported + nested);
+      }
+    }
+    String packageName = file.packageDeclaration() == null ? "" : (qualifiedName(file.packageDeclaration().packageName()) + ".");
+    kind = indexedKind(packageName + first + nested);
+    for (Iterator<String> onDemand = imports.iterator(); kind == null && onDemand.hasNext();) {
+      String imported = onDemand.next();
+      if (imported.endsWith(".*")) {
+        kind = indexedKind(imported.substring(0, imported.length() - 1) + first + nested);
+      }
+    }
+    return kind;
+  }
+
+  @CheckForNull
+  private static EntityKind indexedKind(String fullyQualifiedName) {
+    EntityKind kind = EntityIndex.current().kindOf(fullyQualifiedName);
+    return kind != null ? kind : ClasspathIndex.current().kindOf(fullyQualifiedName);
+  }
+
+  private static String simpleName(TypeTree typeTree) {
+    Type type = typeTree.symbolType();
+    if (!type.isUnknown()) {
+      return type.name();
+    }
+    String name = qualifiedName(typeTree);
+    return name.substring(name.lastIndexOf('.') + 1);
+  }
+
+  private static String qualifiedName(Tree tree) {
+    if (tree.is(Tree.Kind.MEMBER_SELECT)) {
+      MemberSelectExpressionTree memberSelect = (MemberSelectExpressionTree) tree;
+      return qualifiedName(memberSelect.expression()) + "." + memberSelect.identifier().name();
+    }
+    if (tree.is(Tree.Kind.IDENTIFIER)) {
+      return ((IdentifierTree) tree).name();
+    }
+    return "";
   }
 
 }
@@ -0,0 +1,142 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.dispatch;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.PropertyType;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.config.PropertyDefinition;
+import org.sonar.api.utils.WildcardPattern;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.samples.java.checks.PrinterVisitor;
+
+/**
+ * Diagnostic mode writing the AST of the selected files, one output file per source file.
+ * Off by default: it is enabled by {@link #ENABLED_KEY} and restricted to the files matching {@link #FILES_KEY}.
+ */
+public final class AstDump {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AstDump.class);
+
+  public static final String ENABLED_KEY = "sonar.pfe.astDump.enabled";
+  public static final String FILES_KEY = "sonar.pfe.astDump.files";
+  public static final String DIRECTORY_KEY = "sonar.pfe.astDump.directory";
+  public static final String MAX_CHARS_KEY = "sonar.pfe.astDump.maxChars";
+
+  private static final String DEFAULT_FILES = "**/*.java";
+  private static final int DEFAULT_MAX_CHARS = 4_000_000;
+
+  private static final AstDump DISABLED = new AstDump(null, Paths.get(""), 0);
+  private static volatile AstDump current = DISABLED;
+
+  @Nullable
+  private final WildcardPattern[] files;
+  private final Path directory;
+  private final long maxChars;
+
+  private AstDump(@Nullable WildcardPattern[] files, Path directory, long maxChars) {
+    this.files = files;
+    this.directory = directory;
+    this.maxChars = maxChars;
+  }
+
+  public static void configure(Configuration configuration) {
+    if (!configuration.getBoolean(ENABLED_KEY).orElse(false)) {
+      current = DISABLED;
+      return;
+    }
+    String[] patterns = configuration.getStringArray(FILES_KEY);
+    if (patterns.length == 0) {
+      patterns = new String[] {DEFAULT_FILES};
+    }
+    String defaultDirectory = configuration.get("sonar.working.directory").orElse(".scannerwork") + "/pfe-ast-dump";
+    current = new AstDump(
+      WildcardPattern.create(patterns),
+      Paths.get(configuration.get(DIRECTORY_KEY).orElse(defaultDirectory)),
+      configuration.getInt(MAX_CHARS_KEY).orElse(DEFAULT_MAX_CHARS));
+    LOGGER.info("AST dump enabled for {} into {}", Arrays.toString(patterns), current.directory.toAbsolutePath());
+  }
+
+  public static List<PropertyDefinition> properties() {
+    return Arrays.asList(
+      PropertyDefinition.builder(ENABLED_KEY)
+        .name("AST dump")
+        .description("Write the AST of the analyzed files, for debugging custom rules.")
+        .type(PropertyType.BOOLEAN)
+        .defaultValue("false")
+        .hidden()
+        .build(),
+      PropertyDefinition.builder(FILES_KEY)
+        .name("AST dump files")
+        .description("Patterns of the files whose AST is written when the AST dump is enabled.")
+        .defaultValue(DEFAULT_FILES)
+        .multiValues(true)
+        .hidden()
+        .build(),
+      PropertyDefinition.builder(DIRECTORY_KEY)
+        .name("AST dump directory")
+        .description("Directory receiving the AST dumps, defaults to pfe-ast-dump in the working directory.")
+        .hidden()
+        .build(),
+      PropertyDefinition.builder(MAX_CHARS_KEY)
+        .name("AST dump maximum size")
+        .description("Number of characters after which the dump of a file is truncated.")
+        .type(PropertyType.INTEGER)
+        .defaultValue(Integer.toString(DEFAULT_MAX_CHARS))
+        .hidden()
+        .build());
+  }
+
+  static void dumpIfSelected(JavaFileScannerContext context) {
+    AstDump dump = current;
+    if (dump.files == null || context.getFile() == null) {
+      return;
+    }
+    String path = context.getFile().getPath().replace('\\', '/');
+    if (WildcardPattern.match(dump.files, path)) {
+      dump.write(context);
+    }
+  }
+
+  private void write(JavaFileScannerContext context) {
+    String fileKey = context.getFileKey() != null ? context.getFileKey() : context.getFile().getName();
+    // keys are "module:path", or absolute paths outside of a scanner: both are written below the dump directory
+    String relativePath = fileKey.replace('\\', '/').replace(':', '/').replaceFirst("^/+", "");
+    Path output = directory.resolve(relativePath + ".ast");
+    try {
+      Files.createDirectories(output.getParent());
+      try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+        PrinterVisitor.print(context.getTree(), writer, maxChars);
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Unable to write the AST dump of " + fileKey, e);
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.dispatch;
+
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.samples.java.profile.IssueCountingContext;
+
+/**
+ * What one check did, and keeps, while a file is scanned: created for each check walked on a {@link FileScan}.
+ */
+final class CheckScan {
+
+  final JavaFileScannerContext context;
+  @Nullable
+  final IssueCountingContext issueCounter;
+
+  // filled when the walk is profiled
+  long nanos;
+  long nodes;
+  // threw on the file, and was handed no other node of it
+  boolean failed;
+
+  // see DispatchedVisitor#fileState
+  @Nullable
+  Object state;
+
+  CheckScan(JavaFileScannerContext context, @Nullable IssueCountingContext issueCounter) {
+    this.context = issueCounter != null ? issueCounter : context;
+    this.issueCounter = issueCounter;
+  }
+}
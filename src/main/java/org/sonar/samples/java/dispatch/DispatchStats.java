@@ -0,0 +1,70 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.dispatch;
+
+/**
+ * Nodes visited by a {@link SharedTreeWalk}, compared to what one walk per check would have visited,
+ * and issues reported by its checks once their duplicates are merged.
+ */
+public class DispatchStats {
+
+  private long walks;
+  private long nodesVisited;
+  private long nodesVisitedWithoutSharing;
+  private long issues;
+  private long duplicatesMerged;
+
+  synchronized void add(long nodes, int checks) {
+    walks++;
+    nodesVisited += nodes;
+    nodesVisitedWithoutSharing += nodes * checks;
+  }
+
+  synchronized void addIssues(int reported, int merged) {
+    issues += reported;
+    duplicatesMerged += merged;
+  }
+
+  public synchronized long walks() {
+    return walks;
+  }
+
+  public synchronized long nodesVisited() {
+    return nodesVisited;
+  }
+
+  public synchronized long nodesVisitedWithoutSharing() {
+    return nodesVisitedWithoutSharing;
+  }
+
+  public synchronized long issues() {
+    return issues;
+  }
+
+  public synchronized long duplicatesMerged() {
+    return duplicatesMerged;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return walks + " walks, " + nodesVisited + " nodes visited (" + nodesVisitedWithoutSharing + " without shared walk), "
+      + issues + " issues (" + duplicatesMerged + " duplicates merged)";
+  }
+}
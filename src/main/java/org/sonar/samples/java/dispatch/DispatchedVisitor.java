@@ -0,0 +1,174 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.dispatch;
+
+import java.util.List;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.samples.java.cache.ResultCache;
+
+/**
+ * Subscription visitor whose nodes are delivered by a {@link SharedTreeWalk} instead of a walk of its own.
+ * The first check of the plugin receiving a file walks it once and dispatches every node to all the
+ * checks subscribed to its kind, the other checks then find the file already visited.
+ * Tokens and trivia are not dispatched.
+ * <p>
+ * A check may be walked on several files at once by {@link SharedTreeWalk#scan}: what it keeps about the
+ * file being analyzed belongs in {@link #fileState}, and the file is reached through {@link #context()}
+ * rather than the {@code context} field.
+ * <p>
+ * Issues reported through this visitor are passed on once the file is walked, an issue reported again at the same
+ * location with the same message being merged into the first one.
+ */
+public abstract class DispatchedVisitor extends IssuableSubscriptionVisitor {
+
+  @Nullable
+  private volatile SharedTreeWalk walk;
+  private String resultSignature;
+
+  /**
+   * Walks the file like {@link IssuableSubscriptionVisitor#scanFile}, without keeping its context in the {@code context}
+   * field: a check is kept for the whole analysis, must not keep the tree of a file alive once done with it, and may be
+   * handed other files by other threads meanwhile. The semantic model is not kept either, {@link #hasSemantic()} reading
+   * it from the context.
+   */
+  @Override
+  public void scanFile(JavaFileScannerContext context) {
+    Tree tree = context.getTree();
+    walk(tree).visitFile(this, context, tree);
+  }
+
+  private SharedTreeWalk walk(Tree file) {
+    SharedTreeWalk joined = walk;
+    if (joined == null) {
+      synchronized (this) {
+        if (walk == null) {
+          walk = SharedTreeWalk.join(this, file);
+        }
+        joined = walk;
+      }
+    }
+    return joined;
+  }
+
+  @CheckForNull
+  SharedTreeWalk sharedWalk() {
+    return walk;
+  }
+
+  /**
+   * Context of the file this check is walking on the current thread.
+   */
+  protected JavaFileScannerContext context() {
+    CheckScan scan = checkScan();
+    return scan != null ? scan.context : context;
+  }
+
+  /**
+   * State of this check for the file it is walking on the current thread, created on first use by {@code initialState}
+   * and dropped with the file.
+   *
+   * @throws IllegalStateException when called outside of a walk
+   */
+  @SuppressWarnings("unchecked")
+  protected <S> S fileState(Supplier<S> initialState) {
+    CheckScan scan = checkScan();
+    if (scan == null) {
+      throw new IllegalStateException(getClass().getSimpleName() + " is not walking a file");
+    }
+    if (scan.state == null) {
+      scan.state = initialState.get();
+    }
+    return (S) scan.state;
+  }
+
+  /**
+   * State of the file walked on the current thread shared by all the checks, under its type: created on first use by
+   * {@code initialState} and dropped with the file.
+   *
+   * @throws IllegalStateException when called outside of a walk
+   */
+  protected <S> S sharedFileState(Class<S> type, Supplier<S> initialState) {
+    FileScan fileScan = FileScan.current();
+    if (fileScan == null) {
+      throw new IllegalStateException(getClass().getSimpleName() + " is not walking a file");
+    }
+    return type.cast(fileScan.shared.computeIfAbsent(type, k -> initialState.get()));
+  }
+
+  @CheckForNull
+  private CheckScan checkScan() {
+    FileScan fileScan = FileScan.current();
+    return fileScan != null ? fileScan.of(this) : null;
+  }
+
+  @Override
+  public boolean hasSemantic() {
+    return context().getSemanticModel() != null;
+  }
+
+  @Override
+  public void addIssue(int line, String message) {
+    context().addIssue(line, this, message);
+  }
+
+  @Override
+  public void addIssueOnFile(String message) {
+    context().addIssueOnFile(this, message);
+  }
+
+  @Override
+  public void reportIssue(Tree tree, String message) {
+    context().reportIssue(this, tree, message);
+  }
+
+  @Override
+  public void reportIssue(Tree tree, String message, List<JavaFileScannerContext.Location> flow, @Nullable Integer cost) {
+    context().reportIssue(this, tree, message, flow, cost);
+  }
+
+  @Override
+  public void reportIssue(Tree startTree, Tree endTree, String message) {
+    context().reportIssue(this, startTree, endTree, message);
+  }
+
+  /**
+   * Checks whose issues on a file depend on the other files of the analysis must return {@code true}:
+   * their results are then never replayed by the {@link ResultCache}.
+   */
+  protected boolean dependsOnOtherFiles() {
+    return false;
+  }
+
+  boolean isSyntaxOnly() {
+    return LatencyBudget.isSyntaxOnly(getClass());
+  }
+
+  String resultSignature() {
+    if (resultSignature == null) {
+      resultSignature = ResultCache.signature(this);
+    }
+    return resultSignature;
+  }
+}
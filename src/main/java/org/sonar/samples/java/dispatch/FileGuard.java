@@ -0,0 +1,341 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.dispatch;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.sonar.api.PropertyType;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.config.PropertyDefinition;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.AnnotationTree;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+import org.sonar.plugins.java.api.tree.MemberSelectExpressionTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.samples.java.matching.TermMatcher;
+
+/**
+ * Sorts out the files not worth the analysis of every check, before any check runs on them: files above a size or
+ * a number of lines are skipped, generated files are skipped by default, and long files are degraded, only the
+ * syntax-only checks running on them. Files are recognized as generated by a {@code @Generated} or
+ * {@code @StaticMetamodel} annotation on their first type, or by a marker such as "DO NOT EDIT" in the comments
+ * heading the file or that type.
+ * <p>
+ * Each file skipped or degraded is logged with the reason, and counted for the summary of the analysis.
+ */
+public final class FileGuard {
+
+  public static final String ENABLED_KEY = "sonar.pfe.fileGuard.enabled";
+  public static final String SKIP_KB_KEY = "sonar.pfe.fileGuard.skipKb";
+  public static final String SKIP_LINES_KEY = "sonar.pfe.fileGuard.skipLines";
+  public static final String DEGRADE_LINES_KEY = "sonar.pfe.fileGuard.degradeLines";
+  public static final String GENERATED_KEY = "sonar.pfe.fileGuard.generated";
+  public static final String MARKERS_KEY = "sonar.pfe.fileGuard.generatedMarkers";
+
+  private static final int DEFAULT_SKIP_KB = 1024;
+  private static final int DEFAULT_SKIP_LINES = 20_000;
+  private static final int DEFAULT_DEGRADE_LINES = 5_000;
+  private static final String DEFAULT_MARKERS = "DO NOT EDIT,DO NOT MODIFY,@generated,auto-generated,autogenerated,generated by";
+  private static final List<String> GENERATED_ANNOTATIONS = Arrays.asList("Generated", "StaticMetamodel");
+
+  private static final Verdict ANALYZED = new Verdict(Action.ANALYZE, null, "");
+
+  private static volatile FileGuard current = new FileGuard(true, DEFAULT_SKIP_KB, DEFAULT_SKIP_LINES, DEFAULT_DEGRADE_LINES, Action.SKIP,
+    TermMatcher.ofCommaSeparated(DEFAULT_MARKERS));
+
+  private final boolean enabled;
+  private final long skipLength;
+  private final int skipLines;
+  private final int degradeLines;
+  private final Action generatedAction;
+  private final TermMatcher markers;
+  // by action and reason, for the summary
+  private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+
+  private FileGuard(boolean enabled, int skipKb, int skipLines, int degradeLines, Action generatedAction, TermMatcher markers) {
+    this.enabled = enabled;
+    this.skipLength = skipKb <= 0 ? Long.MAX_VALUE : skipKb * 1024L;
+    this.skipLines = skipLines <= 0 ? Integer.MAX_VALUE : skipLines;
+    this.degradeLines = degradeLines <= 0 ? Integer.MAX_VALUE : degradeLines;
+    this.generatedAction = generatedAction;
+    this.markers = markers;
+  }
+
+  /**
+   * What happens to a file.
+   */
+  public enum Action {
+    ANALYZE, DEGRADE, SKIP
+  }
+
+  /**
+   * Why a file is not fully analyzed.
+   */
+  public enum Reason {
+    SIZE("size"),
+    LINES("line count"),
+    GENERATED_ANNOTATION("generated annotation"),
+    GENERATED_MARKER("generated code marker");
+
+    private final String label;
+
+    Reason(String label) {
+      this.label = label;
+    }
+  }
+
+  /**
+   * Applies the settings of the analysis about to run.
+   */
+  public static void configure(Configuration configuration) {
+    String generated = configuration.get(GENERATED_KEY).orElse(Action.SKIP.name());
+    Action generatedAction;
+    try {
+      generatedAction = Action.valueOf(generated.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid value of " + GENERATED_KEY + ": '" + generated + "', expected analyze, degrade or skip", e);
+    }
+    current = new FileGuard(
+      configuration.getBoolean(ENABLED_KEY).orElse(true),
+      configuration.getInt(SKIP_KB_KEY).orElse(DEFAULT_SKIP_KB),
+      configuration.getInt(SKIP_LINES_KEY).orElse(DEFAULT_SKIP_LINES),
+      configuration.getInt(DEGRADE_LINES_KEY).orElse(DEFAULT_DEGRADE_LINES),
+      generatedAction,
+      TermMatcher.ofCommaSeparated(configuration.get(MARKERS_KEY).orElse(DEFAULT_MARKERS)));
+  }
+
+  public static FileGuard current() {
+    return current;
+  }
+
+  public static List<PropertyDefinition> properties() {
+    return Arrays.asList(
+      PropertyDefinition.builder(ENABLED_KEY)
+        .name("File guard")
+        .description("Skip or degrade the analysis of huge and generated files before the custom rules run on them.")
+        .type(PropertyType.BOOLEAN)
+        .defaultValue("true")
+        .hidden()
+        .build(),
+      PropertyDefinition.builder(SKIP_KB_KEY)
+        .name("File guard size limit")
+        .description("Size in kilobytes above which a file is skipped, 0 for no limit.")
+        .type(PropertyType.INTEGER)
+        .defaultValue(String.valueOf(DEFAULT_SKIP_KB))
+        .hidden()
+        .build(),
+      PropertyDefinition.builder(SKIP_LINES_KEY)
+        .name("File guard line limit")
+        .description("Number of lines above which a file is skipped, 0 for no limit.")
+        .type(PropertyType.INTEGER)
+        .defaultValue(String.valueOf(DEFAULT_SKIP_LINES))
+        .hidden()
+        .build(),
+      PropertyDefinition.builder(DEGRADE_LINES_KEY)
+        .name("File guard degraded line limit")
+        .description("Number of lines above which only the syntax-only rules run on a file, 0 for no limit.")
+        .type(PropertyType.INTEGER)
+        .defaultValue(String.valueOf(DEFAULT_DEGRADE_LINES))
+        .hidden()
+        .build(),
+      PropertyDefinition.builder(GENERATED_KEY)
+        .name("File guard for generated files")
+        .description("What to do with generated files: analyze, degrade to the syntax-only rules, or skip.")
+        .defaultValue("skip")
+        .hidden()
+        .build(),
+      PropertyDefinition.builder(MARKERS_KEY)
+        .name("File guard generated code markers")
+        .description("Comma separated markers which, found in the header of a file regardless of case, make it a generated file.")
+        .defaultValue(DEFAULT_MARKERS)
+        .hidden()
+        .build());
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Decides what happens to the file of the given context, and counts it when it is not fully analyzed.
+   */
+  Verdict classify(JavaFileScannerContext context) {
+    if (!enabled) {
+      return ANALYZED;
+    }
+    Verdict verdict = verdict(context.getFile(), context.getTree());
+    if (verdict.action != Action.ANALYZE) {
+      counts.computeIfAbsent(verdict.action.name() + ' ' + verdict.reason.name(), k -> new AtomicLong()).incrementAndGet();
+    }
+    return verdict;
+  }
+
+  private Verdict verdict(@Nullable File file, @Nullable CompilationUnitTree tree) {
+    long length = file == null ? 0L : file.length();
+    if (length > skipLength) {
+      return new Verdict(Action.SKIP, Reason.SIZE, (length / 1024) + " KB, above " + (skipLength / 1024) + " KB");
+    }
+    if (tree == null) {
+      return ANALYZED;
+    }
+    int lines = lineCount(tree);
+    if (lines > skipLines) {
+      return new Verdict(Action.SKIP, Reason.LINES, lines + " lines, above " + skipLines);
+    }
+    if (generatedAction != Action.ANALYZE) {
+      String annotation = generatedAnnotation(tree);
+      if (annotation != null) {
+        return new Verdict(generatedAction, Reason.GENERATED_ANNOTATION, "@" + annotation);
+      }
+      String marker = generatedMarker(tree);
+      if (marker != null) {
+        return new Verdict(generatedAction, Reason.GENERATED_MARKER, "\"" + marker + "\"");
+      }
+    }
+    if (lines > degradeLines) {
+      return new Verdict(Action.DEGRADE, Reason.LINES, lines + " lines, above " + degradeLines);
+    }
+    return ANALYZED;
+  }
+
+  private static int lineCount(CompilationUnitTree tree) {
+    SyntaxToken eof = tree.eofToken();
+    return eof == null ? 0 : eof.line();
+  }
+
+  @Nullable
+  private static String generatedAnnotation(CompilationUnitTree tree) {
+    ClassTree type = firstType(tree);
+    if (type != null) {
+      for (AnnotationTree annotation : type.modifiers().annotations()) {
+        String name = simpleName(annotation.annotationType());
+        if (GENERATED_ANNOTATIONS.contains(name)) {
+          return name;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static String simpleName(Tree annotationType) {
+    if (annotationType.is(Tree.Kind.IDENTIFIER)) {
+      return ((IdentifierTree) annotationType).name();
+    }
+    if (annotationType.is(Tree.Kind.MEMBER_SELECT)) {
+      return ((MemberSelectExpressionTree) annotationType).identifier().name();
+    }
+    return "";
+  }
+
+  /**
+   * Marker found in the comments heading the file or its first type, where generators write them.
+   */
+  @Nullable
+  private String generatedMarker(CompilationUnitTree tree) {
+    ClassTree type = firstType(tree);
+    for (SyntaxToken token : Arrays.asList(tree.firstToken(), type == null ? null : type.firstToken())) {
+      if (token != null) {
+        for (SyntaxTrivia trivia : token.trivias()) {
+          int marker = markers.find(trivia.comment());
+          if (marker != TermMatcher.NO_MATCH) {
+            return markers.term(marker);
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  @Nullable
+  private static ClassTree firstType(CompilationUnitTree tree) {
+    for (Tree type : tree.types()) {
+      if (type instanceof ClassTree) {
+        return (ClassTree) type;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Files skipped or degraded since the guard was configured, with their reasons,
+   * as in "3 skipped (2 size, 1 line count), 1 degraded (1 line count)".
+   */
+  public String summary() {
+    StringBuilder summary = new StringBuilder();
+    for (Action action : new Action[] {Action.SKIP, Action.DEGRADE}) {
+      long files = 0;
+      StringBuilder reasons = new StringBuilder();
+      for (Reason reason : Reason.values()) {
+        AtomicLong count = counts.get(action.name() + ' ' + reason.name());
+        if (count != null) {
+          files += count.get();
+          reasons.append(reasons.length() == 0 ? "" : ", ").append(count.get()).append(' ').append(reason.label);
+        }
+      }
+      summary.append(summary.length() == 0 ? "" : ", ").append(files).append(action == Action.SKIP ? " skipped" : " degraded");
+      if (files > 0) {
+        summary.append(" (").append(reasons).append(')');
+      }
+    }
+    return summary.toString();
+  }
+
+  /**
+   * Number of files skipped or degraded since the guard was configured.
+   */
+  public long guardedFiles() {
+    return counts.values().stream().mapToLong(AtomicLong::get).sum();
+  }
+
+  /**
+   * What happens to one file, and why.
+   */
+  static final class Verdict {
+    final Action action;
+    @Nullable
+    final Reason reason;
+    final String detail;
+
+    private Verdict(Action action, @Nullable Reason reason, String detail) {
+      this.action = action;
+      this.reason = reason;
+      this.detail = detail;
+    }
+
+    boolean admits(DispatchedVisitor visitor) {
+      return action == Action.ANALYZE || (action == Action.DEGRADE && visitor.isSyntaxOnly());
+    }
+
+    @Override
+    public String toString() {
+      return reason == null ? "analyzed" : (reason.label + ": " + detail);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.dispatch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.postjob.PostJob;
+import org.sonar.api.batch.postjob.PostJobContext;
+import org.sonar.api.batch.postjob.PostJobDescriptor;
+
+/**
+ * Logs the files the {@link FileGuard} skipped or degraded during the analysis, and why.
+ */
+public class FileGuardReporter implements PostJob {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FileGuardReporter.class);
+
+  @Override
+  public void describe(PostJobDescriptor descriptor) {
+    descriptor.name("PFE file guard");
+  }
+
+  @Override
+  public void execute(PostJobContext context) {
+    FileGuard guard = FileGuard.current();
+    if (guard.isEnabled() && guard.guardedFiles() > 0) {
+      LOGGER.info("File guard: {}", guard.summary());
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.dispatch;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.samples.java.cache.FileResults;
+import org.sonar.samples.java.cache.ResultCache;
+import org.sonar.samples.java.cache.TreePositions;
+import org.sonar.samples.java.profile.IssueCountingContext;
+
+/**
+ * Everything a scan of one file needs, from its context to the state of each check.
+ * <p>
+ * A scan is confined to the thread analyzing the file, and is bound to it while the checks are walked:
+ * this is how {@link DispatchedVisitor#context()} and {@link DispatchedVisitor#fileState} find it,
+ * so that a same check instance can analyze several files at once.
+ */
+final class FileScan {
+
+  private static final ThreadLocal<FileScan> CURRENT = new ThreadLocal<>();
+
+  final JavaFileScannerContext context;
+  // what the checks report to, passed on to the context when the file is done
+  final IssueBatch issues;
+  final Tree file;
+  @Nullable
+  final FileResults results;
+  @Nullable
+  final TreePositions positions;
+  final FileGuard.Verdict verdict;
+  // set by the lexical prefilter: the tokens found in the text, the checks left out since the last count,
+  // and the nodes of the file by kind, counted on the first walk when checks were left out
+  @Nullable
+  Triggers triggers;
+  @Nullable
+  BitSet tokensFound;
+  final List<DispatchedVisitor> filtered = new ArrayList<>();
+  @Nullable
+  int[] nodesByKind;
+  boolean kindsCounted;
+  // time spent by the checks walking the file, against which the latency budget is judged
+  long walkNanos;
+  // members of the walk which visited the file, for the Java plugin, guarded by the walk
+  int visits;
+  // see DispatchedVisitor#sharedFileState
+  final Map<Class<?>, Object> shared = new HashMap<>();
+  // checks done with the file: walked ones have a scan, replayed and skipped ones are mapped to null
+  private final Map<DispatchedVisitor, CheckScan> checks = new IdentityHashMap<>();
+
+  FileScan(JavaFileScannerContext context, Tree file) {
+    this.context = context;
+    this.issues = new IssueBatch(context);
+    this.file = file;
+    this.verdict = FileGuard.current().classify(context);
+    ResultCache cache = ResultCache.current();
+    boolean cached = cache.isEnabled() && verdict.action != FileGuard.Action.SKIP;
+    this.results = cached ? cache.results(fileKey(), context.getFileContent()) : null;
+    this.positions = results == null ? null : new TreePositions(file);
+  }
+
+  @CheckForNull
+  static FileScan current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Binds this scan to the current thread.
+   *
+   * @return the scan bound before, to give back to {@link #restore}
+   */
+  @CheckForNull
+  FileScan bind() {
+    FileScan previous = CURRENT.get();
+    CURRENT.set(this);
+    return previous;
+  }
+
+  static void restore(@Nullable FileScan previous) {
+    if (previous == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(previous);
+    }
+  }
+
+  CheckScan enter(DispatchedVisitor visitor, @Nullable IssueCountingContext issueCounter) {
+    CheckScan scan = new CheckScan(issues, issueCounter);
+    checks.put(visitor, scan);
+    return scan;
+  }
+
+  void done(Collection<? extends DispatchedVisitor> visitors) {
+    for (DispatchedVisitor visitor : visitors) {
+      checks.putIfAbsent(visitor, null);
+    }
+  }
+
+  boolean isDone(DispatchedVisitor visitor) {
+    return checks.containsKey(visitor);
+  }
+
+  @CheckForNull
+  CheckScan of(DispatchedVisitor visitor) {
+    return checks.get(visitor);
+  }
+
+  String fileKey() {
+    return context.getFileKey() != null ? context.getFileKey() : String.valueOf(context.getFile());
+  }
+}
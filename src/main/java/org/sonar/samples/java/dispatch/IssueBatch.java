@@ -0,0 +1,270 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.dispatch;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.JavaVersion;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Context through which the checks of a {@link FileScan} report their issues: an issue reported again by the same check,
+ * at the same location and with the same message, is merged into the first one, and the issues are passed on
+ * together when the file is {@link #flush flushed}.
+ * <p>
+ * The first report of an issue is the one kept, with its secondary locations and cost.
+ */
+final class IssueBatch implements JavaFileScannerContext {
+
+  private final JavaFileScannerContext delegate;
+  private final Set<IssueKey> reported = new HashSet<>();
+  private final List<Runnable> pending = new ArrayList<>();
+  // since the last flush
+  private int merged;
+
+  IssueBatch(JavaFileScannerContext delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Reports the issues received since the last flush, and counts them with the duplicates merged into them.
+   *
+   * @return the number of duplicates merged since the last flush
+   */
+  int flush(DispatchStats stats) {
+    for (Runnable issue : pending) {
+      issue.run();
+    }
+    int mergedSinceFlush = merged;
+    stats.addIssues(pending.size(), mergedSinceFlush);
+    pending.clear();
+    merged = 0;
+    return mergedSinceFlush;
+  }
+
+  private void add(JavaCheck check, String message, Object location, Runnable report) {
+    if (reported.add(new IssueKey(check, message, location))) {
+      pending.add(report);
+    } else {
+      merged++;
+    }
+  }
+
+  private static Object span(Tree startTree, Tree endTree) {
+    SyntaxToken first = startTree.firstToken();
+    SyntaxToken last = endTree.lastToken();
+    if (first == null || last == null) {
+      // nothing to locate the trees by but themselves
+      return new Identity(startTree, endTree);
+    }
+    return new Span(first.line(), first.column(), last.line(), last.column() + last.text().length());
+  }
+
+  @Override
+  public CompilationUnitTree getTree() {
+    return delegate.getTree();
+  }
+
+  @Override
+  public void addIssueOnFile(JavaCheck check, String message) {
+    add(check, message, Span.FILE, () -> delegate.addIssueOnFile(check, message));
+  }
+
+  @Override
+  public void addIssue(int line, JavaCheck check, String message) {
+    add(check, message, Span.line(line), () -> delegate.addIssue(line, check, message));
+  }
+
+  @Override
+  public void addIssue(int line, JavaCheck check, String message, @Nullable Integer cost) {
+    add(check, message, Span.line(line), () -> delegate.addIssue(line, check, message, cost));
+  }
+
+  @Override
+  public void addIssue(File file, JavaCheck check, int line, String message) {
+    add(check, message, file.getPath() + ':' + line, () -> delegate.addIssue(file, check, line, message));
+  }
+
+  @Override
+  public Object getSemanticModel() {
+    return delegate.getSemanticModel();
+  }
+
+  @Override
+  public String getFileKey() {
+    return delegate.getFileKey();
+  }
+
+  @Override
+  public File getFile() {
+    return delegate.getFile();
+  }
+
+  @Override
+  public JavaVersion getJavaVersion() {
+    return delegate.getJavaVersion();
+  }
+
+  @Override
+  public boolean fileParsed() {
+    return delegate.fileParsed();
+  }
+
+  @Override
+  public List<Tree> getComplexityNodes(Tree tree) {
+    return delegate.getComplexityNodes(tree);
+  }
+
+  @Deprecated
+  @Override
+  public List<Tree> getMethodComplexityNodes(ClassTree enclosingClass, MethodTree methodTree) {
+    return delegate.getMethodComplexityNodes(enclosingClass, methodTree);
+  }
+
+  @Override
+  public void reportIssue(JavaCheck javaCheck, Tree tree, String message) {
+    add(javaCheck, message, span(tree, tree), () -> delegate.reportIssue(javaCheck, tree, message));
+  }
+
+  @Override
+  public void reportIssue(JavaCheck javaCheck, Tree tree, String message, List<Location> flow, @Nullable Integer cost) {
+    add(javaCheck, message, span(tree, tree), () -> delegate.reportIssue(javaCheck, tree, message, flow, cost));
+  }
+
+  @Override
+  public void reportIssueWithFlow(JavaCheck javaCheck, Tree syntaxNode, String message, Iterable<List<Location>> flows,
+    @Nullable Integer cost) {
+    add(javaCheck, message, span(syntaxNode, syntaxNode), () -> delegate.reportIssueWithFlow(javaCheck, syntaxNode, message, flows, cost));
+  }
+
+  @Override
+  public void reportIssue(JavaCheck javaCheck, Tree startTree, Tree endTree, String message) {
+    add(javaCheck, message, span(startTree, endTree), () -> delegate.reportIssue(javaCheck, startTree, endTree, message));
+  }
+
+  @Override
+  public void reportIssue(JavaCheck javaCheck, Tree startTree, Tree endTree, String message, List<Location> flow, @Nullable Integer cost) {
+    add(javaCheck, message, span(startTree, endTree), () -> delegate.reportIssue(javaCheck, startTree, endTree, message, flow, cost));
+  }
+
+  @Override
+  public List<String> getFileLines() {
+    return delegate.getFileLines();
+  }
+
+  @Override
+  public String getFileContent() {
+    return delegate.getFileContent();
+  }
+
+  private static final class IssueKey {
+    private final JavaCheck check;
+    private final String message;
+    private final Object location;
+
+    IssueKey(JavaCheck check, String message, Object location) {
+      this.check = check;
+      this.message = message;
+      this.location = location;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof IssueKey)) {
+        return false;
+      }
+      IssueKey other = (IssueKey) o;
+      return check == other.check && message.equals(other.message) && location.equals(other.location);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * System.identityHashCode(check) + message.hashCode()) + location.hashCode();
+    }
+  }
+
+  /**
+   * Text range of an issue: a whole line when the columns are -1, the file when the lines are 0.
+   */
+  private static final class Span {
+    static final Span FILE = new Span(0, -1, 0, -1);
+
+    private final int startLine;
+    private final int startColumn;
+    private final int endLine;
+    private final int endColumn;
+
+    Span(int startLine, int startColumn, int endLine, int endColumn) {
+      this.startLine = startLine;
+      this.startColumn = startColumn;
+      this.endLine = endLine;
+      this.endColumn = endColumn;
+    }
+
+    static Span line(int line) {
+      return new Span(line, -1, line, -1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Span)) {
+        return false;
+      }
+      Span other = (Span) o;
+      return startLine == other.startLine && startColumn == other.startColumn && endLine == other.endLine && endColumn == other.endColumn;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(startLine, startColumn, endLine, endColumn);
+    }
+  }
+
+  private static final class Identity {
+    private final Tree startTree;
+    private final Tree endTree;
+
+    Identity(Tree startTree, Tree endTree) {
+      this.startTree = startTree;
+      this.endTree = endTree;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Identity && ((Identity) o).startTree == startTree && ((Identity) o).endTree == endTree;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(startTree) + System.identityHashCode(endTree);
+    }
+  }
+}
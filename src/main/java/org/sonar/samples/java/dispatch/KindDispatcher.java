@@ -0,0 +1,294 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.dispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.BinaryExpressionTree;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.ListTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.plugins.java.api.tree.TypeCastTree;
+import org.sonar.plugins.java.api.tree.VariableTree;
+import org.sonar.samples.java.profile.RuleProfiler;
+
+/**
+ * Walks a tree once and hands every node to the visitors subscribed to its kind, the nodes being those a subscription
+ * visitor of the Java plugin walks: every node of the source but its tokens and trivia.
+ * Subscriptions are resolved once into a table indexed by {@link Tree.Kind#ordinal()}.
+ * The table is never modified afterwards, so that several threads can walk with the same dispatcher.
+ * A visitor throwing on a node is handed no other node of the tree, the other visitors go on, and so are the visitors
+ * a {@link Deadline} does not keep once it is reached.
+ */
+public class KindDispatcher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(KindDispatcher.class);
+
+  private static final DispatchedVisitor[] NO_VISITOR = new DispatchedVisitor[0];
+  private static final int[] NO_INDEX = new int[0];
+
+  private final DispatchedVisitor[][] visitorsByKind;
+  // position in the constructor list of each visitor of visitorsByKind
+  private final int[][] indicesByKind;
+  private final int visitorCount;
+
+  public KindDispatcher(List<? extends DispatchedVisitor> visitors) {
+    List<List<Integer>> subscriptions = new ArrayList<>();
+    for (int i = 0; i < Tree.Kind.values().length; i++) {
+      subscriptions.add(new ArrayList<>());
+    }
+    for (int index = 0; index < visitors.size(); index++) {
+      for (Tree.Kind kind : visitors.get(index).nodesToVisit()) {
+        subscriptions.get(kind.ordinal()).add(index);
+      }
+    }
+    visitorsByKind = new DispatchedVisitor[subscriptions.size()][];
+    indicesByKind = new int[subscriptions.size()][];
+    for (int i = 0; i < visitorsByKind.length; i++) {
+      List<Integer> subscribed = subscriptions.get(i);
+      visitorsByKind[i] = subscribed.isEmpty() ? NO_VISITOR : new DispatchedVisitor[subscribed.size()];
+      indicesByKind[i] = subscribed.isEmpty() ? NO_INDEX : new int[subscribed.size()];
+      for (int j = 0; j < subscribed.size(); j++) {
+        visitorsByKind[i][j] = visitors.get(subscribed.get(j));
+        indicesByKind[i][j] = subscribed.get(j);
+      }
+    }
+    visitorCount = visitors.size();
+  }
+
+  /**
+   * Walks the given tree and returns the number of nodes visited.
+   */
+  public long walk(Tree tree) {
+    return walk(tree, null, null, (index, visitor, e) -> LOGGER.error("Unable to run " + RuleProfiler.ruleKey(visitor.getClass())
+      + ", it is left out of the rest of the tree", e), null);
+  }
+
+  /**
+   * Walks the given tree and returns the number of nodes visited. When profiled, the time spent in each visitor
+   * and the number of nodes it was handed are added to the scan at its position in the constructor list.
+   * When given, {@code nodesByKind} counts the nodes visited by {@link Tree.Kind#ordinal()}.
+   */
+  long walk(Tree tree, @Nullable CheckScan[] profiled, @Nullable int[] nodesByKind, Failures failures, @Nullable Deadline deadline) {
+    Walker walker = new Walker(tree, profiled, nodesByKind, failures, deadline);
+    walker.scan(tree);
+    return walker.nodesVisited;
+  }
+
+  public int visitorCount() {
+    return visitorCount;
+  }
+
+  /**
+   * Told of a visitor throwing on the walked tree, with its position in the constructor list.
+   */
+  @FunctionalInterface
+  interface Failures {
+    void failed(int index, DispatchedVisitor visitor, RuntimeException e);
+  }
+
+  /**
+   * Time of {@link System#nanoTime()} after which the visitors it does not keep, by position in the constructor list,
+   * are left out of the rest of the tree at the first node they would visit. The clock is read before each node.
+   */
+  static final class Deadline {
+
+    private final long nanoTime;
+    private final boolean[] kept;
+    private final boolean[] leftOut;
+    private boolean reached;
+
+    Deadline(long nanoTime, boolean[] kept) {
+      this.nanoTime = nanoTime;
+      this.kept = kept;
+      this.leftOut = new boolean[kept.length];
+    }
+
+    boolean isReached() {
+      return reached;
+    }
+
+    /**
+     * Whether the visitor at the given position was to visit a node of the tree after the deadline was reached.
+     */
+    boolean leftOut(int index) {
+      return leftOut[index];
+    }
+  }
+
+  /**
+   * Walk of the base visitor, completed with the declared names and cast bounds it does not scan, and cleared of the
+   * empty lists and implicit names it makes up, which are not in the source.
+   */
+  private final class Walker extends BaseTreeVisitor {
+
+    private final Tree root;
+    @Nullable
+    private final CheckScan[] profiled;
+    @Nullable
+    private final int[] nodesByKind;
+    private final Failures failures;
+    @Nullable
+    private final Deadline deadline;
+    // by position in the constructor list, the visitors left out of the rest of the tree
+    private final boolean[] leftOut = new boolean[visitorCount];
+    private long nodesVisited;
+
+    Walker(Tree root, @Nullable CheckScan[] profiled, @Nullable int[] nodesByKind, Failures failures, @Nullable Deadline deadline) {
+      this.root = root;
+      this.profiled = profiled;
+      this.nodesByKind = nodesByKind;
+      this.failures = failures;
+      this.deadline = deadline;
+    }
+
+    @Override
+    protected void scan(@Nullable Tree tree) {
+      if (tree == null || (tree.parent() == null && tree != root)) {
+        return;
+      }
+      if (deadline != null && !deadline.reached && System.nanoTime() - deadline.nanoTime >= 0) {
+        deadline.reached = true;
+      }
+      nodesVisited++;
+      int kind = tree.kind().ordinal();
+      if (nodesByKind != null) {
+        nodesByKind[kind]++;
+      }
+      DispatchedVisitor[] subscribed = visitorsByKind[kind];
+      int[] indices = indicesByKind[kind];
+      if (profiled != null && subscribed.length > 0) {
+        visitProfiled(subscribed, indices, tree);
+      } else {
+        for (int i = 0; i < subscribed.length; i++) {
+          dispatch(subscribed[i], indices[i], tree, true);
+        }
+      }
+      if (tree.is(Tree.Kind.LIST, Tree.Kind.ARGUMENTS)) {
+        // plain lists accept the visitor on their elements directly, which would skip this method
+        for (Tree element : (ListTree<?>) tree) {
+          scan(element);
+        }
+      } else {
+        super.scan(tree);
+      }
+      if (profiled != null && subscribed.length > 0) {
+        leaveProfiled(subscribed, indices, tree);
+      } else {
+        for (int i = 0; i < subscribed.length; i++) {
+          dispatch(subscribed[i], indices[i], tree, false);
+        }
+      }
+    }
+
+    private void dispatch(DispatchedVisitor visitor, int index, Tree tree, boolean visit) {
+      if (leftOut[index]) {
+        return;
+      }
+      if (visit && deadline != null && deadline.reached && !deadline.kept[index]) {
+        leftOut[index] = true;
+        deadline.leftOut[index] = true;
+        return;
+      }
+      try {
+        if (visit) {
+          visitor.visitNode(tree);
+        } else {
+          visitor.leaveNode(tree);
+        }
+      } catch (RuntimeException e) {
+        leftOut[index] = true;
+        failures.failed(index, visitor, e);
+      }
+    }
+
+    @Override
+    public void visitClass(ClassTree tree) {
+      scan(tree.modifiers());
+      scan(tree.simpleName());
+      scan(tree.typeParameters());
+      scan(tree.superClass());
+      scan(tree.superInterfaces());
+      scan(tree.members());
+    }
+
+    @Override
+    public void visitMethod(MethodTree tree) {
+      scan(tree.modifiers());
+      scan(tree.typeParameters());
+      scan(tree.returnType());
+      scan(tree.simpleName());
+      scan(tree.parameters());
+      scan(tree.defaultValue());
+      scan(tree.throwsClauses());
+      scan(tree.block());
+    }
+
+    @Override
+    public void visitVariable(VariableTree tree) {
+      scan(tree.modifiers());
+      scan(tree.type());
+      scan(tree.simpleName());
+      scan(tree.initializer());
+    }
+
+    @Override
+    public void visitTypeCast(TypeCastTree tree) {
+      scan(tree.type());
+      scan(tree.bounds());
+      scan(tree.expression());
+    }
+
+    @Override
+    public void visitBinaryExpression(BinaryExpressionTree tree) {
+      // the operands accept the visitor directly in the base visitor, which would skip this method
+      scan(tree.leftOperand());
+      scan(tree.rightOperand());
+    }
+
+    // one clock read between two visitors rather than two per visitor
+    private void visitProfiled(DispatchedVisitor[] subscribed, int[] indices, Tree tree) {
+      long start = System.nanoTime();
+      for (int i = 0; i < subscribed.length; i++) {
+        dispatch(subscribed[i], indices[i], tree, true);
+        long end = System.nanoTime();
+        CheckScan scan = profiled[indices[i]];
+        scan.nanos += end - start;
+        scan.nodes++;
+        start = end;
+      }
+    }
+
+    private void leaveProfiled(DispatchedVisitor[] subscribed, int[] indices, Tree tree) {
+      long start = System.nanoTime();
+      for (int i = 0; i < subscribed.length; i++) {
+        dispatch(subscribed[i], indices[i], tree, false);
+        long end = System.nanoTime();
+        profiled[indices[i]].nanos += end - start;
+        start = end;
+      }
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.dispatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.sonar.api.PropertyType;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.config.PropertyDefinition;
+import org.sonar.samples.java.RulesList;
+import org.sonar.samples.java.registry.RuleDescriptor;
+
+/**
+ * Time allowed to the checks on one file, counted on their walks only: the time the Java plugin spends between two
+ * checks, in its own checks or in the parse, is not the checks' to spend. All the checks walk the file together, and the
+ * budget is checked before each node: once it is spent, the syntax-only checks go on while the other checks are left
+ * out of the rest of the file from the next node they would visit, and logged as skipped. The issues they reported until then are kept but
+ * not cached, so that with the result cache they run again the next time the same content is analyzed, the other
+ * checks being then replayed.
+ *
+ * <p>Meant for SonarLint, where it is enabled by default: a scanner analysis is not interactive and would
+ * rather get all the issues.</p>
+ */
+public final class LatencyBudget {
+
+  public static final String MILLIS_KEY = "sonar.pfe.latencyBudget.millis";
+
+  private static final long DEFAULT_SONARLINT_MILLIS = 1000;
+  private static final Set<Class<?>> SYNTAX_ONLY_CHECKS = syntaxOnlyChecks();
+
+  private static volatile LatencyBudget current = new LatencyBudget(0);
+
+  private final long millis;
+  private final long nanos;
+  // rule keys skipped by file key
+  private final Map<String, List<String>> skippedRules = new ConcurrentHashMap<>();
+
+  private LatencyBudget(long millis) {
+    this.millis = millis;
+    this.nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+
+  /**
+   * Applies the settings of the analysis about to run.
+   */
+  public static void configure(boolean sonarLint, @Nullable Configuration configuration) {
+    long defaultMillis = sonarLint ? DEFAULT_SONARLINT_MILLIS : 0;
+    long millis = defaultMillis;
+    if (configuration != null) {
+      millis = configuration.getLong(MILLIS_KEY).orElse(defaultMillis);
+    }
+    current = new LatencyBudget(Math.max(0, millis));
+  }
+
+  public static LatencyBudget current() {
+    return current;
+  }
+
+  public static List<PropertyDefinition> properties() {
+    return Collections.singletonList(
+      PropertyDefinition.builder(MILLIS_KEY)
+        .name("Latency budget")
+        .description("Time in milliseconds allowed to the custom rules on one file, after which the most expensive rules are skipped. "
+          + "0 disables the budget. Defaults to 1000 in SonarLint and 0 otherwise.")
+        .type(PropertyType.INTEGER)
+        .hidden()
+        .build());
+  }
+
+  public boolean isEnabled() {
+    return nanos > 0;
+  }
+
+  public long millis() {
+    return millis;
+  }
+
+  /**
+   * Number of checks skipped on a file since the budget was configured.
+   */
+  public long skippedChecks() {
+    return skippedRules.values().stream().mapToLong(List::size).sum();
+  }
+
+  /**
+   * Keys of the rules skipped since the budget was configured, by file key, sorted by file.
+   */
+  public Map<String, List<String>> skippedRules() {
+    Map<String, List<String>> copy = new TreeMap<>();
+    skippedRules.forEach((file, rules) -> {
+      synchronized (rules) {
+        copy.put(file, Collections.unmodifiableList(new ArrayList<>(rules)));
+      }
+    });
+    return Collections.unmodifiableMap(copy);
+  }
+
+  /**
+   * Whether the checks, having walked a file for the given time, are done with their budget on it.
+   */
+  boolean isSpent(long walkNanos) {
+    return walkNanos >= nanos;
+  }
+
+  /**
+   * Time left to the checks having walked a file for the given time, negative once the budget is spent.
+   */
+  long remainingNanos(long walkNanos) {
+    return nanos - walkNanos;
+  }
+
+  void skipped(String fileKey, List<String> ruleKeys) {
+    List<String> rules = skippedRules.computeIfAbsent(fileKey, k -> new ArrayList<>());
+    synchronized (rules) {
+      rules.addAll(ruleKeys);
+    }
+  }
+
+  static boolean isSyntaxOnly(Class<?> checkClass) {
+    return SYNTAX_ONLY_CHECKS.contains(checkClass);
+  }
+
+  private static Set<Class<?>> syntaxOnlyChecks() {
+    Set<Class<?>> checks = new HashSet<>();
+    for (RuleDescriptor descriptor : RulesList.getJavaRules()) {
+      if (descriptor.isSyntaxOnly()) {
+        checks.add(descriptor.checkClass());
+      }
+    }
+    return checks;
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.dispatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import org.sonar.api.PropertyType;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.config.PropertyDefinition;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+
+/**
+ * Runs the checks declaring {@link TriggerTokens} only on the files whose text contains one of their tokens.
+ * The tokens of all the checks are looked for together in one pass over the text, before the walk, and the checks
+ * left out are not handed any node of the file.
+ * <p>
+ * The nodes the checks left out would have been handed are counted, as the tree dispatch avoided.
+ */
+public final class LexicalPrefilter {
+
+  public static final String ENABLED_KEY = "sonar.pfe.lexicalPrefilter.enabled";
+
+  private static volatile LexicalPrefilter current = new LexicalPrefilter(true);
+
+  private final boolean enabled;
+  private final AtomicLong filesScanned = new AtomicLong();
+  private final AtomicLong checksFiltered = new AtomicLong();
+  private final AtomicLong dispatchesAvoided = new AtomicLong();
+
+  private LexicalPrefilter(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Applies the settings of the analysis about to run.
+   */
+  public static void configure(Configuration configuration) {
+    current = new LexicalPrefilter(configuration.getBoolean(ENABLED_KEY).orElse(true));
+  }
+
+  public static LexicalPrefilter current() {
+    return current;
+  }
+
+  public static List<PropertyDefinition> properties() {
+    return Collections.singletonList(
+      PropertyDefinition.builder(ENABLED_KEY)
+        .name("Lexical prefilter")
+        .description("Run the custom rules declaring trigger tokens only on the files containing one of them.")
+        .type(PropertyType.BOOLEAN)
+        .defaultValue("true")
+        .hidden()
+        .build());
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Files whose text was scanned for trigger tokens since the prefilter was configured.
+   */
+  public long filesScanned() {
+    return filesScanned.get();
+  }
+
+  /**
+   * Checks left out of a file since the prefilter was configured, once per file.
+   */
+  public long checksFiltered() {
+    return checksFiltered.get();
+  }
+
+  /**
+   * Nodes the checks left out would have been handed, on the files walked for the other checks.
+   */
+  public long dispatchesAvoided() {
+    return dispatchesAvoided.get();
+  }
+
+  public String summary() {
+    return filesScanned.get() + " files scanned, " + checksFiltered.get() + " rule runs avoided, "
+      + dispatchesAvoided.get() + " node dispatches avoided";
+  }
+
+  void scanned() {
+    filesScanned.incrementAndGet();
+  }
+
+  void filtered(int checks, long dispatches) {
+    checksFiltered.addAndGet(checks);
+    dispatchesAvoided.addAndGet(dispatches);
+  }
+
+  /**
+   * Text of the file of the given context, read from the file itself when the context cannot give it, as the test
+   * contexts of the Java plugin, which have no input file. The tokens being ASCII, the bytes are taken as characters.
+   *
+   * @return the text, or {@code null} when it cannot be read
+   */
+  @CheckForNull
+  static CharSequence text(JavaFileScannerContext context) {
+    try {
+      return context.getFileContent();
+    } catch (RuntimeException e) {
+      File file = context.getFile();
+      if (file == null) {
+        return null;
+      }
+      try {
+        return new ByteText(Files.readAllBytes(file.toPath()));
+      } catch (IOException ioException) {
+        return null;
+      }
+    }
+  }
+
+  private static final class ByteText implements CharSequence {
+    private final byte[] bytes;
+    private final int start;
+    private final int end;
+
+    ByteText(byte[] bytes) {
+      this(bytes, 0, bytes.length);
+    }
+
+    private ByteText(byte[] bytes, int start, int end) {
+      this.bytes = bytes;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public int length() {
+      return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (bytes[start + index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+      return new ByteText(bytes, start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+      return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+  }
+}
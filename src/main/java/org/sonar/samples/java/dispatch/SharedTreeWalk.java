@@ -0,0 +1,404 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.dispatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.samples.java.cache.IssueRecordingContext;
+import org.sonar.samples.java.profile.FileRecording;
+import org.sonar.samples.java.profile.IssueCountingContext;
+import org.sonar.samples.java.profile.RuleEvents;
+import org.sonar.samples.java.profile.RuleProfiler;
+
+/**
+ * Single walk of each file shared by all the {@link DispatchedVisitor} of an analysis.
+ * <p>
+ * Checks are instantiated by the Java plugin, so the members of a walk are discovered on the first file:
+ * the first check to receive it creates the walk, the following ones find it through the tree and join.
+ * From the second file on, the first member called walks the file once for everybody.
+ * This relies on all the members being called on the same files, which is the case for the checks
+ * registered by {@link org.sonar.samples.java.MyJavaFileCheckRegistrar}.
+ * <p>
+ * Outside of the Java plugin, {@link #of} creates a walk of known members, and {@link #scan} analyzes a file with
+ * all of them. Everything about the file lives in a {@link FileScan}, so that several threads can scan at once.
+ * <p>
+ * Thread safety: {@link #of} and {@link #scan} can be called from any thread, the members of such a walk never change.
+ * Through the Java plugin, members join a list safe to read while it grows, and the scans of the files being walked are
+ * kept by file under the lock of the walk, so that several files can be analyzed at once as long as each of them is
+ * handed to its members by a single thread.
+ */
+public final class SharedTreeWalk {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SharedTreeWalk.class);
+
+  private static final Map<Tree, SharedTreeWalk> WALKS_BY_FILE = new WeakHashMap<>();
+
+  private final List<DispatchedVisitor> members;
+  private final DispatchStats stats = new DispatchStats();
+  // by group of members walked together, reset when a member joins
+  private final Map<List<DispatchedVisitor>, KindDispatcher> dispatchers = new ConcurrentHashMap<>();
+  // trigger tokens of the members, compiled on first use and reset when a member joins
+  @Nullable
+  private volatile Triggers triggers;
+  // files being walked for the Java plugin, which calls the members one after the other on each file
+  private final Map<Tree, FileScan> scansByFile = new WeakHashMap<>();
+  // members join while the first file is analyzed: they are all known once another file comes
+  private boolean membersKnown;
+  private boolean fileSeen;
+
+  private SharedTreeWalk(List<DispatchedVisitor> members) {
+    this.members = members;
+  }
+
+  static SharedTreeWalk join(DispatchedVisitor visitor, Tree file) {
+    SharedTreeWalk walk;
+    synchronized (WALKS_BY_FILE) {
+      walk = WALKS_BY_FILE.computeIfAbsent(file, f -> new SharedTreeWalk(new CopyOnWriteArrayList<>()));
+    }
+    walk.members.add(visitor);
+    walk.dispatchers.clear();
+    walk.triggers = null;
+    return walk;
+  }
+
+  /**
+   * Walk of the given checks, to analyze files with {@link #scan} rather than through their {@code scanFile}.
+   */
+  public static SharedTreeWalk of(List<? extends DispatchedVisitor> visitors) {
+    return new SharedTreeWalk(Collections.unmodifiableList(new ArrayList<>(visitors)));
+  }
+
+  /**
+   * Analyzes the file of the given context with all the members. Can be called from several threads at once,
+   * provided the members keep their file state in {@link DispatchedVisitor#fileState}.
+   */
+  public void scan(JavaFileScannerContext context) {
+    scanMembers(new FileScan(context, context.getTree()));
+  }
+
+  void visitFile(DispatchedVisitor caller, JavaFileScannerContext context, Tree file) {
+    FileScan scan;
+    boolean firstVisit;
+    synchronized (this) {
+      scan = scansByFile.get(file);
+      firstVisit = scan == null;
+      if (firstVisit) {
+        if (fileSeen && !membersKnown) {
+          membersKnown = true;
+          // the first file was kept for the members still to join
+          scansByFile.values().removeIf(this::isVisitedByAll);
+        }
+        fileSeen = true;
+        scan = new FileScan(context, file);
+        scansByFile.put(file, scan);
+      }
+    }
+    try {
+      if (firstVisit) {
+        scanMembers(scan);
+      } else if (!scan.isDone(caller)) {
+        // joined after the file was walked: only happens on the first file of the analysis
+        List<DispatchedVisitor> lateMember = replayCached(scan, prefiltered(scan, guarded(scan, Collections.singletonList(caller))));
+        if (!lateMember.isEmpty()) {
+          LatencyBudget budget = LatencyBudget.current();
+          if (budget.isEnabled() && !caller.isSyntaxOnly() && budget.isSpent(scan.walkNanos)) {
+            skip(scan, budget, lateMember);
+          } else {
+            walk(scan, new KindDispatcher(lateMember), lateMember);
+          }
+        }
+        countFiltered(scan);
+        flushIssues(scan);
+      }
+    } finally {
+      synchronized (this) {
+        scan.visits++;
+        if (membersKnown && isVisitedByAll(scan)) {
+          // every member is done with the file: nothing may keep its tree until the next one
+          scansByFile.remove(file);
+        }
+      }
+    }
+  }
+
+  synchronized int filesInProgress() {
+    return scansByFile.size();
+  }
+
+  private boolean isVisitedByAll(FileScan scan) {
+    return scan.visits >= members.size();
+  }
+
+  private void scanMembers(FileScan scan) {
+    if (RuleProfiler.current().isEnabled()) {
+      RuleProfiler.current().recordFile();
+    }
+    if (scan.verdict.action != FileGuard.Action.ANALYZE) {
+      LOGGER.info("{} {} by the file guard, {}", new Object[] {scan.verdict.action == FileGuard.Action.SKIP ? "Skipped" : "Degraded analysis of",
+        scan.fileKey(), scan.verdict});
+    }
+    List<DispatchedVisitor> toWalk = replayCached(scan, prefiltered(scan, guarded(scan, members)));
+    if (!scan.filtered.isEmpty()) {
+      scan.nodesByKind = new int[Tree.Kind.values().length];
+    }
+    if (!toWalk.isEmpty()) {
+      walk(scan, dispatcherFor(toWalk), toWalk);
+    }
+    countFiltered(scan);
+    flushIssues(scan);
+    AstDump.dumpIfSelected(scan.context);
+  }
+
+  private void flushIssues(FileScan scan) {
+    int merged = scan.issues.flush(stats);
+    if (merged > 0) {
+      LOGGER.debug("Merged {} duplicate issues on {}", merged, scan.fileKey());
+    }
+  }
+
+  /**
+   * Marks done the checks the {@link FileGuard} keeps off the file.
+   *
+   * @return the checks left to run
+   */
+  private static List<DispatchedVisitor> guarded(FileScan scan, List<DispatchedVisitor> visitors) {
+    if (scan.verdict.action == FileGuard.Action.ANALYZE) {
+      return visitors;
+    }
+    List<DispatchedVisitor> admitted = new ArrayList<>();
+    for (DispatchedVisitor visitor : visitors) {
+      if (scan.verdict.admits(visitor)) {
+        admitted.add(visitor);
+      } else {
+        scan.done(Collections.singletonList(visitor));
+      }
+    }
+    return admitted;
+  }
+
+  /**
+   * Marks done the checks declaring {@link TriggerTokens} of which none is in the text of the file.
+   *
+   * @return the checks left to run
+   */
+  private List<DispatchedVisitor> prefiltered(FileScan scan, List<DispatchedVisitor> visitors) {
+    LexicalPrefilter prefilter = LexicalPrefilter.current();
+    if (!prefilter.isEnabled() || visitors.isEmpty()) {
+      return visitors;
+    }
+    if (scan.tokensFound == null) {
+      Triggers memberTriggers = triggers();
+      CharSequence text = memberTriggers.isEmpty() ? null : LexicalPrefilter.text(scan.context);
+      if (text == null) {
+        return visitors;
+      }
+      scan.triggers = memberTriggers;
+      scan.tokensFound = memberTriggers.find(text);
+      prefilter.scanned();
+    }
+    List<DispatchedVisitor> admitted = new ArrayList<>();
+    for (DispatchedVisitor visitor : visitors) {
+      if (scan.triggers.admits(visitor, scan.tokensFound)) {
+        admitted.add(visitor);
+      } else {
+        scan.done(Collections.singletonList(visitor));
+        scan.filtered.add(visitor);
+      }
+    }
+    return admitted;
+  }
+
+  private Triggers triggers() {
+    Triggers compiled = triggers;
+    if (compiled == null) {
+      compiled = new Triggers(new ArrayList<>(members));
+      triggers = compiled;
+    }
+    return compiled;
+  }
+
+  /**
+   * Adds the checks left out of the file by the prefilter, and the nodes they would have been handed, to its counts.
+   */
+  private static void countFiltered(FileScan scan) {
+    if (scan.filtered.isEmpty()) {
+      return;
+    }
+    long dispatches = 0;
+    if (scan.kindsCounted) {
+      for (DispatchedVisitor visitor : scan.filtered) {
+        for (Tree.Kind kind : visitor.nodesToVisit()) {
+          dispatches += scan.nodesByKind[kind.ordinal()];
+        }
+      }
+    }
+    LexicalPrefilter.current().filtered(scan.filtered.size(), dispatches);
+    scan.filtered.clear();
+  }
+
+  /**
+   * Deadline of a walk starting now, which keeps the syntax-only checks only, or null without a budget.
+   */
+  @Nullable
+  private static KindDispatcher.Deadline deadline(FileScan scan, LatencyBudget budget, List<DispatchedVisitor> visitors) {
+    if (!budget.isEnabled()) {
+      return null;
+    }
+    boolean[] kept = new boolean[visitors.size()];
+    for (int i = 0; i < kept.length; i++) {
+      kept[i] = visitors.get(i).isSyntaxOnly();
+    }
+    return new KindDispatcher.Deadline(System.nanoTime() + budget.remainingNanos(scan.walkNanos), kept);
+  }
+
+  private static void skip(FileScan scan, LatencyBudget budget, List<DispatchedVisitor> visitors) {
+    scan.done(visitors);
+    List<String> ruleKeys = visitors.stream().map(visitor -> RuleProfiler.ruleKey(visitor.getClass())).collect(Collectors.toList());
+    budget.skipped(scan.fileKey(), ruleKeys);
+    LOGGER.info("Latency budget of {} ms spent on {}, skipped rules: {}", new Object[] {budget.millis(), scan.fileKey(),
+      String.join(", ", ruleKeys)});
+  }
+
+  private KindDispatcher dispatcherFor(List<DispatchedVisitor> visitors) {
+    return dispatchers.computeIfAbsent(new ArrayList<>(visitors), KindDispatcher::new);
+  }
+
+  private void walk(FileScan scan, KindDispatcher kindDispatcher, List<DispatchedVisitor> visitors) {
+    RuleProfiler profiler = RuleProfiler.current();
+    FileRecording recording = RuleEvents.begin(scan.fileKey(), visitors.size());
+    LatencyBudget budget = LatencyBudget.current();
+    boolean profiled = profiler.isEnabled() || recording != null || budget.isEnabled();
+    CheckScan[] checkScans = new CheckScan[visitors.size()];
+    for (int i = 0; i < checkScans.length; i++) {
+      checkScans[i] = scan.enter(visitors.get(i), issueCounter(scan, visitors.get(i), recording, profiled));
+    }
+    long start = profiled ? System.nanoTime() : 0L;
+    KindDispatcher.Deadline deadline = deadline(scan, budget, visitors);
+    long nodes;
+    FileScan previous = scan.bind();
+    try {
+      int[] nodesByKind = scan.kindsCounted ? null : scan.nodesByKind;
+      nodes = kindDispatcher.walk(scan.file, profiled ? checkScans : null, nodesByKind, (index, visitor, e) -> {
+        checkScans[index].failed = true;
+        LOGGER.error("Unable to run {} on {}, it is left out of the rest of the file", new Object[] {RuleProfiler.ruleKey(visitor.getClass()),
+          scan.fileKey(), e});
+      }, deadline);
+      scan.kindsCounted |= nodesByKind != null;
+    } finally {
+      FileScan.restore(previous);
+    }
+    if (profiled) {
+      long walkNanos = System.nanoTime() - start;
+      scan.walkNanos += walkNanos;
+      record(profiler, recording, scan, visitors, checkScans, nodes, walkNanos);
+    }
+    List<DispatchedVisitor> leftOut = new ArrayList<>();
+    for (int i = 0; i < checkScans.length; i++) {
+      boolean spent = deadline != null && deadline.leftOut(i);
+      if (spent) {
+        leftOut.add(visitors.get(i));
+      }
+      // the issues of a check which failed on the file, or ran out of budget on it, are not all its issues
+      if (!checkScans[i].failed && !spent && checkScans[i].issueCounter instanceof IssueRecordingContext) {
+        scan.results.store(visitors.get(i).resultSignature(), (IssueRecordingContext) checkScans[i].issueCounter);
+      }
+    }
+    if (!leftOut.isEmpty()) {
+      skip(scan, budget, leftOut);
+    }
+    stats.add(nodes, kindDispatcher.visitorCount());
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Walked {} nodes for {} checks of {} ({} nodes without shared walk)",
+        new Object[] {nodes, kindDispatcher.visitorCount(), scan.context.getFileKey(), nodes * kindDispatcher.visitorCount()});
+    }
+  }
+
+  /**
+   * Reports the cached issues of the given checks which have results for this version of the file.
+   *
+   * @return the checks left to walk
+   */
+  private static List<DispatchedVisitor> replayCached(FileScan scan, List<DispatchedVisitor> visitors) {
+    if (scan.results == null) {
+      return visitors;
+    }
+    List<DispatchedVisitor> toWalk = new ArrayList<>();
+    for (DispatchedVisitor visitor : visitors) {
+      if (visitor.dependsOnOtherFiles() || !scan.results.contains(visitor.resultSignature())) {
+        toWalk.add(visitor);
+      } else {
+        scan.results.replay(visitor.resultSignature(), scan.issues, visitor, scan.positions);
+        scan.done(Collections.singletonList(visitor));
+      }
+    }
+    if (toWalk.size() < visitors.size()) {
+      LOGGER.debug("Replayed the issues of {} checks on {}", visitors.size() - toWalk.size(), scan.context.getFileKey());
+    }
+    return toWalk;
+  }
+
+  @Nullable
+  private static IssueCountingContext issueCounter(FileScan scan, DispatchedVisitor visitor, @Nullable FileRecording recording,
+    boolean profiled) {
+    if (scan.results != null && !visitor.dependsOnOtherFiles()) {
+      return new IssueRecordingContext(scan.issues, recording, scan.positions);
+    }
+    return profiled ? new IssueCountingContext(scan.issues, recording) : null;
+  }
+
+  private static void record(RuleProfiler profiler, @Nullable FileRecording recording, FileScan scan, List<DispatchedVisitor> visitors,
+    CheckScan[] checkScans, long nodes, long walkNanos) {
+    String fileKey = scan.fileKey();
+    long checksNanos = 0;
+    for (int i = 0; i < visitors.size(); i++) {
+      DispatchedVisitor visitor = visitors.get(i);
+      CheckScan checkScan = checkScans[i];
+      int issues = checkScan.issueCounter.issues();
+      if (profiler.isEnabled()) {
+        profiler.recordRule(visitor.getClass(), fileKey, checkScan.nanos, checkScan.nodes, issues);
+      }
+      if (recording != null) {
+        recording.rule(i, visitor.getClass(), checkScan.nanos, checkScan.nodes, issues);
+      }
+      checksNanos += checkScan.nanos;
+    }
+    if (profiler.isEnabled()) {
+      profiler.recordWalk(nodes, Math.max(0L, walkNanos - checksNanos));
+    }
+    if (recording != null) {
+      recording.end(nodes);
+    }
+  }
+
+  public DispatchStats stats() {
+    return stats;
+  }
+}
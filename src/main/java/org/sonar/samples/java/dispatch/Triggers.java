@@ -0,0 +1,101 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.dispatch;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.sonar.samples.java.matching.TermMatcher;
+
+/**
+ * The {@link TriggerTokens} of a group of checks, compiled into one {@link TermMatcher} so that a single pass over
+ * the text of a file tells which of the checks can raise something on it.
+ */
+final class Triggers {
+
+  private static final ClassValue<String[]> TOKENS_BY_CLASS = new ClassValue<String[]>() {
+    @Override
+    protected String[] computeValue(Class<?> type) {
+      TriggerTokens tokens = type.getAnnotation(TriggerTokens.class);
+      if (tokens == null) {
+        return new String[0];
+      }
+      String[] folded = new String[tokens.value().length];
+      for (int i = 0; i < folded.length; i++) {
+        folded[i] = tokens.value()[i].trim().toLowerCase(Locale.ROOT);
+      }
+      return folded;
+    }
+  };
+
+  private final TermMatcher matcher;
+  private final Map<String, Integer> indices = new HashMap<>();
+
+  Triggers(List<DispatchedVisitor> visitors) {
+    List<String> tokens = new ArrayList<>();
+    for (DispatchedVisitor visitor : visitors) {
+      for (String token : tokensOf(visitor)) {
+        if (!token.isEmpty() && !tokens.contains(token)) {
+          tokens.add(token);
+        }
+      }
+    }
+    matcher = TermMatcher.of(tokens);
+    for (int i = 0; i < matcher.terms().size(); i++) {
+      indices.put(matcher.terms().get(i), i);
+    }
+  }
+
+  static String[] tokensOf(DispatchedVisitor visitor) {
+    return TOKENS_BY_CLASS.get(visitor.getClass());
+  }
+
+  boolean isEmpty() {
+    return indices.isEmpty();
+  }
+
+  /**
+   * Tokens found in the text, to give back to {@link #admits}.
+   */
+  BitSet find(CharSequence text) {
+    return matcher.findAll(text);
+  }
+
+  /**
+   * Whether the given check can raise something on a file in which the given tokens were found: checks without
+   * tokens, or with tokens compiled in another group, are always admitted.
+   */
+  boolean admits(DispatchedVisitor visitor, BitSet found) {
+    String[] tokens = tokensOf(visitor);
+    if (tokens.length == 0) {
+      return true;
+    }
+    for (String token : tokens) {
+      Integer index = indices.get(token);
+      if (index == null || found.get(index)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
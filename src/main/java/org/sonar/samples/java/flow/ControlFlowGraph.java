@@ -0,0 +1,171 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.flow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Control flow graph of a method body, at the granularity of the statements and conditions it evaluates.
+ * <p>
+ * Each {@link Block} holds the trees evaluated in sequence: variable declarations, expressions of expression
+ * statements, conditions, {@code return} and {@code throw} statements, resources and catch parameters.
+ * Lambdas and nested classes are part of the elements declaring them, their bodies are not walked.
+ * Exceptions are only followed towards the catch clauses of an enclosing {@code try}: the blocks of a
+ * {@code try} body have an exceptional edge to its catches, exceptions escaping the method end in
+ * {@link #exceptionalExit()} and not in {@link #exit()}.
+ */
+public final class ControlFlowGraph {
+
+  private final List<Block> blocks;
+  private final Block entry;
+  private final Block exit;
+  private final Block exceptionalExit;
+  private final Map<Tree, Block> blocksByElement = new IdentityHashMap<>();
+
+  ControlFlowGraph(List<Block> blocks, Block entry, Block exit, Block exceptionalExit) {
+    this.blocks = Collections.unmodifiableList(blocks);
+    this.entry = entry;
+    this.exit = exit;
+    this.exceptionalExit = exceptionalExit;
+    for (Block block : blocks) {
+      for (Tree element : block.elements) {
+        blocksByElement.put(element, block);
+      }
+    }
+  }
+
+  /**
+   * Builds the graph of a method, which must have a body.
+   */
+  public static ControlFlowGraph build(MethodTree method) {
+    return new ControlFlowGraphBuilder().buildGraph(method.block());
+  }
+
+  public List<Block> blocks() {
+    return blocks;
+  }
+
+  public Block entry() {
+    return entry;
+  }
+
+  /**
+   * Block reached by the normal completion of the method and by its {@code return} statements.
+   */
+  public Block exit() {
+    return exit;
+  }
+
+  /**
+   * Block reached by the exceptions thrown out of the method.
+   */
+  public Block exceptionalExit() {
+    return exceptionalExit;
+  }
+
+  /**
+   * Element of the graph evaluating the given tree, or null when the tree is not part of the method body
+   * (for instance when it is in a lambda).
+   */
+  @CheckForNull
+  public Tree elementOf(Tree tree) {
+    Tree current = tree;
+    while (current != null && !blocksByElement.containsKey(current)) {
+      if (current.is(Tree.Kind.LAMBDA_EXPRESSION, Tree.Kind.CLASS, Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR)) {
+        return null;
+      }
+      current = current.parent();
+    }
+    return current;
+  }
+
+  @CheckForNull
+  public Block blockOf(Tree element) {
+    return blocksByElement.get(element);
+  }
+
+  public static final class Block {
+
+    private final int id;
+    final List<Tree> elements = new ArrayList<>();
+    final List<Block> successors = new ArrayList<>();
+    final List<Block> exceptionalSuccessors = new ArrayList<>();
+    @Nullable
+    Tree condition;
+    @Nullable
+    Block trueSuccessor;
+    @Nullable
+    Block falseSuccessor;
+
+    Block(int id) {
+      this.id = id;
+    }
+
+    public int id() {
+      return id;
+    }
+
+    public List<Tree> elements() {
+      return Collections.unmodifiableList(elements);
+    }
+
+    public List<Block> successors() {
+      return Collections.unmodifiableList(successors);
+    }
+
+    /**
+     * Catch clauses reached when one of the elements of the block throws.
+     */
+    public List<Block> exceptionalSuccessors() {
+      return Collections.unmodifiableList(exceptionalSuccessors);
+    }
+
+    /**
+     * Condition ending the block, which is then also its last element, when the block branches on it.
+     */
+    @CheckForNull
+    public Tree condition() {
+      return condition;
+    }
+
+    @CheckForNull
+    public Block trueSuccessor() {
+      return trueSuccessor;
+    }
+
+    @CheckForNull
+    public Block falseSuccessor() {
+      return falseSuccessor;
+    }
+
+    @Override
+    public String toString() {
+      return "B" + id;
+    }
+  }
+}
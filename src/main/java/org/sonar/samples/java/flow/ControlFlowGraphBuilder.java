@@ -0,0 +1,468 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.flow;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.tree.BlockTree;
+import org.sonar.plugins.java.api.tree.BreakStatementTree;
+import org.sonar.plugins.java.api.tree.CaseGroupTree;
+import org.sonar.plugins.java.api.tree.CaseLabelTree;
+import org.sonar.plugins.java.api.tree.CatchTree;
+import org.sonar.plugins.java.api.tree.ContinueStatementTree;
+import org.sonar.plugins.java.api.tree.DoWhileStatementTree;
+import org.sonar.plugins.java.api.tree.ExpressionStatementTree;
+import org.sonar.plugins.java.api.tree.ExpressionTree;
+import org.sonar.plugins.java.api.tree.ForEachStatement;
+import org.sonar.plugins.java.api.tree.ForStatementTree;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+import org.sonar.plugins.java.api.tree.IfStatementTree;
+import org.sonar.plugins.java.api.tree.LabeledStatementTree;
+import org.sonar.plugins.java.api.tree.StatementTree;
+import org.sonar.plugins.java.api.tree.SwitchStatementTree;
+import org.sonar.plugins.java.api.tree.SynchronizedStatementTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.plugins.java.api.tree.TryStatementTree;
+import org.sonar.plugins.java.api.tree.WhileStatementTree;
+import org.sonar.samples.java.flow.ControlFlowGraph.Block;
+
+/**
+ * Builds a {@link ControlFlowGraph} in one pass over the statements of a method body.
+ * Targets of jumps (loop heads, exits, finally blocks) are created before the statements jumping to them,
+ * so every edge is added as soon as it is met.
+ */
+class ControlFlowGraphBuilder {
+
+  private final List<Block> blocks = new ArrayList<>();
+  private final Block exit = newBlock();
+  private final Block exceptionalExit = newBlock();
+  private final Deque<JumpTarget> jumpTargets = new ArrayDeque<>();
+  private final List<TryContext> tryContexts = new ArrayList<>();
+  @Nullable
+  private Block current;
+  @Nullable
+  private String pendingLabel;
+
+  ControlFlowGraph buildGraph(BlockTree body) {
+    Block entry = newBlock();
+    current = entry;
+    build(body);
+    if (current != null) {
+      link(current, exit);
+    }
+    return new ControlFlowGraph(blocks, entry, exit, exceptionalExit);
+  }
+
+  private void build(StatementTree statement) {
+    switch (statement.kind()) {
+      case BLOCK:
+        for (StatementTree child : ((BlockTree) statement).body()) {
+          build(child);
+        }
+        break;
+      case EXPRESSION_STATEMENT:
+        add(((ExpressionStatementTree) statement).expression());
+        break;
+      case IF_STATEMENT:
+        buildIf((IfStatementTree) statement);
+        break;
+      case WHILE_STATEMENT:
+        buildWhile((WhileStatementTree) statement);
+        break;
+      case DO_STATEMENT:
+        buildDoWhile((DoWhileStatementTree) statement);
+        break;
+      case FOR_STATEMENT:
+        buildFor((ForStatementTree) statement);
+        break;
+      case FOR_EACH_STATEMENT:
+        buildForEach((ForEachStatement) statement);
+        break;
+      case SWITCH_STATEMENT:
+        buildSwitch((SwitchStatementTree) statement);
+        break;
+      case LABELED_STATEMENT:
+        buildLabeled((LabeledStatementTree) statement);
+        break;
+      case BREAK_STATEMENT:
+        buildBreak(((BreakStatementTree) statement).label());
+        break;
+      case CONTINUE_STATEMENT:
+        buildContinue(((ContinueStatementTree) statement).label());
+        break;
+      case RETURN_STATEMENT:
+        add(statement);
+        jump(exit, 0);
+        break;
+      case THROW_STATEMENT:
+        add(statement);
+        buildThrow();
+        break;
+      case TRY_STATEMENT:
+        buildTry((TryStatementTree) statement);
+        break;
+      case SYNCHRONIZED_STATEMENT:
+        add(((SynchronizedStatementTree) statement).expression());
+        build(((SynchronizedStatementTree) statement).block());
+        break;
+      case EMPTY_STATEMENT:
+      case CLASS:
+      case INTERFACE:
+      case ENUM:
+        break;
+      default:
+        // variables, assert, ...
+        add(statement);
+        break;
+    }
+  }
+
+  private void buildIf(IfStatementTree tree) {
+    add(tree.condition());
+    Block conditionBlock = current();
+    Block thenBlock = newBlock();
+    Block after = newBlock();
+    StatementTree elseStatement = tree.elseStatement();
+    Block elseBlock = elseStatement == null ? after : newBlock();
+    branch(conditionBlock, tree.condition(), thenBlock, elseBlock);
+    current = thenBlock;
+    build(tree.thenStatement());
+    linkCurrentTo(after);
+    if (elseStatement != null) {
+      current = elseBlock;
+      build(elseStatement);
+      linkCurrentTo(after);
+    }
+    current = after;
+  }
+
+  private void buildWhile(WhileStatementTree tree) {
+    String label = consumeLabel();
+    Block conditionBlock = newBlock();
+    linkCurrentTo(conditionBlock);
+    conditionBlock.elements.add(tree.condition());
+    Block body = newBlock();
+    Block after = newBlock();
+    branch(conditionBlock, tree.condition(), body, after);
+    buildLoopBody(tree.statement(), label, body, conditionBlock, after);
+    linkCurrentTo(conditionBlock);
+    current = after;
+  }
+
+  private void buildDoWhile(DoWhileStatementTree tree) {
+    String label = consumeLabel();
+    Block body = newBlock();
+    linkCurrentTo(body);
+    Block conditionBlock = newBlock();
+    Block after = newBlock();
+    buildLoopBody(tree.statement(), label, body, conditionBlock, after);
+    linkCurrentTo(conditionBlock);
+    conditionBlock.elements.add(tree.condition());
+    branch(conditionBlock, tree.condition(), body, after);
+    current = after;
+  }
+
+  private void buildFor(ForStatementTree tree) {
+    String label = consumeLabel();
+    for (StatementTree initializer : tree.initializer()) {
+      build(initializer);
+    }
+    Block conditionBlock = newBlock();
+    linkCurrentTo(conditionBlock);
+    Block body = newBlock();
+    Block update = newBlock();
+    Block after = newBlock();
+    ExpressionTree condition = tree.condition();
+    if (condition == null) {
+      link(conditionBlock, body);
+    } else {
+      conditionBlock.elements.add(condition);
+      branch(conditionBlock, condition, body, after);
+    }
+    buildLoopBody(tree.statement(), label, body, update, after);
+    linkCurrentTo(update);
+    current = update;
+    for (StatementTree updateStatement : tree.update()) {
+      build(updateStatement);
+    }
+    linkCurrentTo(conditionBlock);
+    current = after;
+  }
+
+  private void buildForEach(ForEachStatement tree) {
+    String label = consumeLabel();
+    add(tree.expression());
+    Block head = newBlock();
+    linkCurrentTo(head);
+    head.elements.add(tree.variable());
+    Block body = newBlock();
+    Block after = newBlock();
+    link(head, body);
+    link(head, after);
+    buildLoopBody(tree.statement(), label, body, head, after);
+    linkCurrentTo(head);
+    current = after;
+  }
+
+  private void buildLoopBody(StatementTree statement, @Nullable String label, Block body, Block continueTarget, Block breakTarget) {
+    jumpTargets.push(new JumpTarget(label, breakTarget, continueTarget, tryContexts.size(), true));
+    current = body;
+    build(statement);
+    jumpTargets.pop();
+  }
+
+  private void buildSwitch(SwitchStatementTree tree) {
+    String label = consumeLabel();
+    add(tree.expression());
+    Block selector = current();
+    Block after = newBlock();
+    jumpTargets.push(new JumpTarget(label, after, null, tryContexts.size(), true));
+    boolean hasDefault = false;
+    current = null;
+    for (CaseGroupTree caseGroup : tree.cases()) {
+      Block caseBlock = newBlock();
+      link(selector, caseBlock);
+      // fall-through from the previous case
+      linkCurrentTo(caseBlock);
+      for (CaseLabelTree caseLabel : caseGroup.labels()) {
+        hasDefault |= "default".equals(caseLabel.caseOrDefaultKeyword().text());
+      }
+      current = caseBlock;
+      for (StatementTree statement : caseGroup.body()) {
+        build(statement);
+      }
+    }
+    jumpTargets.pop();
+    linkCurrentTo(after);
+    if (!hasDefault) {
+      link(selector, after);
+    }
+    current = after;
+  }
+
+  private void buildLabeled(LabeledStatementTree tree) {
+    StatementTree statement = tree.statement();
+    if (statement.is(Tree.Kind.WHILE_STATEMENT, Tree.Kind.DO_STATEMENT, Tree.Kind.FOR_STATEMENT, Tree.Kind.FOR_EACH_STATEMENT, Tree.Kind.SWITCH_STATEMENT)) {
+      pendingLabel = tree.label().name();
+      build(statement);
+      return;
+    }
+    Block after = newBlock();
+    jumpTargets.push(new JumpTarget(tree.label().name(), after, null, tryContexts.size(), false));
+    build(statement);
+    jumpTargets.pop();
+    linkCurrentTo(after);
+    current = after;
+  }
+
+  private void buildBreak(@Nullable IdentifierTree label) {
+    for (JumpTarget target : jumpTargets) {
+      if (label == null ? target.loopOrSwitch : label.name().equals(target.label)) {
+        jump(target.breakTarget, target.tryDepth);
+        return;
+      }
+    }
+    current = null;
+  }
+
+  private void buildContinue(@Nullable IdentifierTree label) {
+    for (JumpTarget target : jumpTargets) {
+      if (target.continueTarget != null && (label == null || label.name().equals(target.label))) {
+        jump(target.continueTarget, target.tryDepth);
+        return;
+      }
+    }
+    current = null;
+  }
+
+  private void buildThrow() {
+    for (int depth = tryContexts.size() - 1; depth >= 0; depth--) {
+      TryContext context = tryContexts.get(depth);
+      if (context.inBody && context.catchDispatch != null) {
+        jump(context.catchDispatch, depth + 1);
+        return;
+      }
+    }
+    jump(exceptionalExit, 0);
+  }
+
+  private void buildTry(TryStatementTree tree) {
+    for (Tree resource : tree.resourceList()) {
+      add(resource);
+    }
+    Block tryEntry = current();
+    Block catchDispatch = tree.catches().isEmpty() ? null : newBlock();
+    Block finallyEntry = tree.finallyBlock() == null ? null : newBlock();
+    Block after = newBlock();
+    TryContext context = new TryContext(catchDispatch, finallyEntry);
+    tryContexts.add(context);
+
+    int firstBodyBlock = blocks.size();
+    Block body = newBlock();
+    link(tryEntry, body);
+    current = body;
+    build(tree.block());
+    List<Block> normalEnds = new ArrayList<>();
+    addCurrentTo(normalEnds);
+    context.inBody = false;
+
+    if (catchDispatch != null) {
+      tryEntry.exceptionalSuccessors.add(catchDispatch);
+      for (int i = firstBodyBlock; i < blocks.size(); i++) {
+        blocks.get(i).exceptionalSuccessors.add(catchDispatch);
+      }
+      for (CatchTree catchTree : tree.catches()) {
+        Block catchBlock = newBlock();
+        link(catchDispatch, catchBlock);
+        catchBlock.elements.add(catchTree.parameter());
+        current = catchBlock;
+        build(catchTree.block());
+        addCurrentTo(normalEnds);
+      }
+    }
+    tryContexts.remove(tryContexts.size() - 1);
+
+    if (finallyEntry == null) {
+      for (Block end : normalEnds) {
+        link(end, after);
+      }
+    } else {
+      for (Block end : normalEnds) {
+        link(end, finallyEntry);
+      }
+      current = finallyEntry;
+      build(tree.finallyBlock());
+      if (current != null) {
+        link(current, after);
+        for (Block continuation : context.finallyContinuations) {
+          link(current, continuation);
+        }
+      }
+    }
+    current = after;
+  }
+
+  /**
+   * Jumps from the current block to the target, through the finally blocks of the try statements left on the way.
+   */
+  private void jump(Block target, int targetTryDepth) {
+    Block from = current();
+    Block next = target;
+    // from the outermost finally to the innermost one, each finally continues with the next one
+    for (int depth = targetTryDepth; depth < tryContexts.size(); depth++) {
+      TryContext context = tryContexts.get(depth);
+      if (context.finallyEntry != null) {
+        context.finallyContinuations.add(next);
+        next = context.finallyEntry;
+      }
+    }
+    link(from, next);
+    current = null;
+  }
+
+  private String consumeLabel() {
+    String label = pendingLabel;
+    pendingLabel = null;
+    return label;
+  }
+
+  private void add(Tree element) {
+    current().elements.add(element);
+  }
+
+  /**
+   * Block being filled, created when the previous statement never completes normally (unreachable code).
+   */
+  private Block current() {
+    if (current == null) {
+      current = newBlock();
+    }
+    return current;
+  }
+
+  private void linkCurrentTo(Block target) {
+    if (current != null) {
+      link(current, target);
+    }
+  }
+
+  private void addCurrentTo(List<Block> ends) {
+    if (current != null) {
+      ends.add(current);
+    }
+  }
+
+  private static void branch(Block block, Tree condition, Block whenTrue, Block whenFalse) {
+    block.condition = condition;
+    block.trueSuccessor = whenTrue;
+    block.falseSuccessor = whenFalse;
+    link(block, whenTrue);
+    link(block, whenFalse);
+  }
+
+  private static void link(Block from, Block to) {
+    if (!from.successors.contains(to)) {
+      from.successors.add(to);
+    }
+  }
+
+  private Block newBlock() {
+    Block block = new Block(blocks.size());
+    blocks.add(block);
+    return block;
+  }
+
+  private static class JumpTarget {
+    @Nullable
+    private final String label;
+    private final Block breakTarget;
+    @Nullable
+    private final Block continueTarget;
+    private final int tryDepth;
+    // target of unlabeled breaks, unlike labeled blocks
+    private final boolean loopOrSwitch;
+
+    JumpTarget(@Nullable String label, Block breakTarget, @Nullable Block continueTarget, int tryDepth, boolean loopOrSwitch) {
+      this.label = label;
+      this.breakTarget = breakTarget;
+      this.continueTarget = continueTarget;
+      this.tryDepth = tryDepth;
+      this.loopOrSwitch = loopOrSwitch;
+    }
+
+  }
+
+  private static class TryContext {
+    @Nullable
+    private final Block catchDispatch;
+    @Nullable
+    private final Block finallyEntry;
+    private final List<Block> finallyContinuations = new ArrayList<>();
+    private boolean inBody = true;
+
+    TryContext(@Nullable Block catchDispatch, @Nullable Block finallyEntry) {
+      this.catchDispatch = catchDispatch;
+      this.finallyEntry = finallyEntry;
+    }
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.flow;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.LambdaExpressionTree;
+import org.sonar.plugins.java.api.tree.ListTree;
+import org.sonar.plugins.java.api.tree.MethodInvocationTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.ParenthesizedTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.plugins.java.api.tree.UnaryExpressionTree;
+import org.sonar.samples.java.checks.MethodMatcher;
+import org.sonar.samples.java.flow.ControlFlowGraph.Block;
+
+/**
+ * Flow analyses of a method, computed on first use and shared by all the checks asking for them through the {@link OfFile}
+ * of the file.
+ */
+public final class MethodFlow {
+
+  private final MethodTree method;
+  private ControlFlowGraph cfg;
+  private ResourceLeakAnalysis resourceLeaks;
+
+  private MethodFlow(MethodTree method) {
+    this.method = method;
+  }
+
+  public synchronized ControlFlowGraph cfg() {
+    if (cfg == null) {
+      cfg = ControlFlowGraph.build(method);
+    }
+    return cfg;
+  }
+
+  public synchronized ResourceLeakAnalysis resourceLeaks() {
+    if (resourceLeaks == null) {
+      resourceLeaks = ResourceLeakAnalysis.analyze(cfg());
+    }
+    return resourceLeaks;
+  }
+
+  /**
+   * Whether, on every path leading to the given tree, an invocation matching the given matcher was evaluated before it.
+   * An invocation used as a condition only counts on the branch where it returned true ({@code false} when negated).
+   * Trees in lambdas or nested classes are never preceded.
+   */
+  public boolean isAlwaysPrecededBy(Tree tree, MethodMatcher matcher) {
+    ControlFlowGraph graph = cfg();
+    Tree element = graph.elementOf(tree);
+    if (element == null) {
+      return false;
+    }
+    Block block = graph.blockOf(element);
+    Boolean[] in = callAlwaysEvaluatedBefore(graph, matcher);
+    if (Boolean.TRUE.equals(in[block.id()])) {
+      return true;
+    }
+    for (Tree previous : block.elements) {
+      if (previous == element) {
+        break;
+      }
+      if (containsCall(previous, matcher)) {
+        return true;
+      }
+    }
+    CallOrder order = new CallOrder(matcher, tree);
+    element.accept(order);
+    return order.calledBeforeTarget;
+  }
+
+  // must analysis: null for blocks not reached yet, true when a matching call was evaluated on all paths reaching the block
+  private static Boolean[] callAlwaysEvaluatedBefore(ControlFlowGraph graph, MethodMatcher matcher) {
+    List<Block> blocks = graph.blocks();
+    Boolean[] in = new Boolean[blocks.size()];
+    in[graph.entry().id()] = false;
+    Deque<Block> worklist = new ArrayDeque<>();
+    worklist.add(graph.entry());
+    while (!worklist.isEmpty()) {
+      Block block = worklist.poll();
+      boolean called = in[block.id()];
+      Tree condition = block.condition;
+      for (Tree element : block.elements) {
+        if (element != condition && containsCall(element, matcher)) {
+          called = true;
+        }
+      }
+      Boolean conditionPolarity = condition == null ? null : callPolarity(condition, matcher);
+      if (condition != null && conditionPolarity == null && containsCall(condition, matcher)) {
+        called = true;
+      }
+      for (Block successor : block.successors) {
+        boolean edgeCalled = called;
+        if (conditionPolarity != null) {
+          edgeCalled |= (successor == block.trueSuccessor) == conditionPolarity;
+        }
+        merge(in, successor, edgeCalled, worklist);
+      }
+      for (Block successor : block.exceptionalSuccessors) {
+        merge(in, successor, in[block.id()], worklist);
+      }
+    }
+    return in;
+  }
+
+  private static void merge(Boolean[] in, Block successor, boolean called, Deque<Block> worklist) {
+    Boolean current = in[successor.id()];
+    Boolean merged = current == null ? called : (current && called);
+    if (!merged.equals(current)) {
+      in[successor.id()] = merged;
+      if (!worklist.contains(successor)) {
+        worklist.add(successor);
+      }
+    }
+  }
+
+  /**
+   * True for {@code matching()}, false for {@code !matching()}, null for any other condition.
+   */
+  @Nullable
+  private static Boolean callPolarity(Tree condition, MethodMatcher matcher) {
+    boolean polarity = true;
+    Tree current = condition;
+    while (current.is(Tree.Kind.LOGICAL_COMPLEMENT, Tree.Kind.PARENTHESIZED_EXPRESSION)) {
+      if (current.is(Tree.Kind.LOGICAL_COMPLEMENT)) {
+        polarity = !polarity;
+        current = ((UnaryExpressionTree) current).expression();
+      } else {
+        current = ((ParenthesizedTree) current).expression();
+      }
+    }
+    return matcher.matches(current) ? polarity : null;
+  }
+
+  private static boolean containsCall(Tree element, MethodMatcher matcher) {
+    CallOrder order = new CallOrder(matcher, null);
+    element.accept(order);
+    return order.calledBeforeTarget;
+  }
+
+  /**
+   * Looks for a matching invocation evaluated before the target, that is completed before it in post-order.
+   * Without target, looks for any matching invocation.
+   */
+  private static class CallOrder extends BaseTreeVisitor {
+    private final MethodMatcher matcher;
+    @Nullable
+    private final Tree target;
+    private boolean targetReached;
+    private boolean calledBeforeTarget;
+
+    CallOrder(MethodMatcher matcher, @Nullable Tree target) {
+      this.matcher = matcher;
+      this.target = target;
+    }
+
+    @Override
+    protected void scan(@Nullable Tree tree) {
+      if (tree == null || targetReached || calledBeforeTarget) {
+        return;
+      }
+      super.scan(tree);
+      if (tree == target) {
+        targetReached = true;
+      }
+    }
+
+    @Override
+    protected void scan(@Nullable ListTree<? extends Tree> listTree) {
+      // plain lists accept the visitor on their elements directly, which would skip the target check
+      if (listTree != null) {
+        for (Tree element : listTree) {
+          scan(element);
+        }
+      }
+    }
+
+    @Override
+    public void visitMethodInvocation(MethodInvocationTree tree) {
+      super.visitMethodInvocation(tree);
+      if (!targetReached && tree != target && matcher.matches(tree)) {
+        calledBeforeTarget = true;
+      }
+    }
+
+    @Override
+    public void visitLambdaExpression(LambdaExpressionTree lambdaExpressionTree) {
+      // evaluated later, if ever
+    }
+
+    @Override
+    public void visitClass(ClassTree tree) {
+      // evaluated later, if ever
+    }
+  }
+
+  /**
+   * Flows of the methods of one file. Checks share it as state of the file, to be dropped with the file:
+   * {@code sharedFileState(MethodFlow.OfFile.class, MethodFlow.OfFile::new)}.
+   */
+  public static final class OfFile {
+
+    private final Map<MethodTree, MethodFlow> flows = new IdentityHashMap<>();
+
+    /**
+     * Flow of a method having a body.
+     */
+    public synchronized MethodFlow of(MethodTree method) {
+      return flows.computeIfAbsent(method, MethodFlow::new);
+    }
+  }
+}
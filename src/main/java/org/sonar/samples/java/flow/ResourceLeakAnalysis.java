@@ -0,0 +1,456 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.flow;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.semantic.Symbol;
+import org.sonar.plugins.java.api.semantic.Type;
+import org.sonar.plugins.java.api.tree.AssignmentExpressionTree;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.BinaryExpressionTree;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.ExpressionTree;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+import org.sonar.plugins.java.api.tree.LambdaExpressionTree;
+import org.sonar.plugins.java.api.tree.MemberSelectExpressionTree;
+import org.sonar.plugins.java.api.tree.MethodInvocationTree;
+import org.sonar.plugins.java.api.tree.NewClassTree;
+import org.sonar.plugins.java.api.tree.ParenthesizedTree;
+import org.sonar.plugins.java.api.tree.ReturnStatementTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.plugins.java.api.tree.TypeCastTree;
+import org.sonar.plugins.java.api.tree.VariableTree;
+import org.sonar.samples.java.checks.MethodMatcher;
+import org.sonar.samples.java.flow.ControlFlowGraph.Block;
+
+/**
+ * Forward dataflow over a {@link ControlFlowGraph} finding the streams, readers, writers, channels and JDBC
+ * resources opened by a method and still open when it returns, on at least one path.
+ * <p>
+ * A resource is tracked from the expression opening it once it is stored in a local variable. It stops being
+ * tracked when it is closed, when the variable is found null by a condition, or when it escapes the method:
+ * returned, passed to a method or a constructor (wrapping it in another resource moves the tracking to the
+ * wrapper), stored elsewhere or captured by a lambda. Resources declared by a try-with-resources are never
+ * tracked. An opened resource which is neither stored nor escaping, such as {@code new FileReader(f).read()},
+ * is a leak on the spot.
+ */
+public final class ResourceLeakAnalysis {
+
+  // constructors opening a file descriptor by themselves
+  private static final String[] HANDLE_TYPES = {
+    "java.io.FileInputStream",
+    "java.io.FileOutputStream",
+    "java.io.FileReader",
+    "java.io.FileWriter",
+    "java.io.RandomAccessFile",
+    "java.util.zip.ZipFile",
+    "java.net.Socket",
+    "java.net.ServerSocket"
+  };
+  // constructors opening a file when given one
+  private static final String[] FILE_CONSUMER_TYPES = {"java.io.PrintWriter", "java.io.PrintStream", "java.util.Formatter", "java.util.Scanner"};
+  private static final String[] FILE_TYPES = {"java.io.File", "java.nio.file.Path"};
+
+  private static final List<MethodMatcher> OPENING_METHODS = Arrays.asList(
+    MethodMatcher.create().ownerType("java.nio.file.Files")
+      .names("newInputStream", "newOutputStream", "newBufferedReader", "newBufferedWriter", "newByteChannel", "newDirectoryStream",
+        "lines", "list", "walk", "find"),
+    MethodMatcher.create().ownerType("java.nio.channels.FileChannel", "java.nio.channels.AsynchronousFileChannel").names("open"),
+    MethodMatcher.create().ownerSubtypeOf("java.net.URL").names("openStream"),
+    MethodMatcher.create().ownerSubtypeOf("org.springframework.web.multipart.MultipartFile", "javax.servlet.http.Part").names("getInputStream"),
+    MethodMatcher.create().ownerSubtypeOf("java.sql.DriverManager", "javax.sql.DataSource").names("getConnection"),
+    MethodMatcher.create().ownerSubtypeOf("java.sql.Connection").names("createStatement", "prepareStatement", "prepareCall"),
+    MethodMatcher.create().ownerSubtypeOf("java.sql.Statement").names("executeQuery", "getResultSet", "getGeneratedKeys"));
+
+  private final ControlFlowGraph cfg;
+  private final Map<Tree, Integer> sitesByTree = new IdentityHashMap<>();
+  private final List<Tree> sites = new ArrayList<>();
+  private final Map<Symbol, BitSet> sitesByHolder = new HashMap<>();
+  private final Set<Tree> leaks = new LinkedHashSet<>();
+
+  private ResourceLeakAnalysis(ControlFlowGraph cfg) {
+    this.cfg = cfg;
+  }
+
+  public static ResourceLeakAnalysis analyze(ControlFlowGraph cfg) {
+    ResourceLeakAnalysis analysis = new ResourceLeakAnalysis(cfg);
+    analysis.run();
+    return analysis;
+  }
+
+  /**
+   * Expressions opening a resource which is not closed on every path, in the order they were found.
+   */
+  public List<Tree> leaks() {
+    return Collections.unmodifiableList(new ArrayList<>(leaks));
+  }
+
+  public static boolean isOpening(MethodInvocationTree invocation) {
+    for (MethodMatcher matcher : OPENING_METHODS) {
+      if (matcher.matches(invocation)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void run() {
+    List<Block> blocks = cfg.blocks();
+    BitSet[] in = new BitSet[blocks.size()];
+    in[cfg.entry().id()] = new BitSet();
+    Deque<Block> worklist = new ArrayDeque<>();
+    worklist.add(cfg.entry());
+    while (!worklist.isEmpty()) {
+      Block block = worklist.poll();
+      BitSet state = (BitSet) in[block.id()].clone();
+      BitSet anyState = (BitSet) state.clone();
+      Transfer transfer = new Transfer(state);
+      for (Tree element : block.elements) {
+        transfer.evaluate(element);
+        anyState.or(state);
+      }
+      for (Block successor : block.successors) {
+        BitSet edgeState = state;
+        if (block.condition != null && (successor == block.trueSuccessor || successor == block.falseSuccessor)) {
+          edgeState = (BitSet) state.clone();
+          refineOnNullCheck(edgeState, block.condition, successor == block.trueSuccessor);
+        }
+        propagate(in, successor, edgeState, worklist);
+      }
+      // an exception may be thrown between any two elements of the block
+      for (Block successor : block.exceptionalSuccessors) {
+        propagate(in, successor, anyState, worklist);
+      }
+    }
+    BitSet atExit = in[cfg.exit().id()];
+    if (atExit != null) {
+      for (int site = atExit.nextSetBit(0); site >= 0; site = atExit.nextSetBit(site + 1)) {
+        leaks.add(sites.get(site));
+      }
+    }
+  }
+
+  private static void propagate(BitSet[] in, Block successor, BitSet state, Deque<Block> worklist) {
+    BitSet current = in[successor.id()];
+    if (current == null) {
+      in[successor.id()] = (BitSet) state.clone();
+      worklist.add(successor);
+    } else {
+      BitSet merged = (BitSet) current.clone();
+      merged.or(state);
+      if (!merged.equals(current)) {
+        in[successor.id()] = merged;
+        if (!worklist.contains(successor)) {
+          worklist.add(successor);
+        }
+      }
+    }
+  }
+
+  /**
+   * {@code x != null} is false, or {@code x == null} is true: x holds no resource on this edge.
+   */
+  private void refineOnNullCheck(BitSet state, Tree condition, boolean whenTrue) {
+    Tree unwrapped = skipParentheses(condition);
+    if (!unwrapped.is(Tree.Kind.EQUAL_TO, Tree.Kind.NOT_EQUAL_TO)) {
+      return;
+    }
+    BinaryExpressionTree comparison = (BinaryExpressionTree) unwrapped;
+    boolean isNullOnEdge = comparison.is(Tree.Kind.EQUAL_TO) == whenTrue;
+    if (!isNullOnEdge) {
+      return;
+    }
+    ExpressionTree left = skipParentheses(comparison.leftOperand());
+    ExpressionTree right = skipParentheses(comparison.rightOperand());
+    if (right.is(Tree.Kind.NULL_LITERAL) && left.is(Tree.Kind.IDENTIFIER)) {
+      close(state, ((IdentifierTree) left).symbol());
+    } else if (left.is(Tree.Kind.NULL_LITERAL) && right.is(Tree.Kind.IDENTIFIER)) {
+      close(state, ((IdentifierTree) right).symbol());
+    }
+  }
+
+  private int site(Tree opening, Symbol holder) {
+    Integer site = sitesByTree.get(opening);
+    if (site == null) {
+      site = sites.size();
+      sites.add(opening);
+      sitesByTree.put(opening, site);
+      sitesByHolder.computeIfAbsent(holder, h -> new BitSet()).set(site);
+    }
+    return site;
+  }
+
+  private void close(BitSet state, Symbol holder) {
+    BitSet holderSites = sitesByHolder.get(holder);
+    if (holderSites != null) {
+      state.andNot(holderSites);
+    }
+  }
+
+  private boolean isTracked(Symbol symbol) {
+    return sitesByHolder.containsKey(symbol);
+  }
+
+  private static ExpressionTree skipParentheses(Tree tree) {
+    Tree result = tree;
+    while (result.is(Tree.Kind.PARENTHESIZED_EXPRESSION)) {
+      result = ((ParenthesizedTree) result).expression();
+    }
+    return (ExpressionTree) result;
+  }
+
+  private static boolean isLocal(Symbol symbol) {
+    return symbol.isVariableSymbol() && symbol.owner() != null && symbol.owner().isMethodSymbol();
+  }
+
+  private static boolean isAnyOf(Type type, String... fullyQualifiedNames) {
+    for (String name : fullyQualifiedNames) {
+      if (type.isSubtypeOf(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * What an expression evaluates to, as far as resources are concerned.
+   */
+  private static final class Value {
+    private static final Value NONE = new Value(null, null);
+
+    // expression opening a resource, not stored yet
+    @Nullable
+    private final Tree opening;
+    // local variable holding a tracked resource
+    @Nullable
+    private final Symbol variable;
+
+    private Value(@Nullable Tree opening, @Nullable Symbol variable) {
+      this.opening = opening;
+      this.variable = variable;
+    }
+
+    boolean isResource() {
+      return opening != null || variable != null;
+    }
+  }
+
+  /**
+   * Evaluates the elements of a block in order, updating the set of open sites.
+   */
+  private final class Transfer extends BaseTreeVisitor {
+
+    private final BitSet state;
+    private Value value = Value.NONE;
+
+    Transfer(BitSet state) {
+      this.state = state;
+    }
+
+    void evaluate(Tree element) {
+      Value result = eval(element);
+      if (result.opening != null) {
+        // expression statement opening a resource and dropping it
+        leaks.add(result.opening);
+      }
+    }
+
+    private Value eval(@Nullable Tree tree) {
+      value = Value.NONE;
+      if (tree != null) {
+        tree.accept(this);
+      }
+      Value result = value;
+      value = Value.NONE;
+      return result;
+    }
+
+    /**
+     * The resource, if any, is handed over to something else: the method is not responsible for it anymore.
+     */
+    private void escape(Value escaping) {
+      if (escaping.variable != null) {
+        close(state, escaping.variable);
+      }
+    }
+
+    @Override
+    public void visitVariable(VariableTree tree) {
+      Value initial = eval(tree.initializer());
+      if (isTryResource(tree)) {
+        escape(initial);
+        return;
+      }
+      store(tree.symbol(), initial);
+    }
+
+    @Override
+    public void visitAssignmentExpression(AssignmentExpressionTree tree) {
+      Value assigned = eval(tree.expression());
+      ExpressionTree variable = skipParentheses(tree.variable());
+      if (variable.is(Tree.Kind.IDENTIFIER) && isLocal(((IdentifierTree) variable).symbol())) {
+        Symbol symbol = ((IdentifierTree) variable).symbol();
+        close(state, symbol);
+        store(symbol, assigned);
+      } else {
+        eval(tree.variable());
+        escape(assigned);
+      }
+      value = Value.NONE;
+    }
+
+    private boolean isTryResource(VariableTree tree) {
+      Tree parent = tree.parent();
+      if (parent != null && parent.is(Tree.Kind.LIST)) {
+        parent = parent.parent();
+      }
+      return parent != null && parent.is(Tree.Kind.TRY_STATEMENT);
+    }
+
+    private void store(Symbol holder, Value stored) {
+      if (stored.opening != null && !holder.isUnknown()) {
+        state.set(site(stored.opening, holder));
+      } else {
+        // aliasing a tracked resource: the new variable is not tracked, so the resource is not either
+        escape(stored);
+      }
+    }
+
+    @Override
+    public void visitMethodInvocation(MethodInvocationTree tree) {
+      Value receiver = Value.NONE;
+      String name = null;
+      if (tree.methodSelect().is(Tree.Kind.MEMBER_SELECT)) {
+        MemberSelectExpressionTree memberSelect = (MemberSelectExpressionTree) tree.methodSelect();
+        receiver = eval(memberSelect.expression());
+        name = memberSelect.identifier().name();
+      }
+      for (ExpressionTree argument : tree.arguments()) {
+        escape(eval(argument));
+      }
+      if ("close".equals(name)) {
+        if (receiver.variable != null) {
+          close(state, receiver.variable);
+        }
+      } else if (receiver.opening != null) {
+        // new FileReader(file).read(): the resource cannot be closed anymore
+        leaks.add(receiver.opening);
+      }
+      value = isOpening(tree) ? new Value(tree, null) : Value.NONE;
+    }
+
+    @Override
+    public void visitNewClass(NewClassTree tree) {
+      eval(tree.enclosingExpression());
+      boolean wrapsResource = false;
+      boolean takesFile = false;
+      for (ExpressionTree argument : tree.arguments()) {
+        Value argumentValue = eval(argument);
+        wrapsResource |= argumentValue.isResource();
+        takesFile |= isAnyOf(argument.symbolType(), FILE_TYPES) || argument.symbolType().is("java.lang.String");
+        escape(argumentValue);
+      }
+      ClassTree body = tree.classBody();
+      if (body != null) {
+        captureIn(body);
+      }
+      Type type = tree.symbolType();
+      boolean opens = isAnyOf(type, HANDLE_TYPES)
+        || (wrapsResource && type.isSubtypeOf("java.lang.AutoCloseable"))
+        || (takesFile && !tree.arguments().isEmpty() && opensGivenFile(type, tree.arguments().get(0)));
+      value = opens ? new Value(tree, null) : Value.NONE;
+    }
+
+    private boolean opensGivenFile(Type type, ExpressionTree firstArgument) {
+      if (!isAnyOf(type, FILE_CONSUMER_TYPES)) {
+        return false;
+      }
+      // new Scanner(String) reads the string itself
+      return isAnyOf(firstArgument.symbolType(), FILE_TYPES) || !type.isSubtypeOf("java.util.Scanner");
+    }
+
+    @Override
+    public void visitReturnStatement(ReturnStatementTree tree) {
+      escape(eval(tree.expression()));
+    }
+
+    @Override
+    public void visitLambdaExpression(LambdaExpressionTree lambdaExpressionTree) {
+      captureIn(lambdaExpressionTree.body());
+      value = Value.NONE;
+    }
+
+    @Override
+    public void visitClass(ClassTree tree) {
+      captureIn(tree);
+    }
+
+    private void captureIn(Tree body) {
+      body.accept(new BaseTreeVisitor() {
+        @Override
+        public void visitIdentifier(IdentifierTree tree) {
+          if (isTracked(tree.symbol())) {
+            close(state, tree.symbol());
+          }
+        }
+      });
+    }
+
+    @Override
+    public void visitIdentifier(IdentifierTree tree) {
+      Symbol symbol = tree.symbol();
+      value = isTracked(symbol) ? new Value(null, symbol) : Value.NONE;
+    }
+
+    @Override
+    public void visitParenthesized(ParenthesizedTree tree) {
+      value = eval(tree.expression());
+    }
+
+    @Override
+    public void visitTypeCast(TypeCastTree tree) {
+      value = eval(tree.expression());
+    }
+
+    @Override
+    public void visitMemberSelectExpression(MemberSelectExpressionTree tree) {
+      eval(tree.expression());
+      value = Value.NONE;
+    }
+
+    @Override
+    protected void scan(@Nullable Tree tree) {
+      // other expressions: their operands are evaluated, their value does not hold a resource
+      eval(tree);
+    }
+  }
+}
@@ -0,0 +1,268 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.CheckForNull;
+
+/**
+ * Reads the names, the supertypes and the class annotations of a class file, skipping the fields, the methods and
+ * everything else. Nothing is loaded nor linked, and the constant pool is only decoded for the entries used.
+ */
+final class ClassFileReader {
+
+  private static final int MAGIC = 0xCAFEBABE;
+  private static final String OBJECT = "java/lang/Object";
+
+  private final byte[] bytes;
+  private final int length;
+  private int position;
+  // offset of each constant pool entry, after its tag
+  private int[] offsets;
+
+  private ClassFileReader(byte[] bytes, int length) {
+    this.bytes = bytes;
+    this.length = length;
+  }
+
+  /**
+   * @throws IOException when the bytes are not a class file
+   */
+  static IndexedClass read(byte[] bytes, int length) throws IOException {
+    try {
+      return new ClassFileReader(bytes, length).read();
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException("Truncated class file", e);
+    }
+  }
+
+  private IndexedClass read() throws IOException {
+    if (u4() != MAGIC) {
+      throw new IOException("Not a class file");
+    }
+    // minor and major versions
+    skip(4);
+    readConstantPool();
+    // access flags
+    u2();
+    String name = className(u2());
+    int superIndex = u2();
+    String superName = superIndex == 0 ? null : className(superIndex);
+    int interfaceCount = u2();
+    List<String> interfaces = new ArrayList<>(interfaceCount);
+    for (int i = 0; i < interfaceCount; i++) {
+      interfaces.add(typeName(className(u2())));
+    }
+    skipMembers();
+    skipMembers();
+    EntityKind kind = null;
+    int attributeCount = u2();
+    for (int i = 0; i < attributeCount && kind == null; i++) {
+      String attribute = utf8(u2());
+      int attributeLength = u4();
+      int end = position + attributeLength;
+      if ("RuntimeVisibleAnnotations".equals(attribute) || "RuntimeInvisibleAnnotations".equals(attribute)) {
+        kind = entityKind();
+      }
+      position = end;
+    }
+    return new IndexedClass(typeName(name), kind, superName == null || OBJECT.equals(superName) ? null : typeName(superName), interfaces);
+  }
+
+  private void readConstantPool() throws IOException {
+    int count = u2();
+    offsets = new int[count];
+    for (int i = 1; i < count; i++) {
+      int tag = u1();
+      offsets[i] = position;
+      switch (tag) {
+        case 1:
+          // Utf8
+          skip(u2());
+          break;
+        case 7:
+        case 8:
+        case 16:
+        case 19:
+        case 20:
+          // Class, String, MethodType, Module, Package
+          skip(2);
+          break;
+        case 15:
+          // MethodHandle
+          skip(3);
+          break;
+        case 3:
+        case 4:
+        case 9:
+        case 10:
+        case 11:
+        case 12:
+        case 17:
+        case 18:
+          // Integer, Float, references, NameAndType, Dynamic, InvokeDynamic
+          skip(4);
+          break;
+        case 5:
+        case 6:
+          // Long and Double take two entries
+          skip(8);
+          i++;
+          break;
+        default:
+          throw new IOException("Unknown constant pool tag " + tag);
+      }
+    }
+  }
+
+  private void skipMembers() {
+    int count = u2();
+    for (int i = 0; i < count; i++) {
+      // access flags, name and descriptor
+      skip(6);
+      skipAttributes();
+    }
+  }
+
+  private void skipAttributes() {
+    int count = u2();
+    for (int i = 0; i < count; i++) {
+      skip(2);
+      skip(u4());
+    }
+  }
+
+  @CheckForNull
+  private EntityKind entityKind() throws IOException {
+    int count = u2();
+    for (int i = 0; i < count; i++) {
+      String descriptor = utf8(u2());
+      if (descriptor.length() > 2 && descriptor.charAt(0) == 'L') {
+        EntityKind kind = EntityKind.ofAnnotation(typeName(descriptor.substring(1, descriptor.length() - 1)));
+        if (kind != null) {
+          return kind;
+        }
+      }
+      skipElementValuePairs();
+    }
+    return null;
+  }
+
+  private void skipElementValuePairs() throws IOException {
+    int count = u2();
+    for (int i = 0; i < count; i++) {
+      skip(2);
+      skipElementValue();
+    }
+  }
+
+  private void skipElementValue() throws IOException {
+    int tag = u1();
+    switch (tag) {
+      case 'B':
+      case 'C':
+      case 'D':
+      case 'F':
+      case 'I':
+      case 'J':
+      case 'S':
+      case 'Z':
+      case 's':
+      case 'c':
+        skip(2);
+        break;
+      case 'e':
+        skip(4);
+        break;
+      case '@':
+        skip(2);
+        skipElementValuePairs();
+        break;
+      case '[':
+        int count = u2();
+        for (int i = 0; i < count; i++) {
+          skipElementValue();
+        }
+        break;
+      default:
+        throw new IOException("Unknown annotation element tag " + (char) tag);
+    }
+  }
+
+  private String className(int index) throws IOException {
+    return utf8(u2(offsets[index]));
+  }
+
+  private String utf8(int index) throws IOException {
+    int offset = offsets[index];
+    int utf8Length = u2(offset);
+    int start = offset + 2;
+    if (start + utf8Length > length) {
+      throw new IndexOutOfBoundsException("Constant " + index);
+    }
+    for (int i = start; i < start + utf8Length; i++) {
+      if (bytes[i] <= 0) {
+        // modified UTF-8 beyond ASCII
+        return new DataInputStream(new ByteArrayInputStream(bytes, offset, utf8Length + 2)).readUTF();
+      }
+    }
+    return new String(bytes, start, utf8Length, StandardCharsets.US_ASCII);
+  }
+
+  private static String typeName(String internalName) {
+    return internalName.replace('/', '.');
+  }
+
+  private int u1() {
+    if (position >= length) {
+      throw new IndexOutOfBoundsException("Offset " + position);
+    }
+    return bytes[position++] & 0xFF;
+  }
+
+  private int u2() {
+    int value = u2(position);
+    position += 2;
+    return value;
+  }
+
+  private int u2(int offset) {
+    if (offset < 0 || offset + 2 > length) {
+      throw new IndexOutOfBoundsException("Offset " + offset);
+    }
+    return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+  }
+
+  private int u4() {
+    return (u2() << 16) | u2();
+  }
+
+  private void skip(int count) {
+    if (count < 0 || position + count > length) {
+      throw new IndexOutOfBoundsException("Offset " + position + " + " + count);
+    }
+    position += count;
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+
+/**
+ * Supertypes and entity annotations of the classes of the libraries, read from the jars of the class path by
+ * {@link MappedJar} without loading any class.
+ * <p>
+ * Filled by {@link ClasspathIndexSensor} before the checks run. The checks look up library types here first, instead of
+ * walking their symbols, which makes the semantic model read the bytecode of every supertype. Classes which extend
+ * {@code Object} only and carry no entity annotation are not indexed. When a class is in several jars, the first one
+ * on the class path wins, as for the class loader.
+ */
+public final class ClasspathIndex {
+
+  public static final ClasspathIndex EMPTY = new ClasspathIndex(Collections.emptyMap(), Collections.emptyMap());
+
+  private static volatile ClasspathIndex current = EMPTY;
+
+  private final Map<String, JarIndex> jarsByChecksum;
+  private final Map<String, IndexedClass> classesByName;
+
+  private ClasspathIndex(Map<String, JarIndex> jarsByChecksum, Map<String, IndexedClass> classesByName) {
+    this.jarsByChecksum = jarsByChecksum;
+    this.classesByName = classesByName;
+  }
+
+  static ClasspathIndex of(List<JarIndex> jars) {
+    Map<String, JarIndex> jarsByChecksum = new HashMap<>();
+    Map<String, IndexedClass> classesByName = new HashMap<>();
+    for (JarIndex jar : jars) {
+      jarsByChecksum.put(jar.checksum, jar);
+      for (IndexedClass indexed : jar.classes) {
+        classesByName.putIfAbsent(indexed.name, indexed);
+      }
+    }
+    return new ClasspathIndex(jarsByChecksum, classesByName);
+  }
+
+  /**
+   * Index of the jars among the given class path entries, for analyses running outside of a scanner.
+   */
+  public static ClasspathIndex ofJars(Collection<Path> classpath) throws IOException {
+    List<JarIndex> jars = new ArrayList<>();
+    for (Path entry : classpath) {
+      if (Files.isRegularFile(entry)) {
+        MappedJar jar = MappedJar.open(entry);
+        jars.add(new JarIndex(jar.checksum(), jar.classes()));
+      }
+    }
+    return of(jars);
+  }
+
+  public static ClasspathIndex current() {
+    return current;
+  }
+
+  public static void use(ClasspathIndex index) {
+    current = index;
+  }
+
+  /**
+   * The jar with the given checksum, when this index holds it.
+   */
+  @CheckForNull
+  JarIndex jar(String checksum) {
+    return jarsByChecksum.get(checksum);
+  }
+
+  /**
+   * Entity kind of the given class, null when it is not an indexed entity.
+   */
+  @CheckForNull
+  public EntityKind kindOf(String fullyQualifiedName) {
+    IndexedClass indexed = classesByName.get(fullyQualifiedName);
+    return indexed == null ? null : indexed.kind;
+  }
+
+  public boolean contains(String fullyQualifiedName) {
+    return classesByName.containsKey(fullyQualifiedName);
+  }
+
+  /**
+   * Direct supertypes of the given class, superclass first, empty when the class is not indexed.
+   */
+  public List<String> supertypes(String fullyQualifiedName) {
+    IndexedClass indexed = classesByName.get(fullyQualifiedName);
+    if (indexed == null) {
+      return Collections.emptyList();
+    }
+    if (indexed.superName == null) {
+      return indexed.interfaces;
+    }
+    List<String> supertypes = new ArrayList<>(indexed.interfaces.size() + 1);
+    supertypes.add(indexed.superName);
+    supertypes.addAll(indexed.interfaces);
+    return supertypes;
+  }
+
+  /**
+   * Whether the given class is, extends or implements the other one, as far as the indexed jars tell.
+   */
+  public boolean isSubtypeOf(String fullyQualifiedName, String supertype) {
+    Set<String> visited = new HashSet<>();
+    Deque<String> pending = new ArrayDeque<>();
+    pending.add(fullyQualifiedName);
+    while (!pending.isEmpty()) {
+      String name = pending.poll();
+      if (name.equals(supertype)) {
+        return true;
+      }
+      if (visited.add(name)) {
+        pending.addAll(supertypes(name));
+      }
+    }
+    return false;
+  }
+
+  public int size() {
+    return classesByName.size();
+  }
+
+  public int jarCount() {
+    return jarsByChecksum.size();
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.PropertyType;
+import org.sonar.api.batch.Phase;
+import org.sonar.api.batch.sensor.Sensor;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.config.PropertyDefinition;
+
+/**
+ * Fills the {@link ClasspathIndex} of the analysis with the jars of {@code sonar.java.libraries}, before the checks run.
+ * <p>
+ * A jar is identified by the checksum of its central directory. Its index is taken from the previous analysis of the
+ * same JVM, as in SonarLint, or from the working directory, where each jar has its own file
+ * (see {@link JarIndexStore}); the jar is read only when neither has it. Stored indexes of jars no longer on the class
+ * path are deleted.
+ */
+@Phase(name = Phase.Name.PRE)
+public class ClasspathIndexSensor implements Sensor {
+
+  public static final String ENABLED_KEY = "sonar.pfe.classpathIndex.enabled";
+  static final String LIBRARIES_KEY = "sonar.java.libraries";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClasspathIndexSensor.class);
+
+  public static List<PropertyDefinition> properties() {
+    return Collections.singletonList(
+      PropertyDefinition.builder(ENABLED_KEY)
+        .name("Class path index")
+        .description("Index the supertypes and entity annotations of the library jars before the custom rules run, "
+          + "without loading their classes.")
+        .type(PropertyType.BOOLEAN)
+        .defaultValue("true")
+        .hidden()
+        .build());
+  }
+
+  @Override
+  public void describe(SensorDescriptor descriptor) {
+    descriptor.name("PFE class path index").onlyOnLanguage("java");
+  }
+
+  @Override
+  public void execute(SensorContext context) {
+    if (!context.config().getBoolean(ENABLED_KEY).orElse(true)) {
+      ClasspathIndex.use(ClasspathIndex.EMPTY);
+      return;
+    }
+    Path baseDir = context.fileSystem().baseDir().toPath();
+    Path storeDirectory = context.fileSystem().workDir().toPath().resolve(JarIndexStore.DIRECTORY_NAME);
+    ClasspathIndex previous = ClasspathIndex.current();
+    List<JarIndex> jars = new ArrayList<>();
+    Set<String> checksums = new HashSet<>();
+    int scanned = 0;
+    for (Path path : jars(baseDir, context.config().getStringArray(LIBRARIES_KEY))) {
+      try {
+        MappedJar jar = MappedJar.open(path);
+        String checksum = jar.checksum();
+        if (!checksums.add(checksum)) {
+          continue;
+        }
+        JarIndex index = previous.jar(checksum);
+        if (index == null) {
+          index = stored(storeDirectory, checksum);
+        }
+        if (index == null) {
+          index = new JarIndex(checksum, jar.classes());
+          scanned++;
+          store(storeDirectory, index);
+        }
+        jars.add(index);
+      } catch (IOException e) {
+        LOGGER.warn("Unable to index the classes of {}: {}", path, e.getMessage());
+      }
+    }
+    deleteOthers(storeDirectory, checksums);
+    ClasspathIndex index = ClasspathIndex.of(jars);
+    ClasspathIndex.use(index);
+    LOGGER.info("Class path index: {} types in {} jars, {} scanned", new Object[] {index.size(), index.jarCount(), scanned});
+  }
+
+  @CheckForNull
+  private static JarIndex stored(Path storeDirectory, String checksum) {
+    try {
+      return JarIndexStore.read(storeDirectory, checksum);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to read the class path index {}, the jar is indexed again: {}", checksum, e.getMessage());
+      return null;
+    }
+  }
+
+  private static void store(Path storeDirectory, JarIndex index) {
+    try {
+      JarIndexStore.write(storeDirectory, index);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to write the class path index " + storeDirectory, e);
+    }
+  }
+
+  private static void deleteOthers(Path storeDirectory, Set<String> checksums) {
+    if (!Files.isDirectory(storeDirectory)) {
+      return;
+    }
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(storeDirectory)) {
+      for (Path file : files) {
+        String checksum = JarIndexStore.checksum(file);
+        if (checksum == null || !checksums.contains(checksum)) {
+          Files.deleteIfExists(file);
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.debug("Unable to clean the class path index " + storeDirectory, e);
+    }
+  }
+
+  /**
+   * Jars of the library entries, as sonar-java reads them: paths relative to the base directory, a directory standing
+   * for the jars it contains, and wildcards ({@code lib/*.jar}, {@code target/**}{@code /*.jar}) matching jars.
+   */
+  static Set<Path> jars(Path baseDir, String[] entries) {
+    Set<Path> jars = new LinkedHashSet<>();
+    for (String entry : entries) {
+      String pattern = entry.trim().replace('\\', '/');
+      if (pattern.isEmpty()) {
+        continue;
+      }
+      int wildcard = indexOfWildcard(pattern);
+      if (wildcard < 0) {
+        Path path = baseDir.resolve(pattern).normalize();
+        if (Files.isDirectory(path)) {
+          jars.addAll(list(path, 1, path.getFileSystem().getPathMatcher("glob:**.{jar,zip}")));
+        } else if (Files.isRegularFile(path)) {
+          jars.add(path);
+        }
+      } else {
+        int slash = pattern.lastIndexOf('/', wildcard);
+        Path root = baseDir.resolve(slash < 0 ? "" : pattern.substring(0, slash)).normalize();
+        String glob = (root.toString() + File.separator).replace("\\", "\\\\") + pattern.substring(slash + 1);
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        jars.addAll(list(root, Integer.MAX_VALUE, path -> matcher.matches(path) && path.toString().matches(".*\\.(jar|zip)")));
+      }
+    }
+    return jars;
+  }
+
+  private static int indexOfWildcard(String pattern) {
+    for (int i = 0; i < pattern.length(); i++) {
+      if (pattern.charAt(i) == '*' || pattern.charAt(i) == '?') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static List<Path> list(Path directory, int depth, PathMatcher matcher) {
+    if (!Files.isDirectory(directory)) {
+      return new ArrayList<>();
+    }
+    try (Stream<Path> paths = Files.walk(directory, depth)) {
+      return paths.filter(path -> Files.isRegularFile(path) && matcher.matches(path)).sorted().collect(Collectors.toList());
+    } catch (IOException e) {
+      LOGGER.warn("Unable to list the libraries of {}: {}", directory, e.getMessage());
+      return new ArrayList<>();
+    }
+  }
+}
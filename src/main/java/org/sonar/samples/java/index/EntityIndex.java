@@ -0,0 +1,95 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+
+/**
+ * Entity types declared by the sources of the project, by fully qualified name.
+ * <p>
+ * Filled by {@link EntityIndexSensor} before the checks run, so that the checks know the entities of the whole
+ * project, including those of the modules whose bytecode is not on the class path of the analysis.
+ * Until then, or when disabled, the index is empty.
+ */
+public final class EntityIndex {
+
+  public static final EntityIndex EMPTY = new EntityIndex(Collections.emptyMap());
+
+  private static volatile EntityIndex current = EMPTY;
+
+  private final Map<String, EntityKind> kindsByType;
+
+  private EntityIndex(Map<String, EntityKind> kindsByType) {
+    this.kindsByType = kindsByType;
+  }
+
+  static EntityIndex of(Collection<IndexedFile> files) {
+    Map<String, EntityKind> kindsByType = new HashMap<>();
+    for (IndexedFile file : files) {
+      add(file.content, kindsByType);
+    }
+    return new EntityIndex(kindsByType);
+  }
+
+  /**
+   * Index of the given UTF-8 source files, for analyses running outside of a scanner.
+   */
+  public static EntityIndex ofFiles(Collection<Path> sourceFiles) throws IOException {
+    Map<String, EntityKind> kindsByType = new HashMap<>();
+    for (Path sourceFile : sourceFiles) {
+      add(EntitySourceScanner.scan(new String(Files.readAllBytes(sourceFile), StandardCharsets.UTF_8)), kindsByType);
+    }
+    return new EntityIndex(kindsByType);
+  }
+
+  private static void add(IndexedFile.Content content, Map<String, EntityKind> kindsByType) {
+    for (IndexedFile.Declaration declaration : content.declarations) {
+      kindsByType.put(content.fullyQualifiedName(declaration), declaration.kind);
+    }
+  }
+
+  public static EntityIndex current() {
+    return current;
+  }
+
+  public static void use(EntityIndex index) {
+    current = index;
+  }
+
+  /**
+   * Kind of the given type, null when it is not an entity type of the project.
+   */
+  @CheckForNull
+  public EntityKind kindOf(String fullyQualifiedName) {
+    return kindsByType.get(fullyQualifiedName);
+  }
+
+  public int size() {
+    return kindsByType.size();
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.PropertyType;
+import org.sonar.api.batch.Phase;
+import org.sonar.api.batch.fs.FilePredicates;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.Sensor;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.config.PropertyDefinition;
+
+/**
+ * First pass over the main Java files, before the checks run, filling the {@link EntityIndex} of the analysis.
+ * <p>
+ * Files are scanned lexically by {@link EntitySourceScanner}, which costs a fraction of a parse. The result is kept in
+ * the working directory by {@link EntityIndexStore}, and a file is read again only when its size or modification time
+ * changed. Stored files missing from the analysis are kept as long as they exist, as SonarLint only analyzes the
+ * files being edited.
+ */
+@Phase(name = Phase.Name.PRE)
+public class EntityIndexSensor implements Sensor {
+
+  public static final String ENABLED_KEY = "sonar.pfe.entityIndex.enabled";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EntityIndexSensor.class);
+
+  public static List<PropertyDefinition> properties() {
+    return Collections.singletonList(
+      PropertyDefinition.builder(ENABLED_KEY)
+        .name("Entity index")
+        .description("Index the @Entity, @Embeddable and @Document types of the project before the custom rules run, "
+          + "so that they are known even when their bytecode is not on the class path.")
+        .type(PropertyType.BOOLEAN)
+        .defaultValue("true")
+        .hidden()
+        .build());
+  }
+
+  @Override
+  public void describe(SensorDescriptor descriptor) {
+    descriptor.name("PFE entity index").onlyOnLanguage("java");
+  }
+
+  @Override
+  public void execute(SensorContext context) {
+    if (!context.config().getBoolean(ENABLED_KEY).orElse(true)) {
+      EntityIndex.use(EntityIndex.EMPTY);
+      return;
+    }
+    Path store = context.fileSystem().workDir().toPath().resolve(EntityIndexStore.FILE_NAME);
+    Map<String, IndexedFile> stored;
+    boolean unreadable = false;
+    try {
+      stored = EntityIndexStore.read(store);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to read the entity index {}, all the files are scanned again: {}", store, e.getMessage());
+      stored = Collections.emptyMap();
+      unreadable = true;
+    }
+    Map<String, IndexedFile> files = new HashMap<>();
+    int scanned = 0;
+    FileSystem fileSystem = context.fileSystem();
+    FilePredicates predicates = fileSystem.predicates();
+    for (InputFile inputFile : fileSystem.inputFiles(predicates.and(predicates.hasLanguage("java"), predicates.hasType(InputFile.Type.MAIN)))) {
+      String path = inputFile.uri().toString();
+      try {
+        BasicFileAttributes attributes = Files.readAttributes(Paths.get(inputFile.uri()), BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        IndexedFile indexed = stored.get(path);
+        if (indexed == null || !indexed.isUpToDate(size, lastModified)) {
+          indexed = new IndexedFile(path, size, lastModified, EntitySourceScanner.scan(inputFile.contents()));
+          scanned++;
+        }
+        files.put(path, indexed);
+      } catch (IOException e) {
+        LOGGER.warn("Unable to index the entities of {}: {}", inputFile, e.getMessage());
+      }
+    }
+    for (IndexedFile indexed : stored.values()) {
+      if (!files.containsKey(indexed.path) && Files.exists(Paths.get(URI.create(indexed.path)))) {
+        files.put(indexed.path, indexed);
+      }
+    }
+    EntityIndex index = EntityIndex.of(files.values());
+    EntityIndex.use(index);
+    LOGGER.info("Entity index: {} types in {} files, {} scanned", new Object[] {index.size(), files.size(), scanned});
+    if (unreadable || scanned > 0 || files.size() != stored.size()) {
+      try {
+        EntityIndexStore.write(store, files.values());
+      } catch (IOException e) {
+        LOGGER.warn("Unable to write the entity index " + store, e);
+      }
+    }
+  }
+}
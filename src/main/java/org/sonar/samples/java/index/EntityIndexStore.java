@@ -0,0 +1,123 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary form of the scanned files of an {@link EntityIndex}, kept in the working directory between analyses.
+ *
+ * <p>Layout: magic, format version, file count, then for each file its path, size, modification time, package and
+ * entity declarations, each as a kind ordinal followed by the name relative to the package. Strings are modified UTF-8,
+ * as written by {@link DataOutputStream#writeUTF}. Files without entities take a few bytes, so the whole project is
+ * kept and unchanged files are never read again.</p>
+ */
+final class EntityIndexStore {
+
+  static final String FILE_NAME = "pfe-entity-index.bin";
+
+  private static final int MAGIC = 0x50464545;
+  private static final int VERSION = 1;
+
+  private EntityIndexStore() {
+  }
+
+  /**
+   * Files of the stored index by path, empty when there is none.
+   *
+   * @throws IOException when the file exists but cannot be read, or was written by another version
+   */
+  static Map<String, IndexedFile> read(Path file) throws IOException {
+    Map<String, IndexedFile> filesByPath = new HashMap<>();
+    if (!Files.isRegularFile(file)) {
+      return filesByPath;
+    }
+    try (InputStream stream = Files.newInputStream(file)) {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not an entity index: " + file);
+      }
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported entity index version " + version + ", expected " + VERSION);
+      }
+      int count = in.readInt();
+      EntityKind[] kinds = EntityKind.values();
+      for (int i = 0; i < count; i++) {
+        String path = in.readUTF();
+        long size = in.readLong();
+        long lastModified = in.readLong();
+        String packageName = in.readUTF();
+        int declarationCount = in.readUnsignedShort();
+        List<IndexedFile.Declaration> declarations = new ArrayList<>(declarationCount);
+        for (int j = 0; j < declarationCount; j++) {
+          int kind = in.readUnsignedByte();
+          if (kind >= kinds.length) {
+            throw new IOException("Unknown entity kind " + kind + " in " + file);
+          }
+          declarations.add(new IndexedFile.Declaration(kinds[kind], in.readUTF()));
+        }
+        filesByPath.put(path, new IndexedFile(path, size, lastModified, new IndexedFile.Content(packageName, declarations)));
+      }
+    }
+    return filesByPath;
+  }
+
+  /**
+   * Replaces the stored index, through a temporary file so that an interrupted analysis leaves the previous one.
+   */
+  static void write(Path file, Collection<IndexedFile> files) throws IOException {
+    Files.createDirectories(file.getParent());
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try (OutputStream stream = Files.newOutputStream(temporary)) {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(files.size());
+      for (IndexedFile indexed : files) {
+        out.writeUTF(indexed.path);
+        out.writeLong(indexed.size);
+        out.writeLong(indexed.lastModified);
+        out.writeUTF(indexed.content.packageName);
+        out.writeShort(indexed.content.declarations.size());
+        for (IndexedFile.Declaration declaration : indexed.content.declarations) {
+          out.writeByte(declaration.kind.ordinal());
+          out.writeUTF(declaration.name);
+        }
+      }
+      out.flush();
+    }
+    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.CheckForNull;
+
+/**
+ * Persistence annotations making a type an entity, in the broad sense of the controller rules: a type mapped to a
+ * table or a document, which should not be bound to request parameters.
+ */
+public enum EntityKind {
+
+  ENTITY("Entity", "javax.persistence.Entity", "jakarta.persistence.Entity"),
+  EMBEDDABLE("Embeddable", "javax.persistence.Embeddable", "jakarta.persistence.Embeddable"),
+  DOCUMENT("Document", "org.springframework.data.mongodb.core.mapping.Document",
+    "org.springframework.data.elasticsearch.annotations.Document", "org.springframework.data.couchbase.core.mapping.Document");
+
+  private final String annotationName;
+  private final List<String> annotations;
+
+  EntityKind(String annotationName, String... annotations) {
+    this.annotationName = annotationName;
+    this.annotations = Collections.unmodifiableList(Arrays.asList(annotations));
+  }
+
+  /**
+   * Simple name of the annotations, as written in the sources.
+   */
+  public String annotationName() {
+    return annotationName;
+  }
+
+  /**
+   * Fully qualified names of the annotations.
+   */
+  public List<String> annotations() {
+    return annotations;
+  }
+
+  @CheckForNull
+  public static EntityKind ofAnnotation(String fullyQualifiedName) {
+    for (EntityKind kind : values()) {
+      if (kind.annotations.contains(fullyQualifiedName)) {
+        return kind;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,277 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import javax.annotation.CheckForNull;
+
+/**
+ * Finds the entity types declared by a source file without parsing it: a single pass over its tokens follows the
+ * package, the imports, the annotations and the type declarations, and skips everything else.
+ * <p>
+ * Annotations are resolved like the compiler does for a simple name: explicit import, then on-demand imports. Nested
+ * types are named as in the semantic model, {@code pkg.Outer$Inner}.
+ */
+final class EntitySourceScanner {
+
+  private final String source;
+  private int position;
+
+  private String packageName = "";
+  private final List<String> imports = new ArrayList<>();
+  private final List<String> onDemandImports = new ArrayList<>();
+  private final List<String> pendingAnnotations = new ArrayList<>();
+  // name of the last type declared, until its body is opened
+  private String pendingType;
+  private EntityKind pendingKind;
+  // enclosing types, with the brace depth of their body
+  private final Deque<String> typeNames = new ArrayDeque<>();
+  private final Deque<Integer> typeDepths = new ArrayDeque<>();
+  private int depth;
+
+  private final List<IndexedFile.Declaration> declarations = new ArrayList<>();
+
+  private EntitySourceScanner(String source) {
+    this.source = source;
+  }
+
+  static IndexedFile.Content scan(String source) {
+    EntitySourceScanner scanner = new EntitySourceScanner(source);
+    scanner.run();
+    return new IndexedFile.Content(scanner.packageName, scanner.declarations);
+  }
+
+  private void run() {
+    String previous = "";
+    for (String token = next(); token != null; token = next()) {
+      switch (token) {
+        case "package":
+          if (depth == 0) {
+            packageName = qualifiedName();
+          }
+          break;
+        case "import":
+          if (depth == 0) {
+            readImport();
+          }
+          break;
+        case "@":
+          readAnnotation();
+          break;
+        case "class":
+        case "interface":
+        case "enum":
+          if (!".".equals(previous)) {
+            declareType(next());
+          }
+          break;
+        case "{":
+          openBlock();
+          break;
+        case "}":
+          closeBlock();
+          break;
+        case ";":
+          pendingAnnotations.clear();
+          break;
+        default:
+          break;
+      }
+      previous = token;
+    }
+  }
+
+  private void readImport() {
+    String name = qualifiedName();
+    if ("static".equals(name)) {
+      return;
+    }
+    if (name.endsWith(".*")) {
+      onDemandImports.add(name.substring(0, name.length() - 2));
+    } else {
+      imports.add(name);
+    }
+  }
+
+  private void readAnnotation() {
+    String name = qualifiedName();
+    if ("interface".equals(name)) {
+      // annotation type declaration
+      declareType(next());
+      return;
+    }
+    pendingAnnotations.add(name);
+    int mark = position;
+    if ("(".equals(next())) {
+      skipArguments();
+    } else {
+      position = mark;
+    }
+  }
+
+  private void declareType(@CheckForNull String name) {
+    if (name == null) {
+      return;
+    }
+    pendingType = name;
+    pendingKind = null;
+    for (String annotation : pendingAnnotations) {
+      EntityKind kind = resolve(annotation);
+      if (kind != null) {
+        pendingKind = kind;
+      }
+    }
+    pendingAnnotations.clear();
+  }
+
+  private void openBlock() {
+    depth++;
+    pendingAnnotations.clear();
+    if (pendingType != null) {
+      String name = typeNames.isEmpty() ? qualify(pendingType) : (typeNames.peek() + "$" + pendingType);
+      typeNames.push(name);
+      typeDepths.push(depth);
+      if (pendingKind != null) {
+        declarations.add(new IndexedFile.Declaration(pendingKind, name.substring(packageName.isEmpty() ? 0 : (packageName.length() + 1))));
+      }
+      pendingType = null;
+    }
+  }
+
+  private void closeBlock() {
+    if (!typeDepths.isEmpty() && typeDepths.peek() == depth) {
+      typeDepths.pop();
+      typeNames.pop();
+    }
+    depth--;
+    pendingAnnotations.clear();
+  }
+
+  @CheckForNull
+  private EntityKind resolve(String annotation) {
+    if (annotation.indexOf('.') >= 0) {
+      return EntityKind.ofAnnotation(annotation);
+    }
+    for (String imported : imports) {
+      if (imported.endsWith("." + annotation)) {
+        return EntityKind.ofAnnotation(imported);
+      }
+    }
+    for (String onDemand : onDemandImports) {
+      EntityKind kind = EntityKind.ofAnnotation(onDemand + "." + annotation);
+      if (kind != null) {
+        return kind;
+      }
+    }
+    return null;
+  }
+
+  private String qualify(String simpleName) {
+    return packageName.isEmpty() ? simpleName : (packageName + "." + simpleName);
+  }
+
+  /**
+   * Reads identifiers separated by dots, a trailing {@code .*} included.
+   */
+  private String qualifiedName() {
+    StringBuilder name = new StringBuilder();
+    String token = next();
+    while (token != null) {
+      name.append(token);
+      int mark = position;
+      if (!".".equals(next())) {
+        position = mark;
+        break;
+      }
+      name.append('.');
+      token = next();
+    }
+    return name.toString();
+  }
+
+  private void skipArguments() {
+    int parentheses = 1;
+    while (parentheses > 0) {
+      String token = next();
+      if (token == null) {
+        return;
+      } else if ("(".equals(token)) {
+        parentheses++;
+      } else if (")".equals(token)) {
+        parentheses--;
+      }
+    }
+  }
+
+  /**
+   * Next identifier, keyword or punctuation character, skipping blanks, comments and literals.
+   */
+  @CheckForNull
+  private String next() {
+    int length = source.length();
+    while (position < length) {
+      char c = source.charAt(position);
+      if (Character.isWhitespace(c)) {
+        position++;
+      } else if (c == '/' && position + 1 < length && source.charAt(position + 1) == '/') {
+        int end = source.indexOf('\n', position);
+        position = end < 0 ? length : end;
+      } else if (c == '/' && position + 1 < length && source.charAt(position + 1) == '*') {
+        int end = source.indexOf("*/", position + 2);
+        position = end < 0 ? length : (end + 2);
+      } else if (c == '"' || c == '\'') {
+        skipLiteral(c);
+      } else if (Character.isJavaIdentifierStart(c)) {
+        int start = position;
+        while (position < length && Character.isJavaIdentifierPart(source.charAt(position))) {
+          position++;
+        }
+        return source.substring(start, position);
+      } else {
+        position++;
+        if (Character.isDigit(c)) {
+          // numbers are never looked at: their digits and suffixes are dropped
+          while (position < length && Character.isJavaIdentifierPart(source.charAt(position))) {
+            position++;
+          }
+          continue;
+        }
+        return String.valueOf(c);
+      }
+    }
+    return null;
+  }
+
+  private void skipLiteral(char quote) {
+    int length = source.length();
+    position++;
+    while (position < length) {
+      char c = source.charAt(position++);
+      if (c == '\\') {
+        position++;
+      } else if (c == quote || c == '\n') {
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * What the {@link ClasspathIndex} keeps of a class file: its direct supertypes and the entity annotation it carries.
+ * Names are fully qualified, nested types as {@code pkg.Outer$Inner}, like in the semantic model.
+ */
+final class IndexedClass {
+
+  final String name;
+  @CheckForNull
+  final EntityKind kind;
+  // null for java.lang.Object and the interfaces without superinterface
+  @CheckForNull
+  final String superName;
+  final List<String> interfaces;
+
+  IndexedClass(String name, @Nullable EntityKind kind, @Nullable String superName, List<String> interfaces) {
+    this.name = name;
+    this.kind = kind;
+    this.superName = superName;
+    this.interfaces = interfaces.isEmpty() ? Collections.emptyList() : interfaces;
+  }
+
+  /**
+   * Whether the class tells anything which is not implied by its absence from the index.
+   */
+  boolean isRelevant() {
+    return kind != null || superName != null || !interfaces.isEmpty();
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Entity types declared by one source file, with the size and modification time the file had when it was scanned:
+ * the file is scanned again only when one of them changes.
+ */
+final class IndexedFile {
+
+  final String path;
+  final long size;
+  final long lastModified;
+  final Content content;
+
+  IndexedFile(String path, long size, long lastModified, Content content) {
+    this.path = path;
+    this.size = size;
+    this.lastModified = lastModified;
+    this.content = content;
+  }
+
+  boolean isUpToDate(long currentSize, long currentLastModified) {
+    return size == currentSize && lastModified == currentLastModified;
+  }
+
+  static final class Content {
+
+    final String packageName;
+    final List<Declaration> declarations;
+
+    Content(String packageName, List<Declaration> declarations) {
+      this.packageName = packageName;
+      this.declarations = declarations.isEmpty() ? Collections.emptyList() : declarations;
+    }
+
+    String fullyQualifiedName(Declaration declaration) {
+      return packageName.isEmpty() ? declaration.name : (packageName + "." + declaration.name);
+    }
+  }
+
+  static final class Declaration {
+
+    final EntityKind kind;
+    // relative to the package, nested types as Outer$Inner
+    final String name;
+
+    Declaration(EntityKind kind, String name) {
+      this.kind = kind;
+      this.name = name;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+
+/**
+ * Binary form of a {@link JarIndex}, one file per jar checksum in a directory of the working directory.
+ *
+ * <p>Layout: magic, format version, class count, then for each class its name, entity kind ordinal or -1, superclass
+ * name or an empty string, and interface names. Strings are modified UTF-8, as written by
+ * {@link DataOutputStream#writeUTF}, and shared between the classes once read.</p>
+ */
+final class JarIndexStore {
+
+  static final String DIRECTORY_NAME = "pfe-classpath-index";
+
+  private static final String EXTENSION = ".bin";
+  private static final int MAGIC = 0x50464543;
+  private static final int VERSION = 1;
+
+  private JarIndexStore() {
+  }
+
+  static Path file(Path directory, String checksum) {
+    return directory.resolve(checksum + EXTENSION);
+  }
+
+  /**
+   * Checksum of the jar whose index is in the given file, null when the file is not a stored index.
+   */
+  @CheckForNull
+  static String checksum(Path file) {
+    String name = file.getFileName().toString();
+    return name.endsWith(EXTENSION) ? name.substring(0, name.length() - EXTENSION.length()) : null;
+  }
+
+  /**
+   * The stored index of the jar with the given checksum, null when there is none.
+   *
+   * @throws IOException when the file exists but cannot be read, or was written by another version
+   */
+  @CheckForNull
+  static JarIndex read(Path directory, String checksum) throws IOException {
+    Path file = file(directory, checksum);
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    try (InputStream stream = Files.newInputStream(file)) {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a class path index: " + file);
+      }
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported class path index version " + version + ", expected " + VERSION);
+      }
+      int count = in.readInt();
+      EntityKind[] kinds = EntityKind.values();
+      Map<String, String> names = new HashMap<>();
+      List<IndexedClass> classes = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        String name = in.readUTF();
+        int kind = in.readByte();
+        if (kind >= kinds.length) {
+          throw new IOException("Unknown entity kind " + kind + " in " + file);
+        }
+        String superName = in.readUTF();
+        int interfaceCount = in.readUnsignedShort();
+        List<String> interfaces = new ArrayList<>(interfaceCount);
+        for (int j = 0; j < interfaceCount; j++) {
+          interfaces.add(names.computeIfAbsent(in.readUTF(), String::toString));
+        }
+        classes.add(new IndexedClass(names.computeIfAbsent(name, String::toString), kind < 0 ? null : kinds[kind],
+          superName.isEmpty() ? null : names.computeIfAbsent(superName, String::toString), interfaces));
+      }
+      return new JarIndex(checksum, classes);
+    }
+  }
+
+  /**
+   * Stores the index, through a temporary file so that an interrupted analysis leaves no partial file.
+   */
+  static void write(Path directory, JarIndex index) throws IOException {
+    Files.createDirectories(directory);
+    Path file = file(directory, index.checksum);
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try (OutputStream stream = Files.newOutputStream(temporary)) {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(index.classes.size());
+      for (IndexedClass indexed : index.classes) {
+        out.writeUTF(indexed.name);
+        out.writeByte(indexed.kind == null ? -1 : indexed.kind.ordinal());
+        out.writeUTF(indexed.superName == null ? "" : indexed.superName);
+        out.writeShort(indexed.interfaces.size());
+        for (String name : indexed.interfaces) {
+          out.writeUTF(name);
+        }
+      }
+      out.flush();
+    }
+    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+  }
+}
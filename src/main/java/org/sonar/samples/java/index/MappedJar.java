@@ -0,0 +1,243 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A jar mapped in memory, read from its central directory rather than through {@link java.util.jar.JarFile}: only the
+ * class entries are inflated, one at a time in a reused buffer, and handed to {@link ClassFileReader}.
+ * <p>
+ * The mapping is released by the garbage collector once the jar is indexed; the Java 8 API offers no explicit unmap.
+ */
+final class MappedJar {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MappedJar.class);
+
+  private static final int END_OF_DIRECTORY = 0x06054b50;
+  private static final int ZIP64_END_LOCATOR = 0x07064b50;
+  private static final int ZIP64_END_OF_DIRECTORY = 0x06064b50;
+  private static final int DIRECTORY_ENTRY = 0x02014b50;
+  private static final int LOCAL_HEADER = 0x04034b50;
+  private static final int END_OF_DIRECTORY_SIZE = 22;
+  private static final int STORED = 0;
+  private static final int DEFLATED = 8;
+
+  private final Path path;
+  private final ByteBuffer buffer;
+  private final int directoryOffset;
+  private final int directorySize;
+
+  private MappedJar(Path path, ByteBuffer buffer, int directoryOffset, int directorySize) {
+    this.path = path;
+    this.buffer = buffer;
+    this.directoryOffset = directoryOffset;
+    this.directorySize = directorySize;
+  }
+
+  /**
+   * Maps the jar and locates its central directory.
+   *
+   * @throws IOException when the file cannot be read, is not a zip archive or is larger than 2 GB
+   */
+  static MappedJar open(Path jar) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Jar larger than 2 GB: " + jar);
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    int end = endOfDirectory(buffer, jar);
+    long offset = buffer.getInt(end + 16) & 0xFFFFFFFFL;
+    long size = buffer.getInt(end + 12) & 0xFFFFFFFFL;
+    if (offset == 0xFFFFFFFFL && end >= 20 && buffer.getInt(end - 20) == ZIP64_END_LOCATOR) {
+      long zip64End = buffer.getLong(end - 12);
+      if (zip64End < 0 || zip64End > buffer.limit() - 56 || buffer.getInt((int) zip64End) != ZIP64_END_OF_DIRECTORY) {
+        throw new IOException("Invalid zip64 end of central directory: " + jar);
+      }
+      size = buffer.getLong((int) zip64End + 40);
+      offset = buffer.getLong((int) zip64End + 48);
+    }
+    if (offset < 0 || size < 0 || offset + size > end) {
+      throw new IOException("Invalid central directory: " + jar);
+    }
+    return new MappedJar(jar, buffer, (int) offset, (int) size);
+  }
+
+  private static int endOfDirectory(ByteBuffer buffer, Path jar) throws IOException {
+    // the record ends the file, followed by a comment of at most 64 KB
+    int lowest = Math.max(0, buffer.limit() - END_OF_DIRECTORY_SIZE - 0xFFFF);
+    for (int position = buffer.limit() - END_OF_DIRECTORY_SIZE; position >= lowest; position--) {
+      if (buffer.getInt(position) == END_OF_DIRECTORY) {
+        return position;
+      }
+    }
+    throw new IOException("Not a zip archive: " + jar);
+  }
+
+  /**
+   * Identifies the content of the jar: the central directory lists the name, size and CRC of every entry, so its
+   * checksum changes with any entry, without reading the entries themselves.
+   */
+  String checksum() {
+    CRC32 crc = new CRC32();
+    ByteBuffer directory = view(directoryOffset);
+    ((Buffer) directory).limit(directoryOffset + directorySize);
+    crc.update(directory);
+    return String.format("%08x-%x", crc.getValue(), directorySize);
+  }
+
+  /**
+   * The classes of the jar which have a supertype or an entity annotation; the versioned entries of multi-release
+   * jars and the module and package descriptors are left out, and so are the entries which are not valid class files.
+   *
+   * @throws IOException when the archive itself is corrupted or an entry cannot be inflated
+   */
+  List<IndexedClass> classes() throws IOException {
+    List<IndexedClass> classes = new ArrayList<>();
+    Inflater inflater = new Inflater(true);
+    byte[] compressed = new byte[8192];
+    byte[] bytes = new byte[8192];
+    try {
+      int position = directoryOffset;
+      int end = directoryOffset + directorySize;
+      while (position < end) {
+        if (buffer.getInt(position) != DIRECTORY_ENTRY) {
+          throw new IOException("Invalid central directory entry at " + position + ": " + path);
+        }
+        int method = buffer.getShort(position + 10) & 0xFFFF;
+        long compressedSize = buffer.getInt(position + 20) & 0xFFFFFFFFL;
+        long size = buffer.getInt(position + 24) & 0xFFFFFFFFL;
+        int nameLength = buffer.getShort(position + 28) & 0xFFFF;
+        int extraLength = buffer.getShort(position + 30) & 0xFFFF;
+        int commentLength = buffer.getShort(position + 32) & 0xFFFF;
+        long localHeader = buffer.getInt(position + 42) & 0xFFFFFFFFL;
+        String name = name(position + 46, nameLength);
+        position += 46 + nameLength + extraLength + commentLength;
+        // no class file needs zip64 sizes
+        if (!isIndexedClass(name) || compressedSize >= Integer.MAX_VALUE || size >= Integer.MAX_VALUE || localHeader >= directoryOffset) {
+          continue;
+        }
+        if (bytes.length < size) {
+          bytes = new byte[(int) Math.max(size, bytes.length * 2L)];
+        }
+        int data = dataOffset((int) localHeader);
+        if (method == STORED) {
+          view(data).get(bytes, 0, (int) size);
+        } else if (method == DEFLATED) {
+          if (compressed.length < compressedSize) {
+            compressed = new byte[(int) Math.max(compressedSize, compressed.length * 2L)];
+          }
+          view(data).get(compressed, 0, (int) compressedSize);
+          inflate(inflater, compressed, (int) compressedSize, bytes, (int) size, name);
+        } else {
+          throw new IOException("Unsupported compression method " + method + " of " + name + " in " + path);
+        }
+        IndexedClass indexed = read(bytes, (int) size, name);
+        if (indexed != null && indexed.isRelevant()) {
+          classes.add(indexed);
+        }
+      }
+    } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+      throw new IOException("Corrupted jar " + path, e);
+    } finally {
+      inflater.end();
+    }
+    return classes;
+  }
+
+  @CheckForNull
+  private IndexedClass read(byte[] bytes, int size, String name) {
+    try {
+      return ClassFileReader.read(bytes, size);
+    } catch (IOException e) {
+      // a broken class fails where it is loaded, the other classes of the jar are still indexed
+      LOGGER.debug("Unable to read the class file {} of {}: {}", new Object[] {name, path, e.getMessage()});
+      return null;
+    }
+  }
+
+  private static boolean isIndexedClass(String name) {
+    return name.endsWith(".class")
+      && !name.startsWith("META-INF/")
+      && !name.endsWith("module-info.class")
+      && !name.endsWith("package-info.class");
+  }
+
+  private int dataOffset(int localHeader) throws IOException {
+    if (buffer.getInt(localHeader) != LOCAL_HEADER) {
+      throw new IOException("Invalid local header at " + localHeader + ": " + path);
+    }
+    return localHeader + 30 + (buffer.getShort(localHeader + 26) & 0xFFFF) + (buffer.getShort(localHeader + 28) & 0xFFFF);
+  }
+
+  private void inflate(Inflater inflater, byte[] input, int inputLength, byte[] output, int outputLength, String name) throws IOException {
+    inflater.reset();
+    inflater.setInput(input, 0, inputLength);
+    try {
+      int length = 0;
+      while (length < outputLength && !inflater.finished()) {
+        int inflated = inflater.inflate(output, length, outputLength - length);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        length += inflated;
+      }
+      if (length != outputLength) {
+        throw new IOException("Truncated entry " + name + " in " + path);
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Invalid entry " + name + " in " + path, e);
+    }
+  }
+
+  private String name(int offset, int length) {
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      // only the ASCII suffixes and prefixes of the names matter
+      chars[i] = (char) (buffer.get(offset + i) & 0xFF);
+    }
+    return new String(chars);
+  }
+
+  private ByteBuffer view(int offset) {
+    ByteBuffer view = buffer.duplicate();
+    // through Buffer, as position(int) only returns a ByteBuffer from Java 9
+    ((Buffer) view).position(offset);
+    return view;
+  }
+}
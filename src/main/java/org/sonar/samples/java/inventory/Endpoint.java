@@ -0,0 +1,70 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.inventory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+
+/**
+ * One controller endpoint and the HTTP status codes its handler returns, as written to the {@link EndpointInventory}.
+ */
+public final class Endpoint {
+
+  final String file;
+  final int line;
+  final String controller;
+  final String handler;
+  final List<String> httpMethods;
+  final List<String> paths;
+  final SortedSet<Integer> successStatuses;
+  final SortedSet<Integer> errorStatuses;
+  final SortedSet<Integer> catchStatuses;
+  final int unresolvedReturns;
+
+  /**
+   * @param httpMethods methods of the mapping, empty when it accepts any
+   * @param paths full paths, class mapping included
+   * @param successStatuses informational, success and redirection statuses returned outside of catch blocks
+   * @param errorStatuses client and server error statuses returned outside of catch blocks
+   * @param catchStatuses statuses returned by catch blocks
+   * @param unresolvedReturns returned values whose status is not known statically
+   */
+  public Endpoint(String file, int line, String controller, String handler, List<String> httpMethods, List<String> paths,
+    SortedSet<Integer> successStatuses, SortedSet<Integer> errorStatuses, SortedSet<Integer> catchStatuses, int unresolvedReturns) {
+    this.file = file;
+    this.line = line;
+    this.controller = controller;
+    this.handler = handler;
+    this.httpMethods = Collections.unmodifiableList(httpMethods);
+    this.paths = Collections.unmodifiableList(paths);
+    this.successStatuses = Collections.unmodifiableSortedSet(successStatuses);
+    this.errorStatuses = Collections.unmodifiableSortedSet(errorStatuses);
+    this.catchStatuses = Collections.unmodifiableSortedSet(catchStatuses);
+    this.unresolvedReturns = unresolvedReturns;
+  }
+
+  /**
+   * Whether the status is returned by a successful call: below 400.
+   */
+  public static boolean isSuccess(int status) {
+    return status < 400;
+  }
+}
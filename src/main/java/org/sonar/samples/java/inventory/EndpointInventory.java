@@ -0,0 +1,195 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.inventory;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.PropertyType;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.config.PropertyDefinition;
+
+/**
+ * Inventory of the controller endpoints and of their status codes, streamed to a JSON Lines file while the rules run:
+ * each endpoint is written as soon as its handler is analyzed, one JSON object per line, and nothing is kept in memory
+ * but the write buffer.
+ *
+ * <p>Off by default: {@link #ENABLED_KEY} turns it on for an analysis, and {@link EndpointInventoryReporter} closes the
+ * file at its end. Records follow the order in which the files are analyzed.</p>
+ */
+public final class EndpointInventory {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EndpointInventory.class);
+
+  public static final String ENABLED_KEY = "sonar.pfe.endpointInventory.enabled";
+  public static final String FILE_KEY = "sonar.pfe.endpointInventory.file";
+
+  static final String DEFAULT_FILE_NAME = "pfe-endpoint-inventory.jsonl";
+
+  private static final EndpointInventory DISABLED = new EndpointInventory(null, null);
+  private static volatile EndpointInventory current = DISABLED;
+
+  @Nullable
+  private final Path file;
+  @Nullable
+  private Writer writer;
+  private int endpoints;
+
+  private EndpointInventory(@Nullable Path file, @Nullable Writer writer) {
+    this.file = file;
+    this.writer = writer;
+  }
+
+  /**
+   * Starts the inventory of the analysis about to run, when enabled.
+   */
+  public static void configure(Configuration configuration) {
+    if (!configuration.getBoolean(ENABLED_KEY).orElse(false)) {
+      finish();
+      return;
+    }
+    String defaultFile = configuration.get("sonar.working.directory").orElse(".scannerwork") + "/" + DEFAULT_FILE_NAME;
+    Path file = Paths.get(configuration.get(FILE_KEY).orElse(defaultFile));
+    try {
+      start(file);
+      LOGGER.info("Endpoint inventory written to {}", file.toAbsolutePath());
+    } catch (IOException e) {
+      LOGGER.warn("Unable to write the endpoint inventory to " + file, e);
+    }
+  }
+
+  /**
+   * Starts writing the endpoints to the given file, replacing it, after closing the previous inventory if any.
+   */
+  public static void start(Path file) throws IOException {
+    finish();
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    current = new EndpointInventory(file, Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Closes the current inventory, and returns the number of endpoints it holds.
+   */
+  public static int finish() {
+    EndpointInventory inventory = current;
+    current = DISABLED;
+    return inventory.close();
+  }
+
+  public static EndpointInventory current() {
+    return current;
+  }
+
+  public static List<PropertyDefinition> properties() {
+    return Arrays.asList(
+      PropertyDefinition.builder(ENABLED_KEY)
+        .name("Endpoint inventory")
+        .description("Write the HTTP methods, paths and status codes of the controller endpoints while the custom rules run.")
+        .type(PropertyType.BOOLEAN)
+        .defaultValue("false")
+        .hidden()
+        .build(),
+      PropertyDefinition.builder(FILE_KEY)
+        .name("Endpoint inventory file")
+        .description("File receiving the endpoint inventory, defaults to " + DEFAULT_FILE_NAME + " in the working directory.")
+        .hidden()
+        .build());
+  }
+
+  public boolean isEnabled() {
+    return file != null;
+  }
+
+  @Nullable
+  public Path file() {
+    return file;
+  }
+
+  /**
+   * Appends the endpoint to the inventory; called by the analysis threads.
+   */
+  public synchronized void record(Endpoint endpoint) {
+    if (writer == null) {
+      return;
+    }
+    try {
+      // the JSON writer has no buffer of its own and is left open, as it would close the file
+      JsonWriter json = new JsonWriter(writer);
+      json.beginObject();
+      json.name("file").value(endpoint.file);
+      json.name("line").value(endpoint.line);
+      json.name("controller").value(endpoint.controller);
+      json.name("handler").value(endpoint.handler);
+      writeStrings(json.name("httpMethods"), endpoint.httpMethods);
+      writeStrings(json.name("paths"), endpoint.paths);
+      writeStatuses(json.name("successStatuses"), endpoint.successStatuses);
+      writeStatuses(json.name("errorStatuses"), endpoint.errorStatuses);
+      writeStatuses(json.name("catchStatuses"), endpoint.catchStatuses);
+      json.name("unresolvedReturns").value(endpoint.unresolvedReturns);
+      json.endObject();
+      writer.write('\n');
+      endpoints++;
+    } catch (IOException e) {
+      LOGGER.warn("Unable to write the endpoint inventory to " + file + ", it is left incomplete", e);
+      close();
+    }
+  }
+
+  private static void writeStrings(JsonWriter json, Collection<String> values) throws IOException {
+    json.beginArray();
+    for (String value : values) {
+      json.value(value);
+    }
+    json.endArray();
+  }
+
+  private static void writeStatuses(JsonWriter json, Collection<Integer> statuses) throws IOException {
+    json.beginArray();
+    for (Integer status : statuses) {
+      json.value(status);
+    }
+    json.endArray();
+  }
+
+  private synchronized int close() {
+    if (writer != null) {
+      try {
+        writer.close();
+      } catch (IOException e) {
+        LOGGER.warn("Unable to close the endpoint inventory " + file, e);
+      }
+      writer = null;
+    }
+    return endpoints;
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.inventory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.plugins.java.api.semantic.Symbol;
+import org.sonar.plugins.java.api.tree.AnnotationTree;
+import org.sonar.plugins.java.api.tree.AssignmentExpressionTree;
+import org.sonar.plugins.java.api.tree.BinaryExpressionTree;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.ExpressionTree;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+import org.sonar.plugins.java.api.tree.LiteralTree;
+import org.sonar.plugins.java.api.tree.MemberSelectExpressionTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.NewArrayTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.plugins.java.api.tree.VariableTree;
+
+/**
+ * HTTP methods and paths of a Spring MVC handler method, read from its mapping annotation and from the
+ * {@code @RequestMapping} of its class. Annotations are recognized by their simple name, so that the semantic model
+ * needs no Spring on the class path. Paths built from constants of the same file are resolved; other parts are written
+ * {@value #UNRESOLVED}.
+ */
+public final class HandlerMapping {
+
+  static final String UNRESOLVED = "*";
+
+  private static final String REQUEST_MAPPING = "RequestMapping";
+  private static final int MAX_CONSTANT_DEPTH = 16;
+  private static final Map<String, String> HTTP_METHODS_BY_ANNOTATION = new HashMap<>();
+
+  static {
+    HTTP_METHODS_BY_ANNOTATION.put("GetMapping", "GET");
+    HTTP_METHODS_BY_ANNOTATION.put("PostMapping", "POST");
+    HTTP_METHODS_BY_ANNOTATION.put("PutMapping", "PUT");
+    HTTP_METHODS_BY_ANNOTATION.put("DeleteMapping", "DELETE");
+    HTTP_METHODS_BY_ANNOTATION.put("PatchMapping", "PATCH");
+  }
+
+  private final List<String> httpMethods;
+  private final List<String> paths;
+
+  private HandlerMapping(List<String> httpMethods, List<String> paths) {
+    this.httpMethods = httpMethods;
+    this.paths = paths;
+  }
+
+  /**
+   * Mapping of the method, null when it is not a handler method.
+   */
+  @CheckForNull
+  public static HandlerMapping of(MethodTree method) {
+    AnnotationTree mapping = null;
+    for (AnnotationTree annotation : method.modifiers().annotations()) {
+      String name = simpleName(annotation.annotationType());
+      if (REQUEST_MAPPING.equals(name) || HTTP_METHODS_BY_ANNOTATION.containsKey(name)) {
+        mapping = annotation;
+        break;
+      }
+    }
+    if (mapping == null) {
+      return null;
+    }
+    String name = simpleName(mapping.annotationType());
+    List<String> httpMethods = HTTP_METHODS_BY_ANNOTATION.containsKey(name)
+      ? Collections.singletonList(HTTP_METHODS_BY_ANNOTATION.get(name))
+      : names(attribute(mapping, "method"));
+    List<String> prefixes = Collections.singletonList("");
+    Tree parent = method.parent();
+    if (parent instanceof ClassTree) {
+      for (AnnotationTree annotation : ((ClassTree) parent).modifiers().annotations()) {
+        if (REQUEST_MAPPING.equals(simpleName(annotation.annotationType()))) {
+          prefixes = paths(annotation);
+        }
+      }
+    }
+    List<String> paths = new ArrayList<>();
+    for (String prefix : prefixes) {
+      for (String path : paths(mapping)) {
+        paths.add(join(prefix, path));
+      }
+    }
+    return new HandlerMapping(httpMethods, paths);
+  }
+
+  /**
+   * HTTP methods of the mapping, empty when it accepts any.
+   */
+  public List<String> httpMethods() {
+    return httpMethods;
+  }
+
+  public List<String> paths() {
+    return paths;
+  }
+
+  private static List<String> paths(AnnotationTree annotation) {
+    ExpressionTree value = attribute(annotation, "value");
+    if (value == null) {
+      value = attribute(annotation, "path");
+    }
+    List<String> paths = new ArrayList<>();
+    for (ExpressionTree element : elements(value)) {
+      String path = stringValue(element, 0);
+      paths.add(path == null ? UNRESOLVED : path);
+    }
+    return paths.isEmpty() ? Collections.singletonList("") : paths;
+  }
+
+  /**
+   * Value of the attribute, the single unnamed argument standing for {@code value}.
+   */
+  @CheckForNull
+  private static ExpressionTree attribute(AnnotationTree annotation, String name) {
+    for (ExpressionTree argument : annotation.arguments()) {
+      if (argument.is(Tree.Kind.ASSIGNMENT)) {
+        AssignmentExpressionTree assignment = (AssignmentExpressionTree) argument;
+        if (assignment.variable().is(Tree.Kind.IDENTIFIER) && name.equals(((IdentifierTree) assignment.variable()).name())) {
+          return assignment.expression();
+        }
+      } else if ("value".equals(name)) {
+        return argument;
+      }
+    }
+    return null;
+  }
+
+  private static List<ExpressionTree> elements(@CheckForNull ExpressionTree value) {
+    if (value == null) {
+      return Collections.emptyList();
+    }
+    if (value.is(Tree.Kind.NEW_ARRAY)) {
+      List<ExpressionTree> elements = new ArrayList<>();
+      ((NewArrayTree) value).initializers().forEach(elements::add);
+      return elements;
+    }
+    return Collections.singletonList(value);
+  }
+
+  private static List<String> names(@CheckForNull ExpressionTree value) {
+    List<String> names = new ArrayList<>();
+    for (ExpressionTree element : elements(value)) {
+      // RequestMethod.GET, or GET statically imported
+      String name = element.is(Tree.Kind.MEMBER_SELECT) ? ((MemberSelectExpressionTree) element).identifier().name() : simpleName(element);
+      names.add(name.isEmpty() ? UNRESOLVED : name);
+    }
+    return names;
+  }
+
+  /**
+   * Value of a string literal, of a concatenation, or of a constant initialized so in the same file.
+   */
+  @CheckForNull
+  private static String stringValue(ExpressionTree expression, int depth) {
+    if (depth > MAX_CONSTANT_DEPTH) {
+      // constants of two classes initialized with each other
+      return null;
+    }
+    if (expression.is(Tree.Kind.STRING_LITERAL)) {
+      String literal = ((LiteralTree) expression).value();
+      return literal.substring(1, literal.length() - 1);
+    }
+    if (expression.is(Tree.Kind.PLUS)) {
+      BinaryExpressionTree plus = (BinaryExpressionTree) expression;
+      String left = stringValue(plus.leftOperand(), depth + 1);
+      String right = stringValue(plus.rightOperand(), depth + 1);
+      return left == null || right == null ? null : (left + right);
+    }
+    Symbol symbol = null;
+    if (expression.is(Tree.Kind.IDENTIFIER)) {
+      symbol = ((IdentifierTree) expression).symbol();
+    } else if (expression.is(Tree.Kind.MEMBER_SELECT)) {
+      symbol = ((MemberSelectExpressionTree) expression).identifier().symbol();
+    }
+    if (symbol != null && symbol.isVariableSymbol() && symbol.isFinal()) {
+      VariableTree declaration = ((Symbol.VariableSymbol) symbol).declaration();
+      ExpressionTree initializer = declaration == null ? null : declaration.initializer();
+      return initializer == null ? null : stringValue(initializer, depth + 1);
+    }
+    return null;
+  }
+
+  private static String join(String prefix, String path) {
+    StringBuilder joined = new StringBuilder();
+    for (String part : Arrays.asList(prefix, path)) {
+      for (String segment : part.split("/")) {
+        if (!segment.isEmpty()) {
+          joined.append('/').append(segment);
+        }
+      }
+    }
+    return joined.length() == 0 ? "/" : joined.toString();
+  }
+
+  private static String simpleName(Tree tree) {
+    if (tree.is(Tree.Kind.IDENTIFIER)) {
+      return ((IdentifierTree) tree).name();
+    }
+    if (tree.is(Tree.Kind.MEMBER_SELECT)) {
+      return ((MemberSelectExpressionTree) tree).identifier().name();
+    }
+    return "";
+  }
+}
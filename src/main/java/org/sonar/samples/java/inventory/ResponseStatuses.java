@@ -0,0 +1,182 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.inventory;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.plugins.java.api.tree.ExpressionTree;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+import org.sonar.plugins.java.api.tree.LiteralTree;
+import org.sonar.plugins.java.api.tree.MemberSelectExpressionTree;
+import org.sonar.plugins.java.api.tree.MethodInvocationTree;
+import org.sonar.plugins.java.api.tree.NewClassTree;
+import org.sonar.plugins.java.api.tree.ParameterizedTypeTree;
+import org.sonar.plugins.java.api.tree.ParenthesizedTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * HTTP status of a returned {@code ResponseEntity}, when the expression tells it: the shortcuts
+ * ({@code ResponseEntity.notFound().build()}), {@code ResponseEntity.status(...)} and the constructors taking an
+ * {@code HttpStatus}, followed through the builder calls. Statuses are given as {@code HttpStatus} constants, possibly
+ * statically imported, as {@code HttpStatus.valueOf(int)} or as integer literals.
+ */
+public final class ResponseStatuses {
+
+  private static final String RESPONSE_ENTITY = "ResponseEntity";
+
+  // org.springframework.http.HttpStatus, deprecated aliases included
+  private static final String HTTP_STATUSES = "100 CONTINUE,101 SWITCHING_PROTOCOLS,102 PROCESSING,103 EARLY_HINTS,103 CHECKPOINT,"
+    + "200 OK,201 CREATED,202 ACCEPTED,203 NON_AUTHORITATIVE_INFORMATION,204 NO_CONTENT,205 RESET_CONTENT,206 PARTIAL_CONTENT,"
+    + "207 MULTI_STATUS,208 ALREADY_REPORTED,226 IM_USED,"
+    + "300 MULTIPLE_CHOICES,301 MOVED_PERMANENTLY,302 FOUND,302 MOVED_TEMPORARILY,303 SEE_OTHER,304 NOT_MODIFIED,305 USE_PROXY,"
+    + "307 TEMPORARY_REDIRECT,308 PERMANENT_REDIRECT,"
+    + "400 BAD_REQUEST,401 UNAUTHORIZED,402 PAYMENT_REQUIRED,403 FORBIDDEN,404 NOT_FOUND,405 METHOD_NOT_ALLOWED,406 NOT_ACCEPTABLE,"
+    + "407 PROXY_AUTHENTICATION_REQUIRED,408 REQUEST_TIMEOUT,409 CONFLICT,410 GONE,411 LENGTH_REQUIRED,412 PRECONDITION_FAILED,"
+    + "413 PAYLOAD_TOO_LARGE,413 REQUEST_ENTITY_TOO_LARGE,414 URI_TOO_LONG,414 REQUEST_URI_TOO_LONG,415 UNSUPPORTED_MEDIA_TYPE,"
+    + "416 REQUESTED_RANGE_NOT_SATISFIABLE,417 EXPECTATION_FAILED,418 I_AM_A_TEAPOT,419 INSUFFICIENT_SPACE_ON_RESOURCE,"
+    + "420 METHOD_FAILURE,421 DESTINATION_LOCKED,422 UNPROCESSABLE_ENTITY,423 LOCKED,424 FAILED_DEPENDENCY,425 TOO_EARLY,"
+    + "426 UPGRADE_REQUIRED,428 PRECONDITION_REQUIRED,429 TOO_MANY_REQUESTS,431 REQUEST_HEADER_FIELDS_TOO_LARGE,"
+    + "451 UNAVAILABLE_FOR_LEGAL_REASONS,"
+    + "500 INTERNAL_SERVER_ERROR,501 NOT_IMPLEMENTED,502 BAD_GATEWAY,503 SERVICE_UNAVAILABLE,504 GATEWAY_TIMEOUT,"
+    + "505 HTTP_VERSION_NOT_SUPPORTED,506 VARIANT_ALSO_NEGOTIATES,507 INSUFFICIENT_STORAGE,508 LOOP_DETECTED,"
+    + "509 BANDWIDTH_LIMIT_EXCEEDED,510 NOT_EXTENDED,511 NETWORK_AUTHENTICATION_REQUIRED";
+
+  private static final Map<String, Integer> STATUSES_BY_NAME = new HashMap<>();
+  private static final Map<String, Integer> STATUSES_BY_SHORTCUT = new HashMap<>();
+
+  static {
+    for (String status : HTTP_STATUSES.split(",")) {
+      int space = status.indexOf(' ');
+      STATUSES_BY_NAME.put(status.substring(space + 1), Integer.valueOf(status.substring(0, space)));
+    }
+    STATUSES_BY_SHORTCUT.put("ok", 200);
+    STATUSES_BY_SHORTCUT.put("created", 201);
+    STATUSES_BY_SHORTCUT.put("accepted", 202);
+    STATUSES_BY_SHORTCUT.put("noContent", 204);
+    STATUSES_BY_SHORTCUT.put("badRequest", 400);
+    STATUSES_BY_SHORTCUT.put("notFound", 404);
+    STATUSES_BY_SHORTCUT.put("unprocessableEntity", 422);
+    STATUSES_BY_SHORTCUT.put("internalServerError", 500);
+  }
+
+  private ResponseStatuses() {
+  }
+
+  /**
+   * Status of the returned expression, null when it is not a {@code ResponseEntity} of a known status.
+   */
+  @CheckForNull
+  public static Integer of(ExpressionTree expression) {
+    ExpressionTree returned = skipParentheses(expression);
+    if (returned.is(Tree.Kind.NEW_CLASS)) {
+      NewClassTree newClass = (NewClassTree) returned;
+      if (!RESPONSE_ENTITY.equals(simpleName(newClass.identifier()))) {
+        return null;
+      }
+      for (ExpressionTree argument : newClass.arguments()) {
+        Integer status = status(argument);
+        if (status != null) {
+          return status;
+        }
+      }
+      return null;
+    }
+    // the builder calls (body, header, build...) keep the status of the call they are made on
+    while (returned.is(Tree.Kind.METHOD_INVOCATION)) {
+      MethodInvocationTree invocation = (MethodInvocationTree) returned;
+      ExpressionTree select = invocation.methodSelect();
+      String name;
+      ExpressionTree receiver = null;
+      if (select.is(Tree.Kind.MEMBER_SELECT)) {
+        name = ((MemberSelectExpressionTree) select).identifier().name();
+        receiver = skipParentheses(((MemberSelectExpressionTree) select).expression());
+      } else if (select.is(Tree.Kind.IDENTIFIER)) {
+        name = ((IdentifierTree) select).name();
+      } else {
+        return null;
+      }
+      boolean onResponseEntity = receiver == null || RESPONSE_ENTITY.equals(simpleName(receiver));
+      if (onResponseEntity && STATUSES_BY_SHORTCUT.containsKey(name)) {
+        return STATUSES_BY_SHORTCUT.get(name);
+      }
+      if (onResponseEntity && "status".equals(name) && invocation.arguments().size() == 1) {
+        return status(invocation.arguments().get(0));
+      }
+      if (receiver == null) {
+        return null;
+      }
+      returned = receiver;
+    }
+    return null;
+  }
+
+  @CheckForNull
+  private static Integer status(ExpressionTree argument) {
+    ExpressionTree expression = skipParentheses(argument);
+    if (expression.is(Tree.Kind.INT_LITERAL)) {
+      try {
+        return Integer.valueOf(((LiteralTree) expression).value());
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    if (expression.is(Tree.Kind.MEMBER_SELECT)) {
+      MemberSelectExpressionTree memberSelect = (MemberSelectExpressionTree) expression;
+      return "HttpStatus".equals(simpleName(memberSelect.expression())) ? STATUSES_BY_NAME.get(memberSelect.identifier().name()) : null;
+    }
+    if (expression.is(Tree.Kind.IDENTIFIER)) {
+      // statically imported constant
+      return STATUSES_BY_NAME.get(((IdentifierTree) expression).name());
+    }
+    if (expression.is(Tree.Kind.METHOD_INVOCATION)) {
+      // HttpStatus.valueOf(404), HttpStatusCode.valueOf(404)
+      MethodInvocationTree invocation = (MethodInvocationTree) expression;
+      if (invocation.methodSelect().is(Tree.Kind.MEMBER_SELECT)
+        && "valueOf".equals(((MemberSelectExpressionTree) invocation.methodSelect()).identifier().name())
+        && invocation.arguments().size() == 1) {
+        return status(invocation.arguments().get(0));
+      }
+    }
+    return null;
+  }
+
+  private static ExpressionTree skipParentheses(ExpressionTree expression) {
+    ExpressionTree skipped = expression;
+    while (skipped.is(Tree.Kind.PARENTHESIZED_EXPRESSION)) {
+      skipped = ((ParenthesizedTree) skipped).expression();
+    }
+    return skipped;
+  }
+
+  private static String simpleName(Tree tree) {
+    Tree type = tree;
+    if (type.is(Tree.Kind.PARAMETERIZED_TYPE)) {
+      type = ((ParameterizedTypeTree) type).type();
+    }
+    if (type.is(Tree.Kind.IDENTIFIER)) {
+      return ((IdentifierTree) type).name();
+    }
+    if (type.is(Tree.Kind.MEMBER_SELECT)) {
+      return ((MemberSelectExpressionTree) type).identifier().name();
+    }
+    return "";
+  }
+}
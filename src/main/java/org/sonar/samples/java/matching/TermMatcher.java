@@ -0,0 +1,258 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.matching;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds any of a set of terms in a text, ignoring case, in a single pass over the text whatever the number of terms.
+ * <p>
+ * The terms are compiled once into an Aho-Corasick automaton, turned into a complete transition table: each character
+ * of the text costs one lookup of its symbol and one of the next state, and matching allocates nothing. Case is
+ * ignored character by character, as {@link String#equalsIgnoreCase} does.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class TermMatcher {
+
+  public static final int NO_MATCH = -1;
+
+  private static final TermMatcher EMPTY = new TermMatcher(Collections.emptyList(), new int[128], new char[0], new int[0], 1, new int[1],
+    new int[] {NO_MATCH}, new int[] {NO_MATCH}, new int[1]);
+
+  private final List<String> terms;
+  // symbol of each ASCII character, 0 for the characters of no term
+  private final int[] asciiSymbols;
+  // other characters of the terms, sorted, with their symbol
+  private final char[] otherCharacters;
+  private final int[] otherSymbols;
+  private final int width;
+  // next state by state * width + symbol
+  private final int[] transitions;
+  // index of the shortest term ending in each state, NO_MATCH if none
+  private final int[] matches;
+  // index of the term spelled by each state, NO_MATCH if none
+  private final int[] ownMatches;
+  // longest proper suffix of each state spelling a term, 0 if none
+  private final int[] dictionaryLinks;
+
+  private TermMatcher(List<String> terms, int[] asciiSymbols, char[] otherCharacters, int[] otherSymbols, int width, int[] transitions,
+    int[] matches, int[] ownMatches, int[] dictionaryLinks) {
+    this.terms = terms;
+    this.asciiSymbols = asciiSymbols;
+    this.otherCharacters = otherCharacters;
+    this.otherSymbols = otherSymbols;
+    this.width = width;
+    this.transitions = transitions;
+    this.matches = matches;
+    this.ownMatches = ownMatches;
+    this.dictionaryLinks = dictionaryLinks;
+  }
+
+  /**
+   * Matcher of the given terms; blank terms are ignored and the others trimmed. Terms differing only in case are
+   * matched as one, under the index and spelling of the first of them.
+   */
+  public static TermMatcher of(Collection<String> terms) {
+    Map<String, String> distinct = new LinkedHashMap<>();
+    for (String term : terms) {
+      String trimmed = term.trim();
+      if (!trimmed.isEmpty()) {
+        distinct.putIfAbsent(fold(trimmed), trimmed);
+      }
+    }
+    return distinct.isEmpty() ? EMPTY : compile(new ArrayList<>(distinct.values()));
+  }
+
+  /**
+   * Matcher of the comma separated terms of a rule property.
+   */
+  public static TermMatcher ofCommaSeparated(String terms) {
+    return of(Arrays.asList(terms.split(",")));
+  }
+
+  private static TermMatcher compile(List<String> terms) {
+    // alphabet: the folded characters of the terms, numbered from 1
+    int[] asciiSymbols = new int[128];
+    StringBuilder others = new StringBuilder();
+    int symbolCount = 0;
+    for (String term : terms) {
+      for (int i = 0; i < term.length(); i++) {
+        char c = fold(term.charAt(i));
+        if (c < 128) {
+          if (asciiSymbols[c] == 0) {
+            asciiSymbols[c] = ++symbolCount;
+          }
+        } else if (others.indexOf(String.valueOf(c)) < 0) {
+          others.append(c);
+        }
+      }
+    }
+    char[] otherCharacters = others.toString().toCharArray();
+    Arrays.sort(otherCharacters);
+    int[] otherSymbols = new int[otherCharacters.length];
+    for (int i = 0; i < otherCharacters.length; i++) {
+      otherSymbols[i] = ++symbolCount;
+    }
+    int width = symbolCount + 1;
+    TermMatcher symbols = new TermMatcher(terms, asciiSymbols, otherCharacters, otherSymbols, width, null, null, null, null);
+
+    // trie, 0 for a missing child
+    List<int[]> children = new ArrayList<>();
+    List<Integer> stateMatches = new ArrayList<>();
+    children.add(new int[width]);
+    stateMatches.add(NO_MATCH);
+    for (int index = 0; index < terms.size(); index++) {
+      String term = terms.get(index);
+      int state = 0;
+      for (int i = 0; i < term.length(); i++) {
+        int symbol = symbols.symbol(term.charAt(i));
+        if (children.get(state)[symbol] == 0) {
+          children.get(state)[symbol] = children.size();
+          children.add(new int[width]);
+          stateMatches.add(NO_MATCH);
+        }
+        state = children.get(state)[symbol];
+      }
+      if (stateMatches.get(state) == NO_MATCH) {
+        stateMatches.set(state, index);
+      }
+    }
+
+    // breadth first: the failure state of a state is known before its children, so missing transitions are those of
+    // the failure state, and a state matches what its failure state matches
+    int stateCount = children.size();
+    int[] transitions = new int[stateCount * width];
+    int[] matches = new int[stateCount];
+    int[] ownMatches = new int[stateCount];
+    int[] dictionaryLinks = new int[stateCount];
+    int[] failures = new int[stateCount];
+    Deque<Integer> pending = new ArrayDeque<>();
+    matches[0] = stateMatches.get(0);
+    ownMatches[0] = stateMatches.get(0);
+    for (int symbol = 1; symbol < width; symbol++) {
+      int child = children.get(0)[symbol];
+      transitions[symbol] = child;
+      if (child != 0) {
+        failures[child] = 0;
+        pending.add(child);
+      }
+    }
+    while (!pending.isEmpty()) {
+      int state = pending.poll();
+      int failure = failures[state];
+      matches[state] = stateMatches.get(state) != NO_MATCH ? stateMatches.get(state) : matches[failure];
+      ownMatches[state] = stateMatches.get(state);
+      dictionaryLinks[state] = ownMatches[failure] != NO_MATCH ? failure : dictionaryLinks[failure];
+      for (int symbol = 0; symbol < width; symbol++) {
+        int child = symbol == 0 ? 0 : children.get(state)[symbol];
+        if (child == 0) {
+          transitions[state * width + symbol] = transitions[failure * width + symbol];
+        } else {
+          transitions[state * width + symbol] = child;
+          failures[child] = transitions[failure * width + symbol];
+          pending.add(child);
+        }
+      }
+    }
+    return new TermMatcher(Collections.unmodifiableList(terms), asciiSymbols, otherCharacters, otherSymbols, width, transitions, matches,
+      ownMatches, dictionaryLinks);
+  }
+
+  /**
+   * Index of a term found in the text, the one ending first, or {@link #NO_MATCH}.
+   */
+  public int find(CharSequence text) {
+    int state = 0;
+    for (int i = 0; i < text.length(); i++) {
+      state = transitions[state * width + symbol(text.charAt(i))];
+      if (matches[state] != NO_MATCH) {
+        return matches[state];
+      }
+    }
+    return NO_MATCH;
+  }
+
+  /**
+   * Indices of all the terms found in the text, still in a single pass: the scan stops once every term is found.
+   */
+  public BitSet findAll(CharSequence text) {
+    BitSet found = new BitSet(terms.size());
+    int missing = terms.size();
+    int state = 0;
+    for (int i = 0; i < text.length() && missing > 0; i++) {
+      state = transitions[state * width + symbol(text.charAt(i))];
+      if (matches[state] != NO_MATCH) {
+        for (int match = ownMatches[state] != NO_MATCH ? state : dictionaryLinks[state]; match != 0; match = dictionaryLinks[match]) {
+          if (!found.get(ownMatches[match])) {
+            found.set(ownMatches[match]);
+            missing--;
+          }
+        }
+      }
+    }
+    return found;
+  }
+
+  public boolean matches(CharSequence text) {
+    return find(text) != NO_MATCH;
+  }
+
+  public String term(int index) {
+    return terms.get(index);
+  }
+
+  public List<String> terms() {
+    return terms;
+  }
+
+  private int symbol(char c) {
+    char folded = fold(c);
+    if (folded < 128) {
+      return asciiSymbols[folded];
+    }
+    int index = Arrays.binarySearch(otherCharacters, folded);
+    return index < 0 ? 0 : otherSymbols[index];
+  }
+
+  private static String fold(String term) {
+    char[] folded = new char[term.length()];
+    for (int i = 0; i < folded.length; i++) {
+      folded[i] = fold(term.charAt(i));
+    }
+    return new String(folded);
+  }
+
+  private static char fold(char c) {
+    if (c < 128) {
+      return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.metadata;
+
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Everything the server needs to declare one rule, resolved at build time from the
+ * {@code @Rule} annotations and the {@code <key>_java.json/html} resources.
+ */
+public final class RuleMetadata {
+
+  private final String key;
+  private final String name;
+  private final String htmlDescription;
+  private final String severity;
+  @Nullable
+  private final String type;
+  private final String status;
+  private final List<String> tags;
+  private final boolean template;
+  @Nullable
+  private final Remediation remediation;
+  private final List<Param> params;
+
+  public RuleMetadata(String key, String name, String htmlDescription, String severity, @Nullable String type, String status,
+    List<String> tags, boolean template, @Nullable Remediation remediation, List<Param> params) {
+    this.key = key;
+    this.name = name;
+    this.htmlDescription = htmlDescription;
+    this.severity = severity;
+    this.type = type;
+    this.status = status;
+    this.tags = Collections.unmodifiableList(tags);
+    this.template = template;
+    this.remediation = remediation;
+    this.params = Collections.unmodifiableList(params);
+  }
+
+  public String key() {
+    return key;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public String htmlDescription() {
+    return htmlDescription;
+  }
+
+  public String severity() {
+    return severity;
+  }
+
+  /**
+   * Name of a {@link org.sonar.api.rules.RuleType} constant, or null when the server should derive it from the tags.
+   */
+  @CheckForNull
+  public String type() {
+    return type;
+  }
+
+  public String status() {
+    return status;
+  }
+
+  public List<String> tags() {
+    return tags;
+  }
+
+  public boolean isTemplate() {
+    return template;
+  }
+
+  @CheckForNull
+  public Remediation remediation() {
+    return remediation;
+  }
+
+  public List<Param> params() {
+    return params;
+  }
+
+  public static final class Remediation {
+
+    public static final String CONSTANT_ISSUE = "Constant/Issue";
+    public static final String LINEAR = "Linear";
+    public static final String LINEAR_OFFSET = "Linear with offset";
+
+    private final String func;
+    @Nullable
+    private final String constantCost;
+    @Nullable
+    private final String linearFactor;
+    @Nullable
+    private final String linearOffset;
+    @Nullable
+    private final String gapDescription;
+
+    public Remediation(String func, @Nullable String constantCost, @Nullable String linearFactor, @Nullable String linearOffset,
+      @Nullable String gapDescription) {
+      this.func = func;
+      this.constantCost = constantCost;
+      this.linearFactor = linearFactor;
+      this.linearOffset = linearOffset;
+      this.gapDescription = gapDescription;
+    }
+
+    public String func() {
+      return func;
+    }
+
+    @CheckForNull
+    public String constantCost() {
+      return constantCost;
+    }
+
+    @CheckForNull
+    public String linearFactor() {
+      return linearFactor;
+    }
+
+    @CheckForNull
+    public String linearOffset() {
+      return linearOffset;
+    }
+
+    @CheckForNull
+    public String gapDescription() {
+      return gapDescription;
+    }
+  }
+
+  public static final class Param {
+
+    private final String key;
+    @Nullable
+    private final String description;
+    @Nullable
+    private final String defaultValue;
+    private final String type;
+
+    public Param(String key, @Nullable String description, @Nullable String defaultValue, String type) {
+      this.key = key;
+      this.description = description;
+      this.defaultValue = defaultValue;
+      this.type = type;
+    }
+
+    public String key() {
+      return key;
+    }
+
+    @CheckForNull
+    public String description() {
+      return description;
+    }
+
+    @CheckForNull
+    public String defaultValue() {
+      return defaultValue;
+    }
+
+    /**
+     * Serialized {@link org.sonar.api.server.rule.RuleParamType}.
+     */
+    public String type() {
+      return type;
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.metadata;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Compact binary form of the rule metadata, written by {@code RuleMetadataIndexer} during the build
+ * and read back in a single pass when the rules are defined.
+ *
+ * <p>Layout: magic, format version, rule count, then for each rule its fields in declaration order.
+ * Strings are stored as a byte length followed by UTF-8 bytes, -1 standing for null.</p>
+ */
+public final class RuleMetadataIndex {
+
+  public static final String FILE_NAME = "rules-metadata.idx";
+
+  private static final int MAGIC = 0x50464552;
+  private static final int VERSION = 1;
+
+  private RuleMetadataIndex() {
+  }
+
+  /**
+   * Loads the index bundled as {@code resource}, relative to the root of the class path of {@code anchor}.
+   */
+  public static List<RuleMetadata> load(Class<?> anchor, String resource) {
+    InputStream stream = anchor.getResourceAsStream(resource);
+    if (stream == null) {
+      throw new IllegalStateException("Rule metadata index not found: " + resource + ". It is generated during the build by "
+        + "org.sonar.samples.java.metadata.RuleMetadataIndexer.");
+    }
+    try (InputStream in = stream) {
+      return read(in);
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to read rule metadata index: " + resource, e);
+    }
+  }
+
+  public static List<RuleMetadata> read(InputStream stream) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a rule metadata index");
+    }
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported rule metadata index version " + version + ", expected " + VERSION);
+    }
+    int count = in.readInt();
+    List<RuleMetadata> rules = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      rules.add(readRule(in));
+    }
+    return rules;
+  }
+
+  public static void write(List<RuleMetadata> rules, OutputStream stream) throws IOException {
+    DataOutputStream out = new DataOutputStream(stream);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(rules.size());
+    for (RuleMetadata rule : rules) {
+      writeRule(rule, out);
+    }
+    out.flush();
+  }
+
+  private static RuleMetadata readRule(DataInputStream in) throws IOException {
+    String key = readString(in);
+    String name = readString(in);
+    String htmlDescription = readString(in);
+    String severity = readString(in);
+    String type = readNullableString(in);
+    String status = readString(in);
+    int tagCount = in.readInt();
+    List<String> tags = new ArrayList<>(tagCount);
+    for (int i = 0; i < tagCount; i++) {
+      tags.add(readString(in));
+    }
+    boolean template = in.readBoolean();
+    RuleMetadata.Remediation remediation = null;
+    if (in.readBoolean()) {
+      remediation = new RuleMetadata.Remediation(readString(in), readNullableString(in), readNullableString(in), readNullableString(in),
+        readNullableString(in));
+    }
+    int paramCount = in.readInt();
+    List<RuleMetadata.Param> params = new ArrayList<>(paramCount);
+    for (int i = 0; i < paramCount; i++) {
+      params.add(new RuleMetadata.Param(readString(in), readNullableString(in), readNullableString(in), readString(in)));
+    }
+    return new RuleMetadata(key, name, htmlDescription, severity, type, status, tags, template, remediation, params);
+  }
+
+  private static void writeRule(RuleMetadata rule, DataOutputStream out) throws IOException {
+    writeString(rule.key(), out);
+    writeString(rule.name(), out);
+    writeString(rule.htmlDescription(), out);
+    writeString(rule.severity(), out);
+    writeString(rule.type(), out);
+    writeString(rule.status(), out);
+    out.writeInt(rule.tags().size());
+    for (String tag : rule.tags()) {
+      writeString(tag, out);
+    }
+    out.writeBoolean(rule.isTemplate());
+    RuleMetadata.Remediation remediation = rule.remediation();
+    out.writeBoolean(remediation != null);
+    if (remediation != null) {
+      writeString(remediation.func(), out);
+      writeString(remediation.constantCost(), out);
+      writeString(remediation.linearFactor(), out);
+      writeString(remediation.linearOffset(), out);
+      writeString(remediation.gapDescription(), out);
+    }
+    out.writeInt(rule.params().size());
+    for (RuleMetadata.Param param : rule.params()) {
+      writeString(param.key(), out);
+      writeString(param.description(), out);
+      writeString(param.defaultValue(), out);
+      writeString(param.type(), out);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    String value = readNullableString(in);
+    if (value == null) {
+      throw new IOException("Corrupted rule metadata index: unexpected null value");
+    }
+    return value;
+  }
+
+  @CheckForNull
+  private static String readNullableString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeString(@Nullable String value, DataOutputStream out) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+}
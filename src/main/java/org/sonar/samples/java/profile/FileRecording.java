@@ -0,0 +1,43 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.profile;
+
+import org.sonar.plugins.java.api.JavaCheck;
+
+/**
+ * Flight Recorder events of the walk of one file, started by {@link RuleEvents#begin}.
+ */
+public interface FileRecording {
+
+  /**
+   * Records an issue reported on the file, as it is reported.
+   */
+  void issue(JavaCheck check, int line, String message);
+
+  /**
+   * Ends the span of the rule run in the given position of the walk.
+   */
+  void rule(int index, Class<?> checkClass, long nanos, long nodes, int ruleIssues);
+
+  /**
+   * Ends the span of the file, once all the rules have been ended.
+   */
+  void end(long nodes);
+}
@@ -0,0 +1,179 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.profile;
+
+import java.io.File;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.JavaVersion;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Context handed to one check for one file, counting the issues it reports before passing them on,
+ * and recording them as Flight Recorder events when the file is being recorded.
+ */
+public class IssueCountingContext implements JavaFileScannerContext {
+
+  private final JavaFileScannerContext delegate;
+  @Nullable
+  private final FileRecording recording;
+  private int issues;
+
+  public IssueCountingContext(JavaFileScannerContext delegate) {
+    this(delegate, null);
+  }
+
+  public IssueCountingContext(JavaFileScannerContext delegate, @Nullable FileRecording recording) {
+    this.delegate = delegate;
+    this.recording = recording;
+  }
+
+  public int issues() {
+    return issues;
+  }
+
+  public JavaFileScannerContext delegate() {
+    return delegate;
+  }
+
+  /**
+   * Called once per issue reported through this context.
+   */
+  protected void issueReported(JavaCheck check, int line, String message) {
+    issues++;
+    if (recording != null) {
+      recording.issue(check, line, message);
+    }
+  }
+
+  private static int line(Tree tree) {
+    return tree.firstToken() == null ? 0 : tree.firstToken().line();
+  }
+
+  @Override
+  public CompilationUnitTree getTree() {
+    return delegate.getTree();
+  }
+
+  @Override
+  public void addIssueOnFile(JavaCheck check, String message) {
+    issueReported(check, 0, message);
+    delegate.addIssueOnFile(check, message);
+  }
+
+  @Override
+  public void addIssue(int line, JavaCheck check, String message) {
+    issueReported(check, line, message);
+    delegate.addIssue(line, check, message);
+  }
+
+  @Override
+  public void addIssue(int line, JavaCheck check, String message, Integer cost) {
+    issueReported(check, line, message);
+    delegate.addIssue(line, check, message, cost);
+  }
+
+  @Override
+  public void addIssue(File file, JavaCheck check, int line, String message) {
+    issueReported(check, line, message);
+    delegate.addIssue(file, check, line, message);
+  }
+
+  @Override
+  public Object getSemanticModel() {
+    return delegate.getSemanticModel();
+  }
+
+  @Override
+  public String getFileKey() {
+    return delegate.getFileKey();
+  }
+
+  @Override
+  public File getFile() {
+    return delegate.getFile();
+  }
+
+  @Override
+  public JavaVersion getJavaVersion() {
+    return delegate.getJavaVersion();
+  }
+
+  @Override
+  public boolean fileParsed() {
+    return delegate.fileParsed();
+  }
+
+  @Override
+  public List<Tree> getComplexityNodes(Tree tree) {
+    return delegate.getComplexityNodes(tree);
+  }
+
+  @Deprecated
+  @Override
+  public List<Tree> getMethodComplexityNodes(ClassTree enclosingClass, MethodTree methodTree) {
+    return delegate.getMethodComplexityNodes(enclosingClass, methodTree);
+  }
+
+  @Override
+  public void reportIssue(JavaCheck javaCheck, Tree tree, String message) {
+    issueReported(javaCheck, line(tree), message);
+    delegate.reportIssue(javaCheck, tree, message);
+  }
+
+  @Override
+  public void reportIssue(JavaCheck javaCheck, Tree tree, String message, List<Location> flow, Integer cost) {
+    issueReported(javaCheck, line(tree), message);
+    delegate.reportIssue(javaCheck, tree, message, flow, cost);
+  }
+
+  @Override
+  public void reportIssueWithFlow(JavaCheck javaCheck, Tree syntaxNode, String message, Iterable<List<Location>> flows, Integer cost) {
+    issueReported(javaCheck, line(syntaxNode), message);
+    delegate.reportIssueWithFlow(javaCheck, syntaxNode, message, flows, cost);
+  }
+
+  @Override
+  public void reportIssue(JavaCheck javaCheck, Tree startTree, Tree endTree, String message) {
+    issueReported(javaCheck, line(startTree), message);
+    delegate.reportIssue(javaCheck, startTree, endTree, message);
+  }
+
+  @Override
+  public void reportIssue(JavaCheck javaCheck, Tree startTree, Tree endTree, String message, List<Location> flow, Integer cost) {
+    issueReported(javaCheck, line(startTree), message);
+    delegate.reportIssue(javaCheck, startTree, endTree, message, flow, cost);
+  }
+
+  @Override
+  public List<String> getFileLines() {
+    return delegate.getFileLines();
+  }
+
+  @Override
+  public String getFileContent() {
+    return delegate.getFileContent();
+  }
+}
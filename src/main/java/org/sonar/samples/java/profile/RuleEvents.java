@@ -0,0 +1,88 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.profile;
+
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Java Flight Recorder events of the custom rules: one {@code FileScan} span per file, one {@code RuleExecution}
+ * span per rule and file, and one {@code RuleIssue} event per issue, all under the "SonarQube / Custom Java Rules"
+ * category of the recording.
+ *
+ * <p>The shared walk asks for a {@link #begin} on every file. While none of these events is enabled in a running
+ * recording, the answer is {@code null} and the walk does not measure anything.</p>
+ *
+ * <p>The events are compiled from {@code src/jfr/java} by the JDKs shipping JFR only (8u262 or later), and loaded by
+ * name: on a JVM without JFR, or from a plugin built without it, the event classes are never loaded.</p>
+ */
+public final class RuleEvents {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RuleEvents.class);
+
+  private static final String JFR_EVENTS = "org.sonar.samples.java.profile.JfrEvents";
+
+  @CheckForNull
+  private static final Recorder RECORDER = loadRecorder();
+
+  private RuleEvents() {
+  }
+
+  /**
+   * Starts the events of the walk of one file by the given number of rules.
+   *
+   * @return the recording to complete at the end of the walk, or {@code null} when no event is being recorded
+   */
+  @CheckForNull
+  public static FileRecording begin(String file, int rules) {
+    if (RECORDER == null || !RECORDER.anyEnabled()) {
+      return null;
+    }
+    return RECORDER.begin(file, rules);
+  }
+
+  @CheckForNull
+  private static Recorder loadRecorder() {
+    ClassLoader classLoader = RuleEvents.class.getClassLoader();
+    try {
+      Class.forName("jdk.jfr.Event", false, classLoader);
+    } catch (ClassNotFoundException | LinkageError e) {
+      LOGGER.debug("Java Flight Recorder not available, custom rule events are disabled");
+      return null;
+    }
+    try {
+      return Class.forName(JFR_EVENTS, true, classLoader).asSubclass(Recorder.class).newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      LOGGER.debug("Plugin built without the Java Flight Recorder events, custom rule events are disabled");
+      return null;
+    }
+  }
+
+  /**
+   * Event types of the recording, implemented next to the events.
+   */
+  interface Recorder {
+
+    boolean anyEnabled();
+
+    FileRecording begin(String file, int rules);
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.profile;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Totals of one rule over an analysis, with the files where it spent the most time.
+ */
+public final class RuleProfile {
+
+  private final String ruleKey;
+  private final int slowestFilesLimit;
+  private final PriorityQueue<FileTime> slowestFiles;
+  private long nanos;
+  private long nodes;
+  private long issues;
+  private long files;
+
+  RuleProfile(String ruleKey, int slowestFilesLimit) {
+    this.ruleKey = ruleKey;
+    this.slowestFilesLimit = slowestFilesLimit;
+    // min-heap: the fastest of the kept files is the one to drop
+    this.slowestFiles = new PriorityQueue<>(Comparator.comparingLong(FileTime::nanos));
+  }
+
+  synchronized void add(String fileKey, long fileNanos, long fileNodes, int fileIssues) {
+    nanos += fileNanos;
+    nodes += fileNodes;
+    issues += fileIssues;
+    files++;
+    if (slowestFilesLimit <= 0) {
+      return;
+    }
+    if (slowestFiles.size() < slowestFilesLimit) {
+      slowestFiles.add(new FileTime(fileKey, fileNanos));
+    } else if (slowestFiles.peek().nanos() < fileNanos) {
+      slowestFiles.poll();
+      slowestFiles.add(new FileTime(fileKey, fileNanos));
+    }
+  }
+
+  public String ruleKey() {
+    return ruleKey;
+  }
+
+  public synchronized long nanos() {
+    return nanos;
+  }
+
+  /**
+   * Nodes handed to the rule, i.e. nodes of the kinds it subscribed to.
+   */
+  public synchronized long nodes() {
+    return nodes;
+  }
+
+  public synchronized long issues() {
+    return issues;
+  }
+
+  public synchronized long files() {
+    return files;
+  }
+
+  /**
+   * Slowest files first.
+   */
+  public synchronized List<FileTime> slowestFiles() {
+    List<FileTime> sorted = new ArrayList<>(slowestFiles);
+    sorted.sort(Comparator.comparingLong(FileTime::nanos).reversed());
+    return sorted;
+  }
+
+  public static final class FileTime {
+
+    private final String fileKey;
+    private final long nanos;
+
+    FileTime(String fileKey, long nanos) {
+      this.fileKey = fileKey;
+      this.nanos = nanos;
+    }
+
+    public String fileKey() {
+      return fileKey;
+    }
+
+    public long nanos() {
+      return nanos;
+    }
+  }
+}
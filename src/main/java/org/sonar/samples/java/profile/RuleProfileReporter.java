@@ -0,0 +1,133 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.profile;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.postjob.PostJob;
+import org.sonar.api.batch.postjob.PostJobContext;
+import org.sonar.api.batch.postjob.PostJobDescriptor;
+
+/**
+ * Writes the {@link RuleProfiler} of the analysis to the working directory, as {@value #JSON_FILE} for tools and
+ * {@value #TEXT_FILE} for humans, and logs the most expensive rules.
+ */
+public class RuleProfileReporter implements PostJob {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RuleProfileReporter.class);
+
+  static final String JSON_FILE = "pfe-rule-profile.json";
+  static final String TEXT_FILE = "pfe-rule-profile.txt";
+  private static final int LOGGED_RULES = 5;
+
+  @Override
+  public void describe(PostJobDescriptor descriptor) {
+    descriptor.name("PFE custom rules profile");
+  }
+
+  @Override
+  public void execute(PostJobContext context) {
+    RuleProfiler profiler = RuleProfiler.current();
+    if (!profiler.isEnabled() || profiler.files() == 0) {
+      return;
+    }
+    Path directory = Paths.get(context.config().get("sonar.working.directory").orElse(".scannerwork"));
+    try {
+      write(profiler, directory);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to write the rule profile to " + directory, e);
+    }
+    List<RuleProfile> profiles = profiler.ruleProfiles();
+    StringBuilder summary = new StringBuilder();
+    for (RuleProfile profile : profiles.subList(0, Math.min(LOGGED_RULES, profiles.size()))) {
+      summary.append(String.format(Locale.ENGLISH, "%n  %s: %.1f ms", profile.ruleKey(), millis(profile.nanos())));
+    }
+    LOGGER.info("Most expensive custom rules, see {} for details:{}", directory.resolve(TEXT_FILE), summary);
+  }
+
+  public static void write(RuleProfiler profiler, Path directory) throws IOException {
+    Files.createDirectories(directory);
+    Files.write(directory.resolve(JSON_FILE), toJson(profiler).getBytes(StandardCharsets.UTF_8));
+    Files.write(directory.resolve(TEXT_FILE), toText(profiler).getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static String toJson(RuleProfiler profiler) {
+    JsonObject json = new JsonObject();
+    json.addProperty("files", profiler.files());
+    json.addProperty("walkNodes", profiler.walkNodes());
+    json.addProperty("walkOverheadMs", round(millis(profiler.walkOverheadNanos())));
+    JsonArray rules = new JsonArray();
+    for (RuleProfile profile : profiler.ruleProfiles()) {
+      JsonObject rule = new JsonObject();
+      rule.addProperty("key", profile.ruleKey());
+      rule.addProperty("timeMs", round(millis(profile.nanos())));
+      rule.addProperty("nodes", profile.nodes());
+      rule.addProperty("issues", profile.issues());
+      rule.addProperty("files", profile.files());
+      JsonArray slowestFiles = new JsonArray();
+      for (RuleProfile.FileTime file : profile.slowestFiles()) {
+        JsonObject slowFile = new JsonObject();
+        slowFile.addProperty("file", file.fileKey());
+        slowFile.addProperty("timeMs", round(millis(file.nanos())));
+        slowestFiles.add(slowFile);
+      }
+      rule.add("slowestFiles", slowestFiles);
+      rules.add(rule);
+    }
+    json.add("rules", rules);
+    return new GsonBuilder().setPrettyPrinting().create().toJson(json);
+  }
+
+  public static String toText(RuleProfiler profiler) {
+    List<RuleProfile> profiles = profiler.ruleProfiles();
+    long totalNanos = profiles.stream().mapToLong(RuleProfile::nanos).sum();
+    StringBuilder text = new StringBuilder();
+    text.append(String.format(Locale.ENGLISH, "%d files, %d nodes walked, %.1f ms in the rules, %.1f ms walking the trees%n%n",
+      profiler.files(), profiler.walkNodes(), millis(totalNanos), millis(profiler.walkOverheadNanos())));
+    text.append(String.format(Locale.ENGLISH, "%-50s %12s %7s %12s %8s%n", "Rule", "Time (ms)", "%", "Nodes", "Issues"));
+    for (RuleProfile profile : profiles) {
+      double share = totalNanos == 0 ? 0 : (100.0 * profile.nanos() / totalNanos);
+      text.append(String.format(Locale.ENGLISH, "%-50s %12.1f %7.1f %12d %8d%n",
+        profile.ruleKey(), millis(profile.nanos()), share, profile.nodes(), profile.issues()));
+      for (RuleProfile.FileTime file : profile.slowestFiles()) {
+        text.append(String.format(Locale.ENGLISH, "    %10.1f ms  %s%n", millis(file.nanos()), file.fileKey()));
+      }
+    }
+    return text.toString();
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  private static double round(double millis) {
+    return Math.round(millis * 1000) / 1000.0;
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.profile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sonar.api.PropertyType;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.config.PropertyDefinition;
+import org.sonar.samples.java.RulesList;
+import org.sonar.samples.java.registry.RuleDescriptor;
+
+/**
+ * Time, nodes and issues of every rule over the current analysis, fed by the shared walk after each file
+ * and written at the end of the analysis by {@link RuleProfileReporter}.
+ *
+ * <p>On by default for scanner analyses: the walk reads the clock once between two checks handed the same node,
+ * which is cheap enough for CI. {@link #ENABLED_KEY} turns it off. Analyses that never call {@link #configure},
+ * such as SonarLint ones, are not profiled.</p>
+ */
+public final class RuleProfiler {
+
+  public static final String ENABLED_KEY = "sonar.pfe.ruleProfile.enabled";
+  public static final String SLOWEST_FILES_KEY = "sonar.pfe.ruleProfile.slowestFiles";
+
+  private static final int DEFAULT_SLOWEST_FILES = 5;
+
+  private static final Map<Class<?>, String> RULE_KEYS_BY_CLASS = ruleKeysByClass();
+  private static volatile RuleProfiler current = new RuleProfiler(false, DEFAULT_SLOWEST_FILES);
+
+  private final boolean enabled;
+  private final int slowestFiles;
+  private final Map<String, RuleProfile> profilesByRule = new ConcurrentHashMap<>();
+  private final AtomicLong files = new AtomicLong();
+  private final AtomicLong walkNanos = new AtomicLong();
+  private final AtomicLong walkNodes = new AtomicLong();
+
+  private RuleProfiler(boolean enabled, int slowestFiles) {
+    this.enabled = enabled;
+    this.slowestFiles = slowestFiles;
+  }
+
+  /**
+   * Starts a new profile for the analysis about to run.
+   */
+  public static void configure(Configuration configuration) {
+    current = new RuleProfiler(
+      configuration.getBoolean(ENABLED_KEY).orElse(true),
+      configuration.getInt(SLOWEST_FILES_KEY).orElse(DEFAULT_SLOWEST_FILES));
+  }
+
+  public static RuleProfiler current() {
+    return current;
+  }
+
+  public static List<PropertyDefinition> properties() {
+    return Arrays.asList(
+      PropertyDefinition.builder(ENABLED_KEY)
+        .name("Rule profile")
+        .description("Measure the time, visited nodes and issues of each custom rule, and write them at the end of the analysis.")
+        .type(PropertyType.BOOLEAN)
+        .defaultValue("true")
+        .hidden()
+        .build(),
+      PropertyDefinition.builder(SLOWEST_FILES_KEY)
+        .name("Rule profile slowest files")
+        .description("Number of slowest files kept for each rule in the rule profile.")
+        .type(PropertyType.INTEGER)
+        .defaultValue(Integer.toString(DEFAULT_SLOWEST_FILES))
+        .hidden()
+        .build());
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Records what one check did on one file.
+   */
+  public void recordRule(Class<?> checkClass, String fileKey, long nanos, long nodes, int issues) {
+    profilesByRule.computeIfAbsent(ruleKey(checkClass), key -> new RuleProfile(key, slowestFiles)).add(fileKey, nanos, nodes, issues);
+  }
+
+  /**
+   * Records a file analyzed by the checks, walked once or more.
+   */
+  public void recordFile() {
+    files.incrementAndGet();
+  }
+
+  /**
+   * Records one walk of a file: the nodes visited once for all the checks walked, and the time not spent in any check.
+   */
+  public void recordWalk(long nodes, long overheadNanos) {
+    walkNodes.addAndGet(nodes);
+    walkNanos.addAndGet(overheadNanos);
+  }
+
+  public long files() {
+    return files.get();
+  }
+
+  public long walkNodes() {
+    return walkNodes.get();
+  }
+
+  public long walkOverheadNanos() {
+    return walkNanos.get();
+  }
+
+  /**
+   * Profiles of the rules which ran, most expensive first.
+   */
+  public List<RuleProfile> ruleProfiles() {
+    List<RuleProfile> profiles = new ArrayList<>(profilesByRule.values());
+    profiles.sort(Comparator.comparingLong(RuleProfile::nanos).reversed().thenComparing(RuleProfile::ruleKey));
+    return profiles;
+  }
+
+  /**
+   * Key of the rule implemented by the given check, as declared by its {@code @Rule} annotation.
+   */
+  public static String ruleKey(Class<?> checkClass) {
+    return RULE_KEYS_BY_CLASS.getOrDefault(checkClass, checkClass.getName());
+  }
+
+  private static Map<Class<?>, String> ruleKeysByClass() {
+    Map<Class<?>, String> keys = new HashMap<>();
+    for (RuleDescriptor descriptor : RulesList.getJavaRules()) {
+      keys.put(descriptor.checkClass(), descriptor.key());
+    }
+    return keys;
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.registry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * What {@code RuleRegistryProcessor} found in the attributed sources of each check: whether it is syntax-only and the
+ * kinds of its {@code nodesToVisit()}. Written by the processor next to {@link GeneratedRuleRegistry} once javac has
+ * analyzed all the classes, and read back when the registry is loaded.
+ *
+ * <p>Layout: one line per check, its binary name, {@code true} when syntax-only, then its kinds separated by commas,
+ * the three fields separated by tabulations.</p>
+ */
+final class RuleAnalysis {
+
+  static final String FILE_NAME = "rules-analysis.txt";
+
+  private final Map<String, Boolean> syntaxOnlyByCheck = new HashMap<>();
+  private final Map<String, List<Tree.Kind>> kindsByCheck = new HashMap<>();
+
+  private RuleAnalysis() {
+  }
+
+  /**
+   * Loads the analysis bundled in the package of {@code anchor}.
+   */
+  static RuleAnalysis load(Class<?> anchor) {
+    InputStream stream = anchor.getResourceAsStream(FILE_NAME);
+    if (stream == null) {
+      throw new IllegalStateException("Rule analysis not found: " + FILE_NAME + ". It is generated during the build by "
+        + "org.sonar.samples.java.registry.processor.RuleRegistryProcessor.");
+    }
+    try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+      return read(reader);
+    } catch (IOException | IllegalArgumentException e) {
+      throw new IllegalStateException("Failed to read rule analysis: " + FILE_NAME, e);
+    }
+  }
+
+  static RuleAnalysis read(Reader reader) throws IOException {
+    RuleAnalysis analysis = new RuleAnalysis();
+    BufferedReader lines = new BufferedReader(reader);
+    for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+      if (line.isEmpty()) {
+        continue;
+      }
+      String[] fields = line.split("\t", -1);
+      if (fields.length != 3) {
+        throw new IOException("Corrupted rule analysis line: " + line);
+      }
+      List<Tree.Kind> kinds = new ArrayList<>();
+      for (String kind : fields[2].split(",")) {
+        if (!kind.isEmpty()) {
+          kinds.add(Tree.Kind.valueOf(kind));
+        }
+      }
+      analysis.syntaxOnlyByCheck.put(fields[0], Boolean.parseBoolean(fields[1]));
+      analysis.kindsByCheck.put(fields[0], Collections.unmodifiableList(kinds));
+    }
+    return analysis;
+  }
+
+  boolean isSyntaxOnly(Class<?> checkClass) {
+    Boolean syntaxOnly = syntaxOnlyByCheck.get(checkClass.getName());
+    if (syntaxOnly == null) {
+      throw new IllegalStateException("Rule analysis of " + checkClass.getName() + " not found in " + FILE_NAME);
+    }
+    return syntaxOnly;
+  }
+
+  List<Tree.Kind> nodesToVisit(Class<?> checkClass) {
+    List<Tree.Kind> kinds = kindsByCheck.get(checkClass.getName());
+    if (kinds == null) {
+      throw new IllegalStateException("Rule analysis of " + checkClass.getName() + " not found in " + FILE_NAME);
+    }
+    return kinds;
+  }
+}
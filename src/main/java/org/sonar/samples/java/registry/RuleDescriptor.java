@@ -0,0 +1,84 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.registry;
+
+import java.util.List;
+import java.util.function.Supplier;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * One entry of {@link GeneratedRuleRegistry}: what is known about a rule without loading its annotations
+ * or instantiating it reflectively.
+ */
+public final class RuleDescriptor {
+
+  private final String key;
+  private final Class<? extends JavaCheck> checkClass;
+  private final boolean syntaxOnly;
+  private final Supplier<? extends JavaCheck> factory;
+  private final List<Tree.Kind> nodesToVisit;
+
+  RuleDescriptor(String key, Class<? extends JavaCheck> checkClass, Supplier<? extends JavaCheck> factory, RuleAnalysis analysis) {
+    this.key = key;
+    this.checkClass = checkClass;
+    this.syntaxOnly = analysis.isSyntaxOnly(checkClass);
+    this.factory = factory;
+    this.nodesToVisit = analysis.nodesToVisit(checkClass);
+  }
+
+  /**
+   * Key of the {@code @Rule} annotation, as registered in the repository.
+   */
+  public String key() {
+    return key;
+  }
+
+  public Class<? extends JavaCheck> checkClass() {
+    return checkClass;
+  }
+
+  /**
+   * True when neither the check nor the code it calls in this plugin uses the semantic API
+   * (symbols, types, semantic model), so the check gives the same result without bytecode on the class path.
+   */
+  public boolean isSyntaxOnly() {
+    return syntaxOnly;
+  }
+
+  /**
+   * Kinds returned by the check's {@code nodesToVisit()}, empty for checks which walk the file themselves.
+   */
+  public List<Tree.Kind> nodesToVisit() {
+    return nodesToVisit;
+  }
+
+  /**
+   * New instance of the check, with its rule properties set to their default values.
+   */
+  public JavaCheck newCheck() {
+    return factory.get();
+  }
+
+  @Override
+  public String toString() {
+    return key;
+  }
+}
@@ -0,0 +1,466 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.registry.processor;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates {@code org.sonar.samples.java.registry.GeneratedRuleRegistry} from the classes annotated with {@code @Rule},
+ * so that the plugin knows its rules without scanning annotations, and the runner and the benchmarks instantiate them
+ * without reflection: a factory per rule, the constructor of the check. The analyzer instantiates the checks from their
+ * class and sets their {@code @RuleProperty} fields itself, so the fields are initialized to their default value in the
+ * checks for the other callers of the factory.
+ *
+ * <p>For each rule the processor also records, in {@value #ANALYSIS_FILE} next to the registry:</p>
+ * <ul>
+ *   <li>the kinds returned by {@code nodesToVisit()}, read from the {@code Tree.Kind} constants of its body;</li>
+ *   <li>whether the check is syntax-only: none of its code, nor the code of this compilation it calls, touches the
+ *   semantic API ({@code getSemanticModel()} or anything of {@code org.sonar.plugins.java.api.semantic}).</li>
+ * </ul>
+ * <p>Both need the names of the sources resolved, which javac only does once annotation processing is over, so they
+ * are collected by a listener as each class is analyzed and written once all the classes of the compilation are.
+ * A call left unresolved at that point fails the build rather than guessing.</p>
+ *
+ * <p>Compiled on its own before the rest of the sources, see the {@code default-compile} execution in the pom.</p>
+ */
+@SupportedAnnotationTypes(RuleRegistryProcessor.RULE)
+public class RuleRegistryProcessor extends AbstractProcessor {
+
+  static final String RULE = "org.sonar.check.Rule";
+  // read by org.sonar.samples.java.registry.RuleAnalysis: one line per check, its binary name, whether it is
+  // syntax-only and its kinds, separated by tabulations, the kinds by commas
+  static final String ANALYSIS_FILE = "rules-analysis.txt";
+  private static final String JAVA_CHECK = "org.sonar.plugins.java.api.JavaCheck";
+  private static final String TREE_KIND = "org.sonar.plugins.java.api.tree.Tree.Kind";
+  private static final String SEMANTIC_PACKAGE = "org.sonar.plugins.java.api.semantic";
+  private static final String SEMANTIC_MODEL_GETTER = "getSemanticModel";
+  private static final String REGISTRY_PACKAGE = "org.sonar.samples.java.registry";
+  private static final String REGISTRY_NAME = "GeneratedRuleRegistry";
+
+  private Trees trees;
+  // names rather than elements: javac 8 enters the classes again once annotation processing is over
+  private List<String> checkNames;
+  // top level classes of the compilation not analyzed by javac yet
+  private final Set<String> pending = new HashSet<>();
+  private final SemanticUsage semanticUsage = new SemanticUsage();
+  private final Map<Element, List<String>> kindsByMethod = new HashMap<>();
+
+  @Override
+  public synchronized void init(ProcessingEnvironment processingEnv) {
+    super.init(processingEnv);
+    try {
+      trees = Trees.instance(processingEnv);
+      JavacTask.instance(processingEnv).addTaskListener(new AnalysisListener());
+    } catch (IllegalArgumentException e) {
+      trees = null;
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+        "The rule registry needs the source trees of javac, which this compiler does not provide: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+    for (TypeElement type : ElementFilter.typesIn(round.getRootElements())) {
+      pending.add(type.getQualifiedName().toString());
+    }
+    if (checkNames != null || annotations.isEmpty() || trees == null) {
+      return false;
+    }
+    List<TypeElement> checks = new ArrayList<>();
+    for (Element element : round.getElementsAnnotatedWith(processingEnv.getElementUtils().getTypeElement(RULE))) {
+      if (isInstantiableCheck(element)) {
+        checks.add((TypeElement) element);
+      }
+    }
+    checks.sort(Comparator.comparing(check -> check.getQualifiedName().toString()));
+    checkNames = new ArrayList<>();
+
+    StringBuilder entries = new StringBuilder();
+    for (TypeElement check : checks) {
+      String checkName = check.getQualifiedName().toString();
+      checkNames.add(checkName);
+      entries.append(entries.length() == 0 ? "" : ",\n")
+        .append("    new RuleDescriptor(")
+        .append(processingEnv.getElementUtils().getConstantExpression(stringValue(check, RULE, "key")))
+        .append(", ").append(checkName).append(".class")
+        .append(", ").append(checkName).append("::new")
+        .append(", ANALYSIS)");
+    }
+
+    writeRegistry(entries.toString(), checks);
+    return false;
+  }
+
+  private boolean isInstantiableCheck(Element element) {
+    if (element.getKind() != ElementKind.CLASS) {
+      error(element, "@Rule is only supported on classes");
+      return false;
+    }
+    TypeElement type = (TypeElement) element;
+    if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+      return false;
+    }
+    if (!type.getModifiers().contains(Modifier.PUBLIC)
+      || (type.getNestingKind() != NestingKind.TOP_LEVEL && !type.getModifiers().contains(Modifier.STATIC))) {
+      error(type, "Rule classes must be public, and static when nested");
+      return false;
+    }
+    TypeMirror javaCheck = processingEnv.getElementUtils().getTypeElement(JAVA_CHECK).asType();
+    if (!processingEnv.getTypeUtils().isAssignable(type.asType(), javaCheck)) {
+      error(type, "Rule classes must implement " + JAVA_CHECK);
+      return false;
+    }
+    List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+    boolean hasPublicNoArgConstructor = constructors.stream()
+      .anyMatch(constructor -> constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC));
+    if (!hasPublicNoArgConstructor) {
+      error(type, "Rule classes must have a public constructor without parameters");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Constant names of {@code Tree.Kind} referenced by {@code nodesToVisit()}, from the check or its closest superclass
+   * declaring it. Empty when the method is not found in the sources of this compilation.
+   */
+  private List<String> nodesToVisit(TypeElement check) {
+    for (TypeElement type = check; type != null; type = superclass(type)) {
+      for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+        if (isNodesToVisit(method)) {
+          return kindsByMethod.getOrDefault(method, Collections.emptyList());
+        }
+      }
+    }
+    return Collections.emptyList();
+  }
+
+  private static boolean isNodesToVisit(ExecutableElement method) {
+    return method.getSimpleName().contentEquals("nodesToVisit") && method.getParameters().isEmpty();
+  }
+
+  private void writeRegistry(String entries, List<TypeElement> checks) {
+    String source = "package " + REGISTRY_PACKAGE + ";\n\n"
+      + "import java.util.Arrays;\n"
+      + "import java.util.Collections;\n"
+      + "import java.util.List;\n\n"
+      + generatedComment()
+      + "public final class " + REGISTRY_NAME + " {\n\n"
+      + "  private static final RuleAnalysis ANALYSIS = RuleAnalysis.load(" + REGISTRY_NAME + ".class);\n"
+      + "  private static final List<RuleDescriptor> RULES = Collections.unmodifiableList(Arrays.asList(\n"
+      + entries + "));\n\n"
+      + "  private " + REGISTRY_NAME + "() {\n"
+      + "  }\n\n"
+      + "  public static List<RuleDescriptor> rules() {\n"
+      + "    return RULES;\n"
+      + "  }\n"
+      + "}\n";
+    String qualifiedName = qualified(REGISTRY_PACKAGE, REGISTRY_NAME);
+    try (PrintWriter writer = new PrintWriter(processingEnv.getFiler()
+      .createSourceFile(qualifiedName, checks.toArray(new Element[0])).openWriter())) {
+      writer.print(source);
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + qualifiedName + ": " + e.getMessage());
+    }
+  }
+
+  private void writeAnalysis() {
+    List<TypeElement> checks = new ArrayList<>();
+    StringBuilder lines = new StringBuilder();
+    for (String checkName : checkNames) {
+      TypeElement check = processingEnv.getElementUtils().getTypeElement(checkName);
+      checks.add(check);
+      lines.append(processingEnv.getElementUtils().getBinaryName(check))
+        .append('\t').append(!semanticUsage.isSemantic(check))
+        .append('\t').append(String.join(",", nodesToVisit(check)))
+        .append('\n');
+    }
+    try (PrintWriter writer = new PrintWriter(processingEnv.getFiler()
+      .createResource(StandardLocation.CLASS_OUTPUT, REGISTRY_PACKAGE, ANALYSIS_FILE, checks.toArray(new Element[0])).openWriter())) {
+      writer.print(lines);
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + ANALYSIS_FILE + ": " + e.getMessage());
+    }
+  }
+
+  private String generatedComment() {
+    return "// Generated by " + getClass().getName() + ", do not edit.\n";
+  }
+
+  private static String qualified(String packageName, String simpleName) {
+    return packageName.isEmpty() ? simpleName : (packageName + "." + simpleName);
+  }
+
+  private String packageOf(Element element) {
+    return processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+  }
+
+  private TypeElement superclass(TypeElement type) {
+    TypeMirror superclass = type.getSuperclass();
+    return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) processingEnv.getTypeUtils().asElement(superclass) : null;
+  }
+
+  private static AnnotationMirror annotation(Element element, String annotationName) {
+    for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+        return mirror;
+      }
+    }
+    return null;
+  }
+
+  private String stringValue(Element element, String annotationName, String attribute) {
+    AnnotationMirror mirror = annotation(element, annotationName);
+    if (mirror == null) {
+      return "";
+    }
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+      : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+      if (entry.getKey().getSimpleName().contentEquals(attribute)) {
+        return String.valueOf(entry.getValue().getValue());
+      }
+    }
+    return "";
+  }
+
+  private void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+  /**
+   * Reads each top level class once javac has attributed it, before its trees are lowered, and writes the analysis
+   * once the last one is read.
+   */
+  private class AnalysisListener implements TaskListener {
+
+    @Override
+    public void started(TaskEvent event) {
+      // nothing to do before the analysis
+    }
+
+    @Override
+    public void finished(TaskEvent event) {
+      TypeElement type = event.getTypeElement();
+      if (event.getKind() != TaskEvent.Kind.ANALYZE || type == null || !pending.remove(type.getQualifiedName().toString())) {
+        return;
+      }
+      TreePath path = trees.getPath(type);
+      if (path != null) {
+        new UsageScanner().scan(path, null);
+      }
+      if (pending.isEmpty() && checkNames != null) {
+        semanticUsage.propagate();
+        writeAnalysis();
+      }
+    }
+  }
+
+  private class KindCollector extends TreePathScanner<Void, Void> {
+
+    private final List<String> kinds;
+
+    KindCollector(List<String> kinds) {
+      this.kinds = kinds;
+    }
+
+    @Override
+    public Void visitMemberSelect(MemberSelectTree tree, Void unused) {
+      addKind();
+      return super.visitMemberSelect(tree, unused);
+    }
+
+    @Override
+    public Void visitIdentifier(IdentifierTree tree, Void unused) {
+      addKind();
+      return super.visitIdentifier(tree, unused);
+    }
+
+    private void addKind() {
+      Element element = trees.getElement(getCurrentPath());
+      if (element != null && element.getKind() == ElementKind.ENUM_CONSTANT
+        && ((TypeElement) element.getEnclosingElement()).getQualifiedName().contentEquals(TREE_KIND)) {
+        String kind = element.getSimpleName().toString();
+        if (!kinds.contains(kind)) {
+          kinds.add(kind);
+        }
+      }
+    }
+  }
+
+  /**
+   * Which methods of the compilation use the semantic API, directly or through the methods they call.
+   * Code outside of methods (field initializers) is attributed to its class.
+   */
+  private class SemanticUsage {
+
+    private final Map<Element, Set<Element>> callersByCallee = new HashMap<>();
+    private final Set<Element> semantic = new HashSet<>();
+
+    void call(Element caller, ExecutableElement callee) {
+      if (isSemanticApi(callee)) {
+        semantic.add(caller);
+      } else {
+        callersByCallee.computeIfAbsent(callee, k -> new HashSet<>()).add(caller);
+      }
+    }
+
+    void propagate() {
+      Deque<Element> worklist = new ArrayDeque<>(semantic);
+      while (!worklist.isEmpty()) {
+        for (Element caller : callersByCallee.getOrDefault(worklist.pop(), Collections.emptySet())) {
+          if (semantic.add(caller)) {
+            worklist.push(caller);
+          }
+        }
+      }
+    }
+
+    boolean isSemantic(TypeElement check) {
+      for (Element element : semantic) {
+        for (Element enclosing = element; enclosing != null; enclosing = enclosing.getEnclosingElement()) {
+          if (enclosing.equals(check)) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    private boolean isSemanticApi(ExecutableElement method) {
+      if (method.getSimpleName().contentEquals(SEMANTIC_MODEL_GETTER) || packageOf(method).startsWith(SEMANTIC_PACKAGE)) {
+        return true;
+      }
+      TypeMirror returnType = method.getReturnType();
+      return returnType.getKind() == TypeKind.DECLARED
+        && packageOf(processingEnv.getTypeUtils().asElement(returnType)).startsWith(SEMANTIC_PACKAGE);
+    }
+  }
+
+  private class UsageScanner extends TreePathScanner<Void, Void> {
+
+    private final Deque<Element> owners = new ArrayDeque<>();
+
+    @Override
+    public Void visitClass(ClassTree tree, Void unused) {
+      return visitOwner(tree, unused);
+    }
+
+    @Override
+    public Void visitMethod(MethodTree tree, Void unused) {
+      return visitOwner(tree, unused);
+    }
+
+    private Void visitOwner(com.sun.source.tree.Tree tree, Void unused) {
+      Element owner = trees.getElement(getCurrentPath());
+      if (owner == null) {
+        return null;
+      }
+      if (owner.getKind() == ElementKind.METHOD && isNodesToVisit((ExecutableElement) owner)) {
+        List<String> kinds = new ArrayList<>();
+        new KindCollector(kinds).scan(getCurrentPath(), null);
+        kindsByMethod.put(owner, kinds);
+      }
+      owners.push(owner);
+      try {
+        return tree instanceof ClassTree ? super.visitClass((ClassTree) tree, unused) : super.visitMethod((MethodTree) tree, unused);
+      } finally {
+        owners.pop();
+      }
+    }
+
+    @Override
+    public Void visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+      recordCall(tree);
+      return super.visitMethodInvocation(tree, unused);
+    }
+
+    @Override
+    public Void visitMemberReference(MemberReferenceTree tree, Void unused) {
+      recordCall(tree);
+      return super.visitMemberReference(tree, unused);
+    }
+
+    @Override
+    public Void visitNewClass(NewClassTree tree, Void unused) {
+      recordCall(tree);
+      return super.visitNewClass(tree, unused);
+    }
+
+    private void recordCall(com.sun.source.tree.Tree tree) {
+      if (owners.isEmpty()) {
+        return;
+      }
+      Element callee = trees.getElement(getCurrentPath());
+      if (callee instanceof ExecutableElement) {
+        semanticUsage.call(owners.peek(), (ExecutableElement) callee);
+      } else {
+        trees.printMessage(Diagnostic.Kind.ERROR, "The rule registry cannot resolve this call, so cannot tell whether it uses the semantic API",
+          tree, getCurrentPath().getCompilationUnit());
+      }
+    }
+  }
+}
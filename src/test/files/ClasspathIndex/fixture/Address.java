@@ -0,0 +1,8 @@
+package fixture;
+
+import javax.persistence.Embeddable;
+
+@Deprecated
+@Embeddable
+public class Address {
+}
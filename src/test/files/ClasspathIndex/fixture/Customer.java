@@ -0,0 +1,23 @@
+package fixture;
+
+import java.io.Serializable;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+@Table(name = "customers", uniqueConstraints = @UniqueConstraint(columnNames = {"first_name", "last_name"}))
+@Entity
+public class Customer extends Person implements Serializable, Comparable<Customer> {
+
+  private static final long serialVersionUID = 42L;
+  static final String GREETING = "Bienvenue à bord";
+
+  @Override
+  public int compareTo(Customer other) {
+    return 0;
+  }
+
+  public static class Id implements Serializable {
+    private static final long serialVersionUID = 1L;
+  }
+}
@@ -0,0 +1,6 @@
+package fixture;
+
+public abstract class Person {
+
+  static final double RATE = 0.5;
+}
@@ -0,0 +1,80 @@
+import java.util.List;
+import java.util.function.Supplier;
+
+abstract class ControlFlowGraph {
+
+  abstract void a();
+
+  abstract void b();
+
+  abstract boolean test();
+
+  void sequence() {
+    a();
+    b();
+  }
+
+  void ifElse() {
+    if (test()) {
+      a();
+    } else {
+      b();
+    }
+  }
+
+  void whileLoop() {
+    while (test()) {
+      a();
+    }
+    b();
+  }
+
+  void earlyReturn() {
+    if (test()) {
+      return;
+    }
+    a();
+  }
+
+  void thrown() {
+    a();
+    throw new IllegalStateException();
+  }
+
+  void caught() {
+    try {
+      a();
+      throw new IllegalStateException();
+    } catch (IllegalStateException e) {
+      b();
+    }
+  }
+
+  void finallyOnReturn() {
+    try {
+      if (test()) {
+        return;
+      }
+      a();
+    } finally {
+      b();
+    }
+  }
+
+  void labeledBreak(List<List<String>> rows) {
+    outer:
+    for (List<String> row : rows) {
+      for (String cell : row) {
+        if (cell.isEmpty()) {
+          break outer;
+        }
+        a();
+      }
+    }
+    b();
+  }
+
+  Supplier<String> lambda() {
+    return () -> "value";
+  }
+}
@@ -0,0 +1,96 @@
+package org.example.web;
+
+import static org.springframework.http.HttpStatus.ACCEPTED;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/orders/")
+public class OrderController {
+
+  private static final String VERSION = "/v1";
+  private static final String ITEMS = VERSION + "/items";
+
+  @GetMapping("/{id}")
+  public ResponseEntity<String> get(String id) {
+    if (id.isEmpty()) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity.ok(id);
+  }
+
+  @PostMapping
+  public ResponseEntity<String> create(String order) {
+    try {
+      return ResponseEntity.status(HttpStatus.CREATED).header("Location", order).body(order);
+    } catch (IllegalStateException e) {
+      return ResponseEntity.badRequest().build();
+    } catch (RuntimeException e) {
+      return new ResponseEntity<>(HttpStatus.valueOf(503));
+    }
+  }
+
+  @RequestMapping(value = {"/a", "b/"}, method = {RequestMethod.PUT, RequestMethod.PATCH})
+  public ResponseEntity<Void> update() {
+    return (ResponseEntity.status(ACCEPTED).build());
+  }
+
+  @RequestMapping(path = ITEMS)
+  public ResponseEntity<Void> items(Optional<String> item) {
+    Supplier<ResponseEntity<Void>> supplier = () -> {
+      return ResponseEntity.status(418).build();
+    };
+    if (item.isPresent()) {
+      return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+    return other();
+  }
+
+  @DeleteMapping(Paths.ELSEWHERE + "/{id}")
+  public ResponseEntity<Void> delete(String id) {
+    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+  }
+
+  public ResponseEntity<Void> other() {
+    return ResponseEntity.noContent().build();
+  }
+}
+
+@RestController
+@RequestMapping({"/admin", "/internal/"})
+class AdminController {
+
+  @GetMapping
+  public ResponseEntity<String> index() {
+    return ResponseEntity.ok("admin");
+  }
+
+  @PatchMapping(path = "status")
+  public ResponseEntity<String> status() {
+    return ResponseEntity.ok("up");
+  }
+}
+
+@RestController
+class HealthController {
+
+  @GetMapping("health")
+  public ResponseEntity<String> health() {
+    return ResponseEntity.ok("up");
+  }
+
+  @RequestMapping
+  public String root() {
+    return "root";
+  }
+}
@@ -0,0 +1,41 @@
+package org.example.model;
+
+import javax.persistence.*;
+import javax.persistence.Embeddable;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/* @Entity class CommentedOut { } */
+@Entity
+@Table(name = "orders", indexes = {@Index(columnList = "customer_id")})
+public class Order {
+
+  // @Entity class LineComment { }
+  private static final String TEXT = "@Entity class InString {";
+  private final Class<?> type = Order.class;
+
+  @Embeddable
+  public static class Line {
+    char brace = '{';
+  }
+
+  enum Status {
+    OPEN, CLOSED
+  }
+
+  class Plain {
+    @Document(collection = "audits")
+    class Audit {
+    }
+  }
+}
+
+@javax.persistence.Embeddable
+class Amount {
+}
+
+@Deprecated
+class NotAnEntity {
+  @Entity
+  void method() {
+  }
+}
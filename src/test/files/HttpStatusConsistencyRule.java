@@ -0,0 +1,61 @@
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+class HttpStatusConsistencyRule {
+
+  ResponseEntity<String> success() {
+    return OK(); // Noncompliant {{Ensure that success status codes are used properly.}}
+  }
+
+  ResponseEntity<String> failure() {
+    return BAD_REQUEST(); // Noncompliant {{Ensure that error status codes are used properly.}}
+  }
+
+  ResponseEntity<String> created() {
+    return CREATED(); // Noncompliant 2
+  }
+
+  ResponseEntity<String> unrelated(boolean flag) {
+    if (flag) {
+      return OK(); // Noncompliant 3
+    }
+    return other(); // Noncompliant {{Inconsistent use of HTTP response codes in multiple return statements.}}
+  }
+
+  ResponseEntity<String> guarded() {
+    try {
+      return other();
+    } catch (IllegalStateException e) {
+      return NOT_FOUND(); // Noncompliant {{Ensure that error status codes are used properly.}}
+    } catch (RuntimeException e) {
+      return other(); // Noncompliant {{Catch block should return an error status code.}}
+    }
+  }
+
+  ResponseEntity<String> lambdas() {
+    java.util.function.Supplier<ResponseEntity<String>> supplier = () -> {
+      return other(); // Noncompliant {{Inconsistent use of HTTP response codes in multiple return statements.}}
+    };
+    return supplier.get(); // Noncompliant {{Inconsistent use of HTTP response codes in multiple return statements.}}
+  }
+
+  ResponseEntity<String> OK() {
+    return new ResponseEntity<>(HttpStatus.OK);
+  }
+
+  ResponseEntity<String> CREATED() {
+    return new ResponseEntity<>(HttpStatus.CREATED);
+  }
+
+  ResponseEntity<String> BAD_REQUEST() {
+    return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+  }
+
+  ResponseEntity<String> NOT_FOUND() {
+    return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+  }
+
+  ResponseEntity<String> other() {
+    return null;
+  }
+}
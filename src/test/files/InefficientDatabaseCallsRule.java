@@ -0,0 +1,80 @@
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.CrudRepository;
+
+class Item {
+  String name;
+}
+
+interface ItemRepository extends JpaRepository<Item, Long> {
+}
+
+interface ArchiveRepository extends CrudRepository<Item, Long> {
+}
+
+class Drafts {
+  void save(Item item) {
+  }
+}
+
+class ItemService {
+
+  private final ItemRepository repository;
+  private final ArchiveRepository archive;
+  private final Drafts drafts = new Drafts();
+
+  ItemService(ItemRepository repository, ArchiveRepository archive) {
+    this.repository = repository;
+    this.archive = archive;
+  }
+
+  void importAll(List<Item> items) {
+    for (Item item : items) {
+      repository.save(item); // Noncompliant {{Évitez de sauvegarder des entités à l'intérieur des boucles. Utilisez des mises à jour par lots pour améliorer les performances. (profondeur de boucle : 1)}}
+      drafts.save(item);
+    }
+    for (Item item : items) {
+      for (Item other : items) {
+        archive.save(other); // Noncompliant {{Évitez de sauvegarder des entités à l'intérieur des boucles. Utilisez des mises à jour par lots pour améliorer les performances. (profondeur de boucle : 2)}}
+      }
+    }
+    items.forEach(repository::save); // Noncompliant
+    items.forEach(drafts::save);
+    items.forEach(item -> archive.save(item)); // Noncompliant
+    repository.saveAll(items);
+  }
+
+  void importLater(List<Item> items) {
+    int index = 0;
+    while (index < items.size()) {
+      store(items.get(index)); // Noncompliant {{Cet appel dans une boucle sauvegarde des entités via ItemService.store. Utilisez des mises à jour par lots pour améliorer les performances. (profondeur de boucle : 1)}}
+      index++;
+    }
+    for (Item item : items) {
+      keep(item);
+    }
+  }
+
+  void importNow(List<Item> items) {
+    for (Item item : items) {
+      store(item); // Noncompliant {{Cet appel dans une boucle sauvegarde des entités via ItemService.store. Utilisez des mises à jour par lots pour améliorer les performances. (profondeur de boucle : 1)}}
+    }
+  }
+
+  private void store(Item item) {
+    repository.save(item);
+  }
+
+  private void keep(Item item) {
+    drafts.save(item);
+  }
+
+  List<Item> copies(List<Item> items) {
+    List<Item> copies = new ArrayList<>();
+    for (Item item : items) {
+      copies.add(item);
+    }
+    return copies;
+  }
+}
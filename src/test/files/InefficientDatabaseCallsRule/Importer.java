@@ -0,0 +1,18 @@
+package crossfile;
+
+import java.util.List;
+
+class Importer {
+
+  private final Store store;
+
+  Importer(Store store) {
+    this.store = store;
+  }
+
+  void importAll(List<String> values) {
+    for (String value : values) {
+      store.keep(value);
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package crossfile;
+
+import org.springframework.data.repository.CrudRepository;
+
+interface ValueRepository extends CrudRepository<String, Long> {
+}
+
+class Store {
+
+  private ValueRepository repository;
+
+  void keep(String value) {
+    repository.save(value);
+  }
+}
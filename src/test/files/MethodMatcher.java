@@ -0,0 +1,25 @@
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+class MethodMatcher {
+
+  void calls(List<String> list, ArrayList<String> arrayList, ByteArrayOutputStream out, Unresolved unresolved) throws Exception {
+    list.add("a");
+    list.add(0, "b");
+    arrayList.add("c");
+    out.flush();
+    out.close();
+    unresolved.defineClass("d");
+    unresolved.add("e");
+    defineClass();
+    new Object() {
+      void inner(List<String> other) {
+        other.clear();
+      }
+    };
+  }
+
+  void defineClass() {
+  }
+}
@@ -0,0 +1,77 @@
+package checks;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.StandardPasswordEncoder;
+
+class CustomEncoder implements PasswordEncoder {
+
+  public String encode(CharSequence rawPassword) {
+    return rawPassword.toString();
+  }
+
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return encodedPassword.equals(encode(rawPassword));
+  }
+}
+
+class StrongerEncoder extends BCryptPasswordEncoder {
+}
+
+class Hashes {
+
+  static String MD5(String value) {
+    return value;
+  }
+
+  static String sha256(String value) {
+    return value;
+  }
+}
+
+class EncoderConfiguration {
+
+  PasswordEncoder secure() {
+    return new BCryptPasswordEncoder(12);
+  }
+
+  PasswordEncoder inherited() {
+    return new StrongerEncoder();
+  }
+
+  PasswordEncoder weak() {
+    return new StandardPasswordEncoder(); // Noncompliant {{The encoder StandardPasswordEncoder is considered weak or insecure. Use a secure password encoder such as BCryptPasswordEncoder or Argon2PasswordEncoder.}}
+  }
+
+  PasswordEncoder custom() {
+    return new CustomEncoder(); // Noncompliant {{Unrecognized password encoder. Consider using a secure password encoder such as BCryptPasswordEncoder.}}
+  }
+
+  Object notAnEncoder() {
+    return new StringBuilder();
+  }
+}
+
+class Authentication {
+
+  String hash(String password) {
+    return Hashes.MD5(password); // Noncompliant {{Avoid using weak hashing methods such as MD5. Use secure hashing algorithms like SHA-256 or stronger.}}
+  }
+
+  String strongHash(String password) {
+    return Hashes.sha256(password);
+  }
+
+  void login(String user, String password) {
+  }
+
+  void check(String user, String password) {
+    login(user, password); // Noncompliant {{In critical authentication methods, ensure the use of secure password encoders like BCryptPasswordEncoder.}}
+  }
+
+  void unresolved(String user, String password) {
+    // neither the owner nor the method is known: not a method symbol
+    session.login(user, password);
+    UnknownHashes.MD5(password);
+  }
+}
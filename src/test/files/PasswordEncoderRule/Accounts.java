@@ -0,0 +1,13 @@
+package crossfile;
+
+// none of the words of the rule in this file: the hashers are known from their bytecode only
+class Accounts {
+
+  Object strong() {
+    return new StrongHasher();
+  }
+
+  Object vault() {
+    return new Vault();
+  }
+}
@@ -0,0 +1,18 @@
+package crossfile;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+class StrongHasher extends BCryptPasswordEncoder {
+}
+
+class Vault implements PasswordEncoder {
+
+  public String encode(CharSequence rawPassword) {
+    return rawPassword.toString();
+  }
+
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return encodedPassword.equals(encode(rawPassword));
+  }
+}
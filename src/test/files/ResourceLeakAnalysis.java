@@ -0,0 +1,108 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+class ResourceLeakAnalysis {
+
+  private InputStream kept;
+
+  int neverClosed(File file) throws IOException {
+    InputStream in = new FileInputStream(file); // leak
+    return in.read();
+  }
+
+  int closed(File file) throws IOException {
+    InputStream in = new FileInputStream(file);
+    int read = in.read();
+    in.close();
+    return read;
+  }
+
+  int closedOnOneBranch(File file, boolean close) throws IOException {
+    InputStream in = new FileInputStream(file); // leak
+    int read = in.read();
+    if (close) {
+      in.close();
+    }
+    return read;
+  }
+
+  int closedInFinally(File file) throws IOException {
+    InputStream in = new FileInputStream(file);
+    try {
+      return in.read();
+    } finally {
+      in.close();
+    }
+  }
+
+  int tryWithResources(Path path) throws IOException {
+    try (InputStream in = Files.newInputStream(path)) {
+      return in.read();
+    }
+  }
+
+  int readOnTheSpot(File file) throws IOException {
+    return new FileReader(file).read(); // leak
+  }
+
+  InputStream returned(File file) throws IOException {
+    InputStream in = new FileInputStream(file);
+    return in;
+  }
+
+  void storedInField(File file) throws IOException {
+    InputStream in = new FileInputStream(file);
+    kept = in;
+  }
+
+  String wrapped(File file) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file))); // leak
+    return reader.readLine();
+  }
+
+  String wrappedAndClosed(File file) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+    try {
+      return reader.readLine();
+    } finally {
+      reader.close();
+    }
+  }
+
+  void nullChecked(File file, boolean open) throws IOException {
+    InputStream in = null;
+    if (open) {
+      in = new FileInputStream(file);
+    }
+    if (in != null) {
+      in.close();
+    }
+  }
+
+  List<String> jdbc(Connection connection) throws SQLException {
+    Statement statement = connection.createStatement(); // leak
+    ResultSet rows = statement.executeQuery("select name from item"); // leak
+    List<String> names = new ArrayList<>();
+    while (rows.next()) {
+      names.add(rows.getString(1));
+    }
+    return names;
+  }
+
+  List<String> lines(Path path) throws IOException {
+    return new ArrayList<>(Files.readAllLines(path));
+  }
+}
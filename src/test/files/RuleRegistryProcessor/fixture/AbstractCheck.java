@@ -0,0 +1,9 @@
+package fixture;
+
+import org.sonar.check.Rule;
+import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
+
+// abstract checks are not registered
+@Rule(key = "Abstract")
+public abstract class AbstractCheck extends IssuableSubscriptionVisitor {
+}
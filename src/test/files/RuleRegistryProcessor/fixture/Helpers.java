@@ -0,0 +1,18 @@
+package fixture;
+
+import org.sonar.plugins.java.api.tree.MethodInvocationTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+final class Helpers {
+
+  private Helpers() {
+  }
+
+  static String ownerName(Tree tree) {
+    return describe((MethodInvocationTree) tree);
+  }
+
+  private static String describe(MethodInvocationTree invocation) {
+    return invocation.symbol().owner().name();
+  }
+}
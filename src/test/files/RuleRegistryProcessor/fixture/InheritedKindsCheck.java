@@ -0,0 +1,7 @@
+package fixture;
+
+import org.sonar.check.Rule;
+
+@Rule(key = "InheritedKinds")
+public class InheritedKindsCheck extends SyntaxCheck {
+}
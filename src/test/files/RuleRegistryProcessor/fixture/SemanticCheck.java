@@ -0,0 +1,26 @@
+package fixture;
+
+import java.util.Arrays;
+import java.util.List;
+import org.sonar.check.Rule;
+import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import static org.sonar.plugins.java.api.tree.Tree.Kind.METHOD_INVOCATION;
+import static org.sonar.plugins.java.api.tree.Tree.Kind.NEW_CLASS;
+
+@Rule(key = "repo:Semantic")
+public class SemanticCheck extends IssuableSubscriptionVisitor {
+
+  @Override
+  public List<Tree.Kind> nodesToVisit() {
+    return Arrays.asList(METHOD_INVOCATION, NEW_CLASS);
+  }
+
+  @Override
+  public void visitNode(Tree tree) {
+    if (tree.is(METHOD_INVOCATION) && Helpers.ownerName(tree).isEmpty()) {
+      reportIssue(tree, "Unknown owner");
+    }
+  }
+}
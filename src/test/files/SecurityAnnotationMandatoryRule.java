@@ -0,0 +1,30 @@
+package checks;
+
+interface MySecurityInterface<T> {
+}
+
+@interface MySecurityAnnotation {
+}
+
+class OtherService implements Runnable {
+
+  public void run() {
+  }
+}
+
+class SecuredService implements MySecurityInterface<String> {
+
+  @MySecurityAnnotation
+  void annotated() {
+  }
+
+  @Deprecated // Noncompliant {{Mandatory Annotation not set @MySecurityAnnotation}}
+  void notAnnotated() {
+  }
+}
+
+class QualifiedService implements checks.MySecurityInterface<Integer> {
+
+  void notAnnotated() { // Noncompliant
+  }
+}
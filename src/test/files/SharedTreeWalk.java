@@ -0,0 +1,28 @@
+import java.util.ArrayList;
+import java.util.List;
+
+class SharedTreeWalk {
+
+  private final List<String> names = new ArrayList<>();
+
+  void add(String name) {
+    if (name != null && !name.isEmpty()) {
+      names.add(name.trim());
+    }
+  }
+
+  int count() {
+    Runnable task = new Runnable() {
+      @Override
+      public void run() {
+        names.clear();
+      }
+    };
+    task.run();
+    return (int) names.stream().filter(name -> name.length() > 2).count();
+  }
+
+  static class Inner {
+    String[] values = {"a", "b"};
+  }
+}
@@ -0,0 +1,57 @@
+package com.example.svc0.course;
+
+import java.time.LocalDate;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+@Entity
+@Table(name = "courses")
+public class Course {
+
+  @Id
+  @GeneratedValue
+  private Long id;
+
+  @Column(nullable = false, unique = true)
+  private String title;
+  private Integer credits;
+  private LocalDate startsOn;
+
+  public Course() {
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public Integer getCredits() {
+    return credits;
+  }
+
+  public void setCredits(Integer credits) {
+    this.credits = credits;
+  }
+
+  public LocalDate getStartsOn() {
+    return startsOn;
+  }
+
+  public void setStartsOn(LocalDate startsOn) {
+    this.startsOn = startsOn;
+  }
+}
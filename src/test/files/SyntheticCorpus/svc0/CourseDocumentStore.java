@@ -0,0 +1,35 @@
+package com.example.svc0.course;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CourseDocumentStore {
+
+  private final Path root = Paths.get("documents", "courses");
+
+  public byte[] read(String name) throws IOException {
+    InputStream in = Files.newInputStream(root.resolve(name));
+    byte[] content = new byte[4096];
+    int read = in.read(content);
+    return Arrays.copyOf(content, Math.max(read, 0));
+  }
+
+  public String describe(String name) {
+    byte[] content = readFile(name);
+    return name + ": " + content.length + " bytes";
+  }
+
+  private byte[] readFile(String name) {
+    try {
+      return Files.readAllBytes(root.resolve(name));
+    } catch (IOException e) {
+      return new byte[0];
+    }
+  }
+}
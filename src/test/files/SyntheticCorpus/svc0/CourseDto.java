@@ -0,0 +1,46 @@
+package com.example.svc0.course;
+
+import java.time.LocalDate;
+import javax.validation.constraints.NotBlank;
+
+public class CourseDto {
+
+  private Long id;
+
+  @NotBlank
+  private String title;
+  private Integer credits;
+  private LocalDate startsOn;
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public Integer getCredits() {
+    return credits;
+  }
+
+  public void setCredits(Integer credits) {
+    this.credits = credits;
+  }
+
+  public LocalDate getStartsOn() {
+    return startsOn;
+  }
+
+  public void setStartsOn(LocalDate startsOn) {
+    this.startsOn = startsOn;
+  }
+}
@@ -0,0 +1,35 @@
+package com.example.svc0.course;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CourseMapper {
+
+  public CourseDto toDto(Course entity) {
+    CourseDto dto = new CourseDto();
+    dto.setId(entity.getId());
+    dto.setTitle(entity.getTitle());
+    dto.setCredits(entity.getCredits());
+    dto.setStartsOn(entity.getStartsOn());
+    return dto;
+  }
+
+  public Course toEntity(CourseDto dto) {
+    Course entity = new Course();
+    entity.setId(dto.getId());
+    entity.setTitle(dto.getTitle());
+    entity.setCredits(dto.getCredits());
+    entity.setStartsOn(dto.getStartsOn());
+    return entity;
+  }
+
+  public List<CourseDto> toDtos(List<Course> entities) {
+    List<CourseDto> dtos = new ArrayList<>();
+    for (Course entity : entities) {
+      dtos.add(toDto(entity));
+    }
+    return dtos;
+  }
+}
@@ -0,0 +1,14 @@
+package com.example.svc0.course;
+
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CourseRepository extends JpaRepository<Course, Long> {
+
+  List<Course> findByTitle(String title);
+
+  Optional<Course> findFirstByTitleIgnoreCase(String title);
+
+  long countByTitle(String title);
+}
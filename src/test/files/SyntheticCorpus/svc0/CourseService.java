@@ -0,0 +1,73 @@
+package com.example.svc0.course;
+
+import java.util.List;
+import java.util.Locale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+@Service
+public class CourseService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CourseService.class);
+
+  private final CourseRepository repository;
+  private final CourseMapper mapper;
+
+  public CourseService(CourseRepository repository, CourseMapper mapper) {
+    this.repository = repository;
+    this.mapper = mapper;
+  }
+
+  public List<CourseDto> findAll() {
+    return mapper.toDtos(repository.findAll());
+  }
+
+  public CourseDto findById(Long id) {
+    return mapper.toDto(repository.getOne(id));
+  }
+
+  public CourseDto create(CourseDto dto) {
+    Course saved = repository.save(mapper.toEntity(dto));
+    return mapper.toDto(saved);
+  }
+
+  public CourseDto update(Long id, CourseDto dto) {
+    Course entity = mapper.toEntity(dto);
+    entity.setId(id);
+    return mapper.toDto(repository.save(entity));
+  }
+
+  public void delete(Long id) {
+    repository.deleteById(id);
+  }
+
+  public List<CourseDto> search(String value) {
+    return mapper.toDtos(repository.findByTitle(value));
+  }
+
+  public int importAll(List<String> values) {
+    for (String value : values) {
+      store(value);
+    }
+    return values.size();
+  }
+
+  private void store(String value) {
+    Course entity = new Course();
+    entity.setTitle(value);
+    repository.save(entity);
+  }
+
+  private String normalize(String value) {
+    return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
+  }
+
+  public void archive(Long id) {
+    try {
+      repository.deleteById(id);
+    } catch (Exception e) {
+      LOGGER.warn("Cannot archive {}", id, e);
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package com.example.svc0.course;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+@RestController
+@RequestMapping("/api/courses/attachments")
+public class CourseUploadController {
+
+  private static final long MAX_SIZE = 5 * 1024 * 1024;
+
+  private final Path storage = Paths.get("uploads", "courses");
+
+  @PostMapping
+  public ResponseEntity<String> upload(@RequestParam("file") MultipartFile upload) throws IOException {
+    File target;
+    target = storage.resolve(upload.getOriginalFilename()).toFile();
+    upload.transferTo(target);
+    return ResponseEntity.ok(target.getName());
+  }
+
+  @PostMapping("/preview")
+  public ResponseEntity<String> preview(@RequestParam("file") MultipartFile upload) throws IOException {
+    InputStream content = upload.getInputStream();
+    byte[] head = new byte[256];
+    int read = content.read(head);
+    return ResponseEntity.ok(new String(head, 0, Math.max(read, 0), StandardCharsets.UTF_8));
+  }
+}
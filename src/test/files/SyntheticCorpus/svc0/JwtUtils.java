@@ -0,0 +1,44 @@
+package com.example.PokerPlanningBack.security.jwt;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import java.util.Date;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class JwtUtils {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(JwtUtils.class);
+
+  @Value("${svc0.jwt.secret}")
+  private String jwtSecret;
+
+  @Value("${svc0.jwt.expirationMs}")
+  private int jwtExpirationMs;
+
+  public String generateJwtToken(String username) {
+    return Jwts.builder()
+      .setSubject(username)
+      .setIssuedAt(new Date())
+      .setExpiration(new Date(new Date().getTime() + jwtExpirationMs))
+      .signWith(SignatureAlgorithm.HS512, jwtSecret)
+      .compact();
+  }
+
+  public String getUserNameFromJwtToken(String token) {
+    return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
+  }
+
+  public boolean validateJwtToken(String authToken) {
+    try {
+      Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
+      return true;
+    } catch (JwtException | IllegalArgumentException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package com.example.svc0.course;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class Svc0Application {
+
+  public static void main(String[] args) {
+    SpringApplication.run(Svc0Application.class, args);
+  }
+}
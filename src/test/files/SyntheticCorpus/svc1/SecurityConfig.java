@@ -0,0 +1,38 @@
+package com.example.svc1.supplier;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+@Configuration
+@EnableWebSecurity
+public class SecurityConfig {
+
+  @Bean
+  public PasswordEncoder passwordEncoder() {
+    return new LegacyDigestPasswordEncoder();
+  }
+
+  public void configure(HttpSecurity http) throws Exception {
+    http.csrf().disable()
+      .authorizeRequests()
+      .antMatchers("/api/auth/**").permitAll()
+      .anyRequest().authenticated();
+  }
+
+
+  static final class LegacyDigestPasswordEncoder implements PasswordEncoder {
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+      return Integer.toHexString(rawPassword.toString().hashCode());
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+      return encode(rawPassword).equals(encodedPassword);
+    }
+  }
+}
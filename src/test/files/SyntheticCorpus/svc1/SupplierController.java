@@ -0,0 +1,60 @@
+package com.example.svc1.supplier;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/suppliers")
+public class SupplierController {
+
+  private final SupplierService service;
+
+  public SupplierController(SupplierService service) {
+    this.service = service;
+  }
+
+  @GetMapping
+  public List<SupplierDto> list(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size) {
+    return service.findAll().stream()
+      .skip((long) page * size)
+      .limit(size)
+      .collect(Collectors.toList());
+  }
+
+  @GetMapping("/{id}")
+  public ResponseEntity<SupplierDto> get(@PathVariable Long id) {
+    return ResponseEntity.ok(service.findById(id));
+  }
+
+  @PostMapping
+  public ResponseEntity<SupplierDto> create(@Valid @RequestBody SupplierDto dto) {
+    try {
+      return ResponseEntity.status(HttpStatus.CREATED).body(service.create(dto));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
+  @PutMapping("/{id}")
+  public ResponseEntity<SupplierDto> update(@PathVariable Long id, @Valid @RequestBody SupplierDto dto) {
+    return ResponseEntity.ok(service.update(id, dto));
+  }
+
+  @DeleteMapping("/{id}")
+  public ResponseEntity<Void> delete(@PathVariable Long id) {
+    service.delete(id);
+    return ResponseEntity.noContent().build();
+  }
+}
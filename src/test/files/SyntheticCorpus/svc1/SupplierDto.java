@@ -0,0 +1,45 @@
+package com.example.svc1.supplier;
+
+import javax.validation.constraints.NotBlank;
+
+public class SupplierDto {
+
+  private Long id;
+
+  @NotBlank
+  private String name;
+  private String country;
+  private Integer rating;
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getCountry() {
+    return country;
+  }
+
+  public void setCountry(String country) {
+    this.country = country;
+  }
+
+  public Integer getRating() {
+    return rating;
+  }
+
+  public void setRating(Integer rating) {
+    this.rating = rating;
+  }
+}
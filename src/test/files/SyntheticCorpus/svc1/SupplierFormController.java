@@ -0,0 +1,31 @@
+package com.example.svc1.supplier;
+
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+@Controller
+@RequestMapping("/suppliers")
+public class SupplierFormController {
+
+  private final SupplierRepository repository;
+
+  public SupplierFormController(SupplierRepository repository) {
+    this.repository = repository;
+  }
+
+  @GetMapping
+  public String list(Model model) {
+    model.addAttribute("suppliers", repository.findAll());
+    return "suppliers/list";
+  }
+
+  @RequestMapping(value = "/submit", method = RequestMethod.POST)
+  public String submit(@ModelAttribute Supplier supplier) {
+    repository.save(supplier);
+    return "redirect:/suppliers";
+  }
+}
@@ -0,0 +1,33 @@
+package com.example.svc1.supplier;
+
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SupplierImportJob {
+
+  private final SupplierRepository repository;
+
+  public SupplierImportJob(SupplierRepository repository) {
+    this.repository = repository;
+  }
+
+  @Scheduled(cron = "0 0 2 * * *")
+  public void importPending() {
+    for (String value : fetchPending()) {
+      repository.save(create(value));
+    }
+  }
+
+  private List<String> fetchPending() {
+    return Arrays.asList("suppliers-1", "suppliers-2");
+  }
+
+  private Supplier create(String value) {
+    Supplier entity = new Supplier();
+    entity.setName(value);
+    return entity;
+  }
+}
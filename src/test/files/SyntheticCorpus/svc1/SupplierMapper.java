@@ -0,0 +1,35 @@
+package com.example.svc1.supplier;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SupplierMapper {
+
+  public SupplierDto toDto(Supplier entity) {
+    SupplierDto dto = new SupplierDto();
+    dto.setId(entity.getId());
+    dto.setName(entity.getName());
+    dto.setCountry(entity.getCountry());
+    dto.setRating(entity.getRating());
+    return dto;
+  }
+
+  public Supplier toEntity(SupplierDto dto) {
+    Supplier entity = new Supplier();
+    entity.setId(dto.getId());
+    entity.setName(dto.getName());
+    entity.setCountry(dto.getCountry());
+    entity.setRating(dto.getRating());
+    return entity;
+  }
+
+  public List<SupplierDto> toDtos(List<Supplier> entities) {
+    List<SupplierDto> dtos = new ArrayList<>();
+    for (Supplier entity : entities) {
+      dtos.add(toDto(entity));
+    }
+    return dtos;
+  }
+}
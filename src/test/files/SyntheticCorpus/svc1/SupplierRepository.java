@@ -0,0 +1,12 @@
+package com.example.svc1.supplier;
+
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface SupplierRepository extends JpaRepository<Supplier, Long> {
+
+  List<Supplier> findByName(String name);
+
+  Optional<Supplier> findFirstByNameIgnoreCase(String name);
+}
@@ -0,0 +1,68 @@
+package com.example.svc1.supplier;
+
+import java.time.Clock;
+import java.util.List;
+import javax.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+@Service
+public class SupplierService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SupplierService.class);
+
+  private final SupplierRepository repository;
+  private final SupplierMapper mapper;
+  private Clock clock = Clock.systemUTC();
+
+  public SupplierService(SupplierRepository repository, SupplierMapper mapper) {
+    this.repository = repository;
+    this.mapper = mapper;
+  }
+
+  public List<SupplierDto> findAll() {
+    return mapper.toDtos(repository.findAll());
+  }
+
+  public SupplierDto findById(Long id) {
+    return mapper.toDto(repository.getOne(id));
+  }
+
+  public SupplierDto create(SupplierDto dto) {
+    Supplier saved = repository.save(mapper.toEntity(dto));
+    return mapper.toDto(saved);
+  }
+
+  public SupplierDto update(Long id, SupplierDto dto) {
+    Supplier entity = mapper.toEntity(dto);
+    entity.setId(id);
+    return mapper.toDto(repository.save(entity));
+  }
+
+  public void delete(Long id) {
+    repository.deleteById(id);
+  }
+
+  public int importAll(List<String> values) {
+    values.forEach(value -> {
+      Supplier entity = new Supplier();
+      entity.setName(value);
+      repository.save(entity);
+    });
+    return values.size();
+  }
+
+  public void archive(Long id) {
+    try {
+      repository.deleteById(id);
+    } catch (Exception e) {
+      LOGGER.warn("Cannot archive {}", id, e);
+    }
+  }
+
+  @Inject
+  public void setClock(Clock clock) {
+    this.clock = clock;
+  }
+}
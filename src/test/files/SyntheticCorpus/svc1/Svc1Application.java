@@ -0,0 +1,27 @@
+package com.example.svc1.supplier;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@SpringBootApplication
+public class Svc1Application {
+
+  public static void main(String[] args) {
+    SpringApplication.run(Svc1Application.class, args);
+  }
+
+  @ConfigurationProperties("svc1")
+  public static class MyCompanyProperties {
+
+    private String mycompanyUrl;
+
+    public String getMyCompanyUrl() {
+      return mycompanyUrl;
+    }
+
+    public void setMyCompanyUrl(String url) {
+      this.mycompanyUrl = url;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java;
+
+import com.sonar.sslr.api.typed.ActionParser;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.sonar.java.ast.parser.JavaParser;
+import org.sonar.java.bytecode.loader.SquidClassLoader;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.model.VisitorsBridgeForTests;
+import org.sonar.java.resolve.SemanticModel;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaVersion;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Heap the checks retain from one file to the next.
+ * <p>
+ * Every rule of the registry analyzes copies of the benchmark corpus, each moved to a package of its own, one after
+ * the other with the same check instances, as the Java plugin calls them. At regular checkpoints, after a full
+ * collection, the heap in use is measured and the tree of the last file analyzed must be unreachable: a check keeping
+ * its context or file state alive would keep that tree. From the first checkpoint on, once the library types are
+ * loaded, the heap may only grow by what the project-wide indexes (call graph) need: the growth per file is the slope
+ * of the checkpoints, less sensitive than their difference to when the collector last ran.
+ * <p>
+ * 1,000 files by default; {@code -DheapRetention.files=50000} runs it at the scale of a large project.
+ */
+public class HeapRetentionTest {
+
+  private static final int FILES = Integer.getInteger("heapRetention.files", 1_000);
+  private static final long MAX_BYTES_PER_FILE = Long.getLong("heapRetention.maxBytesPerFile", 2048);
+  private static final int CHECKPOINTS = 10;
+  private static final JavaVersion JAVA_VERSION = new JavaVersionImpl(8);
+  private static final File CORPUS = new File("benchmarks/src/main/resources/corpus");
+  private static final String CORPUS_PACKAGE = "com.example.shop";
+
+  @Test
+  public void checks_keep_neither_the_trees_nor_a_growing_heap_from_file_to_file() throws IOException {
+    List<File> sources = corpus();
+    List<String> contents = new ArrayList<>();
+    for (File source : sources) {
+      contents.add(new String(Files.readAllBytes(source.toPath()), StandardCharsets.UTF_8));
+    }
+    List<JavaFileScanner> scanners = RulesList.getJavaRules().stream()
+      .map(descriptor -> (JavaFileScanner) descriptor.newCheck())
+      .collect(Collectors.toList());
+    ActionParser<Tree> parser = JavaParser.createParser();
+    int interval = Math.max(1, FILES / CHECKPOINTS);
+    List<long[]> checkpoints = new ArrayList<>();
+    List<Integer> reachableTrees = new ArrayList<>();
+    try (SquidClassLoader classLoader = new SquidClassLoader(classpath())) {
+      for (int index = 0; index < FILES; index++) {
+        int corpusIndex = index % sources.size();
+        String copyPackage = CORPUS_PACKAGE + ".c" + (index / sources.size());
+        WeakReference<Tree> analyzed = analyze(parser, classLoader, scanners, contents.get(corpusIndex).replace(CORPUS_PACKAGE, copyPackage),
+          new File(copyPackage.replace('.', '/'), sources.get(corpusIndex).getName()));
+        int analyzedFiles = index + 1;
+        if (analyzedFiles % interval != 0 && analyzedFiles != FILES) {
+          continue;
+        }
+        long retained = retainedHeap();
+        if (analyzed.get() != null) {
+          reachableTrees.add(analyzedFiles);
+        }
+        checkpoints.add(new long[] {analyzedFiles, retained});
+      }
+    }
+
+    assertThat(reachableTrees).as("files whose tree is still reachable after their analysis").isEmpty();
+    assertThat(bytesPerFile(checkpoints)).as("bytes retained per file, at the checkpoints %s", checkpoints.stream()
+      .map(checkpoint -> checkpoint[0] + " files: " + checkpoint[1] / 1024 + " KB")
+      .collect(Collectors.joining(", "))).isLessThanOrEqualTo(MAX_BYTES_PER_FILE);
+  }
+
+  /**
+   * Least squares slope of the heap retained by the number of files analyzed.
+   */
+  private static long bytesPerFile(List<long[]> checkpoints) {
+    if (checkpoints.size() < 2) {
+      return 0;
+    }
+    double meanFiles = checkpoints.stream().mapToLong(checkpoint -> checkpoint[0]).average().orElse(0);
+    double meanRetained = checkpoints.stream().mapToLong(checkpoint -> checkpoint[1]).average().orElse(0);
+    double covariance = 0;
+    double variance = 0;
+    for (long[] checkpoint : checkpoints) {
+      covariance += (checkpoint[0] - meanFiles) * (checkpoint[1] - meanRetained);
+      variance += (checkpoint[0] - meanFiles) * (checkpoint[0] - meanFiles);
+    }
+    return Math.round(covariance / variance);
+  }
+
+  private static List<File> corpus() throws IOException {
+    List<File> sources = new ArrayList<>();
+    for (String name : Files.readAllLines(new File(CORPUS, "files.list").toPath(), StandardCharsets.UTF_8)) {
+      if (!name.trim().isEmpty()) {
+        sources.add(new File(CORPUS, name.trim()));
+      }
+    }
+    assertThat(sources).as("benchmark corpus").isNotEmpty();
+    return sources;
+  }
+
+  private static List<File> classpath() {
+    File[] jars = new File("target/test-jars").listFiles((dir, name) -> name.endsWith(".jar"));
+    return jars == null ? Collections.emptyList() : Arrays.asList(jars);
+  }
+
+  /**
+   * Analyzes the given source with all the scanners.
+   *
+   * @return the tree of the file, to be collected once the analysis is over
+   */
+  private static WeakReference<Tree> analyze(ActionParser<Tree> parser, SquidClassLoader classLoader, List<JavaFileScanner> scanners,
+    String source, File file) {
+    CompilationUnitTree tree = (CompilationUnitTree) parser.parse(source);
+    VisitorsBridgeForTests.TestJavaFileScannerContext context =
+      new VisitorsBridgeForTests.TestJavaFileScannerContext(tree, file, SemanticModel.createFor(tree, classLoader), null, JAVA_VERSION, true);
+    for (JavaFileScanner scanner : scanners) {
+      scanner.scanFile(context);
+    }
+    return new WeakReference<>(tree);
+  }
+
+  /**
+   * Heap in use once everything unreachable is collected.
+   */
+  private static long retainedHeap() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    long used = Long.MAX_VALUE;
+    // a few collections, until one frees nothing more
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      long now = memory.getHeapMemoryUsage().getUsed();
+      if (now >= used) {
+        return now;
+      }
+      used = now;
+    }
+    return used;
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.java.AnalyzerMessage;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.samples.java.callgraph.LateWritingCalls;
+import org.sonar.samples.java.checks.CheckVerifier;
+import org.sonar.samples.java.index.EntityIndex;
+import org.sonar.samples.java.registry.RuleDescriptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * All the rules on two services of the synthetic corpus of the benchmarks, generated with seed 9. The expected counts
+ * were checked by hand on the files, rather than taken from the generator, so that a generator and a rule wrong the
+ * same way do not agree.
+ */
+public class SyntheticCorpusTest {
+
+  private static final Path CORPUS = Paths.get("src/test/files/SyntheticCorpus");
+  // known to the other files through their bytecode, as the project binaries of a real analysis
+  private static final List<String> BINARIES = Arrays.asList("svc0/Course.java", "svc0/CourseRepository.java", "svc1/Supplier.java",
+    "svc1/SupplierRepository.java");
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @After
+  public void tearDown() {
+    EntityIndex.use(EntityIndex.EMPTY);
+    LateWritingCalls.current().takeAll();
+  }
+
+  @Test
+  public void raises_the_issues_counted_by_hand() throws IOException {
+    Map<String, Integer> expected = new TreeMap<>();
+    // every method but the constructors, interface methods included
+    expected.put("AvoidMethodDeclaration", 93);
+    // the @Inject of SupplierService.setClock
+    expected.put("AvoidAnnotation", 1);
+    // Svc1Application: MyCompanyProperties, its field mycompanyUrl, getMyCompanyUrl and setMyCompanyUrl
+    expected.put("AvoidBrandInMethodNames", 4);
+    // one method parameter typed as its return: JwtUtils.generateJwtToken and getUserNameFromJwtToken,
+    // CourseDocumentStore.describe, CourseMapper.toDtos, CourseService.create and normalize, SupplierMapper.toDtos,
+    // SupplierService.create
+    expected.put("MyFirstCustomCheck", 8);
+    expected.put("AvoidMethodWithSameTypeInArgument", 8);
+    // catch (Exception e) of CourseService.archive and SupplierService.archive
+    expected.put("pfe-custom-rules:AvoidGenericExceptionRule", 2);
+    // throws without a try: CourseDocumentStore.read, CourseUploadController.upload and preview, SecurityConfig.configure
+    expected.put("pfe-custom-rules:ExceptionHandlingRule", 4);
+    // the File assigned in CourseUploadController.upload
+    expected.put("pfe-custom-rules:FileUploadSecurityRule", 1);
+    // unclosed streams of CourseDocumentStore.read and CourseUploadController.preview, unvalidated readFile and
+    // getInputStream calls of CourseDocumentStore.describe and CourseUploadController.preview
+    expected.put("pfe-custom-rules:FileValidationAndClosure", 4);
+    // the invocations returned by the methods with a top level return, 17 in svc0 and 13 in svc1, catch returns included
+    expected.put("pfe-custom-rules:HttpStatusConsistency", 30);
+    // store called in the loop of CourseService.importAll, save in the loop of SupplierImportJob.importPending and in
+    // the forEach of SupplierService.importAll
+    expected.put("pfe-custom-rules:InefficientDatabaseCallsRule", 3);
+    // the parameters without @Valid of CourseController (6), CourseUploadController (2) and SupplierController (5)
+    expected.put("pfe-custom-rules:InputValidationRule", 13);
+    // JwtUtils.validateJwtToken neither logs nor uses a secure key
+    expected.put("pfe-custom-rules:JwtUtilsCheck", 2);
+    // the LegacyDigestPasswordEncoder of SecurityConfig
+    expected.put("pfe-custom-rules:PasswordEncoderRule", 1);
+    // the Supplier entity submitted to SupplierFormController
+    expected.put("SpringControllerRequestMappingEntity", 1);
+    expected.put("AvoidSuperClass", 0);
+    expected.put("CustomCheckForDefineClass", 0);
+    expected.put("pfe-custom-rules:SecureAuthEntryPointCheck", 0);
+    expected.put("SecurityAnnotationMandatory", 0);
+
+    assertThat(issuesByRule()).isEqualTo(expected);
+  }
+
+  private Map<String, Integer> issuesByRule() throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(CORPUS)) {
+      files = paths.filter(path -> path.toString().endsWith(".java")).sorted().collect(Collectors.toList());
+    }
+    EntityIndex.use(EntityIndex.ofFiles(files));
+    List<File> classes = compileBinaries();
+
+    Map<Class<? extends JavaCheck>, String> ruleKeys = new HashMap<>();
+    List<JavaFileScanner> checks = new ArrayList<>();
+    Map<String, Integer> issues = new TreeMap<>();
+    for (RuleDescriptor rule : RulesList.getJavaRules()) {
+      ruleKeys.put(rule.checkClass(), rule.key());
+      checks.add((JavaFileScanner) rule.newCheck());
+      issues.put(rule.key(), 0);
+    }
+    // the same check instances analyze all the files, as in the Java plugin
+    for (Path file : files) {
+      for (AnalyzerMessage issue : CheckVerifier.issues(file.toString(), classes, checks.toArray(new JavaFileScanner[0]))) {
+        issues.merge(ruleKeys.get(issue.getCheck().getClass()), 1, Integer::sum);
+      }
+    }
+    return issues;
+  }
+
+  private List<File> compileBinaries() throws IOException {
+    File classes = temp.newFolder();
+    String classpath = CheckVerifier.classpath().stream().map(File::getPath).collect(Collectors.joining(File.pathSeparator));
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    List<String> arguments = new ArrayList<>(Arrays.asList("-nowarn", "-proc:none", "-d", classes.getPath(), "-cp", classpath));
+    for (String binary : BINARIES) {
+      arguments.add(CORPUS.resolve(binary).toString());
+    }
+    assertThat(compiler.run(null, null, null, arguments.toArray(new String[0]))).as("compilation of %s", BINARIES).isZero();
+    return Collections.singletonList(classes);
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.java.AnalyzerMessage;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.samples.java.checks.CheckVerifier;
+import org.sonar.samples.java.dispatch.DispatchedVisitor;
+import org.sonar.samples.java.dispatch.SharedTreeWalk;
+import org.sonar.samples.java.profile.IssueCountingContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResultCacheTest {
+
+  private static final String FILE = "src/test/files/SharedTreeWalk.java";
+  private static final String OTHER_FILE = "src/test/files/HttpStatusConsistencyRule.java";
+
+  @Before
+  public void enable_the_cache() {
+    enable(10);
+  }
+
+  @After
+  public void restore_the_default_cache() {
+    ResultCache.configure(false, null);
+  }
+
+  @Test
+  public void replays_the_issues_of_a_check_as_it_reported_them() {
+    Reporter reporter = new Reporter();
+    SharedTreeWalk walk = SharedTreeWalk.of(Collections.singletonList(reporter));
+
+    List<String> reported = analyze(FILE, walk);
+    List<String> replayed = analyze(FILE, walk);
+
+    assertThat(reporter.files).isEqualTo(1);
+    assertThat(replayed).isEqualTo(reported);
+    // every kind of issue the check reports, with its secondary locations and cost
+    assertThat(reported).hasSize(15);
+    assertThat(reported).filteredOn(issue -> issue.startsWith("with cost")).allMatch(issue -> issue.contains(" cost 3.0 "));
+    assertThat(reported).filteredOn(issue -> issue.startsWith("with flows")).allMatch(issue -> issue.contains(", second at ") && issue.contains("[alone at "));
+    assertThat(ResultCache.current().size()).isEqualTo(1);
+  }
+
+  @Test
+  public void walks_again_a_check_depending_on_other_files() {
+    Reporter reporter = new Reporter() {
+      @Override
+      protected boolean dependsOnOtherFiles() {
+        return true;
+      }
+    };
+    SharedTreeWalk walk = SharedTreeWalk.of(Collections.singletonList(reporter));
+
+    List<String> first = analyze(FILE, walk);
+    List<String> second = analyze(FILE, walk);
+
+    assertThat(reporter.files).isEqualTo(2);
+    assertThat(second).isEqualTo(first).isNotEmpty();
+  }
+
+  @Test
+  public void walks_again_a_check_reporting_on_a_node_without_position() {
+    TokenReporter reporter = new TokenReporter();
+    SharedTreeWalk walk = SharedTreeWalk.of(Collections.singletonList(reporter));
+
+    int first = analyze(FILE, walk).size();
+    int second = analyze(FILE, walk).size();
+
+    assertThat(reporter.files).isEqualTo(2);
+    // one on each class of the file, anonymous ones included
+    assertThat(second).isEqualTo(first).isEqualTo(3);
+  }
+
+  @Test
+  public void walks_again_a_file_whose_content_changed() {
+    FileResults results = ResultCache.current().results("key", "class A {}");
+
+    assertThat(ResultCache.current().results("key", "class A {}")).isSameAs(results);
+    assertThat(ResultCache.current().results("key", "class B {}")).isNotSameAs(results);
+    assertThat(ResultCache.current().results("other key", "class A {}")).isNotSameAs(results);
+  }
+
+  @Test
+  public void drops_the_least_recently_analyzed_files_beyond_the_maximum() {
+    enable(1);
+    Reporter reporter = new Reporter();
+    SharedTreeWalk walk = SharedTreeWalk.of(Collections.singletonList(reporter));
+
+    for (String file : Arrays.asList(FILE, OTHER_FILE, FILE)) {
+      analyze(file, walk);
+    }
+
+    assertThat(reporter.files).isEqualTo(3);
+    assertThat(ResultCache.current().size()).isEqualTo(1);
+
+    enable(2);
+    Reporter kept = new Reporter();
+    SharedTreeWalk keptWalk = SharedTreeWalk.of(Collections.singletonList(kept));
+    for (String file : Arrays.asList(FILE, OTHER_FILE, FILE)) {
+      analyze(file, keptWalk);
+    }
+
+    assertThat(kept.files).isEqualTo(2);
+    assertThat(ResultCache.current().size()).isEqualTo(2);
+  }
+
+  private static void enable(int maxFiles) {
+    ResultCache.configure(false, new MapSettings()
+      .setProperty(ResultCache.ENABLED_KEY, true)
+      .setProperty(ResultCache.MAX_FILES_KEY, maxFiles)
+      .asConfig());
+  }
+
+  /**
+   * Issues of the walk on the file, described with everything the cache must replay, sorted.
+   */
+  private static List<String> analyze(String file, SharedTreeWalk walk) {
+    List<String> issues = new ArrayList<>();
+    List<AnalyzerMessage> messages = CheckVerifier.issues(file, context -> walk.scan(new FileContext(context, issues)));
+    messages.forEach(message -> issues.add(describe(message)));
+    Collections.sort(issues);
+    return issues;
+  }
+
+  private static String describe(AnalyzerMessage issue) {
+    String flows = issue.flows.stream()
+      .map(flow -> flow.stream().map(location -> location.getMessage() + " at " + location.primaryLocation()).collect(Collectors.toList()).toString())
+      .collect(Collectors.joining(", "));
+    return issue.getMessage() + " line " + issue.getLine() + " at " + issue.primaryLocation() + " cost " + issue.getCost() + " flows " + flows;
+  }
+
+  /**
+   * Context of the test bridge completed with what it leaves to the components of a real analysis: the content of the
+   * file, and the issues on the file or on a line without cost.
+   */
+  private static final class FileContext extends IssueCountingContext {
+
+    private final List<String> issues;
+
+    FileContext(JavaFileScannerContext delegate, List<String> issues) {
+      super(delegate);
+      this.issues = issues;
+    }
+
+    @Override
+    public void addIssueOnFile(JavaCheck check, String message) {
+      issues.add(message + " on file");
+    }
+
+    @Override
+    public void addIssue(int line, JavaCheck check, String message) {
+      delegate().addIssue(line, check, message, null);
+    }
+
+    @Override
+    public String getFileContent() {
+      try {
+        return new String(Files.readAllBytes(getFile().toPath()), StandardCharsets.UTF_8);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Reports one issue of each kind the cache records.
+   */
+  private static class Reporter extends DispatchedVisitor {
+
+    private int files;
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return Arrays.asList(Tree.Kind.COMPILATION_UNIT, Tree.Kind.CLASS, Tree.Kind.METHOD);
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      if (tree.is(Tree.Kind.COMPILATION_UNIT)) {
+        files++;
+        addIssueOnFile("on file");
+      } else if (tree.is(Tree.Kind.CLASS)) {
+        ClassTree type = (ClassTree) tree;
+        if (type.simpleName() == null) {
+          return;
+        }
+        Tree first = type.members().get(0);
+        Tree last = type.members().get(type.members().size() - 1);
+        context().reportIssueWithFlow(this, type.simpleName(), "with flows", Arrays.asList(
+          Arrays.asList(new JavaFileScannerContext.Location("first", first), new JavaFileScannerContext.Location("second", last)),
+          Collections.singletonList(new JavaFileScannerContext.Location("alone", type.simpleName()))), null);
+      } else {
+        MethodTree method = (MethodTree) tree;
+        int line = method.simpleName().identifierToken().line();
+        addIssue(line, "on line");
+        context().addIssue(line, this, "with cost", 3);
+        reportIssue(method.simpleName(), "on name", Collections.singletonList(new JavaFileScannerContext.Location("block", method.block())), 2);
+        context().reportIssue(this, method.simpleName(), method.block(), "on range",
+          Collections.singletonList(new JavaFileScannerContext.Location("name", method.simpleName())), null);
+      }
+    }
+  }
+
+  private static final class TokenReporter extends DispatchedVisitor {
+
+    private int files;
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return Arrays.asList(Tree.Kind.COMPILATION_UNIT, Tree.Kind.CLASS);
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      if (tree.is(Tree.Kind.COMPILATION_UNIT)) {
+        files++;
+      } else {
+        // tokens are not numbered
+        reportIssue(((ClassTree) tree).openBraceToken(), "on token");
+      }
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.cache;
+
+import org.junit.Test;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.samples.java.checks.CheckVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TreePositionsTest {
+
+  private static final String FILE = "src/test/files/SharedTreeWalk.java";
+
+  @Test
+  public void finds_the_nodes_of_one_parse_in_another_parse_of_the_same_content() {
+    TreePositions first = new TreePositions(parse());
+    TreePositions second = new TreePositions(parse());
+
+    int position = 0;
+    for (Tree node = first.nodeAt(0); node != null; node = first.nodeAt(++position)) {
+      Tree other = second.nodeAt(position);
+      assertThat(other).isNotNull().isNotSameAs(node);
+      assertThat(other.kind()).isEqualTo(node.kind());
+      assertThat(first.positionOf(node)).isEqualTo(position);
+      assertThat(second.positionOf(other)).isEqualTo(position);
+      if (node.firstToken() != null) {
+        assertThat(other.firstToken().line()).isEqualTo(node.firstToken().line());
+        assertThat(other.firstToken().column()).isEqualTo(node.firstToken().column());
+      }
+    }
+    assertThat(position).isGreaterThan(100);
+    assertThat(second.nodeAt(position)).isNull();
+  }
+
+  @Test
+  public void numbers_declaration_names_but_not_tokens() {
+    CompilationUnitTree file = parse();
+    TreePositions positions = new TreePositions(file);
+    ClassTree type = (ClassTree) file.types().get(0);
+
+    assertThat(positions.positionOf(type.simpleName())).isPositive();
+    assertThat(positions.positionOf(type.openBraceToken())).isEqualTo(-1);
+    assertThat(positions.nodeAt(-1)).isNull();
+  }
+
+  private static CompilationUnitTree parse() {
+    CompilationUnitTree[] tree = new CompilationUnitTree[1];
+    CheckVerifier.issues(FILE, context -> tree[0] = context.getTree());
+    return tree[0];
+  }
+}
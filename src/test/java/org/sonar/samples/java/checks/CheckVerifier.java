@@ -0,0 +1,151 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.checks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.sonar.java.AnalyzerMessage;
+import org.sonar.java.ast.JavaAstScanner;
+import org.sonar.java.model.VisitorsBridgeForTests;
+import org.sonar.plugins.java.api.JavaFileScanner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs checks on a test file and compares their issues with the {@code // Noncompliant} comments of the file, the
+ * way the java-checks-testkit does: {@code // Noncompliant [@+n|@-n] [count] [{{message}}...]} expects issues on the
+ * line of the comment, or n lines below or above it. A count without messages only checks the number of issues.
+ * <p>
+ * The testkit of the sonar-java version the plugin is built on was not published, this one relies on the test
+ * bridge that version ships. The library jars copied to {@code target/test-jars} are on the class path of the files.
+ */
+public final class CheckVerifier {
+
+  private static final Pattern NONCOMPLIANT = Pattern.compile("//\\s*Noncompliant(?:\\s*@([+-]\\d+))?(?:\\s+(\\d+))?(.*)$");
+  private static final Pattern MESSAGE = Pattern.compile("\\{\\{(.*?)}}");
+  private static final String ANY_MESSAGE = "*";
+
+  private CheckVerifier() {
+  }
+
+  public static void verify(String filename, JavaFileScanner check) {
+    Map<Integer, List<String>> actual = actual(issues(filename, check));
+    Map<Integer, List<String>> expected = expected(filename);
+    List<String> mismatches = new ArrayList<>();
+    for (Integer line : union(actual.keySet(), expected.keySet())) {
+      List<String> actualMessages = actual.getOrDefault(line, Collections.emptyList());
+      List<String> expectedMessages = expected.getOrDefault(line, Collections.emptyList());
+      List<String> unmatched = new ArrayList<>(actualMessages);
+      boolean matches = actualMessages.size() == expectedMessages.size();
+      for (String message : expectedMessages) {
+        matches &= ANY_MESSAGE.equals(message) || unmatched.remove(message);
+      }
+      if (!matches) {
+        mismatches.add("line " + line + ": expected " + expectedMessages + " but was " + actualMessages);
+      }
+    }
+    assertThat(mismatches).as("issues of %s on %s", check.getClass().getSimpleName(), filename).isEmpty();
+  }
+
+  private static Set<Integer> union(Set<Integer> first, Set<Integer> second) {
+    Set<Integer> lines = new TreeSet<>(first);
+    lines.addAll(second);
+    return lines;
+  }
+
+  public static void verifyNoIssue(String filename, JavaFileScanner check) {
+    assertThat(issues(filename, check)).as("issues of %s on %s", check.getClass().getSimpleName(), filename).isEmpty();
+  }
+
+  /**
+   * Issues raised by the checks on the file, in no particular order.
+   */
+  public static List<AnalyzerMessage> issues(String filename, JavaFileScanner... checks) {
+    return issues(filename, Collections.emptyList(), checks);
+  }
+
+  /**
+   * Issues raised by the checks on the file, the given class directories or jars being on its class path as well,
+   * in no particular order.
+   */
+  public static List<AnalyzerMessage> issues(String filename, List<File> classpath, JavaFileScanner... checks) {
+    List<File> fileClasspath = new ArrayList<>(classpath);
+    fileClasspath.addAll(classpath());
+    VisitorsBridgeForTests bridge = new VisitorsBridgeForTests(Arrays.asList(checks), fileClasspath, null);
+    JavaAstScanner.scanSingleFileForTests(new File(filename), bridge);
+    return new ArrayList<>(bridge.lastCreatedTestContext().getIssues());
+  }
+
+  public static List<File> classpath() {
+    File[] jars = new File("target/test-jars").listFiles((dir, name) -> name.endsWith(".jar"));
+    return jars == null ? Collections.emptyList() : Arrays.asList(jars);
+  }
+
+  private static Map<Integer, List<String>> actual(List<AnalyzerMessage> issues) {
+    Map<Integer, List<String>> byLine = new TreeMap<>();
+    for (AnalyzerMessage issue : issues) {
+      byLine.computeIfAbsent(issue.getLine(), k -> new ArrayList<>()).add(issue.getMessage());
+    }
+    return byLine;
+  }
+
+  /**
+   * Expected messages by line, a count beyond the messages given being filled with messages that match any.
+   */
+  private static Map<Integer, List<String>> expected(String filename) {
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(new File(filename).toPath(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read " + filename, e);
+    }
+    Map<Integer, List<String>> byLine = new TreeMap<>();
+    for (int i = 0; i < lines.size(); i++) {
+      Matcher noncompliant = NONCOMPLIANT.matcher(lines.get(i));
+      if (!noncompliant.find()) {
+        continue;
+      }
+      int line = i + 1 + (noncompliant.group(1) == null ? 0 : Integer.parseInt(noncompliant.group(1)));
+      List<String> messages = new ArrayList<>();
+      Matcher message = MESSAGE.matcher(noncompliant.group(3));
+      while (message.find()) {
+        messages.add(message.group(1));
+      }
+      int count = noncompliant.group(2) == null ? Math.max(1, messages.size()) : Integer.parseInt(noncompliant.group(2));
+      while (messages.size() < count) {
+        messages.add(ANY_MESSAGE);
+      }
+      byLine.computeIfAbsent(line, k -> new ArrayList<>()).addAll(messages);
+    }
+    return byLine;
+  }
+}
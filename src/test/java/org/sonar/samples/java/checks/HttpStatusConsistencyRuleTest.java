@@ -0,0 +1,79 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.checks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HttpStatusConsistencyRuleTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void test() {
+    CheckVerifier.verify("src/test/files/HttpStatusConsistencyRule.java", new HttpStatusConsistencyRule());
+  }
+
+  /**
+   * A controller method with n status returns, half success and half error, and a fallback return gets 3 issues per
+   * success return, 2 per error return and 1 on the fallback, each reported once, and its body is walked once whatever
+   * n: 8 times as many returns walk 8 times as many nodes, where walking the body again for every return walked 64
+   * times as many.
+   */
+  @Test
+  public void scales_linearly_with_the_returns_of_a_method() throws IOException {
+    HttpStatusConsistencyRule small = new HttpStatusConsistencyRule();
+    HttpStatusConsistencyRule large = new HttpStatusConsistencyRule();
+    assertThat(CheckVerifier.issues(controller(200).getPath(), small)).hasSize(5 * 200 / 2 + 1);
+    assertThat(CheckVerifier.issues(controller(1600).getPath(), large)).hasSize(5 * 1600 / 2 + 1);
+
+    assertThat(small.summaryNodes()).isPositive();
+    assertThat(large.summaryNodes()).isLessThanOrEqualTo(8 * small.summaryNodes());
+  }
+
+  private File controller(int returns) throws IOException {
+    StringBuilder source = new StringBuilder()
+      .append("import org.springframework.http.ResponseEntity;\n")
+      .append("class Controller").append(returns).append(" {\n")
+      .append("  ResponseEntity<String> handle(int code) {\n");
+    for (int i = 0; i < returns; i++) {
+      source.append("    if (code == ").append(i).append(") {\n")
+        .append("      return ").append(i % 2 == 0 ? "OK" : "BAD_REQUEST").append("();\n")
+        .append("    }\n");
+    }
+    source.append("    return other();\n")
+      .append("  }\n")
+      .append("  ResponseEntity<String> OK() { return null; }\n")
+      .append("  ResponseEntity<String> BAD_REQUEST() { return null; }\n")
+      .append("  ResponseEntity<String> other() { return null; }\n")
+      .append("}\n");
+    File file = temp.newFile("Controller" + returns + ".java");
+    Files.write(file.toPath(), source.toString().getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+}
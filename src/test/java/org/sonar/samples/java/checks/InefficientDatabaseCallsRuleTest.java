@@ -0,0 +1,153 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.checks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.batch.sensor.issue.Issue;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.server.rule.RulesDefinition;
+import org.sonar.java.AnalyzerMessage;
+import org.sonar.samples.java.MyJavaRulesDefinition;
+import org.sonar.samples.java.callgraph.LateWritingCallSensor;
+import org.sonar.samples.java.callgraph.LateWritingCalls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InefficientDatabaseCallsRuleTest {
+
+  private static final String IMPORTER = "src/test/files/InefficientDatabaseCallsRule/Importer.java";
+  private static final String STORE = "src/test/files/InefficientDatabaseCallsRule/Store.java";
+  private static final String LATE_MESSAGE = "Cet appel dans une boucle sauvegarde des entités via Store.keep. "
+    + "Utilisez des mises à jour par lots pour améliorer les performances. (profondeur de boucle : 1)";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @After
+  public void tearDown() {
+    LateWritingCalls.current().takeAll();
+  }
+
+  @Test
+  public void test() {
+    CheckVerifier.verify("src/test/files/InefficientDatabaseCallsRule.java", new InefficientDatabaseCallsRule());
+    assertThat(LateWritingCalls.current().takeAll()).isEmpty();
+  }
+
+  @Test
+  public void reports_a_call_completed_by_a_later_file_once_all_the_files_are_scanned() throws Exception {
+    List<File> classes = compile(IMPORTER, STORE);
+    InefficientDatabaseCallsRule check = new InefficientDatabaseCallsRule();
+
+    assertThat(CheckVerifier.issues(IMPORTER, classes, check)).isEmpty();
+    assertThat(CheckVerifier.issues(STORE, classes, check)).isEmpty();
+
+    List<LateWritingCalls.WritingCall> calls = LateWritingCalls.current().takeAll();
+    assertThat(calls).hasSize(1);
+    LateWritingCalls.WritingCall call = calls.get(0);
+    assertDefined(call.ruleKey);
+    assertThat(call.file).isEqualTo(new File(IMPORTER));
+    assertThat(call.line).isEqualTo(15);
+    assertThat(call.loopDepth).isEqualTo(1);
+    assertThat(call.message).isEqualTo(LATE_MESSAGE);
+  }
+
+  @Test
+  public void reports_the_same_call_on_its_file_when_the_writer_is_scanned_first() throws Exception {
+    List<File> classes = compile(IMPORTER, STORE);
+    InefficientDatabaseCallsRule check = new InefficientDatabaseCallsRule();
+
+    assertThat(CheckVerifier.issues(STORE, classes, check)).isEmpty();
+    List<AnalyzerMessage> issues = CheckVerifier.issues(IMPORTER, classes, check);
+
+    assertThat(issues).extracting(AnalyzerMessage::getLine).containsExactly(15);
+    assertThat(issues).extracting(AnalyzerMessage::getMessage).containsExactly(LATE_MESSAGE);
+    assertThat(LateWritingCalls.current().takeAll()).isEmpty();
+  }
+
+  @Test
+  public void sensor_reports_the_late_calls_on_their_file() throws Exception {
+    List<File> classes = compile(IMPORTER, STORE);
+    InefficientDatabaseCallsRule check = new InefficientDatabaseCallsRule();
+    CheckVerifier.issues(IMPORTER, classes, check);
+    CheckVerifier.issues(STORE, classes, check);
+    LateWritingCalls.WritingCall call = LateWritingCalls.current().takeAll().get(0);
+
+    File baseDir = temp.newFolder();
+    File file = new File(baseDir, "Importer.java");
+    Files.copy(new File(IMPORTER).toPath(), file.toPath());
+    SensorContextTester context = SensorContextTester.create(baseDir);
+    context.fileSystem().add(TestInputFileBuilder.create("module", baseDir, file)
+      .setLanguage("java")
+      .setCharset(StandardCharsets.UTF_8)
+      .initMetadata(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8))
+      .build());
+    LateWritingCalls.current().add(new LateWritingCalls.WritingCall(call.ruleKey, file, call.line, call.loopDepth, call.message));
+
+    new LateWritingCallSensor().execute(context);
+
+    assertThat(context.allIssues()).hasSize(1);
+    Issue issue = context.allIssues().iterator().next();
+    assertDefined(issue.ruleKey());
+    assertThat(issue.gap()).isEqualTo(1.0);
+    assertThat(issue.primaryLocation().textRange().start().line()).isEqualTo(15);
+    assertThat(issue.primaryLocation().message()).isEqualTo(LATE_MESSAGE);
+    assertThat(LateWritingCalls.current().takeAll()).isEmpty();
+  }
+
+  // an issue raised on a rule the repository does not define is dropped by the scanner
+  private static void assertDefined(RuleKey ruleKey) {
+    RulesDefinition.Context context = new RulesDefinition.Context();
+    new MyJavaRulesDefinition().define(context);
+    RulesDefinition.Repository repository = context.repository(ruleKey.repository());
+    assertThat(repository).as("repository of %s", ruleKey).isNotNull();
+    assertThat(repository.rule(ruleKey.rule())).as("rule %s", ruleKey).isNotNull();
+  }
+
+  // the semantic of a file only knows the types of the other files from their bytecode
+  private List<File> compile(String... sources) throws IOException {
+    File classes = temp.newFolder();
+    String classpath = CheckVerifier.classpath().stream().map(File::getPath).collect(Collectors.joining(File.pathSeparator));
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    String[] arguments = new String[sources.length + 4];
+    arguments[0] = "-d";
+    arguments[1] = classes.getPath();
+    arguments[2] = "-cp";
+    arguments[3] = classpath;
+    System.arraycopy(sources, 0, arguments, 4, sources.length);
+    assertThat(compiler.run(null, null, null, arguments)).as("compilation of %s", Arrays.toString(sources)).isZero();
+    return Collections.singletonList(classes);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.checks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.sonar.java.AnalyzerMessage;
+import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
+import org.sonar.plugins.java.api.tree.ExpressionTree;
+import org.sonar.plugins.java.api.tree.MemberSelectExpressionTree;
+import org.sonar.plugins.java.api.tree.MethodInvocationTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MethodMatcherTest {
+
+  private static final String FILE = "src/test/files/MethodMatcher.java";
+
+  @Test
+  public void owner_type_is_the_declaring_type() {
+    assertThat(matched(MethodMatcher.create().ownerType("java.util.List").names("add"))).containsExactly("list.add:8", "list.add:9");
+    assertThat(matched(MethodMatcher.create().ownerType("java.util.ArrayList").names("add"))).containsExactly("arrayList.add:10");
+  }
+
+  @Test
+  public void owner_subtypes() {
+    assertThat(matched(MethodMatcher.create().ownerSubtypeOf("java.util.List").names("add")))
+      .containsExactly("list.add:8", "list.add:9", "arrayList.add:10");
+    assertThat(matched(MethodMatcher.create().ownerSubtypeOf("java.util.List").names("add").arity(1)))
+      .containsExactly("list.add:8", "arrayList.add:10");
+  }
+
+  @Test
+  public void unresolved_invocations_only_match_matchers_without_owner() {
+    assertThat(matched(MethodMatcher.create().names("add"))).containsExactly("list.add:8", "list.add:9", "arrayList.add:10", "unresolved.add:14");
+    assertThat(matched(MethodMatcher.create().names("add").resolvedOnly())).containsExactly("list.add:8", "list.add:9", "arrayList.add:10");
+    assertThat(matched(MethodMatcher.create().ownerType("sun.misc.Unsafe").names("defineClass"))).isEmpty();
+    assertThat(matched(MethodMatcher.create().ownerSubtypeOf("java.lang.Object").names("defineClass"))).containsExactly("defineClass:15");
+  }
+
+  @Test
+  public void name_fragments() {
+    assertThat(matched(MethodMatcher.create().nameContaining("close", "flush"))).containsExactly("out.flush:11", "out.close:12");
+  }
+
+  @Test
+  public void invocations_of_nested_classes_are_not_those_of_the_method() {
+    List<Boolean> found = new ArrayList<>();
+    IssuableSubscriptionVisitor finder = new IssuableSubscriptionVisitor() {
+      @Override
+      public List<Tree.Kind> nodesToVisit() {
+        return Collections.singletonList(Tree.Kind.METHOD);
+      }
+
+      @Override
+      public void visitNode(Tree tree) {
+        MethodTree method = (MethodTree) tree;
+        if ("calls".equals(method.simpleName().name())) {
+          found.add(MethodMatcher.create().names("flush").isInvokedIn(method.block()));
+          found.add(MethodMatcher.create().names("clear").isInvokedIn(method.block()));
+        }
+      }
+    };
+    CheckVerifier.issues(FILE, finder);
+    assertThat(found).containsExactly(true, false);
+    assertThat(MethodMatcher.create().isInvokedIn(null)).isFalse();
+  }
+
+  /**
+   * Invocations of the test file matched, as written followed by their line.
+   */
+  private static List<String> matched(MethodMatcher matcher) {
+    IssuableSubscriptionVisitor check = new IssuableSubscriptionVisitor() {
+      @Override
+      public List<Tree.Kind> nodesToVisit() {
+        return Collections.singletonList(Tree.Kind.METHOD_INVOCATION);
+      }
+
+      @Override
+      public void visitNode(Tree tree) {
+        if (matcher.matches(tree)) {
+          reportIssue(tree, written(((MethodInvocationTree) tree).methodSelect()));
+        }
+      }
+    };
+    return CheckVerifier.issues(FILE, check).stream()
+      .sorted(Comparator.comparing(AnalyzerMessage::getLine))
+      .map(issue -> issue.getMessage() + ":" + issue.getLine())
+      .collect(Collectors.toList());
+  }
+
+  private static String written(ExpressionTree methodSelect) {
+    if (methodSelect.is(Tree.Kind.MEMBER_SELECT)) {
+      MemberSelectExpressionTree memberSelect = (MemberSelectExpressionTree) methodSelect;
+      return written(memberSelect.expression()) + "." + memberSelect.identifier().name();
+    }
+    return methodSelect.firstToken().text();
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.checks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.java.AnalyzerMessage;
+import org.sonar.samples.java.dispatch.LexicalPrefilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PasswordEncoderRuleTest {
+
+  private static final String HASHERS = "src/test/files/PasswordEncoderRule/Hashers.java";
+  private static final String ACCOUNTS = "src/test/files/PasswordEncoderRule/Accounts.java";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @After
+  public void restore_the_default_prefilter() {
+    LexicalPrefilter.configure(new MapSettings().asConfig());
+  }
+
+  @Test
+  public void test() {
+    CheckVerifier.verify("src/test/files/PasswordEncoderRule.java", new PasswordEncoderRule());
+  }
+
+  @Test
+  public void raises_the_same_issues_with_and_without_the_lexical_prefilter() throws Exception {
+    List<File> classes = compile(HASHERS, ACCOUNTS);
+
+    List<String> filtered = issues(classes, true);
+    List<String> unfiltered = issues(classes, false);
+
+    assertThat(filtered).isEqualTo(unfiltered);
+    assertThat(unfiltered).containsExactly(
+      "11: Unrecognized password encoder. Consider using a secure password encoder such as BCryptPasswordEncoder.");
+  }
+
+  private static List<String> issues(List<File> classes, boolean prefiltered) {
+    LexicalPrefilter.configure(new MapSettings().setProperty(LexicalPrefilter.ENABLED_KEY, prefiltered).asConfig());
+    return CheckVerifier.issues(ACCOUNTS, classes, new PasswordEncoderRule()).stream()
+      .sorted(Comparator.comparing(AnalyzerMessage::getLine))
+      .map(issue -> issue.getLine() + ": " + issue.getMessage())
+      .collect(Collectors.toList());
+  }
+
+  // the semantic of a file only knows the types of the other files from their bytecode
+  private List<File> compile(String... sources) throws IOException {
+    File classes = temp.newFolder();
+    String classpath = CheckVerifier.classpath().stream().map(File::getPath).collect(Collectors.joining(File.pathSeparator));
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    String[] arguments = new String[sources.length + 4];
+    arguments[0] = "-d";
+    arguments[1] = classes.getPath();
+    arguments[2] = "-cp";
+    arguments[3] = classpath;
+    System.arraycopy(sources, 0, arguments, 4, sources.length);
+    assertThat(compiler.run(null, null, null, arguments)).as("compilation of %s", Arrays.toString(sources)).isZero();
+    return Collections.singletonList(classes);
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.dispatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.samples.java.checks.CheckVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class FileGuardTest {
+
+  private static final String FILE = "src/test/files/SharedTreeWalk.java";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @After
+  public void restore_the_default_guard() {
+    FileGuard.configure(new MapSettings().asConfig());
+  }
+
+  @Test
+  public void analyzes_a_plain_file() {
+    FileGuard.configure(new MapSettings().asConfig());
+
+    FileGuard.Verdict verdict = classify(FILE);
+
+    assertThat(verdict.action).isEqualTo(FileGuard.Action.ANALYZE);
+    assertThat(verdict.reason).isNull();
+    assertThat(FileGuard.current().guardedFiles()).isZero();
+    assertThat(FileGuard.current().summary()).isEqualTo("0 skipped, 0 degraded");
+  }
+
+  @Test
+  public void skips_the_files_generated_by_annotation_by_default() throws IOException {
+    FileGuard.configure(new MapSettings().asConfig());
+    String file = write("Entity_.java",
+      "@javax.persistence.metamodel.StaticMetamodel(Entity.class)",
+      "class Entity_ {",
+      "}");
+
+    FileGuard.Verdict verdict = classify(file);
+
+    assertThat(verdict.action).isEqualTo(FileGuard.Action.SKIP);
+    assertThat(verdict.reason).isEqualTo(FileGuard.Reason.GENERATED_ANNOTATION);
+    assertThat(verdict).hasToString("generated annotation: @StaticMetamodel");
+  }
+
+  @Test
+  public void finds_the_generated_code_markers_in_the_header_regardless_of_case() throws IOException {
+    FileGuard.configure(new MapSettings().setProperty(FileGuard.GENERATED_KEY, "Degrade").asConfig());
+    String file = write("Messages.java",
+      "// Code Generated By the protocol buffer compiler. Do not edit!",
+      "package messages;",
+      "",
+      "class Messages {",
+      "}");
+
+    FileGuard.Verdict verdict = classify(file);
+
+    assertThat(verdict.action).isEqualTo(FileGuard.Action.DEGRADE);
+    assertThat(verdict.reason).isEqualTo(FileGuard.Reason.GENERATED_MARKER);
+    // the marker ending first in the comment
+    assertThat(verdict).hasToString("generated code marker: \"generated by\"");
+  }
+
+  @Test
+  public void ignores_the_markers_out_of_the_header() throws IOException {
+    FileGuard.configure(new MapSettings().asConfig());
+    String file = write("Handwritten.java",
+      "class Handwritten {",
+      "  // do not edit without a review",
+      "  void run() {",
+      "  }",
+      "}");
+
+    assertThat(classify(file).action).isEqualTo(FileGuard.Action.ANALYZE);
+  }
+
+  @Test
+  public void analyzes_the_generated_files_when_asked_to() throws IOException {
+    FileGuard.configure(new MapSettings().setProperty(FileGuard.GENERATED_KEY, "analyze").asConfig());
+    String file = write("Generated.java",
+      "// DO NOT EDIT",
+      "@javax.annotation.Generated(\"generator\")",
+      "class Generated {",
+      "}");
+
+    assertThat(classify(file).action).isEqualTo(FileGuard.Action.ANALYZE);
+  }
+
+  @Test
+  public void degrades_then_skips_the_files_by_line_count() throws IOException {
+    FileGuard.configure(new MapSettings()
+      .setProperty(FileGuard.DEGRADE_LINES_KEY, 50)
+      .setProperty(FileGuard.SKIP_LINES_KEY, 100)
+      .asConfig());
+
+    FileGuard.Verdict degraded = classify(writeLines("Long.java", 75));
+    FileGuard.Verdict skipped = classify(writeLines("Huge.java", 150));
+
+    assertThat(degraded.action).isEqualTo(FileGuard.Action.DEGRADE);
+    assertThat(degraded).hasToString("line count: 78 lines, above 50");
+    assertThat(skipped.action).isEqualTo(FileGuard.Action.SKIP);
+    assertThat(skipped).hasToString("line count: 153 lines, above 100");
+    assertThat(classify(writeLines("Short.java", 10)).action).isEqualTo(FileGuard.Action.ANALYZE);
+    assertThat(FileGuard.current().summary()).isEqualTo("1 skipped (1 line count), 1 degraded (1 line count)");
+    assertThat(FileGuard.current().guardedFiles()).isEqualTo(2);
+  }
+
+  @Test
+  public void skips_the_files_by_size_before_anything_else() throws IOException {
+    FileGuard.configure(new MapSettings().setProperty(FileGuard.SKIP_KB_KEY, 1).asConfig());
+
+    FileGuard.Verdict verdict = classify(writeLines("Big.java", 100));
+
+    assertThat(verdict.action).isEqualTo(FileGuard.Action.SKIP);
+    assertThat(verdict.reason).isEqualTo(FileGuard.Reason.SIZE);
+    assertThat(FileGuard.current().summary()).isEqualTo("1 skipped (1 size), 0 degraded");
+  }
+
+  @Test
+  public void analyzes_every_file_when_disabled() throws IOException {
+    FileGuard.configure(new MapSettings()
+      .setProperty(FileGuard.ENABLED_KEY, false)
+      .setProperty(FileGuard.SKIP_LINES_KEY, 10)
+      .asConfig());
+
+    assertThat(classify(writeLines("Huge.java", 100)).action).isEqualTo(FileGuard.Action.ANALYZE);
+    assertThat(FileGuard.current().guardedFiles()).isZero();
+  }
+
+  @Test
+  public void rejects_an_unknown_action_for_the_generated_files() {
+    try {
+      FileGuard.configure(new MapSettings().setProperty(FileGuard.GENERATED_KEY, "ignore").asConfig());
+      fail("expected an invalid value");
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Invalid value of sonar.pfe.fileGuard.generated: 'ignore', expected analyze, degrade or skip");
+    }
+  }
+
+  private static FileGuard.Verdict classify(String file) {
+    FileGuard.Verdict[] verdict = new FileGuard.Verdict[1];
+    CheckVerifier.issues(file, context -> verdict[0] = FileGuard.current().classify(context));
+    return verdict[0];
+  }
+
+  private String write(String name, String... lines) throws IOException {
+    File file = new File(temp.getRoot(), name);
+    Files.write(file.toPath(), String.join("\n", lines).concat("\n").getBytes(StandardCharsets.UTF_8));
+    return file.getPath();
+  }
+
+  // a class of the given number of fields: three lines more, the end of file counting as a line
+  private String writeLines(String name, int fields) throws IOException {
+    String[] lines = new String[fields + 2];
+    lines[0] = "class " + name.substring(0, name.indexOf('.')) + " {";
+    for (int i = 1; i <= fields; i++) {
+      lines[i] = "  int field" + i + " = " + i + ";";
+    }
+    lines[fields + 1] = "}";
+    return write(name, lines);
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.dispatch;
+
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.Test;
+import org.sonar.java.AnalyzerMessage;
+import org.sonar.java.model.VisitorsBridgeForTests;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.samples.java.checks.CheckVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IssueBatchTest {
+
+  private static final String FILE = "src/test/files/SharedTreeWalk.java";
+
+  private final JavaCheck check = new JavaCheck() {
+  };
+  private final JavaCheck otherCheck = new JavaCheck() {
+  };
+  private final DispatchStats stats = new DispatchStats();
+
+  @Test
+  public void merges_an_issue_reported_again_by_the_same_check_at_the_same_location() {
+    List<AnalyzerMessage> issues = issues(batch -> {
+      ClassTree type = type(batch);
+      batch.reportIssue(check, type.simpleName(), "message");
+      batch.reportIssue(check, type.simpleName(), "message");
+      batch.addIssue(4, check, "on line");
+      batch.addIssue(4, check, "on line", 2);
+      batch.addIssueOnFile(check, "on file");
+      batch.addIssueOnFile(check, "on file");
+      assertThat(batch.flush(stats)).isEqualTo(3);
+    });
+
+    assertThat(issues).extracting(AnalyzerMessage::getMessage).containsOnly("message", "on line", "on file").hasSize(3);
+    assertThat(stats.issues()).isEqualTo(3);
+    assertThat(stats.duplicatesMerged()).isEqualTo(3);
+  }
+
+  @Test
+  public void keeps_the_issues_of_other_checks_messages_or_locations() {
+    List<AnalyzerMessage> issues = issues(batch -> {
+      ClassTree type = type(batch);
+      Tree firstMember = type.members().get(0);
+      batch.reportIssue(check, type.simpleName(), "message");
+      batch.reportIssue(otherCheck, type.simpleName(), "message");
+      batch.reportIssue(check, type.simpleName(), "other message");
+      batch.reportIssue(check, firstMember, "message");
+      batch.reportIssue(check, type.simpleName(), firstMember, "message");
+      // a whole line is not the tree on it
+      batch.addIssue(4, check, "message");
+      assertThat(batch.flush(stats)).isZero();
+    });
+
+    assertThat(issues).hasSize(6);
+    assertThat(stats.duplicatesMerged()).isZero();
+  }
+
+  @Test
+  public void passes_the_issues_on_when_flushed_and_still_merges_them_afterwards() {
+    List<AnalyzerMessage> issues = CheckVerifier.issues(FILE, context -> {
+      VisitorsBridgeForTests.TestJavaFileScannerContext delegate = (VisitorsBridgeForTests.TestJavaFileScannerContext) context;
+      IssueBatch batch = new IssueBatch(context);
+      ClassTree type = type(batch);
+      batch.reportIssue(check, type.simpleName(), "message");
+      assertThat(delegate.getIssues()).isEmpty();
+
+      assertThat(batch.flush(stats)).isZero();
+      assertThat(delegate.getIssues()).hasSize(1);
+
+      batch.reportIssue(check, type.simpleName(), "message");
+      assertThat(batch.flush(stats)).isEqualTo(1);
+    });
+
+    assertThat(issues).hasSize(1);
+    assertThat(stats.issues()).isEqualTo(1);
+    assertThat(stats.duplicatesMerged()).isEqualTo(1);
+  }
+
+  private static List<AnalyzerMessage> issues(Consumer<IssueBatch> reports) {
+    return CheckVerifier.issues(FILE, context -> reports.accept(new IssueBatch(context)));
+  }
+
+  private static ClassTree type(IssueBatch batch) {
+    return (ClassTree) batch.getTree().types().get(0);
+  }
+}
@@ -0,0 +1,366 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.dispatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.samples.java.RulesList;
+import org.sonar.samples.java.checks.AvoidMethodDeclarationRule;
+import org.sonar.samples.java.checks.CheckVerifier;
+import org.sonar.samples.java.registry.RuleDescriptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SharedTreeWalkTest {
+
+  private static final String FILE = "src/test/files/SharedTreeWalk.java";
+  private static final String OTHER_FILE = "src/test/files/HttpStatusConsistencyRule.java";
+
+  @After
+  public void restore_the_default_prefilter_and_budget() {
+    LexicalPrefilter.configure(new MapSettings().asConfig());
+    LatencyBudget.configure(false, null);
+  }
+
+  @Test
+  public void members_get_the_nodes_of_their_kinds_as_with_a_walk_of_their_own() {
+    List<Tree.Kind> kinds = Arrays.asList(Tree.Kind.CLASS, Tree.Kind.METHOD, Tree.Kind.METHOD_INVOCATION, Tree.Kind.LAMBDA_EXPRESSION);
+    List<DispatchedKindCounter> dispatched = new ArrayList<>();
+    List<KindCounter> alone = new ArrayList<>();
+    for (Tree.Kind kind : kinds) {
+      dispatched.add(new DispatchedKindCounter(kind));
+      alone.add(new KindCounter(kind));
+    }
+
+    // the same check instances analyze both files, as in the Java plugin: they join on the first one
+    for (String file : Arrays.asList(FILE, OTHER_FILE, FILE)) {
+      CheckVerifier.issues(file, dispatched.toArray(new JavaFileScanner[0]));
+      CheckVerifier.issues(file, alone.toArray(new JavaFileScanner[0]));
+    }
+
+    for (int i = 0; i < kinds.size(); i++) {
+      assertThat(dispatched.get(i).visited).as(kinds.get(i).name()).isEqualTo(alone.get(i).visited).isPositive();
+      assertThat(dispatched.get(i).left).as(kinds.get(i).name()).isEqualTo(dispatched.get(i).visited);
+    }
+  }
+
+  @Test
+  public void members_joined_on_a_first_file_are_handed_files_by_several_threads() throws Exception {
+    ConcurrentKindCounter methods = new ConcurrentKindCounter(Tree.Kind.METHOD);
+    ConcurrentKindCounter invocations = new ConcurrentKindCounter(Tree.Kind.METHOD_INVOCATION);
+    CheckVerifier.issues(FILE, methods, invocations);
+    int methodsPerFile = methods.visited.get();
+    int invocationsPerFile = invocations.visited.get();
+
+    int files = 32;
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> analyses = new ArrayList<>();
+      for (int i = 0; i < files; i++) {
+        analyses.add(executor.submit(() -> CheckVerifier.issues(FILE, methods, invocations)));
+      }
+      for (Future<?> analysis : analyses) {
+        analysis.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // each file walked once, for both members
+    assertThat(methods.visited.get()).isEqualTo((files + 1) * methodsPerFile).isPositive();
+    assertThat(invocations.visited.get()).isEqualTo((files + 1) * invocationsPerFile).isPositive();
+  }
+
+  /**
+   * Nodes visited per file before and after the shared walk: the checks of the plugin used to walk the file one by
+   * one, they now walk it once together. The prefilter, which keeps checks off the file altogether, is left out.
+   */
+  @Test
+  public void walks_the_file_once_for_all_the_checks_of_the_plugin() {
+    LexicalPrefilter.configure(new MapSettings().setProperty(LexicalPrefilter.ENABLED_KEY, false).asConfig());
+    List<DispatchedVisitor> checks = new ArrayList<>();
+    for (RuleDescriptor rule : RulesList.getJavaRules()) {
+      if (DispatchedVisitor.class.isAssignableFrom(rule.checkClass())) {
+        checks.add((DispatchedVisitor) rule.newCheck());
+      }
+    }
+    assertThat(checks).hasSize(RulesList.getJavaChecks().size());
+    SharedTreeWalk walk = SharedTreeWalk.of(checks);
+    KindCounter allNodes = new KindCounter(EnumSet.complementOf(EnumSet.of(Tree.Kind.TOKEN, Tree.Kind.TRIVIA)));
+
+    CheckVerifier.issues(FILE, new WalkScanner(walk), allNodes);
+
+    DispatchStats stats = walk.stats();
+    assertThat(stats.walks()).isEqualTo(1);
+    assertThat(stats.nodesVisited()).isEqualTo(allNodes.visited).isEqualTo(144);
+    assertThat(stats.nodesVisitedWithoutSharing()).isEqualTo(checks.size() * stats.nodesVisited());
+  }
+
+  @Test
+  public void late_members_are_judged_on_the_time_spent_by_the_checks_on_the_file() {
+    LatencyBudget.configure(false, new MapSettings().setProperty(LatencyBudget.MILLIS_KEY, 50).asConfig());
+    DispatchedKindCounter first = new DispatchedKindCounter(Tree.Kind.CLASS);
+    DispatchedKindCounter late = new DispatchedKindCounter(Tree.Kind.CLASS);
+
+    // the time the Java plugin spends in its own checks between two members is not the members' to spend
+    CheckVerifier.issues(FILE, first, new Sleeper(100), late);
+
+    assertThat(late.visited).isEqualTo(first.visited).isPositive();
+    assertThat(LatencyBudget.current().skippedChecks()).isZero();
+  }
+
+  @Test
+  public void logs_the_keys_of_the_checks_skipped_on_each_file() {
+    LatencyBudget.configure(false, new MapSettings().setProperty(LatencyBudget.MILLIS_KEY, 50).asConfig());
+    DispatchedSleeper slow = new DispatchedSleeper(100);
+    DispatchedKindCounter skipped = new DispatchedKindCounter(Tree.Kind.CLASS);
+
+    CheckVerifier.issues(FILE, slow, skipped);
+
+    assertThat(skipped.visited).isZero();
+    Map<String, List<String>> skippedRules = LatencyBudget.current().skippedRules();
+    assertThat(skippedRules).hasSize(1);
+    assertThat(skippedRules.keySet().iterator().next()).endsWith("SharedTreeWalk.java");
+    assertThat(skippedRules.values().iterator().next()).containsExactly(DispatchedKindCounter.class.getName());
+    assertThat(LatencyBudget.current().skippedChecks()).isEqualTo(1);
+  }
+
+  @Test
+  public void checks_are_left_out_of_the_rest_of_the_file_once_the_budget_is_spent() {
+    LatencyBudget.configure(false, new MapSettings().setProperty(LatencyBudget.MILLIS_KEY, 50).asConfig());
+    DispatchedKindCounter counter = new DispatchedKindCounter(Tree.Kind.METHOD);
+    DispatchedSleeper slow = new DispatchedSleeper(30, Tree.Kind.METHOD);
+    AvoidMethodDeclarationRule syntaxOnly = new AvoidMethodDeclarationRule();
+    SharedTreeWalk walk = SharedTreeWalk.of(Arrays.asList(counter, slow, syntaxOnly));
+    KindCounter alone = new KindCounter(Tree.Kind.METHOD);
+
+    int issues = CheckVerifier.issues(FILE, new WalkScanner(walk), alone).size();
+
+    // cut within the one walk of the file, between two methods, rather than before or after it
+    assertThat(walk.stats().walks()).isEqualTo(1);
+    assertThat(counter.visited).isPositive().isLessThan(alone.visited);
+    assertThat(counter.left).isLessThan(counter.visited);
+    assertThat(issues).isEqualTo(alone.visited);
+    assertThat(LatencyBudget.current().skippedRules().values().iterator().next())
+      .containsExactly(DispatchedKindCounter.class.getName(), DispatchedSleeper.class.getName());
+  }
+
+  @Test
+  public void a_check_throwing_on_a_file_is_left_out_of_that_file_only() {
+    DispatchedKindCounter before = new DispatchedKindCounter(Tree.Kind.METHOD);
+    Thrower thrower = new Thrower(Tree.Kind.METHOD);
+    DispatchedKindCounter after = new DispatchedKindCounter(Tree.Kind.METHOD);
+    AvoidMethodDeclarationRule reporting = new AvoidMethodDeclarationRule();
+    KindCounter alone = new KindCounter(Tree.Kind.METHOD);
+
+    int issues = 0;
+    for (String file : Arrays.asList(FILE, OTHER_FILE)) {
+      issues += CheckVerifier.issues(file, before, thrower, after, reporting, alone).size();
+    }
+
+    assertThat(before.visited).isEqualTo(alone.visited).isEqualTo(after.visited).isPositive();
+    assertThat(before.left).isEqualTo(before.visited);
+    assertThat(issues).isEqualTo(alone.visited);
+    // handed the first method of each file, and nothing after it threw
+    assertThat(thrower.visited).isEqualTo(2);
+    assertThat(thrower.left).isZero();
+    assertThat(thrower.sharedWalk().filesInProgress()).isZero();
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class WalkScanner implements JavaFileScanner {
+
+    private final SharedTreeWalk walk;
+
+    WalkScanner(SharedTreeWalk walk) {
+      this.walk = walk;
+    }
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      walk.scan(context);
+    }
+  }
+
+  private static final class DispatchedKindCounter extends DispatchedVisitor {
+
+    private final Tree.Kind kind;
+    private int visited;
+    private int left;
+
+    DispatchedKindCounter(Tree.Kind kind) {
+      this.kind = kind;
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return Collections.singletonList(kind);
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      visited++;
+    }
+
+    @Override
+    public void leaveNode(Tree tree) {
+      left++;
+    }
+  }
+
+  private static final class Thrower extends DispatchedVisitor {
+
+    private final Tree.Kind kind;
+    private int visited;
+    private int left;
+
+    Thrower(Tree.Kind kind) {
+      this.kind = kind;
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return Collections.singletonList(kind);
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      visited++;
+      throw new IllegalStateException("Thrower failed on purpose");
+    }
+
+    @Override
+    public void leaveNode(Tree tree) {
+      left++;
+    }
+  }
+
+  private static final class ConcurrentKindCounter extends DispatchedVisitor {
+
+    private final Tree.Kind kind;
+    private final AtomicInteger visited = new AtomicInteger();
+
+    ConcurrentKindCounter(Tree.Kind kind) {
+      this.kind = kind;
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return Collections.singletonList(kind);
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      visited.incrementAndGet();
+    }
+  }
+
+  private static final class DispatchedSleeper extends DispatchedVisitor {
+
+    private final long millis;
+    private final Tree.Kind kind;
+
+    DispatchedSleeper(long millis) {
+      this(millis, Tree.Kind.COMPILATION_UNIT);
+    }
+
+    DispatchedSleeper(long millis, Tree.Kind kind) {
+      this.millis = millis;
+      this.kind = kind;
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return Collections.singletonList(kind);
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      sleep(millis);
+    }
+  }
+
+  private static final class Sleeper extends IssuableSubscriptionVisitor {
+
+    private final long millis;
+
+    Sleeper(long millis) {
+      this.millis = millis;
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return Collections.singletonList(Tree.Kind.COMPILATION_UNIT);
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      sleep(millis);
+    }
+  }
+
+  private static final class KindCounter extends IssuableSubscriptionVisitor {
+
+    private final List<Tree.Kind> kinds;
+    private int visited;
+
+    KindCounter(Tree.Kind kind) {
+      this(EnumSet.of(kind));
+    }
+
+    KindCounter(Set<Tree.Kind> kinds) {
+      this.kinds = new ArrayList<>(kinds);
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return kinds;
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      visited++;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.flow;
+
+import java.util.Collections;
+import java.util.Map;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+import org.sonar.plugins.java.api.tree.LambdaExpressionTree;
+import org.sonar.plugins.java.api.tree.MemberSelectExpressionTree;
+import org.sonar.plugins.java.api.tree.MethodInvocationTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.ReturnStatementTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.samples.java.flow.ControlFlowGraph.Block;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.samples.java.flow.FlowTestFiles.reachable;
+import static org.sonar.samples.java.flow.FlowTestFiles.reaches;
+
+public class ControlFlowGraphTest {
+
+  private static Map<String, MethodTree> methods;
+
+  @BeforeClass
+  public static void parse() {
+    methods = FlowTestFiles.methods("src/test/files/ControlFlowGraph.java");
+  }
+
+  @Test
+  public void sequence_is_one_block_reaching_the_exit() {
+    ControlFlowGraph cfg = build("sequence");
+
+    assertThat(cfg.entry().elements()).hasSize(2);
+    assertThat(blockCalling(cfg, "a")).isSameAs(blockCalling(cfg, "b"));
+    assertThat(cfg.entry().successors()).containsExactly(cfg.exit());
+    assertThat(reaches(cfg.entry(), cfg.exceptionalExit())).isFalse();
+  }
+
+  @Test
+  public void if_branches_on_its_condition() {
+    ControlFlowGraph cfg = build("ifElse");
+
+    Block condition = cfg.entry();
+    assertThat(condition.condition()).isNotNull();
+    assertThat(condition.elements()).endsWith(condition.condition());
+    assertThat(condition.trueSuccessor()).isSameAs(blockCalling(cfg, "a"));
+    assertThat(condition.falseSuccessor()).isSameAs(blockCalling(cfg, "b"));
+    assertThat(reaches(blockCalling(cfg, "a"), blockCalling(cfg, "b"))).isFalse();
+    assertThat(reaches(blockCalling(cfg, "a"), cfg.exit())).isTrue();
+    assertThat(reaches(blockCalling(cfg, "b"), cfg.exit())).isTrue();
+  }
+
+  @Test
+  public void loop_body_goes_back_to_the_condition() {
+    ControlFlowGraph cfg = build("whileLoop");
+
+    Block body = blockCalling(cfg, "a");
+    Block condition = cfg.blocks().stream().filter(block -> block.trueSuccessor() == body).findFirst().get();
+    assertThat(body.successors()).containsExactly(condition);
+    assertThat(condition.falseSuccessor()).isSameAs(blockCalling(cfg, "b"));
+  }
+
+  @Test
+  public void return_jumps_to_the_exit() {
+    ControlFlowGraph cfg = build("earlyReturn");
+
+    Block returning = cfg.entry().trueSuccessor();
+    assertThat(returning.elements()).hasSize(1);
+    assertThat(returning.elements().get(0)).isInstanceOf(ReturnStatementTree.class);
+    assertThat(returning.successors()).containsExactly(cfg.exit());
+    assertThat(reaches(returning, blockCalling(cfg, "a"))).isFalse();
+  }
+
+  @Test
+  public void exception_escaping_the_method_ends_in_the_exceptional_exit() {
+    ControlFlowGraph cfg = build("thrown");
+
+    assertThat(cfg.entry().successors()).containsExactly(cfg.exceptionalExit());
+    assertThat(reaches(cfg.entry(), cfg.exit())).isFalse();
+  }
+
+  @Test
+  public void exception_thrown_in_a_try_goes_to_its_catch() {
+    ControlFlowGraph cfg = build("caught");
+
+    Block body = blockCalling(cfg, "a");
+    Block handler = blockCalling(cfg, "b");
+    assertThat(body.exceptionalSuccessors()).isNotEmpty();
+    assertThat(reachable(body, Collections.singleton(cfg.exit()))).contains(handler);
+    assertThat(reaches(cfg.entry(), cfg.exceptionalExit())).isFalse();
+    assertThat(reaches(handler, cfg.exit())).isTrue();
+  }
+
+  @Test
+  public void return_goes_through_finally() {
+    ControlFlowGraph cfg = build("finallyOnReturn");
+
+    Block finallyBlock = blockCalling(cfg, "b");
+    Block returning = cfg.blocks().stream()
+      .filter(block -> block.elements().stream().anyMatch(element -> element.is(Tree.Kind.RETURN_STATEMENT)))
+      .findFirst().get();
+    assertThat(returning.successors()).containsExactly(finallyBlock);
+    assertThat(reachable(cfg.entry(), Collections.singleton(finallyBlock))).doesNotContain(cfg.exit());
+    assertThat(reaches(blockCalling(cfg, "a"), finallyBlock)).isTrue();
+  }
+
+  @Test
+  public void labeled_break_leaves_the_outer_loop() {
+    ControlFlowGraph cfg = build("labeledBreak");
+
+    Block breaking = cfg.blocks().stream()
+      .filter(block -> block.condition() != null && block.condition().is(Tree.Kind.METHOD_INVOCATION)
+        && "isEmpty".equals(invokedName(block.condition())))
+      .findFirst().get().trueSuccessor();
+    assertThat(reachable(breaking, Collections.singleton(blockCalling(cfg, "b")))).doesNotContain(blockCalling(cfg, "a"));
+    assertThat(reaches(breaking, blockCalling(cfg, "b"))).isTrue();
+  }
+
+  @Test
+  public void lambda_bodies_are_not_elements() {
+    MethodTree method = methods.get("lambda");
+    ControlFlowGraph cfg = ControlFlowGraph.build(method);
+
+    ReturnStatementTree returned = (ReturnStatementTree) method.block().body().get(0);
+    Tree lambdaBody = ((LambdaExpressionTree) returned.expression()).body();
+    assertThat(cfg.elementOf(returned)).isSameAs(returned);
+    assertThat(cfg.elementOf(lambdaBody)).isNull();
+    assertThat(cfg.blockOf(returned)).isSameAs(cfg.entry());
+  }
+
+  private static ControlFlowGraph build(String method) {
+    return ControlFlowGraph.build(methods.get(method));
+  }
+
+  // block of the statement calling the given method without arguments
+  private static Block blockCalling(ControlFlowGraph cfg, String name) {
+    for (Block block : cfg.blocks()) {
+      for (Tree element : block.elements()) {
+        if (element.is(Tree.Kind.METHOD_INVOCATION) && name.equals(invokedName(element))
+          && ((MethodInvocationTree) element).arguments().isEmpty()) {
+          return block;
+        }
+      }
+    }
+    throw new AssertionError("No call to " + name);
+  }
+
+  private static String invokedName(Tree invocation) {
+    Tree select = ((MethodInvocationTree) invocation).methodSelect();
+    if (select.is(Tree.Kind.IDENTIFIER)) {
+      return ((IdentifierTree) select).name();
+    }
+    return ((MemberSelectExpressionTree) select).identifier().name();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.flow;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.samples.java.checks.CheckVerifier;
+
+/**
+ * Methods of a test file by name, with their semantic, and paths of their graphs.
+ */
+final class FlowTestFiles {
+
+  private FlowTestFiles() {
+  }
+
+  static Map<String, MethodTree> methods(String filename) {
+    CompilationUnitTree[] tree = new CompilationUnitTree[1];
+    CheckVerifier.issues(filename, context -> tree[0] = context.getTree());
+    Map<String, MethodTree> methods = new HashMap<>();
+    tree[0].accept(new BaseTreeVisitor() {
+      @Override
+      public void visitMethod(MethodTree method) {
+        methods.put(method.simpleName().name(), method);
+        super.visitMethod(method);
+      }
+    });
+    return methods;
+  }
+
+  /**
+   * Whether {@code to} is reached from {@code from}, following normal and exceptional successors.
+   */
+  static boolean reaches(ControlFlowGraph.Block from, ControlFlowGraph.Block to) {
+    return reachable(from, Collections.emptySet()).contains(to);
+  }
+
+  /**
+   * Blocks reached from the given one without going through the excluded ones, the given one included.
+   */
+  static Set<ControlFlowGraph.Block> reachable(ControlFlowGraph.Block from, Set<ControlFlowGraph.Block> excluded) {
+    Set<ControlFlowGraph.Block> reached = new HashSet<>();
+    Deque<ControlFlowGraph.Block> toVisit = new ArrayDeque<>();
+    toVisit.push(from);
+    while (!toVisit.isEmpty()) {
+      ControlFlowGraph.Block block = toVisit.pop();
+      if (excluded.contains(block) || !reached.add(block)) {
+        continue;
+      }
+      block.successors().forEach(toVisit::push);
+      block.exceptionalSuccessors().forEach(toVisit::push);
+    }
+    return reached;
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.flow;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Test;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResourceLeakAnalysisTest {
+
+  private static final String FILE = "src/test/files/ResourceLeakAnalysis.java";
+
+  @Test
+  public void finds_the_resources_left_open_on_a_path() throws IOException {
+    Map<String, List<Integer>> expected = new TreeMap<>();
+    Map<String, List<Integer>> actual = new TreeMap<>();
+    List<String> lines = Files.readAllLines(Paths.get(FILE), StandardCharsets.UTF_8);
+    for (Map.Entry<String, MethodTree> method : FlowTestFiles.methods(FILE).entrySet()) {
+      MethodTree tree = method.getValue();
+      List<Integer> leakLines = new ArrayList<>();
+      for (int line = tree.firstToken().line(); line <= tree.lastToken().line(); line++) {
+        if (lines.get(line - 1).endsWith("// leak")) {
+          leakLines.add(line);
+        }
+      }
+      expected.put(method.getKey(), leakLines);
+      List<Integer> found = new ArrayList<>();
+      for (Tree leak : ResourceLeakAnalysis.analyze(ControlFlowGraph.build(tree)).leaks()) {
+        found.add(leak.firstToken().line());
+      }
+      actual.put(method.getKey(), found);
+    }
+
+    assertThat(actual).isEqualTo(expected);
+    assertThat(expected.values().stream().mapToInt(List::size).sum()).isEqualTo(6);
+  }
+}
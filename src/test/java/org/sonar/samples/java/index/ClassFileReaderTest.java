@@ -0,0 +1,152 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.samples.java.checks.CheckVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class ClassFileReaderTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void reads_the_supertypes_and_the_entity_annotation_of_a_class() throws IOException {
+    Path classes = IndexFixture.compile(temp);
+
+    IndexedClass customer = read(IndexFixture.classFile(classes, "fixture.Customer"));
+    assertThat(customer.name).isEqualTo("fixture.Customer");
+    // behind another annotation with nested values
+    assertThat(customer.kind).isEqualTo(EntityKind.ENTITY);
+    assertThat(customer.superName).isEqualTo("fixture.Person");
+    assertThat(customer.interfaces).containsExactly("java.io.Serializable", "java.lang.Comparable");
+
+    IndexedClass address = read(IndexFixture.classFile(classes, "fixture.Address"));
+    assertThat(address.kind).isEqualTo(EntityKind.EMBEDDABLE);
+    assertThat(address.isRelevant()).isTrue();
+
+    IndexedClass id = read(IndexFixture.classFile(classes, "fixture.Customer$Id"));
+    assertThat(id.name).isEqualTo("fixture.Customer$Id");
+    assertThat(id.kind).isNull();
+    assertThat(id.superName).isNull();
+    assertThat(id.interfaces).containsExactly("java.io.Serializable");
+
+    IndexedClass person = read(IndexFixture.classFile(classes, "fixture.Person"));
+    assertThat(person.isRelevant()).isFalse();
+  }
+
+  @Test
+  public void reads_the_supertypes_the_class_loader_finds_in_the_test_jars() throws Exception {
+    List<File> jars = CheckVerifier.classpath();
+    assertThat(jars).isNotEmpty();
+    URL[] urls = new URL[jars.size()];
+    for (int i = 0; i < urls.length; i++) {
+      urls[i] = jars.get(i).toURI().toURL();
+    }
+    int compared = 0;
+    try (URLClassLoader loader = new URLClassLoader(urls, null)) {
+      for (File file : jars) {
+        try (JarFile jar = new JarFile(file)) {
+          for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements();) {
+            JarEntry entry = entries.nextElement();
+            String name = entry.getName();
+            if (!name.endsWith(".class") || name.startsWith("META-INF/") || name.endsWith("package-info.class")) {
+              continue;
+            }
+            Class<?> loaded;
+            try {
+              loaded = Class.forName(name.substring(0, name.length() - ".class".length()).replace('/', '.'), false, loader);
+            } catch (LinkageError | ClassNotFoundException e) {
+              // a supertype from a library the test jars do not include
+              continue;
+            }
+            IndexedClass indexed = read(IndexFixture.readAll(jar.getInputStream(entry)));
+            assertThat(indexed.name).isEqualTo(loaded.getName());
+            Class<?> superclass = loaded.getSuperclass();
+            assertThat(indexed.superName).as(name)
+              .isEqualTo(superclass == null || superclass == Object.class ? null : superclass.getName());
+            assertThat(indexed.interfaces).as(name)
+              .isEqualTo(Arrays.stream(loaded.getInterfaces()).map(Class::getName).collect(Collectors.toList()));
+            compared++;
+          }
+        }
+      }
+    }
+    assertThat(compared).isGreaterThan(2000);
+  }
+
+  @Test
+  public void rejects_a_truncated_class_file() throws IOException {
+    byte[] bytes = IndexFixture.classFile(IndexFixture.compile(temp), "fixture.Customer");
+
+    for (int length : new int[] {0, 3, 9, bytes.length / 4, bytes.length / 2}) {
+      try {
+        ClassFileReader.read(bytes, length);
+        fail("Read a class file truncated to " + length + " bytes");
+      } catch (IOException e) {
+        assertThat(e).hasMessage("Truncated class file");
+      }
+    }
+    // the attributes after the entity annotation are not read
+    assertThat(ClassFileReader.read(bytes, bytes.length - 1).kind).isEqualTo(EntityKind.ENTITY);
+  }
+
+  @Test
+  public void rejects_bytes_which_are_not_a_class_file() throws IOException {
+    byte[] bytes = "not a class file at all".getBytes(StandardCharsets.US_ASCII);
+    try {
+      ClassFileReader.read(bytes, bytes.length);
+      fail("Read text as a class file");
+    } catch (IOException e) {
+      assertThat(e).hasMessage("Not a class file");
+    }
+
+    byte[] corrupted = IndexFixture.classFile(IndexFixture.compile(temp), "fixture.Customer");
+    // first constant pool tag
+    corrupted[10] = (byte) 99;
+    try {
+      ClassFileReader.read(corrupted, corrupted.length);
+      fail("Read an unknown constant pool tag");
+    } catch (IOException e) {
+      assertThat(e).hasMessage("Unknown constant pool tag 99");
+    }
+  }
+
+  private static IndexedClass read(byte[] bytes) throws IOException {
+    return ClassFileReader.read(bytes, bytes.length);
+  }
+}
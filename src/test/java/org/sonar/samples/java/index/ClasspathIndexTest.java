@@ -0,0 +1,154 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.samples.java.checks.CheckVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClasspathIndexTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @After
+  public void restore_the_empty_index() {
+    ClasspathIndex.use(ClasspathIndex.EMPTY);
+  }
+
+  @Test
+  public void answers_about_the_classes_of_the_test_jars() throws IOException {
+    List<Path> jars = CheckVerifier.classpath().stream().map(File::toPath).collect(Collectors.toList());
+    jars.add(fixtureJar());
+
+    ClasspathIndex index = ClasspathIndex.ofJars(jars);
+
+    assertThat(index.jarCount()).isEqualTo(jars.size());
+    assertThat(index.size()).isGreaterThan(1000);
+    assertThat(index.isSubtypeOf("org.springframework.data.jpa.repository.support.SimpleJpaRepository",
+      "org.springframework.data.repository.CrudRepository")).isTrue();
+    assertThat(index.isSubtypeOf("org.springframework.web.servlet.DispatcherServlet", "javax.servlet.Servlet")).isTrue();
+    assertThat(index.isSubtypeOf("org.springframework.web.servlet.DispatcherServlet", "org.springframework.data.repository.Repository")).isFalse();
+    assertThat(index.supertypes("org.springframework.web.servlet.DispatcherServlet")).containsExactly("org.springframework.web.servlet.FrameworkServlet");
+    assertThat(index.kindOf("fixture.Customer")).isEqualTo(EntityKind.ENTITY);
+    assertThat(index.kindOf("fixture.Address")).isEqualTo(EntityKind.EMBEDDABLE);
+    assertThat(index.kindOf("fixture.Customer$Id")).isNull();
+    // extends Object only and carries no entity annotation
+    assertThat(index.contains("fixture.Person")).isFalse();
+    assertThat(index.supertypes("fixture.Person")).isEmpty();
+  }
+
+  @Test
+  public void the_sensor_stores_the_index_of_each_jar_and_reads_it_back() throws IOException {
+    Path fixture = fixtureJar();
+    SensorContextTester context = sensorContext(fixture);
+    Path store = context.fileSystem().workDir().toPath().resolve(JarIndexStore.DIRECTORY_NAME);
+    Path stale = JarIndexStore.file(store, "stale");
+    Files.createDirectories(store);
+    Files.write(stale, new byte[] {1, 2, 3});
+
+    new ClasspathIndexSensor().execute(context);
+
+    assertThat(ClasspathIndex.current().kindOf("fixture.Customer")).isEqualTo(EntityKind.ENTITY);
+    String checksum = MappedJar.open(fixture).checksum();
+    assertThat(stored(store)).containsExactly(JarIndexStore.file(store, checksum));
+
+    // read from the store by another JVM: the jar itself no longer needs to be read
+    JarIndex storedIndex = JarIndexStore.read(store, checksum);
+    List<IndexedClass> classes = new ArrayList<>(storedIndex.classes);
+    classes.add(new IndexedClass("fixture.FromTheStore", EntityKind.DOCUMENT, null, new ArrayList<>()));
+    JarIndexStore.write(store, new JarIndex(checksum, classes));
+    ClasspathIndex.use(ClasspathIndex.EMPTY);
+
+    new ClasspathIndexSensor().execute(context);
+
+    assertThat(ClasspathIndex.current().kindOf("fixture.FromTheStore")).isEqualTo(EntityKind.DOCUMENT);
+  }
+
+  @Test
+  public void the_sensor_indexes_again_a_jar_whose_stored_index_is_corrupted() throws IOException {
+    Path fixture = fixtureJar();
+    SensorContextTester context = sensorContext(fixture);
+    Path store = context.fileSystem().workDir().toPath().resolve(JarIndexStore.DIRECTORY_NAME);
+    Path file = JarIndexStore.file(store, MappedJar.open(fixture).checksum());
+    Files.createDirectories(store);
+    Files.write(file, "corrupted".getBytes(StandardCharsets.US_ASCII));
+
+    new ClasspathIndexSensor().execute(context);
+
+    assertThat(ClasspathIndex.current().kindOf("fixture.Customer")).isEqualTo(EntityKind.ENTITY);
+    assertThat(JarIndexStore.read(store, MappedJar.open(fixture).checksum()).classes).hasSize(3);
+  }
+
+  @Test
+  public void the_sensor_leaves_out_the_libraries_which_are_not_jars() throws IOException {
+    Path broken = temp.newFile("broken.jar").toPath();
+    Files.write(broken, "not a jar".getBytes(StandardCharsets.US_ASCII));
+    Path fixture = fixtureJar();
+
+    new ClasspathIndexSensor().execute(sensorContext(broken, fixture));
+
+    assertThat(ClasspathIndex.current().jarCount()).isEqualTo(1);
+    assertThat(ClasspathIndex.current().kindOf("fixture.Customer")).isEqualTo(EntityKind.ENTITY);
+  }
+
+  private Path fixtureJar() throws IOException {
+    Path classes = IndexFixture.compile(temp);
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    for (String name : new String[] {"fixture.Address", "fixture.Customer", "fixture.Customer$Id", "fixture.Person"}) {
+      entries.put(name.replace('.', '/') + ".class", IndexFixture.classFile(classes, name));
+    }
+    return IndexFixture.jar(temp, entries, true);
+  }
+
+  private SensorContextTester sensorContext(Path... libraries) throws IOException {
+    SensorContextTester context = SensorContextTester.create(temp.newFolder());
+    context.fileSystem().setWorkDir(temp.newFolder().toPath());
+    MapSettings settings = new MapSettings();
+    settings.setProperty(ClasspathIndexSensor.LIBRARIES_KEY,
+      Arrays.stream(libraries).map(Path::toString).collect(Collectors.joining(",")));
+    context.setSettings(settings);
+    return context;
+  }
+
+  private static List<Path> stored(Path store) throws IOException {
+    try (Stream<Path> files = Files.list(store)) {
+      return files.collect(Collectors.toList());
+    }
+  }
+}
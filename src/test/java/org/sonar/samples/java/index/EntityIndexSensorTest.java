@@ -0,0 +1,206 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.config.internal.MapSettings;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EntityIndexSensorTest {
+
+  private static final String ORDER = "src/test/files/EntityIndex/Order.java";
+  private static final String CUSTOMER = "package org.example.model;\n"
+    + "import javax.persistence.Entity;\n"
+    + "@Entity\n"
+    + "public class Customer {\n"
+    + "}\n";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File baseDir;
+  private Path workDir;
+  private Path store;
+
+  @Before
+  public void setUp() throws IOException {
+    baseDir = temp.newFolder("project");
+    workDir = temp.newFolder("work").toPath();
+    store = workDir.resolve(EntityIndexStore.FILE_NAME);
+  }
+
+  @After
+  public void restore_the_empty_index() {
+    EntityIndex.use(EntityIndex.EMPTY);
+  }
+
+  @Test
+  public void indexes_the_main_files_and_stores_them() throws IOException {
+    InputFile order = copy(ORDER, "Order.java");
+    InputFile customer = write("Customer.java", CUSTOMER);
+
+    execute(order, customer);
+
+    EntityIndex index = EntityIndex.current();
+    assertThat(index.size()).isEqualTo(5);
+    assertThat(index.kindOf("org.example.model.Order")).isEqualTo(EntityKind.ENTITY);
+    assertThat(index.kindOf("org.example.model.Order$Line")).isEqualTo(EntityKind.EMBEDDABLE);
+    assertThat(index.kindOf("org.example.model.Customer")).isEqualTo(EntityKind.ENTITY);
+    assertThat(index.kindOf("org.example.model.NotAnEntity")).isNull();
+    Map<String, IndexedFile> stored = EntityIndexStore.read(store);
+    assertThat(stored).containsOnlyKeys(order.uri().toString(), customer.uri().toString());
+    assertThat(stored.get(customer.uri().toString()).size).isEqualTo(CUSTOMER.length());
+  }
+
+  @Test
+  public void can_be_disabled() throws IOException {
+    InputFile customer = write("Customer.java", CUSTOMER);
+    EntityIndex.use(EntityIndex.of(Collections.emptyList()));
+
+    SensorContextTester context = context(customer);
+    context.setSettings(new MapSettings().setProperty(EntityIndexSensor.ENABLED_KEY, "false"));
+    new EntityIndexSensor().execute(context);
+
+    assertThat(EntityIndex.current()).isSameAs(EntityIndex.EMPTY);
+    assertThat(Files.exists(store)).isFalse();
+  }
+
+  @Test
+  public void trusts_the_stored_entry_of_an_unchanged_file_and_scans_a_changed_one_again() throws IOException {
+    InputFile customer = write("Customer.java", CUSTOMER);
+    Path file = customer.path();
+    long size = Files.size(file);
+    long lastModified = Files.getLastModifiedTime(file).toMillis();
+    // an entry that scanning the file would not give, to tell whether it was read again
+    storeEntry(customer, size, lastModified, "Stored");
+
+    execute(customer);
+
+    assertThat(EntityIndex.current().kindOf("org.example.model.Stored")).isEqualTo(EntityKind.DOCUMENT);
+    assertThat(EntityIndex.current().kindOf("org.example.model.Customer")).isNull();
+
+    Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified - 60_000L));
+    execute(customer);
+
+    assertThat(EntityIndex.current().kindOf("org.example.model.Stored")).isNull();
+    assertThat(EntityIndex.current().kindOf("org.example.model.Customer")).isEqualTo(EntityKind.ENTITY);
+    IndexedFile rescanned = EntityIndexStore.read(store).get(customer.uri().toString());
+    assertThat(rescanned.lastModified).isEqualTo(lastModified - 60_000L);
+    assertThat(rescanned.content.declarations).extracting(declaration -> declaration.name).containsExactly("Customer");
+  }
+
+  @Test
+  public void a_stored_entry_of_another_size_is_scanned_again() throws IOException {
+    InputFile customer = write("Customer.java", CUSTOMER);
+    storeEntry(customer, Files.size(customer.path()) + 1, Files.getLastModifiedTime(customer.path()).toMillis(), "Stored");
+
+    execute(customer);
+
+    assertThat(EntityIndex.current().kindOf("org.example.model.Stored")).isNull();
+    assertThat(EntityIndex.current().kindOf("org.example.model.Customer")).isEqualTo(EntityKind.ENTITY);
+  }
+
+  @Test
+  public void rebuilds_a_store_that_cannot_be_read() throws IOException {
+    InputFile customer = write("Customer.java", CUSTOMER);
+    Files.write(store, "not an index".getBytes(StandardCharsets.UTF_8));
+
+    execute(customer);
+
+    assertThat(EntityIndex.current().kindOf("org.example.model.Customer")).isEqualTo(EntityKind.ENTITY);
+    assertThat(EntityIndexStore.read(store)).containsOnlyKeys(customer.uri().toString());
+  }
+
+  @Test
+  public void rebuilds_a_store_that_cannot_be_read_even_without_files() throws IOException {
+    Files.write(store, "not an index".getBytes(StandardCharsets.UTF_8));
+
+    execute();
+
+    assertThat(EntityIndex.current().size()).isZero();
+    assertThat(EntityIndexStore.read(store)).isEmpty();
+  }
+
+  @Test
+  public void keeps_the_stored_files_left_out_of_the_analysis_while_they_exist() throws IOException {
+    InputFile order = copy(ORDER, "Order.java");
+    InputFile customer = write("Customer.java", CUSTOMER);
+    execute(order, customer);
+
+    execute(customer);
+
+    assertThat(EntityIndex.current().kindOf("org.example.model.Order")).isEqualTo(EntityKind.ENTITY);
+    assertThat(EntityIndexStore.read(store)).containsOnlyKeys(order.uri().toString(), customer.uri().toString());
+
+    Files.delete(order.path());
+    execute(customer);
+
+    assertThat(EntityIndex.current().kindOf("org.example.model.Order")).isNull();
+    assertThat(EntityIndex.current().kindOf("org.example.model.Customer")).isEqualTo(EntityKind.ENTITY);
+    assertThat(EntityIndexStore.read(store)).containsOnlyKeys(customer.uri().toString());
+  }
+
+  private void storeEntry(InputFile inputFile, long size, long lastModified, String name) throws IOException {
+    EntityIndexStore.write(store, Collections.singletonList(new IndexedFile(inputFile.uri().toString(), size, lastModified,
+      new IndexedFile.Content("org.example.model", Collections.singletonList(new IndexedFile.Declaration(EntityKind.DOCUMENT, name))))));
+  }
+
+  private void execute(InputFile... inputFiles) {
+    new EntityIndexSensor().execute(context(inputFiles));
+  }
+
+  private SensorContextTester context(InputFile... inputFiles) {
+    SensorContextTester context = SensorContextTester.create(baseDir);
+    context.fileSystem().setWorkDir(workDir);
+    Arrays.stream(inputFiles).forEach(context.fileSystem()::add);
+    return context;
+  }
+
+  private InputFile copy(String source, String name) throws IOException {
+    return write(name, new String(Files.readAllBytes(new File(source).toPath()), StandardCharsets.UTF_8));
+  }
+
+  private InputFile write(String name, String content) throws IOException {
+    File file = new File(baseDir, name);
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return TestInputFileBuilder.create("module", baseDir, file)
+      .setLanguage("java")
+      .setCharset(StandardCharsets.UTF_8)
+      .initMetadata(content)
+      .build();
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class EntityIndexStoreTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void reads_back_what_it_wrote() throws IOException {
+    Path store = temp.getRoot().toPath().resolve("work").resolve(EntityIndexStore.FILE_NAME);
+    IndexedFile order = new IndexedFile("file:/src/Order.java", 1234L, 1500000000123L, new IndexedFile.Content("org.example.model", Arrays.asList(
+      new IndexedFile.Declaration(EntityKind.ENTITY, "Order"),
+      new IndexedFile.Declaration(EntityKind.EMBEDDABLE, "Order$Line"),
+      new IndexedFile.Declaration(EntityKind.DOCUMENT, "Order$Plain$Audit"))));
+    IndexedFile plain = new IndexedFile("file:/src/Plain.java", 0L, 0L, new IndexedFile.Content("", Collections.emptyList()));
+    IndexedFile accented = new IndexedFile("file:/src/Prix%C3%A9.java", 42L, -1L, new IndexedFile.Content("fr.café",
+      Collections.singletonList(new IndexedFile.Declaration(EntityKind.ENTITY, "Prixé"))));
+
+    EntityIndexStore.write(store, Arrays.asList(order, plain, accented));
+    Map<String, IndexedFile> read = EntityIndexStore.read(store);
+
+    assertThat(read).containsOnlyKeys(order.path, plain.path, accented.path);
+    assertSame(read.get(order.path), order);
+    assertSame(read.get(plain.path), plain);
+    assertSame(read.get(accented.path), accented);
+    assertThat(Files.exists(store.resolveSibling(EntityIndexStore.FILE_NAME + ".tmp"))).isFalse();
+  }
+
+  @Test
+  public void a_missing_store_is_empty() throws IOException {
+    assertThat(EntityIndexStore.read(temp.getRoot().toPath().resolve(EntityIndexStore.FILE_NAME))).isEmpty();
+  }
+
+  @Test
+  public void a_store_that_cannot_be_read_is_an_error() throws IOException {
+    Path store = temp.getRoot().toPath().resolve(EntityIndexStore.FILE_NAME);
+    EntityIndexStore.write(store, Collections.singletonList(new IndexedFile("file:/src/Order.java", 1L, 2L,
+      new IndexedFile.Content("p", Collections.singletonList(new IndexedFile.Declaration(EntityKind.ENTITY, "Order"))))));
+    byte[] valid = Files.readAllBytes(store);
+
+    Files.write(store, Arrays.copyOf(valid, valid.length - 3));
+    assertUnreadable(store, null);
+
+    byte[] otherMagic = valid.clone();
+    otherMagic[0] = 'X';
+    Files.write(store, otherMagic);
+    assertUnreadable(store, "Not an entity index");
+
+    byte[] otherVersion = valid.clone();
+    otherVersion[7] = 2;
+    Files.write(store, otherVersion);
+    assertUnreadable(store, "Unsupported entity index version 2, expected 1");
+
+    Files.write(store, header(1, "file:/src/Order.java", 99));
+    assertUnreadable(store, "Unknown entity kind 99");
+  }
+
+  private static byte[] header(int count, String path, int kind) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.write(new byte[] {'P', 'F', 'E', 'E'});
+    out.writeInt(1);
+    out.writeInt(count);
+    out.writeUTF(path);
+    out.writeLong(1L);
+    out.writeLong(2L);
+    out.writeUTF("p");
+    out.writeShort(1);
+    out.writeByte(kind);
+    out.writeUTF("Order");
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private static void assertUnreadable(Path store, String message) {
+    try {
+      EntityIndexStore.read(store);
+      fail("The store should not be readable");
+    } catch (IOException e) {
+      if (message != null) {
+        assertThat(e.getMessage()).contains(message);
+      }
+    }
+  }
+
+  private static void assertSame(IndexedFile actual, IndexedFile expected) {
+    assertThat(actual.path).isEqualTo(expected.path);
+    assertThat(actual.size).isEqualTo(expected.size);
+    assertThat(actual.lastModified).isEqualTo(expected.lastModified);
+    assertThat(actual.content.packageName).isEqualTo(expected.content.packageName);
+    assertThat(actual.content.declarations).hasSameSizeAs(expected.content.declarations);
+    for (int i = 0; i < expected.content.declarations.size(); i++) {
+      assertThat(actual.content.declarations.get(i).kind).isEqualTo(expected.content.declarations.get(i).kind);
+      assertThat(actual.content.declarations.get(i).name).isEqualTo(expected.content.declarations.get(i).name);
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EntitySourceScannerTest {
+
+  @Test
+  public void finds_the_entity_types_declared_by_a_file() throws IOException {
+    String source = new String(Files.readAllBytes(Paths.get("src/test/files/EntityIndex/Order.java")), StandardCharsets.UTF_8);
+
+    IndexedFile.Content content = EntitySourceScanner.scan(source);
+
+    assertThat(content.packageName).isEqualTo("org.example.model");
+    // nothing from the comments, the literals, the enum, the plain classes or the annotated method
+    assertThat(describe(content)).containsExactly(
+      "ENTITY org.example.model.Order",
+      "EMBEDDABLE org.example.model.Order$Line",
+      "DOCUMENT org.example.model.Order$Plain$Audit",
+      "EMBEDDABLE org.example.model.Amount");
+  }
+
+  @Test
+  public void resolves_the_annotations_through_the_imports_only() {
+    assertThat(describe(EntitySourceScanner.scan("@Entity class Unresolved {}"))).isEmpty();
+    assertThat(describe(EntitySourceScanner.scan("import javax.persistence.Entity;\n@Entity class Default {}")))
+      .containsExactly("ENTITY Default");
+    assertThat(describe(EntitySourceScanner.scan("import com.example.Entity;\nimport javax.persistence.*;\n@Entity class Other {}")))
+      .isEmpty();
+    assertThat(describe(EntitySourceScanner.scan("package a.b;\n@org.springframework.data.elasticsearch.annotations.Document interface Indexed {}")))
+      .containsExactly("DOCUMENT a.b.Indexed");
+  }
+
+  @Test
+  public void survives_an_incomplete_source() {
+    assertThat(describe(EntitySourceScanner.scan("package p; import javax.persistence.Entity; @Entity class Open { String s = \"unterminated"))).containsExactly("ENTITY p.Open");
+    assertThat(describe(EntitySourceScanner.scan("package p; import javax.persistence.Entity; @Entity class Open { } }}} @Entity class"))).containsExactly("ENTITY p.Open");
+    assertThat(EntitySourceScanner.scan("").declarations).isEmpty();
+  }
+
+  private static List<String> describe(IndexedFile.Content content) {
+    return content.declarations.stream().map(declaration -> declaration.kind + " " + content.fullyQualifiedName(declaration))
+      .collect(Collectors.toList());
+  }
+}
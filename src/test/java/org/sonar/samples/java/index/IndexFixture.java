@@ -0,0 +1,108 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.tools.ToolProvider;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.samples.java.checks.CheckVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Classes of {@code src/test/files/ClasspathIndex}, compiled against the jars of {@code target/test-jars}, and jars
+ * made of them.
+ */
+final class IndexFixture {
+
+  private static final Path SOURCES = Paths.get("src/test/files/ClasspathIndex");
+
+  private IndexFixture() {
+  }
+
+  /**
+   * Compiles the fixture into a new folder.
+   *
+   * @return the folder of the class files
+   */
+  static Path compile(TemporaryFolder temp) throws IOException {
+    Path classes = temp.newFolder().toPath();
+    String classpath = CheckVerifier.classpath().stream().map(File::getPath).collect(Collectors.joining(File.pathSeparator));
+    Stream<String> arguments = Stream.of("-d", classes.toString(), "-cp", classpath, "-encoding", "UTF-8");
+    String[] sources;
+    try (Stream<Path> paths = Files.walk(SOURCES)) {
+      sources = paths.filter(path -> path.toString().endsWith(".java")).map(Path::toString).toArray(String[]::new);
+    }
+    String[] all = Stream.concat(arguments, Stream.of(sources)).toArray(String[]::new);
+    assertThat(ToolProvider.getSystemJavaCompiler().run(null, null, null, all)).as("compilation of the fixture").isZero();
+    return classes;
+  }
+
+  static byte[] classFile(Path classes, String name) throws IOException {
+    return Files.readAllBytes(classes.resolve(name.replace('.', '/') + ".class"));
+  }
+
+  static byte[] readAll(InputStream stream) throws IOException {
+    try (InputStream in = stream) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    }
+  }
+
+  /**
+   * Writes a jar of the given entries, deflated or stored.
+   */
+  static Path jar(TemporaryFolder temp, Map<String, byte[]> entries, boolean deflated) throws IOException {
+    Path jar = temp.newFile().toPath();
+    try (OutputStream stream = Files.newOutputStream(jar); ZipOutputStream out = new ZipOutputStream(stream)) {
+      out.setMethod(deflated ? ZipOutputStream.DEFLATED : ZipOutputStream.STORED);
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        ZipEntry zipEntry = new ZipEntry(entry.getKey());
+        if (!deflated) {
+          CRC32 crc = new CRC32();
+          crc.update(entry.getValue());
+          zipEntry.setSize(entry.getValue().length);
+          zipEntry.setCrc(crc.getValue());
+        }
+        out.putNextEntry(zipEntry);
+        out.write(entry.getValue());
+        out.closeEntry();
+      }
+    }
+    return jar;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.samples.java.checks.CheckVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class JarIndexStoreTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void reads_back_the_index_it_wrote() throws IOException {
+    Path directory = temp.newFolder().toPath();
+    for (Path jar : CheckVerifier.classpath().stream().map(File::toPath).collect(Collectors.toList())) {
+      MappedJar mapped = MappedJar.open(jar);
+      JarIndex index = new JarIndex(mapped.checksum(), mapped.classes());
+
+      JarIndexStore.write(directory, index);
+      JarIndex read = JarIndexStore.read(directory, index.checksum);
+
+      assertThat(read.checksum).isEqualTo(index.checksum);
+      assertThat(describe(read)).as(jar.getFileName().toString()).isEqualTo(describe(index)).isNotEmpty();
+    }
+  }
+
+  @Test
+  public void keeps_the_entity_kinds_and_the_names_beyond_ascii() throws IOException {
+    Path directory = temp.newFolder().toPath();
+    JarIndex index = new JarIndex("checksum", Arrays.asList(
+      new IndexedClass("fixture.Entité", EntityKind.ENTITY, "fixture.Personne", Arrays.asList("java.io.Serializable", "fixture.Marqué")),
+      new IndexedClass("fixture.Adresse", EntityKind.EMBEDDABLE, null, Collections.emptyList()),
+      new IndexedClass("fixture.Document", EntityKind.DOCUMENT, null, Collections.singletonList("java.io.Serializable")),
+      new IndexedClass("fixture.Simple", null, "fixture.Personne", Collections.emptyList())));
+
+    JarIndexStore.write(directory, index);
+
+    assertThat(describe(JarIndexStore.read(directory, "checksum"))).isEqualTo(describe(index));
+    assertThat(JarIndexStore.checksum(JarIndexStore.file(directory, "checksum"))).isEqualTo("checksum");
+    try (Stream<Path> files = Files.list(directory)) {
+      // no temporary file left behind
+      assertThat(files.collect(Collectors.toList())).containsExactly(JarIndexStore.file(directory, "checksum"));
+    }
+  }
+
+  @Test
+  public void has_no_index_of_a_jar_never_stored() throws IOException {
+    Path directory = temp.newFolder().toPath();
+
+    assertThat(JarIndexStore.read(directory, "checksum")).isNull();
+    assertThat(JarIndexStore.checksum(directory.resolve("checksum.bin.tmp"))).isNull();
+  }
+
+  @Test
+  public void rejects_a_file_truncated_corrupted_or_of_another_version() throws IOException {
+    Path directory = temp.newFolder().toPath();
+    JarIndex index = new JarIndex("checksum", Collections.singletonList(
+      new IndexedClass("fixture.Customer", EntityKind.ENTITY, "fixture.Person", Collections.emptyList())));
+    JarIndexStore.write(directory, index);
+    Path file = JarIndexStore.file(directory, "checksum");
+    byte[] bytes = Files.readAllBytes(file);
+
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+    assertUnreadable(directory, null);
+
+    byte[] corrupted = bytes.clone();
+    corrupted[0] = 0;
+    Files.write(file, corrupted);
+    assertUnreadable(directory, "Not a class path index: " + file);
+
+    byte[] otherVersion = bytes.clone();
+    otherVersion[7] = 9;
+    Files.write(file, otherVersion);
+    assertUnreadable(directory, "Unsupported class path index version 9, expected 1");
+  }
+
+  private static void assertUnreadable(Path directory, String message) {
+    try {
+      JarIndexStore.read(directory, "checksum");
+      fail("Read a broken index");
+    } catch (IOException e) {
+      if (message != null) {
+        assertThat(e).hasMessage(message);
+      }
+    }
+  }
+
+  private static List<String> describe(JarIndex index) {
+    return index.classes.stream().map(indexed -> indexed.name + " " + indexed.kind + " " + indexed.superName + " " + indexed.interfaces)
+      .collect(Collectors.toList());
+  }
+}
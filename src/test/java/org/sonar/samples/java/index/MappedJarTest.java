@@ -0,0 +1,174 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.samples.java.checks.CheckVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class MappedJarTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void reads_the_classes_of_the_test_jars_as_the_jar_file_api_does() throws IOException {
+    List<File> jars = CheckVerifier.classpath();
+    assertThat(jars).isNotEmpty();
+    for (File file : jars) {
+      List<String> mapped = describe(MappedJar.open(file.toPath()).classes());
+
+      assertThat(mapped).as(file.getName()).isEqualTo(describe(readWithJarFile(file)));
+    }
+  }
+
+  @Test
+  public void reads_stored_and_deflated_entries() throws IOException {
+    Map<String, byte[]> entries = fixtureEntries(IndexFixture.compile(temp));
+
+    for (boolean deflated : new boolean[] {true, false}) {
+      List<IndexedClass> classes = MappedJar.open(IndexFixture.jar(temp, entries, deflated)).classes();
+
+      // the class extending Object only is left out
+      assertThat(classes).extracting(indexed -> indexed.name).containsExactly("fixture.Address", "fixture.Customer", "fixture.Customer$Id");
+      assertThat(classes).extracting(indexed -> indexed.kind).containsExactly(EntityKind.EMBEDDABLE, EntityKind.ENTITY, null);
+    }
+  }
+
+  @Test
+  public void leaves_out_the_entries_which_are_not_valid_class_files() throws IOException {
+    Path classes = IndexFixture.compile(temp);
+    byte[] customer = IndexFixture.classFile(classes, "fixture.Customer");
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    entries.put("fixture/Truncated.class", Arrays.copyOf(customer, customer.length / 2));
+    entries.put("fixture/Customer.class", customer);
+    entries.put("fixture/Text.class", "not a class file".getBytes(StandardCharsets.US_ASCII));
+    entries.put("fixture/Empty.class", new byte[0]);
+    entries.put("META-INF/versions/9/fixture/Customer.class", customer);
+    entries.put("fixture/module-info.class", customer);
+
+    List<IndexedClass> indexed = MappedJar.open(IndexFixture.jar(temp, entries, true)).classes();
+
+    assertThat(indexed).extracting(indexedClass -> indexedClass.name).containsExactly("fixture.Customer");
+  }
+
+  @Test
+  public void identifies_a_jar_by_its_content() throws IOException {
+    Map<String, byte[]> entries = fixtureEntries(IndexFixture.compile(temp));
+    Path jar = IndexFixture.jar(temp, entries, true);
+    Path copy = temp.newFolder().toPath().resolve("copy.jar");
+    Files.copy(jar, copy);
+    entries.remove("fixture/Address.class");
+    Path other = IndexFixture.jar(temp, entries, true);
+
+    String checksum = MappedJar.open(jar).checksum();
+
+    assertThat(MappedJar.open(copy).checksum()).isEqualTo(checksum);
+    assertThat(MappedJar.open(other).checksum()).isNotEqualTo(checksum);
+  }
+
+  @Test
+  public void rejects_a_file_which_is_not_a_jar() throws IOException {
+    Path text = temp.newFile("text.jar").toPath();
+    Files.write(text, "not a jar".getBytes(StandardCharsets.US_ASCII));
+    try {
+      MappedJar.open(text);
+      fail("Opened a text file as a jar");
+    } catch (IOException e) {
+      assertThat(e.getMessage()).startsWith("Not a zip archive");
+    }
+  }
+
+  @Test
+  public void rejects_a_jar_with_a_corrupted_directory() throws IOException {
+    Path jar = IndexFixture.jar(temp, fixtureEntries(IndexFixture.compile(temp)), true);
+    byte[] bytes = Files.readAllBytes(jar);
+    // the signature of the last entry of the central directory
+    int lastEntry = lastIndexOf(bytes, new byte[] {0x50, 0x4b, 0x01, 0x02});
+    bytes[lastEntry] = 0;
+    Files.write(jar, bytes);
+
+    MappedJar mapped = MappedJar.open(jar);
+    try {
+      mapped.classes();
+      fail("Read a corrupted central directory");
+    } catch (IOException e) {
+      assertThat(e.getMessage()).startsWith("Invalid central directory entry");
+    }
+  }
+
+  private static Map<String, byte[]> fixtureEntries(Path classes) throws IOException {
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    for (String name : Arrays.asList("fixture.Address", "fixture.Customer", "fixture.Customer$Id", "fixture.Person")) {
+      entries.put(name.replace('.', '/') + ".class", IndexFixture.classFile(classes, name));
+    }
+    return entries;
+  }
+
+  private static List<IndexedClass> readWithJarFile(File file) throws IOException {
+    List<IndexedClass> classes = new ArrayList<>();
+    try (JarFile jar = new JarFile(file)) {
+      for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements();) {
+        JarEntry entry = entries.nextElement();
+        String name = entry.getName();
+        if (name.endsWith(".class") && !name.startsWith("META-INF/") && !name.endsWith("package-info.class") && !name.endsWith("module-info.class")) {
+          byte[] bytes = IndexFixture.readAll(jar.getInputStream(entry));
+          IndexedClass indexed = ClassFileReader.read(bytes, bytes.length);
+          if (indexed.isRelevant()) {
+            classes.add(indexed);
+          }
+        }
+      }
+    }
+    return classes;
+  }
+
+  private static List<String> describe(List<IndexedClass> classes) {
+    return classes.stream().map(indexed -> indexed.name + " " + indexed.kind + " " + indexed.superName + " " + indexed.interfaces)
+      .collect(Collectors.toList());
+  }
+
+  private static int lastIndexOf(byte[] bytes, byte[] pattern) {
+    for (int i = bytes.length - pattern.length; i >= 0; i--) {
+      if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + pattern.length), pattern)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Pattern not found");
+  }
+}
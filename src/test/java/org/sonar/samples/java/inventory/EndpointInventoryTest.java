@@ -0,0 +1,147 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.inventory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.samples.java.checks.CheckVerifier;
+import org.sonar.samples.java.checks.HttpStatusConsistencyRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EndpointInventoryTest {
+
+  private static final String CONTROLLERS = "src/test/files/EndpointInventory/OrderController.java";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @After
+  public void close_the_inventory() {
+    EndpointInventory.finish();
+  }
+
+  @Test
+  public void records_the_mapping_and_the_statuses_of_each_handler() throws IOException {
+    Path file = temp.getRoot().toPath().resolve("inventory/endpoints.jsonl");
+    EndpointInventory.start(file);
+
+    CheckVerifier.issues(CONTROLLERS, new HttpStatusConsistencyRule());
+
+    assertThat(EndpointInventory.finish()).isEqualTo(9);
+    Map<String, JsonObject> endpoints = endpointsByHandler(file);
+    // other() is no handler
+    assertThat(endpoints.keySet()).containsExactly(
+      "OrderController.get", "OrderController.create", "OrderController.update", "OrderController.items", "OrderController.delete",
+      "AdminController.index", "AdminController.status", "HealthController.health",
+      "HealthController.root");
+
+    JsonObject get = endpoints.get("OrderController.get");
+    assertThat(get.get("file").getAsString()).endsWith("OrderController.java");
+    assertThat(get.get("line").getAsInt()).isEqualTo(25);
+    assertThat(get.get("controller").getAsString()).isEqualTo("org.example.web.OrderController");
+    assertEndpoint(get, "[GET]", "[/api/orders/{id}]", "[200]", "[404]", "[]", 0);
+    // the statuses of the catch blocks are apart, the builder calls after status() keep it
+    assertEndpoint(endpoints.get("OrderController.create"), "[POST]", "[/api/orders]", "[201]", "[]", "[400, 503]", 0);
+    // several paths and methods, a statically imported status in parentheses
+    assertEndpoint(endpoints.get("OrderController.update"), "[PUT, PATCH]", "[/api/orders/a, /api/orders/b]", "[202]", "[]", "[]", 0);
+    // a path built from constants, any method, the return of the lambda left out and the call of other() unresolved
+    assertEndpoint(endpoints.get("OrderController.items"), "[]", "[/api/orders/v1/items]", "[204]", "[]", "[]", 1);
+    // a constant of another file
+    assertEndpoint(endpoints.get("OrderController.delete"), "[DELETE]", "[/api/orders/*]", "[]", "[500]", "[]", 0);
+    // every path of the class mapping prefixes the path of the method, which may have none
+    assertEndpoint(endpoints.get("AdminController.index"), "[GET]", "[/admin, /internal]", "[200]", "[]", "[]", 0);
+    assertEndpoint(endpoints.get("AdminController.status"), "[PATCH]", "[/admin/status, /internal/status]", "[200]", "[]", "[]", 0);
+    assertEndpoint(endpoints.get("HealthController.health"), "[GET]", "[/health]", "[200]", "[]", "[]", 0);
+    // a mapping without path or method, returning no ResponseEntity
+    assertEndpoint(endpoints.get("HealthController.root"), "[]", "[/]", "[]", "[]", "[]", 1);
+  }
+
+  @Test
+  public void records_nothing_when_disabled() throws IOException {
+    Path file = temp.getRoot().toPath().resolve("endpoints.jsonl");
+    EndpointInventory.configure(new MapSettings().asConfig());
+
+    CheckVerifier.issues(CONTROLLERS, new HttpStatusConsistencyRule());
+
+    assertThat(EndpointInventory.current().isEnabled()).isFalse();
+    assertThat(EndpointInventory.finish()).isZero();
+    assertThat(Files.exists(file)).isFalse();
+  }
+
+  @Test
+  public void writes_to_the_configured_file_until_the_reporter_closes_it() throws IOException {
+    Path file = temp.getRoot().toPath().resolve("configured/endpoints.jsonl");
+    EndpointInventory.configure(new MapSettings()
+      .setProperty(EndpointInventory.ENABLED_KEY, "true")
+      .setProperty(EndpointInventory.FILE_KEY, file.toString())
+      .asConfig());
+    assertThat(EndpointInventory.current().file()).isEqualTo(file);
+
+    CheckVerifier.issues(CONTROLLERS, new HttpStatusConsistencyRule());
+    new EndpointInventoryReporter().execute(null);
+
+    assertThat(EndpointInventory.current().isEnabled()).isFalse();
+    assertThat(Files.readAllLines(file, StandardCharsets.UTF_8)).hasSize(9);
+  }
+
+  private static void assertEndpoint(JsonObject endpoint, String httpMethods, String paths, String successStatuses, String errorStatuses,
+    String catchStatuses, int unresolvedReturns) {
+    assertThat(strings(endpoint.getAsJsonArray("httpMethods"))).hasToString(httpMethods);
+    assertThat(strings(endpoint.getAsJsonArray("paths"))).hasToString(paths);
+    assertThat(strings(endpoint.getAsJsonArray("successStatuses"))).hasToString(successStatuses);
+    assertThat(strings(endpoint.getAsJsonArray("errorStatuses"))).hasToString(errorStatuses);
+    assertThat(strings(endpoint.getAsJsonArray("catchStatuses"))).hasToString(catchStatuses);
+    assertThat(endpoint.get("unresolvedReturns").getAsInt()).isEqualTo(unresolvedReturns);
+  }
+
+  private static Map<String, JsonObject> endpointsByHandler(Path file) throws IOException {
+    Map<String, JsonObject> endpoints = new LinkedHashMap<>();
+    for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+      JsonObject endpoint = new JsonParser().parse(line).getAsJsonObject();
+      String controller = endpoint.get("controller").getAsString();
+      endpoints.put(controller.substring(controller.lastIndexOf('.') + 1) + "." + endpoint.get("handler").getAsString(), endpoint);
+    }
+    return endpoints;
+  }
+
+  private static List<String> strings(JsonArray array) {
+    List<String> strings = new ArrayList<>();
+    for (JsonElement element : array) {
+      strings.add(element.getAsString());
+    }
+    return strings;
+  }
+}
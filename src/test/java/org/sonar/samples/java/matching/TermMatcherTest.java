@@ -0,0 +1,76 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.matching;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TermMatcherTest {
+
+  @Test
+  public void finds_all_the_overlapping_terms() {
+    TermMatcher matcher = TermMatcher.of(Arrays.asList("he", "she", "his", "hers"));
+
+    assertThat(indices(matcher.findAll("ushers"))).containsExactly(0, 1, 3);
+    assertThat(matcher.find("ushers")).isEqualTo(1);
+  }
+
+  @Test
+  public void finds_the_terms_that_are_suffixes_of_another() {
+    TermMatcher matcher = TermMatcher.of(Arrays.asList("mybrand", "brand", "d", "and"));
+
+    assertThat(indices(matcher.findAll("getMyBrand"))).containsExactly(0, 1, 2, 3);
+    assertThat(indices(matcher.findAll("getBrand"))).containsExactly(1, 2, 3);
+    assertThat(indices(matcher.findAll("getAnd"))).containsExactly(2, 3);
+  }
+
+  @Test
+  public void terms_differing_only_in_case_are_one_term() {
+    TermMatcher matcher = TermMatcher.of(Arrays.asList("Foo", " foo ", "FOO", "bar"));
+
+    assertThat(matcher.terms()).containsExactly("Foo", "bar");
+    assertThat(indices(matcher.findAll("fOo.BAR"))).containsExactly(0, 1);
+    assertThat(matcher.term(matcher.find("xfoox"))).isEqualTo("Foo");
+  }
+
+  @Test
+  public void blank_terms_are_ignored() {
+    TermMatcher matcher = TermMatcher.ofCommaSeparated(" , acme,, ");
+
+    assertThat(matcher.terms()).containsExactly("acme");
+    assertThat(TermMatcher.ofCommaSeparated(" , ").matches("anything")).isFalse();
+  }
+
+  @Test
+  public void no_term_found() {
+    TermMatcher matcher = TermMatcher.of(Arrays.asList("he", "she"));
+
+    assertThat(matcher.find("xyz")).isEqualTo(TermMatcher.NO_MATCH);
+    assertThat(matcher.findAll("xyz").isEmpty()).isTrue();
+    assertThat(matcher.findAll("").isEmpty()).isTrue();
+  }
+
+  private static int[] indices(BitSet found) {
+    return found.stream().toArray();
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.profile;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.AnalysisMode;
+import org.sonar.api.batch.postjob.PostJobContext;
+import org.sonar.api.batch.postjob.issue.PostJobIssue;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.config.Settings;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.samples.java.checks.AvoidMethodDeclarationRule;
+import org.sonar.samples.java.checks.CheckVerifier;
+import org.sonar.samples.java.checks.HttpStatusConsistencyRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RuleProfileReporterTest {
+
+  private static final String FILE = "src/test/files/HttpStatusConsistencyRule.java";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @After
+  public void stop_profiling() {
+    RuleProfiler.configure(new MapSettings().setProperty(RuleProfiler.ENABLED_KEY, "false").asConfig());
+  }
+
+  @Test
+  public void writes_the_rules_most_expensive_first() {
+    RuleProfiler profiler = profiler(2);
+    profiler.recordFile();
+    profiler.recordFile();
+    profiler.recordWalk(1200, 500_000L);
+    profiler.recordRule(AvoidMethodDeclarationRule.class, "A.java", 1_000_000L, 10, 1);
+    profiler.recordRule(HttpStatusConsistencyRule.class, "A.java", 1_500_000L, 30, 0);
+    profiler.recordRule(HttpStatusConsistencyRule.class, "B.java", 4_000_000L, 40, 2);
+    profiler.recordRule(HttpStatusConsistencyRule.class, "C.java", 2_500_000L, 20, 1);
+
+    assertThat(RuleProfileReporter.toJson(profiler)).isEqualTo("{\n"
+      + "  \"files\": 2,\n"
+      + "  \"walkNodes\": 1200,\n"
+      + "  \"walkOverheadMs\": 0.5,\n"
+      + "  \"rules\": [\n"
+      + "    {\n"
+      + "      \"key\": \"pfe-custom-rules:HttpStatusConsistency\",\n"
+      + "      \"timeMs\": 8.0,\n"
+      + "      \"nodes\": 90,\n"
+      + "      \"issues\": 3,\n"
+      + "      \"files\": 3,\n"
+      + "      \"slowestFiles\": [\n"
+      + "        {\n"
+      + "          \"file\": \"B.java\",\n"
+      + "          \"timeMs\": 4.0\n"
+      + "        },\n"
+      + "        {\n"
+      + "          \"file\": \"C.java\",\n"
+      + "          \"timeMs\": 2.5\n"
+      + "        }\n"
+      + "      ]\n"
+      + "    },\n"
+      + "    {\n"
+      + "      \"key\": \"AvoidMethodDeclaration\",\n"
+      + "      \"timeMs\": 1.0,\n"
+      + "      \"nodes\": 10,\n"
+      + "      \"issues\": 1,\n"
+      + "      \"files\": 1,\n"
+      + "      \"slowestFiles\": [\n"
+      + "        {\n"
+      + "          \"file\": \"A.java\",\n"
+      + "          \"timeMs\": 1.0\n"
+      + "        }\n"
+      + "      ]\n"
+      + "    }\n"
+      + "  ]\n"
+      + "}");
+    assertThat(RuleProfileReporter.toText(profiler)).isEqualTo(String.format(
+      "2 files, 1200 nodes walked, 9.0 ms in the rules, 0.5 ms walking the trees%n"
+        + "%n"
+        + "Rule                                                  Time (ms)       %%        Nodes   Issues%n"
+        + "pfe-custom-rules:HttpStatusConsistency                      8.0    88.9           90        3%n"
+        + "           4.0 ms  B.java%n"
+        + "           2.5 ms  C.java%n"
+        + "AvoidMethodDeclaration                                      1.0    11.1           10        1%n"
+        + "           1.0 ms  A.java%n"));
+  }
+
+  @Test
+  public void writes_the_profile_of_the_analysis_to_the_working_directory() throws IOException {
+    profiler(5);
+    int issues = CheckVerifier.issues(FILE, new HttpStatusConsistencyRule()).size();
+    int avoidIssues = CheckVerifier.issues(FILE, new AvoidMethodDeclarationRule()).size();
+    Path directory = temp.getRoot().toPath().resolve("scannerwork");
+
+    new RuleProfileReporter().execute(postJobContext(new MapSettings().setProperty("sonar.working.directory", directory.toString())));
+
+    JsonObject json = new JsonParser().parse(new String(Files.readAllBytes(directory.resolve(RuleProfileReporter.JSON_FILE)),
+      StandardCharsets.UTF_8)).getAsJsonObject();
+    assertThat(json.get("files").getAsLong()).isEqualTo(2);
+    assertThat(json.get("walkNodes").getAsLong()).isPositive();
+    Map<String, JsonObject> rules = new HashMap<>();
+    for (JsonElement rule : json.getAsJsonArray("rules")) {
+      rules.put(rule.getAsJsonObject().get("key").getAsString(), rule.getAsJsonObject());
+    }
+    assertThat(rules).containsOnlyKeys("pfe-custom-rules:HttpStatusConsistency", "AvoidMethodDeclaration");
+    assertRule(rules.get("pfe-custom-rules:HttpStatusConsistency"), issues);
+    assertRule(rules.get("AvoidMethodDeclaration"), avoidIssues);
+    assertThat(new String(Files.readAllBytes(directory.resolve(RuleProfileReporter.TEXT_FILE)), StandardCharsets.UTF_8))
+      .startsWith("2 files, ")
+      .contains("pfe-custom-rules:HttpStatusConsistency", "AvoidMethodDeclaration", "HttpStatusConsistencyRule.java");
+  }
+
+  @Test
+  public void writes_nothing_when_disabled_or_without_files() {
+    Path directory = temp.getRoot().toPath().resolve("scannerwork");
+    PostJobContext context = postJobContext(new MapSettings().setProperty("sonar.working.directory", directory.toString()));
+
+    profiler(5);
+    new RuleProfileReporter().execute(context);
+    assertThat(Files.exists(directory)).isFalse();
+
+    RuleProfiler.configure(new MapSettings().setProperty(RuleProfiler.ENABLED_KEY, "false").asConfig());
+    CheckVerifier.issues(FILE, new AvoidMethodDeclarationRule());
+    new RuleProfileReporter().execute(context);
+    assertThat(RuleProfiler.current().files()).isZero();
+    assertThat(Files.exists(directory)).isFalse();
+  }
+
+  private static void assertRule(JsonObject rule, int issues) {
+    assertThat(rule.get("issues").getAsInt()).isEqualTo(issues);
+    assertThat(rule.get("files").getAsInt()).isEqualTo(1);
+    assertThat(rule.get("nodes").getAsLong()).isPositive();
+    JsonArray slowestFiles = rule.getAsJsonArray("slowestFiles");
+    assertThat(slowestFiles).hasSize(1);
+    assertThat(slowestFiles.get(0).getAsJsonObject().get("file").getAsString()).endsWith("HttpStatusConsistencyRule.java");
+  }
+
+  private static RuleProfiler profiler(int slowestFiles) {
+    RuleProfiler.configure(new MapSettings().setProperty(RuleProfiler.SLOWEST_FILES_KEY, slowestFiles).asConfig());
+    return RuleProfiler.current();
+  }
+
+  private static PostJobContext postJobContext(MapSettings settings) {
+    return new PostJobContext() {
+      @Override
+      public Settings settings() {
+        return settings;
+      }
+
+      @Override
+      public Configuration config() {
+        return settings.asConfig();
+      }
+
+      @Override
+      public AnalysisMode analysisMode() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Iterable<PostJobIssue> issues() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Iterable<PostJobIssue> resolvedIssues() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * SonarQube Java Custom Rules Example
+ * Copyright (C) 2016-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.samples.java.registry.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RuleRegistryProcessorTest {
+
+  private static final Path FIXTURE = Paths.get("src/test/files/RuleRegistryProcessor");
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+  @Test
+  public void registers_the_instantiable_checks_with_their_factory() throws IOException {
+    Output output = compile(fixtureSources());
+
+    assertThat(output.succeeded).as("compilation, %s", diagnostics.getDiagnostics()).isTrue();
+    String registry = new String(Files.readAllBytes(output.sources.resolve("org/sonar/samples/java/registry/GeneratedRuleRegistry.java")),
+      StandardCharsets.UTF_8);
+    assertThat(registry)
+      .contains("new RuleDescriptor(\"InheritedKinds\", fixture.InheritedKindsCheck.class, fixture.InheritedKindsCheck::new, ANALYSIS)")
+      .contains("new RuleDescriptor(\"Reference\", fixture.ReferenceCheck.class, fixture.ReferenceCheck::new, ANALYSIS)")
+      .contains("new RuleDescriptor(\"repo:Semantic\", fixture.SemanticCheck.class, fixture.SemanticCheck::new, ANALYSIS)")
+      .contains("new RuleDescriptor(\"Syntax\", fixture.SyntaxCheck.class, fixture.SyntaxCheck::new, ANALYSIS)")
+      .doesNotContain("AbstractCheck");
+  }
+
+  /**
+   * The kinds are read whether the constants are qualified, imported or statically imported, and the semantic API is
+   * found behind calls and method references to the other classes of the compilation, whatever the JDK compiling.
+   */
+  @Test
+  public void records_the_kinds_and_the_semantic_usage_of_the_checks() throws IOException {
+    Output output = compile(fixtureSources());
+
+    assertThat(output.succeeded).as("compilation, %s", diagnostics.getDiagnostics()).isTrue();
+    assertThat(Files.readAllLines(output.classes.resolve("org/sonar/samples/java/registry/" + RuleRegistryProcessor.ANALYSIS_FILE))).containsExactly(
+      "fixture.InheritedKindsCheck\ttrue\tMETHOD",
+      "fixture.ReferenceCheck\tfalse\tMETHOD_INVOCATION",
+      "fixture.SemanticCheck\tfalse\tMETHOD_INVOCATION,NEW_CLASS",
+      "fixture.SyntaxCheck\ttrue\tMETHOD");
+  }
+
+  @Test
+  public void fails_on_a_check_the_analyzer_cannot_instantiate() throws IOException {
+    Path source = temp.newFolder().toPath().resolve("HiddenCheck.java");
+    Files.write(source, Arrays.asList(
+      "@org.sonar.check.Rule(key = \"Hidden\")",
+      "class HiddenCheck extends org.sonar.plugins.java.api.IssuableSubscriptionVisitor {",
+      "  public java.util.List<org.sonar.plugins.java.api.tree.Tree.Kind> nodesToVisit() {",
+      "    return java.util.Collections.emptyList();",
+      "  }",
+      "}"), StandardCharsets.UTF_8);
+
+    assertThat(compile(Collections.singletonList(source.toFile())).succeeded).isFalse();
+    assertThat(diagnostics.getDiagnostics())
+      .filteredOn(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+      .extracting(diagnostic -> diagnostic.getMessage(null))
+      .containsExactly("Rule classes must be public, and static when nested");
+  }
+
+  private static List<File> fixtureSources() throws IOException {
+    try (Stream<Path> paths = Files.walk(FIXTURE)) {
+      return paths.filter(path -> path.toString().endsWith(".java")).map(Path::toFile).sorted().collect(Collectors.toList());
+    }
+  }
+
+  private Output compile(List<File> sources) throws IOException {
+    Output output = new Output(temp.newFolder().toPath(), temp.newFolder().toPath());
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    // surefire runs the tests from a manifest-only jar, the class path of the tests is in its own property
+    String classpath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+    List<String> options = Arrays.asList("-nowarn", "-classpath", classpath,
+      "-d", output.classes.toString(), "-s", output.sources.toString());
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+      JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromFiles(sources));
+      task.setProcessors(Collections.singletonList(new RuleRegistryProcessor()));
+      output.succeeded = task.call();
+    }
+    return output;
+  }
+
+  private static final class Output {
+    private final Path classes;
+    private final Path sources;
+    private boolean succeeded;
+
+    private Output(Path classes, Path sources) {
+      this.classes = classes;
+      this.sources = sources;
+    }
+  }
+}